@@ -0,0 +1,124 @@
+package com.jerry.soundcode.concurrent.atomic;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+public class AtomicLongArray implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	private static final Unsafe unsafe = Unsafe.getUnsafe();
+
+	private static final int base = unsafe.arrayBaseOffset(long[].class);
+
+	private static final int scale = unsafe.arrayIndexScale(long[].class);
+
+	private final long[] array;
+
+	private long rawIndex(int i) {
+		if(i < 0 || i >= array.length) {
+			throw new IndexOutOfBoundsException("index " + i);
+		}
+		return base + (long) i * scale;
+	}
+
+	public AtomicLongArray(int length) {
+		array = new long[length];
+		if(length > 0) {
+			unsafe.putLongVolatile(array, rawIndex(0), 0);
+		}
+	}
+
+	public AtomicLongArray(long[] array) {
+		if(array == null) {
+			throw new NullPointerException();
+		}
+
+		int length = array.length;
+		this.array = new long[length];
+		if(length > 0) {
+			int last = length - 1;
+			for(int i = 0; i < last; ++i) {
+				this.array[i] = array[i];
+			}
+			unsafe.putLongVolatile(this.array, rawIndex(last), array[last]);
+		}
+	}
+
+	public final int length() {
+		return array.length;
+	}
+
+	public final long get(int i) {
+		return unsafe.getLongVolatile(array, rawIndex(i));
+	}
+
+	public final void set(int i, long newValue) {
+		unsafe.putLongVolatile(array, rawIndex(i), newValue);
+	}
+
+	public final void lazySet(int i, long newValue) {
+		unsafe.putOrderedLong(array, rawIndex(i), newValue);
+	}
+
+	public final long getAndSet(int i, long newValue) {
+		while(true) {
+			long current = get(i);
+			if(compareAndSet(i, current, newValue)) {
+				return current;
+			}
+		}
+	}
+
+	public final boolean compareAndSet(int i, long expect, long update) {
+		return unsafe.compareAndSwapLong(array, rawIndex(i), expect, update);
+	}
+
+	public final boolean weakCompareAndSet(int i, long expect, long update) {
+		return compareAndSet(i, expect, update);
+	}
+
+	public final long getAndIncrement(int i) {
+		return getAndAdd(i, 1);
+	}
+
+	public final long getAndDecrement(int i) {
+		return getAndAdd(i, -1);
+	}
+
+	public final long getAndAdd(int i, long delta) {
+		while(true) {
+			long current = get(i);
+			long next = current + delta;
+			if(compareAndSet(i, current, next)) {
+				return current;
+			}
+		}
+	}
+
+	public final long incrementAndGet(int i) {
+		return addAndGet(i, 1);
+	}
+
+	public final long decrementAndGet(int i) {
+		return addAndGet(i, -1);
+	}
+
+	public final long addAndGet(int i, long delta) {
+		while(true) {
+			long current = get(i);
+			long next = current + delta;
+			if(compareAndSet(i, current, next)) {
+				return next;
+			}
+		}
+	}
+
+	@Override
+	public String toString() {
+		if(array.length > 0) {
+			get(0);
+		}
+		return Arrays.toString(array);
+	}
+}
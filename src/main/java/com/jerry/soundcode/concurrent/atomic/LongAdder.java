@@ -0,0 +1,199 @@
+package com.jerry.soundcode.concurrent.atomic;
+
+import java.io.Serializable;
+
+/**
+ * 分段计数器：没有竞争时只 CAS 更新 base，CAS 失败后按线程散列到不同的 Cell 上累加，
+ * Cell 个数随冲突翻倍增长，最多到 CPU 个数。
+ * 读取时把 base 和所有 Cell 加起来，不加锁，并发修改时得到的是一个近似值。
+ */
+public class LongAdder extends Number implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	private static final int NCPU = Runtime.getRuntime().availableProcessors();
+
+	/** 填充到独占缓存行，避免不同 Cell 之间伪共享 */
+	static final class Cell extends AtomicLong {
+		private static final long serialVersionUID = 1L;
+		@SuppressWarnings("unused")
+		long q0, q1, q2, q3, q4, q5, q6, q7, q8, q9, qa, qb, qc, qd;
+
+		Cell(long x) {
+			super(x);
+		}
+	}
+
+	private static final ThreadLocal<int[]> probes = new ThreadLocal<int[]>() {
+		protected int[] initialValue() {
+			return new int[] { System.identityHashCode(Thread.currentThread()) | 1 };
+		}
+	};
+
+	private final Cell base = new Cell(0L);
+
+	private transient volatile Cell[] cells;
+
+	/** 创建和扩容 cells 时的自旋锁 */
+	private final AtomicInteger cellsBusy = new AtomicInteger();
+
+	public LongAdder() {
+	}
+
+	public void add(long x) {
+		Cell[] as = cells;
+		if (as == null) {
+			long b = base.get();
+			if (base.compareAndSet(b, b + x)) {
+				return;
+			}
+		}
+
+		final int[] probe = probes.get();
+		boolean collided = false;
+		for (;;) {
+			as = cells;
+			if (as == null) {
+				if (cellsBusy.get() == 0 && cellsBusy.compareAndSet(0, 1)) {
+					try {
+						if (cells == null) {
+							Cell[] rs = new Cell[2];
+							rs[probe[0] & 1] = new Cell(x);
+							cells = rs;
+							return;
+						}
+					} finally {
+						cellsBusy.set(0);
+					}
+				} else {
+					long b = base.get();
+					if (base.compareAndSet(b, b + x)) {
+						return;
+					}
+				}
+				continue;
+			}
+
+			int n = as.length;
+			Cell a = as[probe[0] & (n - 1)];
+			if (a == null) {
+				if (cellsBusy.get() == 0 && cellsBusy.compareAndSet(0, 1)) {
+					try {
+						Cell[] rs = cells;
+						int j = probe[0] & (rs.length - 1);
+						if (rs[j] == null) {
+							rs[j] = new Cell(x);
+							return;
+						}
+					} finally {
+						cellsBusy.set(0);
+					}
+					continue;
+				}
+				collided = false;
+			} else {
+				long v = a.get();
+				if (a.compareAndSet(v, v + x)) {
+					return;
+				}
+				if (collided && n < NCPU && cellsBusy.get() == 0 && cellsBusy.compareAndSet(0, 1)) {
+					try {
+						if (cells == as) {
+							Cell[] rs = new Cell[n << 1];
+							System.arraycopy(as, 0, rs, 0, n);
+							cells = rs;
+						}
+					} finally {
+						cellsBusy.set(0);
+					}
+					collided = false;
+					continue;
+				}
+				collided = true;
+			}
+			// 换一个 Cell 再试
+			int h = probe[0];
+			h ^= h << 13;
+			h ^= h >>> 17;
+			h ^= h << 5;
+			probe[0] = h;
+		}
+	}
+
+	public void increment() {
+		add(1L);
+	}
+
+	public void decrement() {
+		add(-1L);
+	}
+
+	public long sum() {
+		long sum = base.get();
+		Cell[] as = cells;
+		if (as != null) {
+			for (int i = 0; i < as.length; i++) {
+				Cell a = as[i];
+				if (a != null) {
+					sum += a.get();
+				}
+			}
+		}
+		return sum;
+	}
+
+	/**
+	 * 把所有计数清零，和 add 并发时可能丢掉一部分增量
+	 */
+	public void reset() {
+		base.set(0L);
+		Cell[] as = cells;
+		if (as != null) {
+			for (int i = 0; i < as.length; i++) {
+				Cell a = as[i];
+				if (a != null) {
+					a.set(0L);
+				}
+			}
+		}
+	}
+
+	public long sumThenReset() {
+		long sum = base.getAndSet(0L);
+		Cell[] as = cells;
+		if (as != null) {
+			for (int i = 0; i < as.length; i++) {
+				Cell a = as[i];
+				if (a != null) {
+					sum += a.getAndSet(0L);
+				}
+			}
+		}
+		return sum;
+	}
+
+	@Override
+	public String toString() {
+		return Long.toString(sum());
+	}
+
+	@Override
+	public long longValue() {
+		return sum();
+	}
+
+	@Override
+	public int intValue() {
+		return (int) sum();
+	}
+
+	@Override
+	public float floatValue() {
+		return (float) sum();
+	}
+
+	@Override
+	public double doubleValue() {
+		return (double) sum();
+	}
+}
@@ -64,15 +64,18 @@ public class ConcurrentLinkedQueue<E> extends AbstractQueue<E>
     public ConcurrentLinkedQueue() {}
 
     public ConcurrentLinkedQueue(Collection<? extends E> c) {
-//        for (Iterator<? extends E> it = c.iterator(); it.hasNext();)
-//            add(it.next());
+        offerAll(c);
     }
     
     public boolean add(E e) {
         return offer(e);
     }
     
-    private static final int HOPS = 1;
+    /**
+     * tail/head 允许落后的节点数，落后超过 HOPS 个节点才 CAS 更新，
+     * 大约每 HOPS + 1 次入队才更新一次 tail
+     */
+    private static final int HOPS = 2;
 
     final void updateHead(Node<E> h, Node<E> p) {
         if (h != p && casHead(h, p))
@@ -108,6 +111,90 @@ public class ConcurrentLinkedQueue<E> extends AbstractQueue<E>
         }
     }
     
+    /**
+     * 批量入队：先在本地把所有元素连成一条链，再用一次 CAS 把整条链挂到队尾，
+     * tail 直接指向链的最后一个节点。整条链对其他线程同时可见，入队的元素彼此相邻。
+     *
+     * @return 入队的元素个数
+     * @throws NullPointerException 集合中有 null 元素，此时队列没有变化
+     */
+    public int offerAll(Collection<? extends E> c) {
+        if (c == null) throw new NullPointerException();
+        Node<E> first = null;
+        Node<E> last = null;
+        int n = 0;
+        for (E e : c) {
+            if (e == null) throw new NullPointerException();
+            Node<E> node = new Node<E>(e);
+            if (first == null)
+                first = node;
+            else
+                last.lazySetNext(node);
+            last = node;
+            n++;
+        }
+        if (first == null)
+            return 0;
+        retry:
+        for (;;) {
+            Node<E> t = tail;
+            Node<E> p = t;
+            for (int hops = 0; ; hops++) {
+                Node<E> next = succ(p);
+                if (next != null) {
+                    if (hops > HOPS && t != tail)
+                        continue retry;
+                    p = next;
+                } else if (p.casNext(null, first)) {
+                    // 链上有多个节点时 tail 一定落后太多了
+                    if (hops >= HOPS || first != last)
+                        casTail(t, last); // Failure is OK.
+                    return n;
+                } else {
+                    p = succ(p);
+                }
+            }
+        }
+    }
+
+    /**
+     * 批量出队：从 head 开始依次取出最多 max 个元素交给 consumer，最后只更新一次 head。
+     * 每个元素仍然要 CAS 自己的 item，保证和并发的 poll 不会取到同一个元素，
+     * 但是没有竞争时这些 CAS 都会成功，head 上的竞争只有一次。
+     * <p>
+     * 元素取出后立即交给 consumer。consumer 抛出异常时，已经交出的元素（包括抛出异常的那一个）
+     * 都已经出队，不会放回队列；剩下的元素留在队列中，head 照常更新，异常原样抛出。
+     *
+     * @return 取出的元素个数
+     */
+    public int pollBatch(int max, MessageQueue.Consumer<? super E> consumer) {
+        if (consumer == null) throw new NullPointerException();
+        if (max <= 0)
+            return 0;
+        Node<E> h = head;
+        Node<E> p = h;
+        int n = 0;
+        try {
+            for (;;) {
+                E item = p.getItem();
+                if (item != null && p.casItem(item, null)) {
+                    consumer.accept(item);
+                    if (++n == max)
+                        break;
+                }
+                Node<E> next = succ(p);
+                if (next == null)
+                    break;
+                p = next;
+            }
+        } finally {
+            // p 已经被取走时 head 直接跳到它的下一个节点
+            Node<E> q = p.getNext();
+            updateHead(h, (p.getItem() == null && q != null && q != p) ? q : p);
+        }
+        return n;
+    }
+
     public E poll() {
         Node<E> h = head;
         Node<E> p = h;
@@ -3,6 +3,7 @@ package com.jerry.soundcode.concurrent.collection;
 import java.io.Serializable;
 import java.util.Arrays;
 import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
 
 import com.jerry.soundcode.concurrent.atomic.Unsafe;
 import com.jerry.soundcode.concurrent.locks.ReentrantLock;
@@ -20,6 +21,12 @@ public class CopyOnWriteArrayList<E>
 	transient final ReentrantLock lock = new ReentrantLock();
 	
 	private volatile transient Object[] array;
+
+	/** 是否合并并发的 add/addIfAbsent/remove(Object) */
+	private final boolean coalesceWrites;
+
+	/** 写合并模式下等待执行的写请求，后进先出的栈 */
+	private transient volatile WriteRequest pending;
 	
 	final Object[] getArray() {
 		return array;
@@ -30,10 +37,20 @@ public class CopyOnWriteArrayList<E>
 	}
 
 	public CopyOnWriteArrayList() {
+		this(false);
+	}
+
+	/**
+	 * @param coalesceWrites 为 true 时，同时到达的 add(E)、addIfAbsent、remove(Object)
+	 * 由抢到锁的那个线程在同一份副本上一起执行，只复制、发布一次数组
+	 */
+	public CopyOnWriteArrayList(boolean coalesceWrites) {
+		this.coalesceWrites = coalesceWrites;
 		setArray(new Object[0]);
 	}
 	
 	public CopyOnWriteArrayList(Collection<? extends E> c) {
+		this.coalesceWrites = false;
 		Object[] elements = c.toArray();
 		if(elements.getClass() != Object[].class) {
 			elements = Arrays.copyOf(elements, elements.length, Object[].class);
@@ -42,6 +59,7 @@ public class CopyOnWriteArrayList<E>
 	}
 	
 	public CopyOnWriteArrayList(E[] toCopyIn) {
+		this.coalesceWrites = false;
 		setArray(Arrays.copyOf(toCopyIn, toCopyIn.length, Object[].class));
 	}
 	
@@ -127,6 +145,7 @@ public class CopyOnWriteArrayList<E>
 		try {
 			CopyOnWriteArrayList c = (CopyOnWriteArrayList) (super.clone());
 			c.resetLock();
+			c.pending = null;
 			return c;
 		} catch (CloneNotSupportedException e) {
 			throw new InternalError();
@@ -188,6 +207,9 @@ public class CopyOnWriteArrayList<E>
 	
 	@Override
 	public boolean add(E e) {
+		if(coalesceWrites) {
+			return combine(ADD, e);
+		}
 		final ReentrantLock lock = this.lock;
 		lock.lock();
 		try {
@@ -254,6 +276,9 @@ public class CopyOnWriteArrayList<E>
 	
 	@Override
 	public boolean remove(Object o) {
+		if(coalesceWrites) {
+			return combine(REMOVE, o);
+		}
 		final ReentrantLock lock = this.lock;
 		lock.lock();
 		try {
@@ -276,7 +301,7 @@ public class CopyOnWriteArrayList<E>
 				
 				if(eq(o, elements[newLen])) {
 					setArray(newElements);
-					return false;
+					return true;
 				}
 			}
 			return false;
@@ -313,6 +338,9 @@ public class CopyOnWriteArrayList<E>
 	} 
 	
 	public boolean addIfAbsent(E e) {
+		if(coalesceWrites) {
+			return combine(ADD_IF_ABSENT, e);
+		}
 		final ReentrantLock lock = this.lock;
 		lock.lock();
 		try {
@@ -320,7 +348,7 @@ public class CopyOnWriteArrayList<E>
 			int len = elements.length;
 			Object[] newElements = new Object[len + 1];
 			for(int i = 0; i < len; ++i) {
-				if(eq(e, elements)) {
+				if(eq(e, elements[i])) {
 					return false;
 				} else {
 					newElements[i] = elements[i];
@@ -498,6 +526,322 @@ public class CopyOnWriteArrayList<E>
 		}
 	}
 	
+	/**
+	 * 打开一个批量修改，在返回的 Batch 上做的所有修改只复制一次数组，publish 时一次性发布。
+	 *
+	 * 打开期间当前线程持有写锁，其他线程的写操作会阻塞，读操作看到的仍然是打开之前的数组。
+	 * 必须由同一个线程调用 publish 或 abort 释放锁，通常写成：
+	 * <pre>
+	 * Batch b = list.batch();
+	 * try {
+	 *     ...
+	 *     b.publish();
+	 * } finally {
+	 *     b.abort();
+	 * }
+	 * </pre>
+	 */
+	public Batch batch() {
+		lock.lock();
+		return new Batch();
+	}
+
+	/**
+	 * 批量修改的工作副本。第一次修改时复制数组并留出余量，之后的修改都在副本上原地进行，
+	 * 一次批量修改的总复制量是 O(n + k)，而不是逐个调用 add 时的 O(n * k)。
+	 */
+	public final class Batch {
+
+		private Object[] elements;
+
+		private int size;
+
+		/** elements 是否已经是私有的副本 */
+		private boolean copied;
+
+		private boolean closed;
+
+		Batch() {
+			elements = getArray();
+			size = elements.length;
+		}
+
+		private void checkOpen() {
+			if(closed || !lock.isHeldByCurrentThread()) {
+				throw new IllegalStateException();
+			}
+		}
+
+		private void rangeCheck(int index) {
+			if(index >= size || index < 0) {
+				throw new IndexOutOfBoundsException("Index: "+index+ ", Size: "+size);
+			}
+		}
+
+		/**
+		 * 保证 elements 是私有的副本并且能容纳 minCapacity 个元素
+		 */
+		private void ensureCapacity(int minCapacity) {
+			int len = elements.length;
+			if(copied && minCapacity <= len) {
+				return;
+			}
+			int newCapacity;
+			if(!copied && minCapacity <= size) {
+				newCapacity = size;
+			} else {
+				newCapacity = Math.max(minCapacity, len + (len >> 1) + 1);
+			}
+			elements = Arrays.copyOf(elements, newCapacity);
+			copied = true;
+		}
+
+		public int size() {
+			checkOpen();
+			return size;
+		}
+
+		@SuppressWarnings("unchecked")
+		public E get(int index) {
+			checkOpen();
+			rangeCheck(index);
+			return (E) elements[index];
+		}
+
+		public int indexOf(Object o) {
+			checkOpen();
+			return CopyOnWriteArrayList.indexOf(o, elements, 0, size);
+		}
+
+		public boolean contains(Object o) {
+			return indexOf(o) >= 0;
+		}
+
+		public boolean add(E e) {
+			checkOpen();
+			ensureCapacity(size + 1);
+			elements[size++] = e;
+			return true;
+		}
+
+		public void add(int index, E element) {
+			checkOpen();
+			if(index > size || index < 0) {
+				throw new IndexOutOfBoundsException("Index: "+index+ ", Size: "+size);
+			}
+			ensureCapacity(size + 1);
+			System.arraycopy(elements, index, elements, index + 1, size - index);
+			elements[index] = element;
+			size++;
+		}
+
+		public boolean addAll(Collection<? extends E> c) {
+			checkOpen();
+			Object[] cs = c.toArray();
+			if(cs.length == 0) {
+				return false;
+			}
+			ensureCapacity(size + cs.length);
+			System.arraycopy(cs, 0, elements, size, cs.length);
+			size += cs.length;
+			return true;
+		}
+
+		public boolean addIfAbsent(E e) {
+			if(indexOf(e) >= 0) {
+				return false;
+			}
+			return add(e);
+		}
+
+		@SuppressWarnings("unchecked")
+		public E set(int index, E element) {
+			checkOpen();
+			rangeCheck(index);
+			Object oldValue = elements[index];
+			if(oldValue != element) {
+				ensureCapacity(size);
+				elements[index] = element;
+			}
+			return (E) oldValue;
+		}
+
+		@SuppressWarnings("unchecked")
+		public E remove(int index) {
+			checkOpen();
+			rangeCheck(index);
+			ensureCapacity(size);
+			Object oldValue = elements[index];
+			int numMoved = size - index - 1;
+			if(numMoved > 0) {
+				System.arraycopy(elements, index + 1, elements, index, numMoved);
+			}
+			elements[--size] = null;
+			return (E) oldValue;
+		}
+
+		public boolean remove(Object o) {
+			int index = indexOf(o);
+			if(index < 0) {
+				return false;
+			}
+			remove(index);
+			return true;
+		}
+
+		public void clear() {
+			checkOpen();
+			elements = new Object[0];
+			size = 0;
+			copied = true;
+		}
+
+		/**
+		 * 发布所有修改并释放写锁，之后这个 Batch 不能再使用
+		 */
+		public void publish() {
+			checkOpen();
+			closed = true;
+			try {
+				install();
+			} finally {
+				lock.unlock();
+			}
+		}
+
+		/**
+		 * 放弃还没有发布的修改并释放写锁，已经 publish 或 abort 过时什么也不做
+		 */
+		public void abort() {
+			if(!closed && lock.isHeldByCurrentThread()) {
+				closed = true;
+				lock.unlock();
+			}
+		}
+
+		void install() {
+			if(copied) {
+				setArray(size == elements.length ? elements : Arrays.copyOf(elements, size));
+			}
+		}
+	}
+
+	private static final int ADD = 0;
+
+	private static final int ADD_IF_ABSENT = 1;
+
+	private static final int REMOVE = 2;
+
+	/** 合并者发布之前最多收集几轮新到达的请求 */
+	private static final int MAX_COMBINE_PASSES = 4;
+
+	static final class WriteRequest {
+		final int op;
+		final Object element;
+		WriteRequest next;
+		boolean result;
+		RuntimeException failure;
+		volatile boolean done;
+
+		WriteRequest(int op, Object element) {
+			this.op = op;
+			this.element = element;
+		}
+	}
+
+	@SuppressWarnings("rawtypes")
+	private static final AtomicReferenceFieldUpdater<CopyOnWriteArrayList, WriteRequest> pendingUpdater =
+		AtomicReferenceFieldUpdater.newUpdater(CopyOnWriteArrayList.class, WriteRequest.class, "pending");
+
+	/**
+	 * 写合并：把请求压入 pending，然后尝试获取写锁。抢到锁的线程成为合并者，
+	 * 执行当时所有等待的请求并发布一次；没抢到的线程等待自己的请求被别人执行，或者锁空闲后自己来做。
+	 */
+	private boolean combine(int op, Object e) {
+		WriteRequest r = new WriteRequest(op, e);
+		WriteRequest h;
+		do {
+			h = pending;
+			r.next = h;
+		} while(!pendingUpdater.compareAndSet(this, h, r));
+
+		final ReentrantLock lock = this.lock;
+		while(!r.done) {
+			if(lock.tryLock()) {
+				try {
+					applyPending();
+				} finally {
+					lock.unlock();
+				}
+			} else {
+				Thread.yield();
+			}
+		}
+		if(r.failure != null) {
+			throw r.failure;
+		}
+		return r.result;
+	}
+
+	/**
+	 * 持有写锁时调用，在同一个 Batch 上按到达顺序执行所有等待的请求，只发布一次
+	 */
+	@SuppressWarnings("unchecked")
+	private void applyPending() {
+		WriteRequest stack = pendingUpdater.getAndSet(this, null);
+		if(stack == null) {
+			return;
+		}
+		Batch batch = new Batch();
+		WriteRequest applied = null;
+		for(int pass = 0; ; ) {
+			// 栈是后进先出的，反转后按到达顺序执行
+			WriteRequest fifo = null;
+			while(stack != null) {
+				WriteRequest next = stack.next;
+				stack.next = fifo;
+				fifo = stack;
+				stack = next;
+			}
+			while(fifo != null) {
+				WriteRequest r = fifo;
+				fifo = r.next;
+				try {
+					switch(r.op) {
+					case ADD:
+						r.result = batch.add((E) r.element);
+						break;
+					case ADD_IF_ABSENT:
+						r.result = batch.addIfAbsent((E) r.element);
+						break;
+					default:
+						r.result = batch.remove(r.element);
+						break;
+					}
+				} catch(RuntimeException ex) {
+					r.failure = ex;
+				}
+				r.next = applied;
+				applied = r;
+			}
+			if(++pass >= MAX_COMBINE_PASSES || pending == null) {
+				break;
+			}
+			stack = pendingUpdater.getAndSet(this, null);
+		}
+
+		try {
+			batch.install();
+		} finally {
+			while(applied != null) {
+				WriteRequest r = applied;
+				applied = r.next;
+				r.next = null;
+				r.done = true;
+			}
+		}
+	}
+	
 	private void writeObject(java.io.ObjectOutputStream s)
 			throws java.io.IOException{
 
@@ -0,0 +1,391 @@
+package com.jerry.soundcode.concurrent.collection;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+import com.jerry.soundcode.concurrent.atomic.Unsafe;
+import com.jerry.soundcode.concurrent.locks.ReentrantLock;
+import com.jerry.soundcode.list.Collection;
+import com.jerry.soundcode.list.Iterator;
+import com.jerry.soundcode.set.AbstractSet;
+
+/**
+ * 写时复制的 Set，contains 为 O(1)。
+ *
+ * CopyOnWriteArraySet 的 contains 和 add 都要线性扫描整个数组，元素多、查询频繁时代价很高。
+ * 这里每个快照是一个不可变的 Table：按插入顺序存放的元素数组、对应的 hash 数组，
+ * 以及一个线性探测的开放寻址索引，索引中存放元素在数组中的下标加一。
+ * 修改时在锁内复制出新的 Table 再整体发布，读操作和迭代只读取 volatile 的 table，不加锁也不重试。
+ *
+ * 删除元素后下标会移动，需要重建索引，但重建使用缓存的 hash，不会再调用 hashCode。
+ */
+public class CopyOnWriteHashSet<E> extends AbstractSet<E> implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	private static final int MIN_INDEX_CAPACITY = 8;
+
+	/**
+	 * 不可变的快照，索引的负载因子不超过 0.5，探测时一定能遇到空槽
+	 */
+	static final class Table {
+		static final Table EMPTY = new Table(new Object[0], new int[0], new int[MIN_INDEX_CAPACITY]);
+
+		final Object[] elements;
+		final int[] hashes;
+		final int[] index;
+
+		Table(Object[] elements, int[] hashes, int[] index) {
+			this.elements = elements;
+			this.hashes = hashes;
+			this.index = index;
+		}
+
+		int find(Object o, int h) {
+			return CopyOnWriteHashSet.find(elements, hashes, index, o, h);
+		}
+	}
+
+	transient final ReentrantLock lock = new ReentrantLock();
+
+	private volatile transient Table table;
+
+	public CopyOnWriteHashSet() {
+		table = Table.EMPTY;
+	}
+
+	public CopyOnWriteHashSet(Collection<? extends E> c) {
+		table = Table.EMPTY;
+		addAll(c);
+	}
+
+	static int hash(Object o) {
+		if(o == null) {
+			return 0;
+		}
+		int h = o.hashCode();
+		return h ^ (h >>> 16);
+	}
+
+	private static boolean eq(Object o1, Object o2) {
+		return (o1 == null ? o2 == null : o1.equals(o2));
+	}
+
+	private static int find(Object[] elements, int[] hashes, int[] index, Object o, int h) {
+		int mask = index.length - 1;
+		for(int i = h & mask; ; i = (i + 1) & mask) {
+			int p = index[i];
+			if(p == 0) {
+				return -1;
+			}
+			p--;
+			if(hashes[p] == h && eq(o, elements[p])) {
+				return p;
+			}
+		}
+	}
+
+	private static void insert(int[] index, int h, int p) {
+		int mask = index.length - 1;
+		int i = h & mask;
+		while(index[i] != 0) {
+			i = (i + 1) & mask;
+		}
+		index[i] = p + 1;
+	}
+
+	/**
+	 * 能容纳 n 个元素、负载因子不超过 0.5 的索引长度
+	 */
+	private static int indexCapacity(int n) {
+		int cap = MIN_INDEX_CAPACITY;
+		while(cap < (n << 1) && cap > 0) {
+			cap <<= 1;
+		}
+		if(cap <= 0) {
+			throw new OutOfMemoryError();
+		}
+		return cap;
+	}
+
+	private static int[] buildIndex(int[] hashes, int n) {
+		int[] index = new int[indexCapacity(n)];
+		for(int p = 0; p < n; p++) {
+			insert(index, hashes[p], p);
+		}
+		return index;
+	}
+
+	@Override
+	public int size() {
+		return table.elements.length;
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return size() == 0;
+	}
+
+	@Override
+	public boolean contains(Object o) {
+		return table.find(o, hash(o)) >= 0;
+	}
+
+	@Override
+	public boolean containsAll(Collection<?> c) {
+		Table t = table;
+		for(Iterator<?> it = c.iterator(); it.hasNext(); ) {
+			Object o = it.next();
+			if(t.find(o, hash(o)) < 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	@Override
+	public Object[] toArray() {
+		Object[] elements = table.elements;
+		return Arrays.copyOf(elements, elements.length);
+	}
+
+	@SuppressWarnings("unchecked")
+	@Override
+	public <T> T[] toArray(T[] a) {
+		Object[] elements = table.elements;
+		int len = elements.length;
+		if(a.length < len) {
+			return (T[]) Arrays.copyOf(elements, len, a.getClass());
+		}
+		System.arraycopy(elements, 0, a, 0, len);
+		if(a.length > len) {
+			a[len] = null;
+		}
+		return a;
+	}
+
+	@Override
+	public boolean add(E e) {
+		int h = hash(e);
+		final ReentrantLock lock = this.lock;
+		lock.lock();
+		try {
+			Table t = table;
+			if(t.find(e, h) >= 0) {
+				return false;
+			}
+			int n = t.elements.length;
+			Object[] elements = Arrays.copyOf(t.elements, n + 1);
+			int[] hashes = Arrays.copyOf(t.hashes, n + 1);
+			elements[n] = e;
+			hashes[n] = h;
+			int[] index;
+			if(((n + 1) << 1) > t.index.length) {
+				index = buildIndex(hashes, n + 1);
+			} else {
+				index = t.index.clone();
+				insert(index, h, n);
+			}
+			table = new Table(elements, hashes, index);
+			return true;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public boolean remove(Object o) {
+		int h = hash(o);
+		final ReentrantLock lock = this.lock;
+		lock.lock();
+		try {
+			Table t = table;
+			int p = t.find(o, h);
+			if(p < 0) {
+				return false;
+			}
+			int n = t.elements.length - 1;
+			Object[] elements = new Object[n];
+			int[] hashes = new int[n];
+			System.arraycopy(t.elements, 0, elements, 0, p);
+			System.arraycopy(t.elements, p + 1, elements, p, n - p);
+			System.arraycopy(t.hashes, 0, hashes, 0, p);
+			System.arraycopy(t.hashes, p + 1, hashes, p, n - p);
+			table = new Table(elements, hashes, buildIndex(hashes, n));
+			return true;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * 只复制、发布一次
+	 */
+	@Override
+	public boolean addAll(Collection<? extends E> c) {
+		Object[] cs = c.toArray();
+		if(cs.length == 0) {
+			return false;
+		}
+		final ReentrantLock lock = this.lock;
+		lock.lock();
+		try {
+			Table t = table;
+			int n = t.elements.length;
+			Object[] elements = Arrays.copyOf(t.elements, n + cs.length);
+			int[] hashes = Arrays.copyOf(t.hashes, n + cs.length);
+			int[] index = new int[indexCapacity(n + cs.length)];
+			for(int p = 0; p < n; p++) {
+				insert(index, hashes[p], p);
+			}
+			int added = 0;
+			for(Object e : cs) {
+				int h = hash(e);
+				if(find(elements, hashes, index, e, h) < 0) {
+					elements[n + added] = e;
+					hashes[n + added] = h;
+					insert(index, h, n + added);
+					added++;
+				}
+			}
+			if(added == 0) {
+				return false;
+			}
+			if(added < cs.length) {
+				elements = Arrays.copyOf(elements, n + added);
+				hashes = Arrays.copyOf(hashes, n + added);
+			}
+			table = new Table(elements, hashes, index);
+			return true;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	private boolean filter(Collection<?> c, boolean keep) {
+		final ReentrantLock lock = this.lock;
+		lock.lock();
+		try {
+			Table t = table;
+			int len = t.elements.length;
+			Object[] elements = new Object[len];
+			int[] hashes = new int[len];
+			int n = 0;
+			for(int p = 0; p < len; p++) {
+				Object e = t.elements[p];
+				if(c.contains(e) == keep) {
+					elements[n] = e;
+					hashes[n] = t.hashes[p];
+					n++;
+				}
+			}
+			if(n == len) {
+				return false;
+			}
+			elements = Arrays.copyOf(elements, n);
+			hashes = Arrays.copyOf(hashes, n);
+			table = new Table(elements, hashes, buildIndex(hashes, n));
+			return true;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public boolean removeAll(Collection<?> c) {
+		return filter(c, false);
+	}
+
+	@Override
+	public boolean retainAll(Collection<?> c) {
+		return filter(c, true);
+	}
+
+	@Override
+	public void clear() {
+		final ReentrantLock lock = this.lock;
+		lock.lock();
+		try {
+			table = Table.EMPTY;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * 按插入顺序遍历创建时的快照，不支持 remove
+	 */
+	@Override
+	public Iterator<E> iterator() {
+		return new COWIterator<E>(table.elements);
+	}
+
+	private static class COWIterator<E> implements Iterator<E> {
+		private final Object[] snapshot;
+
+		private int cursor;
+
+		private COWIterator(Object[] elements) {
+			snapshot = elements;
+		}
+
+		@Override
+		public boolean hasNext() {
+			return cursor < snapshot.length;
+		}
+
+		@SuppressWarnings("unchecked")
+		@Override
+		public E next() {
+			if(!hasNext()) {
+				throw new NoSuchElementException();
+			}
+			return (E) snapshot[cursor++];
+		}
+
+		@Override
+		public void remove() {
+			throw new UnsupportedOperationException();
+		}
+	}
+
+	private void writeObject(java.io.ObjectOutputStream s)
+			throws java.io.IOException{
+
+		s.defaultWriteObject();
+
+		Object[] elements = table.elements;
+		int len = elements.length;
+		s.writeInt(len);
+		for (int i = 0; i < len; i++)
+			s.writeObject(elements[i]);
+	}
+
+	private void readObject(java.io.ObjectInputStream s)
+		throws java.io.IOException, ClassNotFoundException {
+		s.defaultReadObject();
+		resetLock();
+		int len = s.readInt();
+		Object[] elements = new Object[len];
+		int[] hashes = new int[len];
+		for (int i = 0; i < len; i++) {
+			elements[i] = s.readObject();
+			hashes[i] = hash(elements[i]);
+		}
+		table = new Table(elements, hashes, buildIndex(hashes, len));
+	}
+
+	private static final Unsafe unsafe = Unsafe.getUnsafe();
+	private static final long lockOffset;
+
+	static {
+		try {
+			lockOffset = unsafe.objectFieldOffset(CopyOnWriteHashSet.class.getDeclaredField("lock"));
+		} catch(Exception e) {throw new Error(e);}
+	}
+
+	private void resetLock() {
+		unsafe.putObjectVolatile(this, lockOffset, new ReentrantLock());
+	}
+}
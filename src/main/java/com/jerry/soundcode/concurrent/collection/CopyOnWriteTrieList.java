@@ -0,0 +1,880 @@
+package com.jerry.soundcode.concurrent.collection;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+import com.jerry.soundcode.concurrent.atomic.Unsafe;
+import com.jerry.soundcode.concurrent.locks.ReentrantLock;
+import com.jerry.soundcode.list.Collection;
+import com.jerry.soundcode.list.Iterator;
+import com.jerry.soundcode.list.List;
+import com.jerry.soundcode.list.ListIterator;
+import com.jerry.soundcode.list.RandomAccess;
+
+/**
+ * 写时复制的 List，和 CopyOnWriteArrayList 的语义相同，但是底层不是一个数组，而是 32 叉的持久化向量。
+ *
+ * 元素按下标分成 32 个一组的叶子节点，叶子挂在 32 叉树上，最后不满 32 个的一组单独放在 tail 中。
+ * 每次修改只复制从根到被修改叶子的那一条路径（O(log32 n) 个 32 长度的数组），
+ * 其余节点新旧版本共享，百万元素时一次 set 只复制 4 个数组，而不是整个 4~8MB 的数组。
+ *
+ * 读操作不加锁，直接读取 volatile 的 vec，迭代器遍历的是创建时的快照，和 COWIterator 一样不支持修改。
+ * get 需要 O(log32 n) 次数组访问；尾部的 add 和 remove 大多只复制 tail，
+ * 中间位置的 add(index)/remove(index) 需要重建 index 之后的部分，index 之前的叶子直接共享。
+ */
+public class CopyOnWriteTrieList<E>
+	implements List<E>, RandomAccess, Cloneable, Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	private static final int BITS = 5;
+
+	private static final int WIDTH = 1 << BITS;
+
+	private static final int MASK = WIDTH - 1;
+
+	private static final Object[] EMPTY_NODE = new Object[WIDTH];
+
+	private static final Object[] EMPTY_TAIL = new Object[0];
+
+	/**
+	 * 不可变的持久化向量，shift 为根节点的层数乘以 5，tail 的长度就是 tail 中元素的个数
+	 */
+	static final class Vec {
+		static final Vec EMPTY = new Vec(0, BITS, EMPTY_NODE, EMPTY_TAIL);
+
+		final int size;
+		final int shift;
+		final Object[] root;
+		final Object[] tail;
+
+		Vec(int size, int shift, Object[] root, Object[] tail) {
+			this.size = size;
+			this.shift = shift;
+			this.root = root;
+			this.tail = tail;
+		}
+
+		int tailOffset() {
+			return (size < WIDTH) ? 0 : ((size - 1) >>> BITS) << BITS;
+		}
+
+		/**
+		 * 下标 i 所在的叶子
+		 */
+		Object[] arrayFor(int i) {
+			if(i >= tailOffset()) {
+				return tail;
+			}
+			Object[] node = root;
+			for(int level = shift; level > 0; level -= BITS) {
+				node = (Object[]) node[(i >>> level) & MASK];
+			}
+			return node;
+		}
+
+		Object get(int i) {
+			return arrayFor(i)[i & MASK];
+		}
+
+		Vec set(int i, Object e) {
+			if(i >= tailOffset()) {
+				Object[] newTail = tail.clone();
+				newTail[i & MASK] = e;
+				return new Vec(size, shift, root, newTail);
+			}
+			return new Vec(size, shift, doSet(shift, root, i, e), tail);
+		}
+
+		private static Object[] doSet(int level, Object[] node, int i, Object e) {
+			Object[] ret = node.clone();
+			if(level == 0) {
+				ret[i & MASK] = e;
+			} else {
+				int sub = (i >>> level) & MASK;
+				ret[sub] = doSet(level - BITS, (Object[]) node[sub], i, e);
+			}
+			return ret;
+		}
+
+		Vec add(Object e) {
+			int tailLen = size - tailOffset();
+			if(tailLen < WIDTH) {
+				Object[] newTail = Arrays.copyOf(tail, tailLen + 1);
+				newTail[tailLen] = e;
+				return new Vec(size + 1, shift, root, newTail);
+			}
+			// tail 已满，放进树中
+			Object[] newRoot;
+			int newShift = shift;
+			if((size >>> BITS) > (1 << shift)) {
+				newRoot = new Object[WIDTH];
+				newRoot[0] = root;
+				newRoot[1] = newPath(shift, tail);
+				newShift += BITS;
+			} else {
+				newRoot = pushTail(shift, root, tail);
+			}
+			return new Vec(size + 1, newShift, newRoot, new Object[] { e });
+		}
+
+		private Object[] pushTail(int level, Object[] parent, Object[] tailNode) {
+			int sub = ((size - 1) >>> level) & MASK;
+			Object[] ret = parent.clone();
+			Object[] toInsert;
+			if(level == BITS) {
+				toInsert = tailNode;
+			} else {
+				Object[] child = (Object[]) parent[sub];
+				toInsert = (child != null) ? pushTail(level - BITS, child, tailNode) : newPath(level - BITS, tailNode);
+			}
+			ret[sub] = toInsert;
+			return ret;
+		}
+
+		private static Object[] newPath(int level, Object[] node) {
+			if(level == 0) {
+				return node;
+			}
+			Object[] ret = new Object[WIDTH];
+			ret[0] = newPath(level - BITS, node);
+			return ret;
+		}
+
+		/**
+		 * 删除最后一个元素
+		 */
+		Vec pop() {
+			if(size == 1) {
+				return EMPTY;
+			}
+			int tailLen = size - tailOffset();
+			if(tailLen > 1) {
+				return new Vec(size - 1, shift, root, Arrays.copyOf(tail, tailLen - 1));
+			}
+			// tail 只剩一个元素，把树中最后一个叶子取出来作为新的 tail
+			Object[] newTail = arrayFor(size - 2);
+			Object[] newRoot = popTail(shift, root);
+			int newShift = shift;
+			if(newRoot == null) {
+				newRoot = EMPTY_NODE;
+			}
+			if(shift > BITS && newRoot[1] == null) {
+				newRoot = (Object[]) newRoot[0];
+				newShift -= BITS;
+			}
+			return new Vec(size - 1, newShift, newRoot, newTail);
+		}
+
+		private Object[] popTail(int level, Object[] node) {
+			int sub = ((size - 2) >>> level) & MASK;
+			if(level > BITS) {
+				Object[] newChild = popTail(level - BITS, (Object[]) node[sub]);
+				if(newChild == null && sub == 0) {
+					return null;
+				}
+				Object[] ret = node.clone();
+				ret[sub] = newChild;
+				return ret;
+			} else if(sub == 0) {
+				return null;
+			} else {
+				Object[] ret = node.clone();
+				ret[sub] = null;
+				return ret;
+			}
+		}
+
+		void copyTo(Object[] a, int offset) {
+			int tailOffset = tailOffset();
+			for(int base = 0; base < tailOffset; base += WIDTH) {
+				System.arraycopy(arrayFor(base), 0, a, offset + base, WIDTH);
+			}
+			System.arraycopy(tail, 0, a, offset + tailOffset, size - tailOffset);
+		}
+	}
+
+	/**
+	 * 从头开始构造一个新的 Vec，叶子写满 32 个后才放进树中，最后自底向上建树。
+	 * 从下标 0 开始没有修改过的整叶子可以用 appendLeaf 直接共享。
+	 */
+	static final class Builder {
+		private Object[][] leaves = new Object[16][];
+		private int leafCount;
+		private Object[] leaf = new Object[WIDTH];
+		private int leafSize;
+
+		void add(Object e) {
+			if(leafSize == WIDTH) {
+				pushLeaf(leaf);
+				leaf = new Object[WIDTH];
+				leafSize = 0;
+			}
+			leaf[leafSize++] = e;
+		}
+
+		/**
+		 * 当前位置在叶子边界上时直接共享一个已满的叶子
+		 */
+		void appendLeaf(Object[] full) {
+			if(leafSize == WIDTH) {
+				pushLeaf(leaf);
+				leaf = full;
+			} else if(leafSize == 0) {
+				leaf = full;
+				leafSize = WIDTH;
+			} else {
+				for(Object e : full) {
+					add(e);
+				}
+				return;
+			}
+			leafSize = WIDTH;
+		}
+
+		void addAll(Object[] a, int from, int to) {
+			for(int i = from; i < to; i++) {
+				add(a[i]);
+			}
+		}
+
+		/**
+		 * 把 v 中 [from, to) 的元素依次加进来
+		 */
+		void addRange(Vec v, int from, int to) {
+			int i = from;
+			while(i < to) {
+				Object[] a = v.arrayFor(i);
+				int off = i & MASK;
+				int n = Math.min(to - i, a.length - off);
+				if(off == 0 && n == WIDTH && (leafSize == 0 || leafSize == WIDTH)) {
+					appendLeaf(a);
+				} else {
+					addAll(a, off, off + n);
+				}
+				i += n;
+			}
+		}
+
+		private void pushLeaf(Object[] l) {
+			if(leafCount == leaves.length) {
+				leaves = Arrays.copyOf(leaves, leafCount << 1);
+			}
+			leaves[leafCount++] = l;
+		}
+
+		Vec build() {
+			int size = (leafCount << BITS) + leafSize;
+			if(size == 0) {
+				return Vec.EMPTY;
+			}
+			Object[] tail = (leafSize == WIDTH) ? leaf : Arrays.copyOf(leaf, leafSize);
+			if(leafCount == 0) {
+				return new Vec(size, BITS, EMPTY_NODE, tail);
+			}
+			Object[] nodes = Arrays.copyOf(leaves, leafCount, Object[].class);
+			int shift = BITS;
+			while(nodes.length > WIDTH) {
+				Object[] parents = new Object[(nodes.length + MASK) >>> BITS];
+				for(int p = 0; p < parents.length; p++) {
+					Object[] parent = new Object[WIDTH];
+					int from = p << BITS;
+					System.arraycopy(nodes, from, parent, 0, Math.min(WIDTH, nodes.length - from));
+					parents[p] = parent;
+				}
+				nodes = parents;
+				shift += BITS;
+			}
+			Object[] root = new Object[WIDTH];
+			System.arraycopy(nodes, 0, root, 0, nodes.length);
+			return new Vec(size, shift, root, tail);
+		}
+	}
+
+	transient final ReentrantLock lock = new ReentrantLock();
+
+	private volatile transient Vec vec;
+
+	final Vec getVec() {
+		return vec;
+	}
+
+	final void setVec(Vec v) {
+		vec = v;
+	}
+
+	public CopyOnWriteTrieList() {
+		setVec(Vec.EMPTY);
+	}
+
+	public CopyOnWriteTrieList(Collection<? extends E> c) {
+		Builder b = new Builder();
+		Object[] cs = c.toArray();
+		b.addAll(cs, 0, cs.length);
+		setVec(b.build());
+	}
+
+	public CopyOnWriteTrieList(E[] toCopyIn) {
+		Builder b = new Builder();
+		b.addAll(toCopyIn, 0, toCopyIn.length);
+		setVec(b.build());
+	}
+
+	@Override
+	public int size() {
+		return getVec().size;
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return size() == 0;
+	}
+
+	private static boolean eq(Object o1, Object o2) {
+		return (o1 == null ? o2 == null : o1.equals(o2));
+	}
+
+	private static int indexOf(Object o, Vec v, int index) {
+		int size = v.size;
+		int i = Math.max(index, 0);
+		while(i < size) {
+			Object[] a = v.arrayFor(i);
+			int base = i & ~MASK;
+			int end = Math.min(a.length, size - base);
+			for(int k = i & MASK; k < end; k++) {
+				if(eq(o, a[k])) {
+					return base + k;
+				}
+			}
+			i = base + WIDTH;
+		}
+		return -1;
+	}
+
+	private static int lastIndexOf(Object o, Vec v, int index) {
+		int i = Math.min(index, v.size - 1);
+		while(i >= 0) {
+			Object[] a = v.arrayFor(i);
+			int base = i & ~MASK;
+			for(int k = i & MASK; k >= 0; k--) {
+				if(eq(o, a[k])) {
+					return base + k;
+				}
+			}
+			i = base - 1;
+		}
+		return -1;
+	}
+
+	@Override
+	public boolean contains(Object o) {
+		return indexOf(o, getVec(), 0) >= 0;
+	}
+
+	@Override
+	public int indexOf(Object o) {
+		return indexOf(o, getVec(), 0);
+	}
+
+	public int indexOf(E e, int index) {
+		return indexOf(e, getVec(), index);
+	}
+
+	@Override
+	public int lastIndexOf(Object o) {
+		Vec v = getVec();
+		return lastIndexOf(o, v, v.size - 1);
+	}
+
+	public int lastIndexOf(E e, int index) {
+		Vec v = getVec();
+		if(index >= v.size) {
+			throw new IndexOutOfBoundsException(index + " >= " + v.size);
+		}
+		return lastIndexOf(e, v, index);
+	}
+
+	@SuppressWarnings("rawtypes")
+	@Override
+	public Object clone() {
+		try {
+			CopyOnWriteTrieList c = (CopyOnWriteTrieList) (super.clone());
+			c.resetLock();
+			return c;
+		} catch (CloneNotSupportedException e) {
+			throw new InternalError();
+		}
+	}
+
+	@Override
+	public Object[] toArray() {
+		Vec v = getVec();
+		Object[] a = new Object[v.size];
+		v.copyTo(a, 0);
+		return a;
+	}
+
+	@SuppressWarnings("unchecked")
+	@Override
+	public <T> T[] toArray(T[] a) {
+		Vec v = getVec();
+		int len = v.size;
+		if(a.length < len) {
+			a = (T[]) java.lang.reflect.Array.newInstance(a.getClass().getComponentType(), len);
+		}
+		v.copyTo(a, 0);
+		if(a.length > len) {
+			a[len] = null;
+		}
+		return a;
+	}
+
+	private static void rangeCheck(int index, int size) {
+		if(index >= size || index < 0) {
+			throw new IndexOutOfBoundsException("Index: "+index+ ", Size: "+size);
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	@Override
+	public E get(int index) {
+		Vec v = getVec();
+		rangeCheck(index, v.size);
+		return (E) v.get(index);
+	}
+
+	@SuppressWarnings("unchecked")
+	@Override
+	public E set(int index, E element) {
+		final ReentrantLock lock = this.lock;
+		lock.lock();
+		try {
+			Vec v = getVec();
+			rangeCheck(index, v.size);
+			Object oldValue = v.get(index);
+			if(oldValue != element) {
+				setVec(v.set(index, element));
+			}
+			return (E) oldValue;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public boolean add(E e) {
+		final ReentrantLock lock = this.lock;
+		lock.lock();
+		try {
+			setVec(getVec().add(e));
+			return true;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public void add(int index, E element) {
+		final ReentrantLock lock = this.lock;
+		lock.lock();
+		try {
+			Vec v = getVec();
+			int len = v.size;
+			if(index > len || index < 0) {
+				throw new IndexOutOfBoundsException("Index: "+index+ ", Size: "+len);
+			}
+			if(index == len) {
+				setVec(v.add(element));
+			} else {
+				Builder b = new Builder();
+				b.addRange(v, 0, index);
+				b.add(element);
+				b.addRange(v, index, len);
+				setVec(b.build());
+			}
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	@Override
+	public E remove(int index) {
+		final ReentrantLock lock = this.lock;
+		lock.lock();
+		try {
+			Vec v = getVec();
+			int len = v.size;
+			rangeCheck(index, len);
+			Object oldValue = v.get(index);
+			setVec(removeAt(v, index));
+			return (E) oldValue;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	private static Vec removeAt(Vec v, int index) {
+		int len = v.size;
+		if(index == len - 1) {
+			return v.pop();
+		}
+		Builder b = new Builder();
+		b.addRange(v, 0, index);
+		b.addRange(v, index + 1, len);
+		return b.build();
+	}
+
+	@Override
+	public boolean remove(Object o) {
+		final ReentrantLock lock = this.lock;
+		lock.lock();
+		try {
+			Vec v = getVec();
+			int index = indexOf(o, v, 0);
+			if(index < 0) {
+				return false;
+			}
+			setVec(removeAt(v, index));
+			return true;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	public boolean addIfAbsent(E e) {
+		final ReentrantLock lock = this.lock;
+		lock.lock();
+		try {
+			Vec v = getVec();
+			if(indexOf(e, v, 0) >= 0) {
+				return false;
+			}
+			setVec(v.add(e));
+			return true;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public boolean containsAll(Collection<?> c) {
+		Vec v = getVec();
+		for(Iterator<?> it = c.iterator(); it.hasNext(); ) {
+			if(indexOf(it.next(), v, 0) < 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * 保留（keep 为 true）或者删除 c 中包含的元素，第一个被删除的元素之前的整叶子直接共享
+	 */
+	private boolean filter(Collection<?> c, boolean keep) {
+		final ReentrantLock lock = this.lock;
+		lock.lock();
+		try {
+			Vec v = getVec();
+			int len = v.size;
+			int first = -1;
+			for(int i = 0; i < len; i++) {
+				if(c.contains(v.get(i)) != keep) {
+					first = i;
+					break;
+				}
+			}
+			if(first < 0) {
+				return false;
+			}
+			Builder b = new Builder();
+			b.addRange(v, 0, first);
+			for(int i = first + 1; i < len; i++) {
+				Object e = v.get(i);
+				if(c.contains(e) == keep) {
+					b.add(e);
+				}
+			}
+			setVec(b.build());
+			return true;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public boolean removeAll(Collection<?> c) {
+		return filter(c, false);
+	}
+
+	@Override
+	public boolean retainAll(Collection<?> c) {
+		return filter(c, true);
+	}
+
+	public int addAllAbsent(Collection<? extends E> c) {
+		Object[] cs = c.toArray();
+		if(cs.length == 0) {
+			return 0;
+		}
+		final ReentrantLock lock = this.lock;
+		lock.lock();
+		try {
+			Vec v = getVec();
+			int added = 0;
+			for(Object e : cs) {
+				if(indexOf(e, v, 0) < 0) {
+					v = v.add(e);
+					added++;
+				}
+			}
+			if(added > 0) {
+				setVec(v);
+			}
+			return added;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public void clear() {
+		final ReentrantLock lock = this.lock;
+		lock.lock();
+		try {
+			setVec(Vec.EMPTY);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public boolean addAll(Collection<? extends E> c) {
+		Object[] cs = c.toArray();
+		if(cs.length == 0) {
+			return false;
+		}
+		final ReentrantLock lock = this.lock;
+		lock.lock();
+		try {
+			Vec v = getVec();
+			Builder b = new Builder();
+			b.addRange(v, 0, v.size);
+			b.addAll(cs, 0, cs.length);
+			setVec(b.build());
+			return true;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	public boolean addAll(int index, Collection<? extends E> c) {
+		Object[] cs = c.toArray();
+		final ReentrantLock lock = this.lock;
+		lock.lock();
+		try {
+			Vec v = getVec();
+			int len = v.size;
+			if(index > len || index < 0) {
+				throw new IndexOutOfBoundsException("Index: "+index+", Size: "+len);
+			}
+			if(cs.length == 0) {
+				return false;
+			}
+			Builder b = new Builder();
+			b.addRange(v, 0, index);
+			b.addAll(cs, 0, cs.length);
+			b.addRange(v, index, len);
+			setVec(b.build());
+			return true;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	private void writeObject(java.io.ObjectOutputStream s)
+			throws java.io.IOException{
+
+		s.defaultWriteObject();
+
+		Object[] elements = toArray();
+		int len = elements.length;
+		s.writeInt(len);
+		for (int i = 0; i < len; i++)
+			s.writeObject(elements[i]);
+	}
+
+	private void readObject(java.io.ObjectInputStream s)
+		throws java.io.IOException, ClassNotFoundException {
+		s.defaultReadObject();
+		resetLock();
+		int len = s.readInt();
+		Builder b = new Builder();
+		for (int i = 0; i < len; i++)
+			b.add(s.readObject());
+		setVec(b.build());
+	}
+
+	@Override
+	public String toString() {
+		return Arrays.toString(toArray());
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		if(o == this) {
+			return true;
+		}
+
+		if(!(o instanceof List)) {
+			return false;
+		}
+
+		List<?> list = (List<?>)(o);
+		Iterator<?> it = list.iterator();
+		for(Iterator<E> mine = iterator(); mine.hasNext(); ) {
+			if(!it.hasNext() || !eq(mine.next(), it.next())) {
+				return false;
+			}
+		}
+		return !it.hasNext();
+	}
+
+	@Override
+	public int hashCode() {
+		int hashCode = 1;
+		for(Iterator<E> it = iterator(); it.hasNext(); ) {
+			Object obj = it.next();
+			hashCode = 31 * hashCode + (obj == null ? 0 : obj.hashCode());
+		}
+		return hashCode;
+	}
+
+	@Override
+	public Iterator<E> iterator() {
+		return new COWIterator<E>(getVec(), 0);
+	}
+
+	@Override
+	public ListIterator<E> listIterator() {
+		return new COWIterator<E>(getVec(), 0);
+	}
+
+	@Override
+	public ListIterator<E> listIterator(final int index) {
+		Vec v = getVec();
+		if(index < 0 || index > v.size) {
+			throw new IndexOutOfBoundsException("Index: "+index);
+		}
+		return new COWIterator<E>(v, index);
+	}
+
+	/**
+	 * 返回 [fromIndex, toIndex) 的一个独立副本，而不是视图，之后对两者的修改互不影响
+	 */
+	@Override
+	public List<E> subList(int fromIndex, int toIndex) {
+		Vec v = getVec();
+		if(fromIndex < 0 || toIndex > v.size || fromIndex > toIndex) {
+			throw new IndexOutOfBoundsException();
+		}
+		Builder b = new Builder();
+		b.addRange(v, fromIndex, toIndex);
+		CopyOnWriteTrieList<E> sub = new CopyOnWriteTrieList<E>();
+		sub.setVec(b.build());
+		return sub;
+	}
+
+	/**
+	 * 遍历创建时的快照，缓存当前所在的叶子，连续遍历时每 32 个元素才需要从根查找一次
+	 */
+	private static class COWIterator<E> implements ListIterator<E> {
+		private final Vec snapshot;
+
+		private int cursor;
+
+		private Object[] leaf;
+
+		private int leafBase = -1;
+
+		private COWIterator(Vec v, int initialCursor) {
+			cursor = initialCursor;
+			snapshot = v;
+		}
+
+		private Object elementAt(int i) {
+			if(leafBase < 0 || i < leafBase || i >= leafBase + WIDTH) {
+				leaf = snapshot.arrayFor(i);
+				leafBase = i & ~MASK;
+			}
+			return leaf[i - leafBase];
+		}
+
+		@Override
+		public boolean hasNext() {
+			return cursor < snapshot.size;
+		}
+
+		@Override
+		public boolean hasPrevious() {
+			return cursor > 0;
+		}
+
+		@SuppressWarnings("unchecked")
+		@Override
+		public E next() {
+			if(!hasNext()) {
+				throw new NoSuchElementException();
+			}
+			return (E) elementAt(cursor++);
+		}
+
+		@SuppressWarnings("unchecked")
+		@Override
+		public E previous() {
+			if(!hasPrevious()) {
+				throw new NoSuchElementException();
+			}
+			return (E) elementAt(--cursor);
+		}
+
+		@Override
+		public int nextIndex() {
+			return cursor;
+		}
+
+		@Override
+		public int previousIndex() {
+			return cursor - 1;
+		}
+
+		@Override
+		public void remove() {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public void set(E t) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public void add(E t) {
+			throw new UnsupportedOperationException();
+		}
+	}
+
+	private static final Unsafe unsafe = Unsafe.getUnsafe();
+	private static final long lockOffset;
+
+	static {
+		try {
+			lockOffset = unsafe.objectFieldOffset(CopyOnWriteTrieList.class.getDeclaredField("lock"));
+		} catch(Exception e) {throw new Error(e);}
+	}
+
+	private void resetLock() {
+		unsafe.putObjectVolatile(this, lockOffset, new ReentrantLock());
+	}
+}
@@ -0,0 +1,422 @@
+package com.jerry.soundcode.concurrent.collection;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.NoSuchElementException;
+
+import com.jerry.soundcode.list.AbstractQueue;
+import com.jerry.soundcode.list.ArrayDeque;
+import com.jerry.soundcode.list.Comparable;
+import com.jerry.soundcode.list.Comparator;
+import com.jerry.soundcode.list.Iterator;
+
+/**
+ * 可以修改元素优先级的优先级队列，非线程安全。
+ *
+ * 和 PriorityQueue 一样按 Comparable 或 Comparator 排序，但是用 4 叉堆而不是二叉堆：
+ * 堆的高度减半，一个节点的 4 个孩子在数组中相邻，下沉时比较的元素大多在同一条缓存行中。
+ *
+ * insert 返回元素的 Handle，Handle 记录了元素当前在堆中的下标，
+ * 通过 Handle 可以在 O(log n) 内修改优先级（decreaseKey/update）或者删除（remove(Handle)），
+ * 不需要像 PriorityQueue 的 remove(Object) 那样 O(n) 查找。
+ */
+public class IndexedPriorityQueue<E> extends AbstractQueue<E> implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	private static final int DEFAULT_INITIAL_CAPACITY = 16;
+
+	/**
+	 * 元素在队列中的句柄，index 为元素在堆数组中的下标，不在队列中时为 -1
+	 */
+	public static final class Handle<E> implements Serializable {
+		private static final long serialVersionUID = 1L;
+
+		E element;
+
+		int index = -1;
+
+		Handle(E element) {
+			this.element = element;
+		}
+
+		public E get() {
+			return element;
+		}
+
+		/**
+		 * 元素是否还在队列中
+		 */
+		public boolean isQueued() {
+			return index >= 0;
+		}
+	}
+
+	private Handle<E>[] queue;
+
+	private int size = 0;
+
+	private final Comparator<? super E> comparator;
+
+	private transient int modCount = 0;
+
+	public IndexedPriorityQueue() {
+		this(DEFAULT_INITIAL_CAPACITY, null);
+	}
+
+	public IndexedPriorityQueue(int initialCapacity) {
+		this(initialCapacity, null);
+	}
+
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	public IndexedPriorityQueue(int initialCapacity, Comparator<? super E> comparator) {
+		if(initialCapacity < 1) {
+			throw new IllegalArgumentException();
+		}
+		this.queue = new Handle[initialCapacity];
+		this.comparator = comparator;
+	}
+
+	private void grow(int minCapacity) {
+		if(minCapacity < 0) {
+			throw new OutOfMemoryError();
+		}
+		int oldCapacity = queue.length;
+		int newCapacity = ((oldCapacity < 64) ? ((oldCapacity + 1) * 2) : ((oldCapacity / 2) * 3));
+		if(newCapacity < 0) {
+			newCapacity = Integer.MAX_VALUE;
+		}
+		if(newCapacity < minCapacity) {
+			newCapacity = minCapacity;
+		}
+		queue = Arrays.copyOf(queue, newCapacity);
+	}
+
+	/**
+	 * 放入元素，返回以后修改优先级或者删除时使用的句柄
+	 */
+	public Handle<E> insert(E e) {
+		if(e == null) {
+			throw new NullPointerException();
+		}
+		modCount++;
+		int i = size;
+		if(i >= queue.length) {
+			grow(i + 1);
+		}
+		size = i + 1;
+		Handle<E> h = new Handle<E>(e);
+		siftUp(i, h);
+		return h;
+	}
+
+	@Override
+	public boolean add(E e) {
+		return offer(e);
+	}
+
+	@Override
+	public boolean offer(E e) {
+		insert(e);
+		return true;
+	}
+
+	@Override
+	public E peek() {
+		return (size == 0) ? null : queue[0].element;
+	}
+
+	/**
+	 * 队首元素的句柄，队列为空时返回 null
+	 */
+	public Handle<E> peekHandle() {
+		return (size == 0) ? null : queue[0];
+	}
+
+	@Override
+	public E poll() {
+		if(size == 0) {
+			return null;
+		}
+		int s = --size;
+		modCount++;
+		Handle<E> result = queue[0];
+		Handle<E> x = queue[s];
+		queue[s] = null;
+		if(s != 0) {
+			siftDown(0, x);
+		}
+		result.index = -1;
+		return result.element;
+	}
+
+	/**
+	 * 把元素改为一个不大于原来的值，只需要上浮
+	 *
+	 * @throws IllegalArgumentException 句柄不属于这个队列，或者新值比原来的大
+	 */
+	public void decreaseKey(Handle<E> h, E e) {
+		checkHandle(h);
+		if(e == null) {
+			throw new NullPointerException();
+		}
+		if(compare(e, h.element) > 0) {
+			throw new IllegalArgumentException();
+		}
+		modCount++;
+		h.element = e;
+		siftUp(h.index, h);
+	}
+
+	/**
+	 * 把元素改为任意的新值，按需要上浮或者下沉
+	 *
+	 * @throws IllegalArgumentException 句柄不属于这个队列
+	 */
+	public void update(Handle<E> h, E e) {
+		checkHandle(h);
+		if(e == null) {
+			throw new NullPointerException();
+		}
+		modCount++;
+		h.element = e;
+		int i = h.index;
+		siftUp(i, h);
+		if(h.index == i) {
+			siftDown(i, h);
+		}
+	}
+
+	/**
+	 * 删除句柄对应的元素，元素已经不在队列中时返回 false
+	 */
+	public boolean remove(Handle<E> h) {
+		if(h == null || !owns(h)) {
+			return false;
+		}
+		removeAt(h.index);
+		return true;
+	}
+
+	public boolean contains(Handle<E> h) {
+		return h != null && owns(h);
+	}
+
+	private boolean owns(Handle<E> h) {
+		int i = h.index;
+		return i >= 0 && i < size && queue[i] == h;
+	}
+
+	private void checkHandle(Handle<E> h) {
+		if(h == null) {
+			throw new NullPointerException();
+		}
+		if(!owns(h)) {
+			throw new IllegalArgumentException();
+		}
+	}
+
+	private int indexOf(Object o) {
+		if(o != null) {
+			for(int i = 0; i < size; i++) {
+				if(o.equals(queue[i].element)) {
+					return i;
+				}
+			}
+		}
+		return -1;
+	}
+
+	@Override
+	public boolean remove(Object o) {
+		int i = indexOf(o);
+		if(i == -1) {
+			return false;
+		} else {
+			removeAt(i);
+			return true;
+		}
+	}
+
+	@Override
+	public boolean contains(Object o) {
+		return indexOf(o) != -1;
+	}
+
+	/**
+	 * 删除下标 i 处的元素。最后一个元素移到 i 处后如果上浮到了 i 之前，返回它的句柄，供迭代器使用
+	 */
+	private Handle<E> removeAt(int i) {
+		modCount++;
+		int s = --size;
+		queue[i].index = -1;
+		if(s == i) {
+			queue[i] = null;
+		} else {
+			Handle<E> moved = queue[s];
+			queue[s] = null;
+			siftDown(i, moved);
+			if(queue[i] == moved) {
+				siftUp(i, moved);
+				if(queue[i] != moved) {
+					return moved;
+				}
+			}
+		}
+		return null;
+	}
+
+	@Override
+	public void clear() {
+		modCount++;
+		for(int i = 0; i < size; i++) {
+			queue[i].index = -1;
+			queue[i] = null;
+		}
+		size = 0;
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	public Comparator<? super E> comparator() {
+		return comparator;
+	}
+
+	@SuppressWarnings("unchecked")
+	private int compare(E a, E b) {
+		return (comparator == null) ? ((Comparable<? super E>) a).compareTo(b) : comparator.compare(a, b);
+	}
+
+	/**
+	 * 4 叉堆：下标 k 的父节点为 (k - 1) >>> 2
+	 */
+	private void siftUp(int k, Handle<E> x) {
+		final Handle<E>[] queue = this.queue;
+		E key = x.element;
+		while(k > 0) {
+			int parent = (k - 1) >>> 2;
+			Handle<E> e = queue[parent];
+			if(compare(key, e.element) >= 0) {
+				break;
+			}
+			queue[k] = e;
+			e.index = k;
+			k = parent;
+		}
+		queue[k] = x;
+		x.index = k;
+	}
+
+	/**
+	 * 4 叉堆：下标 k 的孩子为 4k + 1 到 4k + 4
+	 */
+	private void siftDown(int k, Handle<E> x) {
+		final Handle<E>[] queue = this.queue;
+		final int n = size;
+		E key = x.element;
+		for(;;) {
+			int child = (k << 2) + 1;
+			if(child >= n) {
+				break;
+			}
+			int end = Math.min(child + 4, n);
+			int min = child;
+			E minKey = queue[child].element;
+			for(int c = child + 1; c < end; c++) {
+				E ck = queue[c].element;
+				if(compare(ck, minKey) < 0) {
+					min = c;
+					minKey = ck;
+				}
+			}
+			if(compare(key, minKey) <= 0) {
+				break;
+			}
+			Handle<E> m = queue[min];
+			queue[k] = m;
+			m.index = k;
+			k = min;
+		}
+		queue[k] = x;
+		x.index = k;
+	}
+
+	@Override
+	public Object[] toArray() {
+		Object[] a = new Object[size];
+		for(int i = 0; i < size; i++) {
+			a[i] = queue[i].element;
+		}
+		return a;
+	}
+
+	@Override
+	public Iterator<E> iterator() {
+		return new Itr();
+	}
+
+	private final class Itr implements Iterator<E> {
+
+		private int cursor = 0;
+
+		private Handle<E> lastRet = null;
+
+		/** 删除时从后面上浮到已经遍历过的位置的元素，放在最后遍历 */
+		private ArrayDeque<Handle<E>> forgetMeNot = null;
+
+		private int expectedModCount = modCount;
+
+		@Override
+		public boolean hasNext() {
+			return cursor < size || (forgetMeNot != null && !forgetMeNot.isEmpty());
+		}
+
+		@Override
+		public E next() {
+			if(expectedModCount != modCount) {
+				throw new ConcurrentModificationException();
+			}
+			if(cursor < size) {
+				lastRet = queue[cursor++];
+				return lastRet.element;
+			}
+			if(forgetMeNot != null) {
+				lastRet = forgetMeNot.poll();
+				if(lastRet != null) {
+					return lastRet.element;
+				}
+			}
+			throw new NoSuchElementException();
+		}
+
+		@Override
+		public void remove() {
+			if(expectedModCount != modCount) {
+				throw new ConcurrentModificationException();
+			}
+			if(lastRet == null || !owns(lastRet)) {
+				throw new IllegalStateException();
+			}
+			int i = lastRet.index;
+			// 从 forgetMeNot 中取出的元素下标不在 cursor 之前的位置
+			boolean fromArray = (i == cursor - 1);
+			Handle<E> moved = removeAt(i);
+			lastRet = null;
+			if(fromArray) {
+				if(moved == null) {
+					cursor--;
+				} else {
+					if(forgetMeNot == null) {
+						forgetMeNot = new ArrayDeque<Handle<E>>();
+					}
+					forgetMeNot.add(moved);
+				}
+			}
+			expectedModCount = modCount;
+		}
+	}
+}
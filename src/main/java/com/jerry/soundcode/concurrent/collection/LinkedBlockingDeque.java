@@ -536,6 +536,7 @@ public class LinkedBlockingDeque<E> extends AbstractQueue<E> implements Blocking
 			throw new IllegalArgumentException();
 		}
 		final ReentrantLock lock = this.lock;
+		lock.lock();
 		try {
 			int n = Math.min(maxElements, count);
 			for(int i = 0; i < n; i++) {
@@ -549,6 +550,289 @@ public class LinkedBlockingDeque<E> extends AbstractQueue<E> implements Blocking
 		
 	}
 
+	/**
+	 * 在锁外构造好的一段双向链，head 到 tail 共 size 个节点
+	 */
+	static final class Chain<E> {
+		Node<E> head;
+		Node<E> tail;
+		int size;
+		
+		/**
+		 * 按 c 的迭代顺序构造，reverse 为 true 时逆序，即 c 的最后一个元素在链首
+		 */
+		Chain(Collection<? extends E> c, boolean reverse) {
+			for(Iterator<? extends E> it = c.iterator(); it.hasNext(); ) {
+				E e = it.next();
+				if(e == null) {
+					throw new NullPointerException();
+				}
+				if(head == null) {
+					head = tail = new Node<E>(e, null, null);
+				} else if(reverse) {
+					head = head.prev = new Node<E>(e, null, head);
+				} else {
+					tail = tail.next = new Node<E>(e, tail, null);
+				}
+				++size;
+			}
+		}
+		
+		private Chain(Node<E> head, Node<E> tail, int size) {
+			this.head = head;
+			this.tail = tail;
+			this.size = size;
+		}
+		
+		/**
+		 * 从链首切下 k 个节点
+		 */
+		Chain<E> takeFront(int k) {
+			if(k >= size) {
+				Chain<E> all = new Chain<E>(head, tail, size);
+				head = tail = null;
+				size = 0;
+				return all;
+			}
+			Node<E> t = head;
+			for(int i = 1; i < k; i++) {
+				t = t.next;
+			}
+			Chain<E> front = new Chain<E>(head, t, k);
+			head = t.next;
+			head.prev = null;
+			t.next = null;
+			size -= k;
+			return front;
+		}
+		
+		/**
+		 * 从链尾切下 k 个节点
+		 */
+		Chain<E> takeBack(int k) {
+			if(k >= size) {
+				return takeFront(size);
+			}
+			Node<E> h = tail;
+			for(int i = 1; i < k; i++) {
+				h = h.prev;
+			}
+			Chain<E> back = new Chain<E>(h, tail, k);
+			tail = h.prev;
+			tail.next = null;
+			h.prev = null;
+			size -= k;
+			return back;
+		}
+	}
+	
+	/**
+	 * 持有锁时把整条链接到队首
+	 */
+	private void linkChainFirst(Chain<E> chain) {
+		Node<E> f = first;
+		chain.tail.next = f;
+		if(f == null) {
+			last = chain.tail;
+		} else {
+			f.prev = chain.tail;
+		}
+		first = chain.head;
+		count += chain.size;
+		signalNotEmpty(chain.size);
+	}
+	
+	/**
+	 * 持有锁时把整条链接到队尾
+	 */
+	private void linkChainLast(Chain<E> chain) {
+		Node<E> l = last;
+		chain.head.prev = l;
+		if(l == null) {
+			first = chain.head;
+		} else {
+			l.next = chain.head;
+		}
+		last = chain.tail;
+		count += chain.size;
+		signalNotEmpty(chain.size);
+	}
+	
+	private void signalNotEmpty(int n) {
+		if(n == 1) {
+			notEmpty.signal();
+		} else {
+			notEmpty.signalAll();
+		}
+	}
+	
+	/**
+	 * 效果等同于按 c 的迭代顺序逐个调用 offerFirst，即 c 的最后一个元素成为新的队首。
+	 * 空间不够时只放入 c 中靠前的部分，返回放入的个数。节点在锁外构造好，只获取一次锁
+	 */
+	public int offerAllFirst(Collection<? extends E> c) {
+		Chain<E> chain = newChain(c, true);
+		final ReentrantLock lock = this.lock;
+		lock.lock();
+		try {
+			int k = Math.min(chain.size, capacity - count);
+			if(k > 0) {
+				linkChainFirst(chain.takeBack(k));
+			}
+			return Math.max(k, 0);
+		} finally {
+			lock.unlock();
+		}
+	}
+	
+	/**
+	 * 效果等同于按 c 的迭代顺序逐个调用 offerLast。
+	 * 空间不够时只放入 c 中靠前的部分，返回放入的个数。节点在锁外构造好，只获取一次锁
+	 */
+	public int offerAllLast(Collection<? extends E> c) {
+		Chain<E> chain = newChain(c, false);
+		final ReentrantLock lock = this.lock;
+		lock.lock();
+		try {
+			int k = Math.min(chain.size, capacity - count);
+			if(k > 0) {
+				linkChainLast(chain.takeFront(k));
+			}
+			return Math.max(k, 0);
+		} finally {
+			lock.unlock();
+		}
+	}
+	
+	/**
+	 * 效果等同于按 c 的迭代顺序逐个调用 putFirst，空间不够时等待，每次获取锁都把能放下的一段链接到队首。
+	 * 等待时被中断会抛出 InterruptedException，此前已经放入的元素不会撤回
+	 */
+	public void putAllFirst(Collection<? extends E> c) throws InterruptedException {
+		Chain<E> chain = newChain(c, true);
+		final ReentrantLock lock = this.lock;
+		lock.lockInterruptibly();
+		try {
+			while(chain.size > 0) {
+				while(count >= capacity) {
+					notFull.await();
+				}
+				linkChainFirst(chain.takeBack(capacity - count));
+			}
+		} finally {
+			lock.unlock();
+		}
+	}
+	
+	/**
+	 * 效果等同于按 c 的迭代顺序逐个调用 putLast，空间不够时等待，每次获取锁都把能放下的一段链接到队尾。
+	 * 等待时被中断会抛出 InterruptedException，此前已经放入的元素不会撤回
+	 */
+	public void putAllLast(Collection<? extends E> c) throws InterruptedException {
+		Chain<E> chain = newChain(c, false);
+		final ReentrantLock lock = this.lock;
+		lock.lockInterruptibly();
+		try {
+			while(chain.size > 0) {
+				while(count >= capacity) {
+					notFull.await();
+				}
+				linkChainLast(chain.takeFront(capacity - count));
+			}
+		} finally {
+			lock.unlock();
+		}
+	}
+	
+	private Chain<E> newChain(Collection<? extends E> c, boolean reverse) {
+		if(c == null) {
+			throw new NullPointerException();
+		}
+		if(c == this) {
+			throw new IllegalArgumentException();
+		}
+		return new Chain<E>(c, reverse);
+	}
+	
+	/**
+	 * 等待直到至少有一个元素可用或者超时，然后在同一次加锁中从队首最多取出 maxElements 个元素，返回取出的个数，超时返回 0
+	 */
+	public int drainFirstTo(Collection<? super E> c, int maxElements, long timeout, TimeUnit unit) throws InterruptedException {
+		return drain(c, maxElements, timeout, unit, true);
+	}
+	
+	/**
+	 * 与 drainFirstTo 相同，但是从队尾开始取，c 中得到的是逆序的元素
+	 */
+	public int drainLastTo(Collection<? super E> c, int maxElements, long timeout, TimeUnit unit) throws InterruptedException {
+		return drain(c, maxElements, timeout, unit, false);
+	}
+	
+	public int drainTo(Collection<? super E> c, int maxElements, long timeout, TimeUnit unit) throws InterruptedException {
+		return drainFirstTo(c, maxElements, timeout, unit);
+	}
+	
+	private int drain(Collection<? super E> c, int maxElements, long timeout, TimeUnit unit, boolean fromFirst) throws InterruptedException {
+		if(c == null) {
+			throw new NullPointerException();
+		}
+		if(c == this) {
+			throw new IllegalArgumentException();
+		}
+		if(maxElements <= 0) {
+			return 0;
+		}
+		
+		long nanos = unit.toNanos(timeout);
+		final ReentrantLock lock = this.lock;
+		lock.lockInterruptibly();
+		try {
+			while(count == 0) {
+				if(nanos <= 0) {
+					return 0;
+				}
+				nanos = notEmpty.awaitNanos(nanos);
+			}
+			
+			int n = Math.min(maxElements, count);
+			int i = 0;
+			try {
+				// 每取出一个就断开一个，c.add 抛出异常时队列仍然是完整的。和 unlinkLast 一样让取出的节点指向自己
+				while(i < n) {
+					if(fromFirst) {
+						Node<E> f = first;
+						c.add(f.item);
+						f.item = null;
+						first = f.next;
+						f.next = f;
+					} else {
+						Node<E> l = last;
+						c.add(l.item);
+						l.item = null;
+						last = l.prev;
+						l.prev = l;
+					}
+					--count;
+					++i;
+				}
+				return n;
+			} finally {
+				if(i > 0) {
+					if(count == 0) {
+						first = last = null;
+					} else if(fromFirst) {
+						first.prev = null;
+					} else {
+						last.next = null;
+					}
+					notFull.signalAll();
+				}
+			}
+		} finally {
+			lock.unlock();
+		}
+	}
+
 	@Override
 	public void push(E t) {
 		addFirst(t);
@@ -16,6 +16,10 @@ import com.jerry.soundcode.list.Iterator;
 /**
  * 一个基于已链接节点的、范围任意的blocking queue的实现，也是线程安全的。
  * 按 FIFO（先进先出）排序元素。队列的头部 是在队列中时间最长的元素。队列的尾部 是在队列中时间最短的元素。 
+ * 
+ * 构造时指定 nodePoolSize 可以开启节点复用：出队后的节点放入一个有界的节点池，入队时优先从池中取节点，
+ * 避免每次入队都分配一个 Node。出队时持有 takeLock、入队时持有 putLock，节点池只有一个放入方和一个取出方，
+ * 所以直接用 SpscArrayQueue 实现。迭代器正在引用的节点会被标记，不会被复用，迭代器仍然是弱一致的。
  */
 public class LinkedBlockingQueue<E> extends AbstractQueue<E>
 	implements BlockingQueue<E>, Serializable {
@@ -25,6 +29,8 @@ public class LinkedBlockingQueue<E> extends AbstractQueue<E>
 	static class Node<E> {
 		E item;
 		Node<E> next;
+		/** 引用这个节点的迭代器个数，只在持有 takeLock 时读写 */
+		int pins;
 		Node(E x) { item = x; }
 	}
 	
@@ -44,6 +50,9 @@ public class LinkedBlockingQueue<E> extends AbstractQueue<E>
 	
 	private final Condition notFull = putLock.newCondition();
 	
+	/** 出队后可以复用的节点，没有开启节点复用时为 null */
+	private final transient SpscArrayQueue<Node<E>> nodePool;
+	
 	private void signalNotEmpty() {
 		final ReentrantLock takeLock = this.taskLock;
 		takeLock.lock();
@@ -65,13 +74,31 @@ public class LinkedBlockingQueue<E> extends AbstractQueue<E>
 	}
 	
 	private void enqueue(E x) {
-		last = last.next = new Node<E>(x);
+		Node<E> node = (nodePool == null) ? null : nodePool.poll();
+		if(node == null) {
+			node = new Node<E>(x);
+		} else {
+			node.item = x;
+			node.next = null;
+		}
+		last = last.next = node;
+	}
+	
+	/**
+	 * 持有 takeLock 时调用，h 已经出队并且指向自己
+	 */
+	private void recycle(Node<E> h) {
+		if(nodePool != null && h.pins == 0) {
+			nodePool.offer(h);
+		}
 	}
 	
 	private E dequeue() {
 		Node<E> h = head;
 		Node<E> first = h.next;
 		h.next = h;
+		recycle(h);
+		head = first;
 		E x = first.item;
 		first.item = null;
 		return x;
@@ -96,10 +123,18 @@ public class LinkedBlockingQueue<E> extends AbstractQueue<E>
 	}
 	
 	public LinkedBlockingQueue(int capacity) {
-		if(capacity <= 0) {
+		this(capacity, 0);
+	}
+	
+	/**
+	 * nodePoolSize 为节点池的大小，为 0 时不复用节点
+	 */
+	public LinkedBlockingQueue(int capacity, int nodePoolSize) {
+		if(capacity <= 0 || nodePoolSize < 0) {
 			throw new IllegalArgumentException();
 		}
 		this.capacity = capacity;
+		this.nodePool = (nodePoolSize == 0) ? null : new SpscArrayQueue<Node<E>>(nodePoolSize);
 		last = head = new Node<E>(null);
 	}
 	
@@ -358,6 +393,7 @@ public class LinkedBlockingQueue<E> extends AbstractQueue<E>
 		if(o == null) {
 			return false;
 		}
+		fullyLock();
 		try {
 			for(Node<E> trail = head, p = trail.next; p != null; trail = p, p = p.next) {
 				if(o.equals(p.item)) {
@@ -465,6 +501,7 @@ public class LinkedBlockingQueue<E> extends AbstractQueue<E>
 					c.add(p.item);
 					p.item = null;
 					h.next = h;
+					recycle(h);
 					h = p;
 					++i;
 				}
@@ -483,6 +520,203 @@ public class LinkedBlockingQueue<E> extends AbstractQueue<E>
 		}
 	}
 
+	/**
+	 * 在锁外把 c 中的元素构造成一条链，返回链的第一个节点，链的长度和最后一个节点分别存入 size[0] 和 tail[0]
+	 */
+	private static <E> Node<E> buildChain(Collection<? extends E> c, int[] size, Node<E>[] tail) {
+		Node<E> h = null;
+		Node<E> t = null;
+		int n = 0;
+		for(Iterator<? extends E> it = c.iterator(); it.hasNext(); ) {
+			E e = it.next();
+			if(e == null) {
+				throw new NullPointerException();
+			}
+			Node<E> x = new Node<E>(e);
+			if(h == null) {
+				h = x;
+			} else {
+				t.next = x;
+			}
+			t = x;
+			++n;
+		}
+		size[0] = n;
+		tail[0] = t;
+		return h;
+	}
+	
+	private static <E> Node<E> nodeAt(Node<E> h, int index) {
+		for(int i = 0; i < index; i++) {
+			h = h.next;
+		}
+		return h;
+	}
+	
+	/**
+	 * 不阻塞地放入 c 中的元素，空间不够时只放入前面能放下的部分，返回放入的个数。
+	 * 节点在锁外构造好，只获取一次 putLock 就把整条链接到队尾
+	 */
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	public int offerAll(Collection<? extends E> c) {
+		if(c == null) {
+			throw new NullPointerException();
+		}
+		if(c == this) {
+			throw new IllegalArgumentException();
+		}
+		
+		int[] size = new int[1];
+		Node<E>[] tail = new Node[1];
+		Node<E> h = buildChain(c, size, tail);
+		int n = size[0];
+		final AtomicInteger count = this.count;
+		if(n == 0 || count.get() == capacity) {
+			return 0;
+		}
+		
+		int old = -1;
+		int k = 0;
+		final ReentrantLock putLock = this.putLock;
+		putLock.lock();
+		try {
+			int room = capacity - count.get();
+			if(room > 0) {
+				k = Math.min(n, room);
+				Node<E> t = tail[0];
+				if(k < n) {
+					t = nodeAt(h, k - 1);
+					t.next = null;
+				}
+				last.next = h;
+				last = t;
+				old = count.getAndAdd(k);
+				if(old + k < capacity) {
+					notFull.signal();
+				}
+			}
+		} finally {
+			putLock.unlock();
+		}
+		
+		if(old == 0) {
+			signalNotEmpty();
+		}
+		return k;
+	}
+	
+	/**
+	 * 放入 c 中的全部元素，空间不够时等待。每次获取 putLock 都把能放下的一段链一次接到队尾。
+	 * 等待时被中断会抛出 InterruptedException，此前已经放入的元素不会撤回
+	 */
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	public void putAll(Collection<? extends E> c) throws InterruptedException {
+		if(c == null) {
+			throw new NullPointerException();
+		}
+		if(c == this) {
+			throw new IllegalArgumentException();
+		}
+		
+		int[] size = new int[1];
+		Node<E>[] tail = new Node[1];
+		Node<E> h = buildChain(c, size, tail);
+		int n = size[0];
+		final AtomicInteger count = this.count;
+		final ReentrantLock putLock = this.putLock;
+		while(h != null) {
+			int old = -1;
+			putLock.lockInterruptibly();
+			try {
+				while(count.get() == capacity) {
+					notFull.await();
+				}
+				int k = Math.min(n, capacity - count.get());
+				Node<E> t = tail[0];
+				Node<E> rest = null;
+				if(k < n) {
+					t = nodeAt(h, k - 1);
+					rest = t.next;
+					t.next = null;
+				}
+				last.next = h;
+				last = t;
+				old = count.getAndAdd(k);
+				if(old + k < capacity) {
+					notFull.signal();
+				}
+				h = rest;
+				n -= k;
+			} finally {
+				putLock.unlock();
+			}
+			
+			if(old == 0) {
+				signalNotEmpty();
+			}
+		}
+	}
+	
+	/**
+	 * 等待直到至少有一个元素可用或者超时，然后在同一次 takeLock 中最多取出 maxElements 个元素，返回取出的个数，超时返回 0
+	 */
+	public int drainTo(Collection<? super E> c, int maxElements, long timeout, TimeUnit unit) throws InterruptedException {
+		if(c == null) {
+			throw new NullPointerException();
+		}
+		if(c == this) {
+			throw new IllegalArgumentException();
+		}
+		if(maxElements <= 0) {
+			return 0;
+		}
+		
+		long nanos = unit.toNanos(timeout);
+		boolean signalNotFull = false;
+		final AtomicInteger count = this.count;
+		final ReentrantLock takeLock = this.taskLock;
+		takeLock.lockInterruptibly();
+		
+		try {
+			while(count.get() == 0) {
+				if(nanos <= 0) {
+					return 0;
+				}
+				nanos = notEmpty.awaitNanos(nanos);
+			}
+			
+			int n = Math.min(maxElements, count.get());
+			Node<E> h = head;
+			int i = 0;
+			try {
+				while(i < n) {
+					Node<E> p = h.next;
+					c.add(p.item);
+					p.item = null;
+					h.next = h;
+					recycle(h);
+					h = p;
+					++i;
+				}
+				return n;
+			} finally {
+				if(i > 0) {
+					head = h;
+					int old = count.getAndAdd(-i);
+					signalNotFull = (old == capacity);
+					if(old - i > 0) {
+						notEmpty.signal();
+					}
+				}
+			}
+		} finally {
+			takeLock.unlock();
+			if(signalNotFull) {
+				signalNotFull();
+			}
+		}
+	}
+
 	@Override
 	public Iterator<E> iterator() {
 		return new Itr();
@@ -500,6 +734,7 @@ public class LinkedBlockingQueue<E> extends AbstractQueue<E>
 				current = head.next;
 				if(current != null) {
 					currentElement = current.item;
+					current.pins++;
 				}
 			} finally {
 				fullyUnlock();
@@ -510,6 +745,15 @@ public class LinkedBlockingQueue<E> extends AbstractQueue<E>
 		public boolean hasNext() {
 			return current != null;
 		}
+		
+		/**
+		 * 被丢弃的迭代器不会取消标记，它引用的节点只是不再被复用
+		 */
+		private void unpin(Node<E> p) {
+			if(p != null) {
+				p.pins--;
+			}
+		}
 
 		private Node<E> nextNode(Node<E> p) {
 			for(;;) {
@@ -532,9 +776,16 @@ public class LinkedBlockingQueue<E> extends AbstractQueue<E>
 					throw new NoSuchElementException();
 				}
 				E x = currentElement;
+				// current 的标记直接转给 lastRet
+				unpin(lastRet);
 				lastRet = current;
 				current = nextNode(current);
-				currentElement = (current == null) ? null : current.item;
+				if(current != null) {
+					currentElement = current.item;
+					current.pins++;
+				} else {
+					currentElement = null;
+				}
 				return x;
 			} finally {
 				fullyUnlock();
@@ -550,6 +801,7 @@ public class LinkedBlockingQueue<E> extends AbstractQueue<E>
 			try {
 				Node<E> node = lastRet;
 				lastRet = null;
+				unpin(node);
 				for (Node<E> trail = head, p = trail.next;  p != null;
 	                     trail = p, p = p.next) {
 					if(p == node) {
@@ -1,6 +1,752 @@
 package com.jerry.soundcode.concurrent.collection;
 
-public class LinkedTransferQueue {
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.NoSuchElementException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
 
+import com.jerry.soundcode.concurrent.locks.LockSupport;
+import com.jerry.soundcode.list.AbstractQueue;
+import com.jerry.soundcode.list.Collection;
+import com.jerry.soundcode.list.Iterator;
+import com.jerry.soundcode.thread.Thread;
 
+/**
+ * 基于链表的无界 TransferQueue，用无锁的双重队列（dual queue）实现。
+ *
+ * 队列中的节点要么都是数据节点（生产者放入的元素），要么都是请求节点（等待中的消费者）。
+ * 新来的操作先从头部开始找一个模式相反且还没有匹配的节点，CAS 它的 item 完成匹配，直接把元素交给对方；
+ * 找不到时才把自己追加到队尾，put/offer 追加后立即返回，transfer/take 追加后等待被匹配。
+ * 匹配成功的节点不会马上出队，head 和 tail 允许落后真正的头尾（slack）至少两个节点时才 CAS 推进，
+ * 减少对 head/tail 的 CAS 竞争。等待的线程如果在队首附近先自旋一段时间，期间偶尔 yield，自旋不到再 park，
+ * 大部分情况下交接发生在自旋期间，不需要唤醒线程。
+ *
+ * 节点的状态：
+ * 数据节点 item 不为 null 表示还没有被匹配，被取走后 item 为 null；
+ * 请求节点 item 为 null 表示还没有被匹配，被满足后 item 为交过来的元素；
+ * 取消的节点以及被遗忘的节点 item 指向自己，出队的节点 next 指向自己。
+ */
+public class LinkedTransferQueue<E> extends AbstractQueue<E>
+	implements TransferQueue<E>, Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	private static final boolean MP = Runtime.getRuntime().availableProcessors() > 1;
+
+	/** 排在队首的节点等待时的自旋次数 */
+	private static final int FRONT_SPINS = 1 << 7;
+
+	/** 前面的节点也在自旋时的自旋次数 */
+	private static final int CHAINED_SPINS = FRONT_SPINS >>> 2;
+
+	/** 累计多少次删除失败后清扫一遍整个链表 */
+	static final int SWEEP_THRESHOLD = 32;
+
+	static final class Node {
+		final boolean isData;
+		volatile Object item;
+		volatile Node next;
+		volatile Thread waiter;
+
+		static final AtomicReferenceFieldUpdater<Node, Node> nextUpdater = AtomicReferenceFieldUpdater.newUpdater(Node.class, Node.class, "next");
+
+		static final AtomicReferenceFieldUpdater<Node, Object> itemUpdater = AtomicReferenceFieldUpdater.newUpdater(Node.class, Object.class, "item");
+
+		Node(Object item, boolean isData) {
+			this.item = item;
+			this.isData = isData;
+		}
+
+		boolean casNext(Node cmp, Node val) {
+			return nextUpdater.compareAndSet(this, cmp, val);
+		}
+
+		boolean casItem(Object cmp, Object val) {
+			return itemUpdater.compareAndSet(this, cmp, val);
+		}
+
+		/**
+		 * 出队后让 next 指向自己，遍历时看到这样的节点就从 head 重新开始
+		 */
+		void forgetNext() {
+			nextUpdater.lazySet(this, this);
+		}
+
+		/**
+		 * 匹配或取消后清掉 item 和 waiter，避免留住不再需要的对象
+		 */
+		void forgetContents() {
+			itemUpdater.lazySet(this, this);
+			waiter = null;
+		}
+
+		boolean isMatched() {
+			Object x = item;
+			return (x == this) || ((x == null) == isData);
+		}
+
+		/**
+		 * 模式为 haveData 的新节点不能追加在这个节点后面：这个节点模式相反并且还没有被匹配
+		 */
+		boolean cannotPrecede(boolean haveData) {
+			boolean d = isData;
+			Object x;
+			return d != haveData && (x = item) != this && (x != null) == d;
+		}
+
+		/**
+		 * 把还没有被匹配的数据节点标记为已匹配，用于删除
+		 */
+		boolean tryMatchData() {
+			Object x = item;
+			if(x != null && x != this && casItem(x, null)) {
+				LockSupport.unpark(waiter);
+				return true;
+			}
+			return false;
+		}
+	}
+
+	transient volatile Node head;
+
+	private transient volatile Node tail;
+
+	private transient volatile int sweepVotes;
+
+	@SuppressWarnings("rawtypes")
+	private static final AtomicReferenceFieldUpdater<LinkedTransferQueue, Node> headUpdater = AtomicReferenceFieldUpdater.newUpdater(LinkedTransferQueue.class, Node.class, "head");
+
+	@SuppressWarnings("rawtypes")
+	private static final AtomicReferenceFieldUpdater<LinkedTransferQueue, Node> tailUpdater = AtomicReferenceFieldUpdater.newUpdater(LinkedTransferQueue.class, Node.class, "tail");
+
+	@SuppressWarnings("rawtypes")
+	private static final AtomicIntegerFieldUpdater<LinkedTransferQueue> sweepVotesUpdater = AtomicIntegerFieldUpdater.newUpdater(LinkedTransferQueue.class, "sweepVotes");
+
+	private boolean casHead(Node cmp, Node val) {
+		return headUpdater.compareAndSet(this, cmp, val);
+	}
+
+	private boolean casTail(Node cmp, Node val) {
+		return tailUpdater.compareAndSet(this, cmp, val);
+	}
+
+	private boolean casSweepVotes(int cmp, int val) {
+		return sweepVotesUpdater.compareAndSet(this, cmp, val);
+	}
+
+	/** xfer 的等待方式：poll/tryTransfer 不等待 */
+	private static final int NOW = 0;
+	/** offer/put/add 追加后不等待 */
+	private static final int ASYNC = 1;
+	/** transfer/take 一直等待 */
+	private static final int SYNC = 2;
+	/** 带超时的 poll/tryTransfer */
+	private static final int TIMED = 3;
+
+	@SuppressWarnings("unchecked")
+	static <E> E cast(Object item) {
+		return (E) item;
+	}
+
+	public LinkedTransferQueue() {
+	}
+
+	public LinkedTransferQueue(Collection<? extends E> c) {
+		this();
+		for(Iterator<? extends E> it = c.iterator(); it.hasNext(); ) {
+			add(it.next());
+		}
+	}
+
+	/**
+	 * 所有操作的实现。haveData 表示放入（e 为元素）还是取出（e 为 null）
+	 *
+	 * @return 取出时返回得到的元素，放入时返回 null 表示已经交给了消费者；
+	 * 		没有匹配上（超时、中断或者 how 为 NOW）时返回 e
+	 */
+	private E xfer(E e, boolean haveData, int how, long nanos) {
+		if(haveData && (e == null)) {
+			throw new NullPointerException();
+		}
+		Node s = null;
+
+		retry:
+		for(;;) {
+			// 从头部开始找可以匹配的节点
+			for(Node h = head, p = h; p != null; ) {
+				boolean isData = p.isData;
+				Object item = p.item;
+				if(item != p && (item != null) == isData) {
+					if(isData == haveData) {
+						break;
+					}
+					if(p.casItem(item, e)) {
+						// 匹配成功，slack 达到 2 时推进 head
+						for(Node q = p; q != h; ) {
+							Node n = q.next;
+							if(head == h && casHead(h, n == null ? q : n)) {
+								h.forgetNext();
+								break;
+							}
+							if((h = head) == null || (q = h.next) == null || !q.isMatched()) {
+								break;
+							}
+						}
+						LockSupport.unpark(p.waiter);
+						return LinkedTransferQueue.<E>cast(item);
+					}
+				}
+				Node n = p.next;
+				p = (p != n) ? n : (h = head);
+			}
+
+			if(how != NOW) {
+				if(s == null) {
+					s = new Node(e, haveData);
+				}
+				Node pred = tryAppend(s, haveData);
+				if(pred == null) {
+					// 队尾出现了模式相反的节点，重新去匹配
+					continue retry;
+				}
+				if(how != ASYNC) {
+					return awaitMatch(s, pred, e, (how == TIMED), nanos);
+				}
+			}
+			return e;
+		}
+	}
+
+	/**
+	 * 把 s 追加到队尾，slack 达到 2 时推进 tail
+	 *
+	 * @return s 的前驱节点，队列为空时返回 s 自己，队尾的节点模式相反而不能追加时返回 null
+	 */
+	private Node tryAppend(Node s, boolean haveData) {
+		for(Node t = tail, p = t; ; ) {
+			Node n, u;
+			if(p == null && (p = head) == null) {
+				if(casHead(null, s)) {
+					return s;
+				}
+			} else if(p.cannotPrecede(haveData)) {
+				return null;
+			} else if((n = p.next) != null) {
+				// 还没有到最后一个节点，tail 过期时重新读 tail，p 已经出队时从 head 开始
+				p = p != t && t != (u = tail) ? (t = u) : (p != n) ? n : null;
+			} else if(!p.casNext(null, s)) {
+				p = p.next;
+			} else {
+				if(p != t) {
+					while((tail != t || !casTail(t, s))
+							&& (t = tail) != null
+							&& (s = t.next) != null
+							&& (s = s.next) != null && s != t) {
+						;
+					}
+				}
+				return p;
+			}
+		}
+	}
+
+	/**
+	 * 等待 s 被匹配：先自旋，偶尔让出 CPU，然后 park
+	 *
+	 * @return 匹配得到的元素，中断或者超时返回 e
+	 */
+	private E awaitMatch(Node s, Node pred, E e, boolean timed, long nanos) {
+		long lastTime = timed ? System.nanoTime() : 0L;
+		Thread w = Thread.currentThread();
+		// 第一次检查之后再确定自旋次数
+		int spins = -1;
+		int seed = 0;
+
+		for(;;) {
+			Object item = s.item;
+			if(item != e) {
+				s.forgetContents();
+				return LinkedTransferQueue.<E>cast(item);
+			}
+			if((w.isInterrupted() || (timed && nanos <= 0)) && s.casItem(e, s)) {
+				// 取消
+				unsplice(pred, s);
+				return e;
+			}
+
+			if(spins < 0) {
+				spins = spinsFor(pred, s.isData);
+				seed = System.identityHashCode(s) | 1;
+			} else if(spins > 0) {
+				--spins;
+				seed ^= seed << 13;
+				seed ^= seed >>> 17;
+				seed ^= seed << 5;
+				if((seed % CHAINED_SPINS) == 0) {
+					Thread.yield();
+				}
+			} else if(s.waiter == null) {
+				// 设置 waiter 后再检查一次，匹配方看到 waiter 才会 unpark
+				s.waiter = w;
+			} else if(timed) {
+				long now = System.nanoTime();
+				if((nanos -= now - lastTime) > 0) {
+					LockSupport.parkNanos(this, nanos);
+				}
+				lastTime = now;
+			} else {
+				LockSupport.park(this);
+			}
+		}
+	}
+
+	/**
+	 * 按前驱节点的状态决定自旋次数：前驱模式相反或者已经匹配说明 s 在队首附近，多自旋一些
+	 */
+	private static int spinsFor(Node pred, boolean haveData) {
+		if(MP && pred != null) {
+			if(pred.isData != haveData) {
+				return FRONT_SPINS + CHAINED_SPINS;
+			}
+			if(pred.isMatched()) {
+				return FRONT_SPINS;
+			}
+			if(pred.waiter == null) {
+				return CHAINED_SPINS;
+			}
+		}
+		return 0;
+	}
+
+	/**
+	 * p 的后继节点，p 已经出队时返回 head
+	 */
+	final Node succ(Node p) {
+		Node next = p.next;
+		return (p == next) ? head : next;
+	}
+
+	/**
+	 * 第一个还没有被匹配的节点，模式不是 isData 时返回 null
+	 */
+	private Node firstOfMode(boolean isData) {
+		for(Node p = head; p != null; p = succ(p)) {
+			if(!p.isMatched()) {
+				return (p.isData == isData) ? p : null;
+			}
+		}
+		return null;
+	}
+
+	private E firstDataItem() {
+		for(Node p = head; p != null; p = succ(p)) {
+			Object item = p.item;
+			if(p.isData) {
+				if(item != null && item != p) {
+					return LinkedTransferQueue.<E>cast(item);
+				}
+			} else if(item == null) {
+				return null;
+			}
+		}
+		return null;
+	}
+
+	private int countOfMode(boolean data) {
+		int count = 0;
+		for(Node p = head; p != null; ) {
+			if(!p.isMatched()) {
+				if(p.isData != data) {
+					return 0;
+				}
+				if(++count == Integer.MAX_VALUE) {
+					break;
+				}
+			}
+			Node n = p.next;
+			if(n != p) {
+				p = n;
+			} else {
+				count = 0;
+				p = head;
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * 把已经匹配或取消的 s 从链表中摘掉，pred 为 s 的前驱。
+	 * s 是最后一个节点时不能摘除，这种删除失败累计到一定次数时清扫一遍整个链表
+	 */
+	final void unsplice(Node pred, Node s) {
+		s.forgetContents();
+		if(pred != null && pred != s && pred.next == s) {
+			Node n = s.next;
+			if(n == null || (n != s && pred.casNext(s, n) && pred.isMatched())) {
+				// pred 也已经匹配，可能在头部，先尝试推进 head
+				for(;;) {
+					Node h = head;
+					if(h == pred || h == s || h == null) {
+						return;
+					}
+					if(!h.isMatched()) {
+						break;
+					}
+					Node hn = h.next;
+					if(hn == null) {
+						return;
+					}
+					if(hn != h && casHead(h, hn)) {
+						h.forgetNext();
+					}
+				}
+				if(pred.next != pred && s.next != s) {
+					for(;;) {
+						int v = sweepVotes;
+						if(v < SWEEP_THRESHOLD) {
+							if(casSweepVotes(v, v + 1)) {
+								break;
+							}
+						} else if(casSweepVotes(v, 0)) {
+							sweep();
+							break;
+						}
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * 摘掉链表中所有已经匹配的节点，最后一个节点除外
+	 */
+	private void sweep() {
+		for(Node p = head, s, n; p != null && (s = p.next) != null; ) {
+			if(!s.isMatched()) {
+				p = s;
+			} else if((n = s.next) == null) {
+				break;
+			} else if(s == n) {
+				p = head;
+			} else {
+				p.casNext(s, n);
+			}
+		}
+	}
+
+	private boolean findAndRemove(Object e) {
+		if(e != null) {
+			for(Node pred = null, p = head; p != null; ) {
+				Object item = p.item;
+				if(p.isData) {
+					if(item != null && item != p && e.equals(item) && p.tryMatchData()) {
+						unsplice(pred, p);
+						return true;
+					}
+				} else if(item == null) {
+					break;
+				}
+				pred = p;
+				if((p = p.next) == pred) {
+					pred = null;
+					p = head;
+				}
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * 队列无界，不会阻塞
+	 */
+	@Override
+	public void put(E e) {
+		xfer(e, true, ASYNC, 0);
+	}
+
+	/**
+	 * 队列无界，不会阻塞，总是返回 true
+	 */
+	@Override
+	public boolean offer(E e, long timeout, TimeUnit unit) {
+		xfer(e, true, ASYNC, 0);
+		return true;
+	}
+
+	@Override
+	public boolean offer(E e) {
+		xfer(e, true, ASYNC, 0);
+		return true;
+	}
+
+	@Override
+	public boolean add(E e) {
+		xfer(e, true, ASYNC, 0);
+		return true;
+	}
+
+	@Override
+	public boolean tryTransfer(E e) {
+		return xfer(e, true, NOW, 0) == null;
+	}
+
+	@Override
+	public void transfer(E e) throws InterruptedException {
+		if(xfer(e, true, SYNC, 0) != null) {
+			// 被中断，节点已经取消
+			Thread.interrupted();
+			throw new InterruptedException();
+		}
+	}
+
+	@Override
+	public boolean tryTransfer(E e, long timeout, TimeUnit unit) throws InterruptedException {
+		if(xfer(e, true, TIMED, unit.toNanos(timeout)) == null) {
+			return true;
+		}
+		if(!Thread.interrupted()) {
+			return false;
+		}
+		throw new InterruptedException();
+	}
+
+	@Override
+	public E take() throws InterruptedException {
+		E e = xfer(null, false, SYNC, 0);
+		if(e != null) {
+			return e;
+		}
+		Thread.interrupted();
+		throw new InterruptedException();
+	}
+
+	@Override
+	public E poll(long timeout, TimeUnit unit) throws InterruptedException {
+		E e = xfer(null, false, TIMED, unit.toNanos(timeout));
+		if(e != null || !Thread.interrupted()) {
+			return e;
+		}
+		throw new InterruptedException();
+	}
+
+	@Override
+	public E poll() {
+		return xfer(null, false, NOW, 0);
+	}
+
+	@Override
+	public int drainTo(Collection<? super E> c) {
+		if(c == null) {
+			throw new NullPointerException();
+		}
+		if(c == this) {
+			throw new IllegalArgumentException();
+		}
+		int n = 0;
+		E e;
+		while((e = poll()) != null) {
+			c.add(e);
+			++n;
+		}
+		return n;
+	}
+
+	@Override
+	public int drainTo(Collection<? super E> c, int maxElements) {
+		if(c == null) {
+			throw new NullPointerException();
+		}
+		if(c == this) {
+			throw new IllegalArgumentException();
+		}
+		int n = 0;
+		E e;
+		while(n < maxElements && (e = poll()) != null) {
+			c.add(e);
+			++n;
+		}
+		return n;
+	}
+
+	@Override
+	public E peek() {
+		return firstDataItem();
+	}
+
+	@Override
+	public boolean isEmpty() {
+		for(Node p = head; p != null; p = succ(p)) {
+			if(!p.isMatched()) {
+				return !p.isData;
+			}
+		}
+		return true;
+	}
+
+	@Override
+	public boolean hasWaitingConsumer() {
+		return firstOfMode(false) != null;
+	}
+
+	/**
+	 * 需要遍历整个链表，并发修改时只是一个估计值
+	 */
+	@Override
+	public int size() {
+		return countOfMode(true);
+	}
+
+	@Override
+	public int getWaitingConsumerCount() {
+		return countOfMode(false);
+	}
+
+	@Override
+	public boolean remove(Object o) {
+		return findAndRemove(o);
+	}
+
+	@Override
+	public boolean contains(Object o) {
+		if(o == null) {
+			return false;
+		}
+		for(Node p = head; p != null; p = succ(p)) {
+			Object item = p.item;
+			if(p.isData) {
+				if(item != null && item != p && o.equals(item)) {
+					return true;
+				}
+			} else if(item == null) {
+				break;
+			}
+		}
+		return false;
+	}
+
+	@Override
+	public int remainingCapacity() {
+		return Integer.MAX_VALUE;
+	}
+
+	@Override
+	public Iterator<E> iterator() {
+		return new Itr();
+	}
+
+	/**
+	 * 弱一致的迭代器，顺带帮忙摘掉经过的已匹配节点
+	 */
+	final class Itr implements Iterator<E> {
+		private Node nextNode;
+		private E nextItem;
+		private Node lastRet;
+		private Node lastPred;
+
+		Itr() {
+			advance(null);
+		}
+
+		/**
+		 * 移动到 prev 之后第一个还没有被匹配的数据节点
+		 */
+		private void advance(Node prev) {
+			Node r, b;
+			if((r = lastRet) != null && !r.isMatched()) {
+				lastPred = r;
+			} else if((b = lastPred) == null || b.isMatched()) {
+				lastPred = null;
+			} else {
+				Node s, n;
+				while((s = b.next) != null && s != b && s.isMatched()
+						&& (n = s.next) != null && n != s) {
+					b.casNext(s, n);
+				}
+			}
+
+			this.lastRet = prev;
+
+			for(Node p = prev, s, n; ; ) {
+				s = (p == null) ? head : p.next;
+				if(s == null) {
+					break;
+				} else if(s == p) {
+					p = null;
+					continue;
+				}
+				Object item = s.item;
+				if(s.isData) {
+					if(item != null && item != s) {
+						nextItem = LinkedTransferQueue.<E>cast(item);
+						nextNode = s;
+						return;
+					}
+				} else if(item == null) {
+					break;
+				}
+				if(p == null) {
+					p = s;
+				} else if((n = s.next) == null) {
+					break;
+				} else if(s == n) {
+					p = null;
+				} else {
+					p.casNext(s, n);
+				}
+			}
+			nextNode = null;
+			nextItem = null;
+		}
+
+		@Override
+		public boolean hasNext() {
+			return nextNode != null;
+		}
+
+		@Override
+		public E next() {
+			Node p = nextNode;
+			if(p == null) {
+				throw new NoSuchElementException();
+			}
+			E e = nextItem;
+			advance(p);
+			return e;
+		}
+
+		@Override
+		public void remove() {
+			final Node lastRet = this.lastRet;
+			if(lastRet == null) {
+				throw new IllegalStateException();
+			}
+			this.lastRet = null;
+			if(lastRet.tryMatchData()) {
+				unsplice(lastPred, lastRet);
+			}
+		}
+	}
+
+	private void writeObject(ObjectOutputStream s) throws IOException {
+		s.defaultWriteObject();
+		for(Iterator<E> it = iterator(); it.hasNext(); ) {
+			s.writeObject(it.next());
+		}
+		s.writeObject(null);
+	}
+
+	private void readObject(ObjectInputStream s) throws IOException, ClassNotFoundException {
+		s.defaultReadObject();
+		for(;;) {
+			E item = LinkedTransferQueue.<E>cast(s.readObject());
+			if(item == null) {
+				break;
+			}
+			offer(item);
+		}
+	}
 }
@@ -0,0 +1,254 @@
+package com.jerry.soundcode.concurrent.collection;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+/**
+ * 优先级为 long 的索引优先级队列，非线程安全，用于 Dijkstra 这类按整数编号（顶点、定时器槽位）修改优先级的场景。
+ *
+ * 元素就是一个非负的 int 编号，每个编号最多在队列中出现一次，优先级越小越先出队。
+ * 堆是 4 叉堆，编号和优先级按堆的顺序分别存放在 int[]、long[] 中，比较时直接比较 long，
+ * 没有装箱也没有 Comparable 的虚方法调用。pos 记录每个编号在堆中的下标加一，0 表示不在队列中，
+ * 所以 decreaseKey/update/remove 都是 O(log n)。编号超过当前容量时 pos 自动扩容。
+ */
+public class LongIndexedPriorityQueue implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	private static final int DEFAULT_INITIAL_CAPACITY = 16;
+
+	/** 堆中的编号 */
+	private int[] ids;
+
+	/** 堆中的优先级，和 ids 一一对应 */
+	private long[] keys;
+
+	/** 编号在堆中的下标加一，0 表示不在队列中 */
+	private int[] pos;
+
+	private int size;
+
+	public LongIndexedPriorityQueue() {
+		this(DEFAULT_INITIAL_CAPACITY);
+	}
+
+	/**
+	 * @param capacity 预计的最大编号加一
+	 */
+	public LongIndexedPriorityQueue(int capacity) {
+		if(capacity < 1) {
+			throw new IllegalArgumentException();
+		}
+		ids = new int[capacity];
+		keys = new long[capacity];
+		pos = new int[capacity];
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	public boolean contains(int id) {
+		return id >= 0 && id < pos.length && pos[id] != 0;
+	}
+
+	/**
+	 * @throws NoSuchElementException 编号不在队列中
+	 */
+	public long priorityOf(int id) {
+		return keys[indexOf(id)];
+	}
+
+	private int indexOf(int id) {
+		if(!contains(id)) {
+			throw new NoSuchElementException(String.valueOf(id));
+		}
+		return pos[id] - 1;
+	}
+
+	/**
+	 * @throws IllegalArgumentException 编号为负数或者已经在队列中
+	 */
+	public void insert(int id, long priority) {
+		if(id < 0) {
+			throw new IllegalArgumentException(String.valueOf(id));
+		}
+		if(id >= pos.length) {
+			pos = Arrays.copyOf(pos, Math.max(id + 1, pos.length + (pos.length >> 1)));
+		} else if(pos[id] != 0) {
+			throw new IllegalArgumentException(String.valueOf(id));
+		}
+		int i = size;
+		if(i >= ids.length) {
+			int newCapacity = ids.length + (ids.length >> 1) + 1;
+			ids = Arrays.copyOf(ids, newCapacity);
+			keys = Arrays.copyOf(keys, newCapacity);
+		}
+		size = i + 1;
+		siftUp(i, id, priority);
+	}
+
+	/**
+	 * 把优先级改为一个不大于原来的值
+	 *
+	 * @throws NoSuchElementException 编号不在队列中
+	 * @throws IllegalArgumentException 新的优先级比原来的大
+	 */
+	public void decreaseKey(int id, long priority) {
+		int i = indexOf(id);
+		if(priority > keys[i]) {
+			throw new IllegalArgumentException();
+		}
+		siftUp(i, id, priority);
+	}
+
+	/**
+	 * 把优先级改为任意的新值
+	 *
+	 * @throws NoSuchElementException 编号不在队列中
+	 */
+	public void update(int id, long priority) {
+		int i = indexOf(id);
+		if(priority < keys[i]) {
+			siftUp(i, id, priority);
+		} else {
+			siftDown(i, id, priority);
+		}
+	}
+
+	/**
+	 * 删除编号，不在队列中时返回 false
+	 */
+	public boolean remove(int id) {
+		if(!contains(id)) {
+			return false;
+		}
+		removeAt(pos[id] - 1);
+		return true;
+	}
+
+	/**
+	 * 优先级最小的编号
+	 *
+	 * @throws NoSuchElementException 队列为空
+	 */
+	public int peekId() {
+		if(size == 0) {
+			throw new NoSuchElementException();
+		}
+		return ids[0];
+	}
+
+	/**
+	 * 最小的优先级
+	 *
+	 * @throws NoSuchElementException 队列为空
+	 */
+	public long peekPriority() {
+		if(size == 0) {
+			throw new NoSuchElementException();
+		}
+		return keys[0];
+	}
+
+	/**
+	 * 取出优先级最小的编号，队列为空时返回 -1
+	 */
+	public int pollId() {
+		if(size == 0) {
+			return -1;
+		}
+		int id = ids[0];
+		removeAt(0);
+		return id;
+	}
+
+	public void clear() {
+		for(int i = 0; i < size; i++) {
+			pos[ids[i]] = 0;
+		}
+		size = 0;
+	}
+
+	private void removeAt(int i) {
+		pos[ids[i]] = 0;
+		int s = --size;
+		if(s != i) {
+			int movedId = ids[s];
+			long movedKey = keys[s];
+			siftDown(i, movedId, movedKey);
+			if(ids[i] == movedId) {
+				siftUp(i, movedId, movedKey);
+			}
+		}
+	}
+
+	private void siftUp(int k, int id, long key) {
+		final int[] ids = this.ids;
+		final long[] keys = this.keys;
+		while(k > 0) {
+			int parent = (k - 1) >>> 2;
+			long pk = keys[parent];
+			if(key >= pk) {
+				break;
+			}
+			int pid = ids[parent];
+			ids[k] = pid;
+			keys[k] = pk;
+			pos[pid] = k + 1;
+			k = parent;
+		}
+		ids[k] = id;
+		keys[k] = key;
+		pos[id] = k + 1;
+	}
+
+	private void siftDown(int k, int id, long key) {
+		final int[] ids = this.ids;
+		final long[] keys = this.keys;
+		final int n = size;
+		for(;;) {
+			int child = (k << 2) + 1;
+			if(child >= n) {
+				break;
+			}
+			int end = Math.min(child + 4, n);
+			int min = child;
+			long minKey = keys[child];
+			for(int c = child + 1; c < end; c++) {
+				if(keys[c] < minKey) {
+					min = c;
+					minKey = keys[c];
+				}
+			}
+			if(key <= minKey) {
+				break;
+			}
+			int mid = ids[min];
+			ids[k] = mid;
+			keys[k] = minKey;
+			pos[mid] = k + 1;
+			k = min;
+		}
+		ids[k] = id;
+		keys[k] = key;
+		pos[id] = k + 1;
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder("[");
+		for(int i = 0; i < size; i++) {
+			if(i > 0) {
+				sb.append(", ");
+			}
+			sb.append(ids[i]).append('=').append(keys[i]);
+		}
+		return sb.append(']').toString();
+	}
+}
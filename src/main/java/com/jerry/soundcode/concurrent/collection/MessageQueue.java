@@ -0,0 +1,38 @@
+package com.jerry.soundcode.concurrent.collection;
+
+import com.jerry.soundcode.list.Queue;
+
+/**
+ * 面向线程间传递消息的有界队列，在 Queue 的基础上提供批量取出和批量放入。
+ * 批量操作只在最后发布一次索引，适合流水线中一次处理一批消息的场景
+ */
+public interface MessageQueue<E> extends Queue<E> {
+
+	/**
+	 * 接收 drain 取出的元素
+	 */
+	interface Consumer<T> {
+		void accept(T t);
+	}
+
+	/**
+	 * 为 fill 提供元素，返回 null 表示暂时没有更多元素，fill 就此结束
+	 */
+	interface Supplier<T> {
+		T get();
+	}
+
+	/**
+	 * 最多取出 limit 个当前可用的元素交给 consumer，返回取出的个数。不会等待。
+	 * consumer 抛出异常时，已经交给它的元素都已出队，其余元素留在队列中
+	 */
+	int drain(Consumer<? super E> consumer, int limit);
+
+	/**
+	 * 从 supplier 获取元素放入队列，最多放入 limit 个，受剩余空间限制，返回放入的个数。
+	 * 队列已满时不会等待，supplier 返回的元素不会被丢弃
+	 */
+	int fill(Supplier<? extends E> supplier, int limit);
+
+	int capacity();
+}
@@ -0,0 +1,505 @@
+package com.jerry.soundcode.concurrent.collection;
+
+import java.io.Serializable;
+import java.util.NoSuchElementException;
+import java.util.concurrent.TimeUnit;
+
+import com.jerry.soundcode.concurrent.atomic.AtomicLong;
+import com.jerry.soundcode.concurrent.atomic.AtomicLongArray;
+import com.jerry.soundcode.concurrent.locks.Condition;
+import com.jerry.soundcode.concurrent.locks.ReentrantLock;
+import com.jerry.soundcode.list.AbstractQueue;
+import com.jerry.soundcode.list.Collection;
+import com.jerry.soundcode.list.Iterator;
+
+/**
+ * 无锁的有界多生产者多消费者环形队列（Dmitry Vyukov 的 bounded MPMC queue）。
+ *
+ * ArrayBlockingQueue 的生产者和消费者共用一把锁，而这里每个槽位带一个序号：
+ * 序号等于 pos 表示槽位空闲，可以被第 pos 次入队使用；等于 pos + 1 表示第 pos 次入队的元素已经写好，可以被取走。
+ * 生产者和消费者各自通过 CAS 推进 tail 和 head 来抢占位置，只在同一个槽位上交接，互不加锁。
+ * head 和 tail 各自填充到独占缓存行，避免生产者和消费者之间的伪共享。
+ *
+ * 队列满或空时的阻塞方式由 {@link WaitStrategy} 决定：
+ * SPIN 一直自旋，延迟最低但占满 CPU；YIELD 自旋一段时间后让出 CPU；PARK 自旋、让出后在条件队列上挂起，
+ * 只有存在挂起的线程时才需要获取锁去唤醒，快速路径仍然无锁。
+ *
+ * 容量会向上取整为 2 的幂（至少为 2）。不支持从队列中间删除元素，remove(Object) 和迭代器的 remove 会抛出 UnsupportedOperationException。
+ */
+public class MpmcArrayBlockingQueue<E> extends AbstractQueue<E>
+	implements BlockingQueue<E>, Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * 队列满或空时等待的方式
+	 */
+	public static enum WaitStrategy {
+		SPIN, YIELD, PARK
+	}
+
+	/** 让出 CPU 或挂起之前自旋的次数 */
+	private static final int SPINS = 128;
+
+	/** PARK 模式下挂起之前调用 Thread.yield() 的次数 */
+	private static final int YIELDS = 16;
+
+	/**
+	 * 填充到独占缓存行的计数器，和 Exchanger 的 Slot 一样
+	 */
+	private static final class Counter extends AtomicLong {
+		private static final long serialVersionUID = 1L;
+		@SuppressWarnings("unused")
+		long q0, q1, q2, q3, q4, q5, q6, q7, q8, q9, qa, qb, qc, qd, qe;
+	}
+
+	private final Object[] buffer;
+
+	/** 每个槽位的序号 */
+	private final AtomicLongArray sequences;
+
+	private final int mask;
+
+	/** 下一个入队的位置 */
+	private final Counter tail = new Counter();
+
+	/** 下一个出队的位置 */
+	private final Counter head = new Counter();
+
+	private final WaitStrategy waitStrategy;
+
+	/** 以下只在 PARK 模式下使用 */
+	private final ReentrantLock lock;
+
+	private final Condition notEmpty;
+
+	private final Condition notFull;
+
+	private volatile int takeWaiters;
+
+	private volatile int putWaiters;
+
+	public MpmcArrayBlockingQueue(int capacity) {
+		this(capacity, WaitStrategy.PARK);
+	}
+
+	public MpmcArrayBlockingQueue(int capacity, WaitStrategy waitStrategy) {
+		if (capacity <= 0 || capacity > (1 << 30)) {
+			throw new IllegalArgumentException();
+		}
+		if (waitStrategy == null) {
+			throw new NullPointerException();
+		}
+
+		// 只有一个槽位时，写好后的序号 pos + 1 会被下一次入队误认为空闲，至少需要两个槽位
+		int size = 2;
+		while (size < capacity) {
+			size <<= 1;
+		}
+		this.buffer = new Object[size];
+		this.mask = size - 1;
+		this.sequences = new AtomicLongArray(size);
+		for (int i = 0; i < size; i++) {
+			sequences.lazySet(i, i);
+		}
+
+		this.waitStrategy = waitStrategy;
+		if (waitStrategy == WaitStrategy.PARK) {
+			lock = new ReentrantLock();
+			notEmpty = lock.newCondition();
+			notFull = lock.newCondition();
+		} else {
+			lock = null;
+			notEmpty = null;
+			notFull = null;
+		}
+	}
+
+	public MpmcArrayBlockingQueue(int capacity, WaitStrategy waitStrategy, Collection<? extends E> c) {
+		this(capacity, waitStrategy);
+		for (Iterator<? extends E> it = c.iterator(); it.hasNext();) {
+			add(it.next());
+		}
+	}
+
+	/**
+	 * 发布槽位的新序号。PARK 模式下随后要读 waiters 决定是否唤醒，
+	 * 必须用 volatile 写保证序号对刚检查完队列准备挂起的线程可见，否则会丢失唤醒；其余模式用 lazySet 即可
+	 */
+	private void publish(int index, long sequence) {
+		if (lock != null) {
+			sequences.set(index, sequence);
+		} else {
+			sequences.lazySet(index, sequence);
+		}
+	}
+
+	@Override
+	public boolean offer(E e) {
+		if (e == null) {
+			throw new NullPointerException();
+		}
+
+		final Object[] buffer = this.buffer;
+		final AtomicLongArray sequences = this.sequences;
+		for (;;) {
+			long t = tail.get();
+			int index = (int) t & mask;
+			long dif = sequences.get(index) - t;
+			if (dif == 0) {
+				if (tail.compareAndSet(t, t + 1)) {
+					buffer[index] = e;
+					publish(index, t + 1);
+					if (takeWaiters != 0) {
+						signal(notEmpty);
+					}
+					return true;
+				}
+			} else if (dif < 0) {
+				// 槽位还没被上一轮的消费者释放，队列已满
+				return false;
+			}
+			// dif > 0：其他生产者已经抢走了这个位置，重新读取 tail
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	@Override
+	public E poll() {
+		final Object[] buffer = this.buffer;
+		final AtomicLongArray sequences = this.sequences;
+		for (;;) {
+			long h = head.get();
+			int index = (int) h & mask;
+			long dif = sequences.get(index) - (h + 1);
+			if (dif == 0) {
+				if (head.compareAndSet(h, h + 1)) {
+					E e = (E) buffer[index];
+					buffer[index] = null;
+					// 槽位留给下一轮的第 h + capacity 次入队
+					publish(index, h + mask + 1);
+					if (putWaiters != 0) {
+						signal(notFull);
+					}
+					return e;
+				}
+			} else if (dif < 0) {
+				return null;
+			}
+		}
+	}
+
+	private boolean canOffer() {
+		long t = tail.get();
+		return sequences.get((int) t & mask) - t >= 0;
+	}
+
+	private boolean canPoll() {
+		long h = head.get();
+		return sequences.get((int) h & mask) - (h + 1) >= 0;
+	}
+
+	private void signal(Condition condition) {
+		final ReentrantLock lock = this.lock;
+		lock.lock();
+		try {
+			condition.signalAll();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * 一次失败之后的等待，返回新的计数。deadline 为 0 表示不限时
+	 */
+	private int idle(int counter, boolean producer, long deadline) throws InterruptedException {
+		if (Thread.interrupted()) {
+			throw new InterruptedException();
+		}
+		switch (waitStrategy) {
+		case SPIN:
+			return counter;
+		case YIELD:
+			if (counter < SPINS) {
+				return counter + 1;
+			}
+			Thread.yield();
+			return counter;
+		default:
+			if (counter < SPINS) {
+				return counter + 1;
+			}
+			if (counter < SPINS + YIELDS) {
+				Thread.yield();
+				return counter + 1;
+			}
+			await(producer, deadline);
+			return counter;
+		}
+	}
+
+	/**
+	 * 登记为等待者后重新检查队列，仍然满（空）时才挂起，对方在 publish 之后看到登记会来唤醒
+	 */
+	private void await(boolean producer, long deadline) throws InterruptedException {
+		final ReentrantLock lock = this.lock;
+		lock.lockInterruptibly();
+		try {
+			if (producer) {
+				putWaiters++;
+				try {
+					if (!canOffer()) {
+						awaitOn(notFull, deadline);
+					}
+				} finally {
+					putWaiters--;
+				}
+			} else {
+				takeWaiters++;
+				try {
+					if (!canPoll()) {
+						awaitOn(notEmpty, deadline);
+					}
+				} finally {
+					takeWaiters--;
+				}
+			}
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	private static void awaitOn(Condition condition, long deadline) throws InterruptedException {
+		if (deadline == 0) {
+			condition.await();
+		} else {
+			long nanos = deadline - System.nanoTime();
+			if (nanos > 0) {
+				condition.awaitNanos(nanos);
+			}
+		}
+	}
+
+	@Override
+	public void put(E e) throws InterruptedException {
+		int counter = 0;
+		while (!offer(e)) {
+			counter = idle(counter, true, 0);
+		}
+	}
+
+	@Override
+	public boolean offer(E e, long timeout, TimeUnit unit) throws InterruptedException {
+		long deadline = System.nanoTime() + unit.toNanos(timeout);
+		if (deadline == 0) {
+			deadline = 1;
+		}
+		int counter = 0;
+		while (!offer(e)) {
+			if (deadline - System.nanoTime() <= 0) {
+				return false;
+			}
+			counter = idle(counter, true, deadline);
+		}
+		return true;
+	}
+
+	@Override
+	public E take() throws InterruptedException {
+		int counter = 0;
+		E e;
+		while ((e = poll()) == null) {
+			counter = idle(counter, false, 0);
+		}
+		return e;
+	}
+
+	@Override
+	public E poll(long timeout, TimeUnit unit) throws InterruptedException {
+		long deadline = System.nanoTime() + unit.toNanos(timeout);
+		if (deadline == 0) {
+			deadline = 1;
+		}
+		int counter = 0;
+		E e;
+		while ((e = poll()) == null) {
+			if (deadline - System.nanoTime() <= 0) {
+				return null;
+			}
+			counter = idle(counter, false, deadline);
+		}
+		return e;
+	}
+
+	@SuppressWarnings("unchecked")
+	@Override
+	public E peek() {
+		for (;;) {
+			long h = head.get();
+			int index = (int) h & mask;
+			if (sequences.get(index) - (h + 1) < 0) {
+				return null;
+			}
+			E e = (E) buffer[index];
+			// 读取期间元素可能已经被取走，head 没变说明读到的就是队首
+			if (e != null && head.get() == h) {
+				return e;
+			}
+		}
+	}
+
+	/**
+	 * 先读 head 再读 tail，并发修改时是一个近似值
+	 */
+	@Override
+	public int size() {
+		for (;;) {
+			long h = head.get();
+			long t = tail.get();
+			if (head.get() == h) {
+				long size = t - h;
+				if (size < 0) {
+					return 0;
+				}
+				return (int) Math.min(size, buffer.length);
+			}
+		}
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return !canPoll();
+	}
+
+	public int capacity() {
+		return buffer.length;
+	}
+
+	@Override
+	public int remainingCapacity() {
+		return buffer.length - size();
+	}
+
+	public WaitStrategy getWaitStrategy() {
+		return waitStrategy;
+	}
+
+	@Override
+	public boolean remove(Object o) {
+		throw new UnsupportedOperationException();
+	}
+
+	@Override
+	public boolean contains(Object o) {
+		if (o == null) {
+			return false;
+		}
+		Object[] a = toArray();
+		for (int i = 0; i < a.length; i++) {
+			if (o.equals(a[i])) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * 从 head 到 tail 读取已经发布的元素，是一个弱一致的快照
+	 */
+	@Override
+	public Object[] toArray() {
+		long h = head.get();
+		long t = tail.get();
+		int n = (int) Math.max(0, Math.min(t - h, buffer.length));
+		Object[] a = new Object[n];
+		int k = 0;
+		for (long pos = h; pos < h + n; pos++) {
+			int index = (int) pos & mask;
+			Object e = buffer[index];
+			if (sequences.get(index) == pos + 1 && e != null) {
+				a[k++] = e;
+			}
+		}
+		if (k < n) {
+			Object[] r = new Object[k];
+			System.arraycopy(a, 0, r, 0, k);
+			return r;
+		}
+		return a;
+	}
+
+	@SuppressWarnings("unchecked")
+	@Override
+	public <T> T[] toArray(T[] a) {
+		Object[] items = toArray();
+		int n = items.length;
+		if (a.length < n) {
+			a = (T[]) java.lang.reflect.Array.newInstance(a.getClass().getComponentType(), n);
+		}
+		System.arraycopy(items, 0, a, 0, n);
+		if (a.length > n) {
+			a[n] = null;
+		}
+		return a;
+	}
+
+	@Override
+	public void clear() {
+		while (poll() != null) ;
+	}
+
+	@Override
+	public int drainTo(Collection<? super E> c) {
+		return drainTo(c, Integer.MAX_VALUE);
+	}
+
+	@Override
+	public int drainTo(Collection<? super E> c, int maxElements) {
+		if (c == null) {
+			throw new NullPointerException();
+		}
+		if (c == this) {
+			throw new IllegalArgumentException();
+		}
+		int n = 0;
+		E e;
+		while (n < maxElements && (e = poll()) != null) {
+			c.add(e);
+			n++;
+		}
+		return n;
+	}
+
+	/**
+	 * 基于 toArray 快照的迭代器，不支持 remove
+	 */
+	@Override
+	public Iterator<E> iterator() {
+		return new Itr(toArray());
+	}
+
+	private class Itr implements Iterator<E> {
+		private final Object[] snapshot;
+		private int cursor;
+
+		Itr(Object[] snapshot) {
+			this.snapshot = snapshot;
+		}
+
+		public boolean hasNext() {
+			return cursor < snapshot.length;
+		}
+
+		@SuppressWarnings("unchecked")
+		public E next() {
+			if (cursor >= snapshot.length) {
+				throw new NoSuchElementException();
+			}
+			return (E) snapshot[cursor++];
+		}
+
+		public void remove() {
+			throw new UnsupportedOperationException();
+		}
+	}
+}
@@ -0,0 +1,316 @@
+package com.jerry.soundcode.concurrent.collection;
+
+import java.io.Serializable;
+import java.util.NoSuchElementException;
+
+import com.jerry.soundcode.concurrent.atomic.AtomicLong;
+import com.jerry.soundcode.concurrent.atomic.AtomicReferenceArray;
+import com.jerry.soundcode.list.AbstractQueue;
+import com.jerry.soundcode.list.Iterator;
+
+/**
+ * 多生产者单消费者的有界环形队列，任意多个线程可以入队，同一时刻只能有一个线程出队。
+ *
+ * 生产者通过 CAS 推进生产者索引抢占位置，再用 lazySet 把元素写入槽位；消费者只有一个，
+ * 以槽位是否为 null 判断元素是否写好，取出后用 lazySet 清空槽位并发布消费者索引，不需要 CAS。
+ * 生产者共享一份消费者索引的缓存，只有按缓存判断队列已满时才去读取消费者索引。
+ * fill 先抢占位置再向 supplier 取元素，没有取到元素的位置写入 SKIP，消费者遇到时直接跳过。
+ */
+public class MpscArrayQueue<E> extends AbstractQueue<E>
+	implements MessageQueue<E>, Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	private static final class Counter extends AtomicLong {
+		private static final long serialVersionUID = 1L;
+		/** 生产者之间共享，可能被多个线程写入，只会偏小不会偏大 */
+		volatile long cache;
+		@SuppressWarnings("unused")
+		long q0, q1, q2, q3, q4, q5, q6, q7, q8, q9, qa, qb, qc, qd;
+	}
+
+	/** 占位标记，表示 fill 抢占了这个位置但没有元素写入 */
+	private static final Object SKIP = new Object();
+
+	private final AtomicReferenceArray<E> buffer;
+
+	private final int mask;
+
+	/** 下一个入队的位置，cache 为消费者索引的缓存 */
+	private final Counter producer = new Counter();
+
+	/** 下一个出队的位置，只被消费者修改 */
+	private final Counter consumer = new Counter();
+
+	public MpscArrayQueue(int capacity) {
+		if (capacity <= 0 || capacity > (1 << 30)) {
+			throw new IllegalArgumentException();
+		}
+		int size = 1;
+		while (size < capacity) {
+			size <<= 1;
+		}
+		this.buffer = new AtomicReferenceArray<E>(size);
+		this.mask = size - 1;
+	}
+
+	@Override
+	public boolean offer(E e) {
+		if (e == null) {
+			throw new NullPointerException();
+		}
+		final Counter producer = this.producer;
+		for (;;) {
+			long p = producer.get();
+			if (p - producer.cache > mask) {
+				long c = consumer.get();
+				producer.cache = c;
+				if (p - c > mask) {
+					return false;
+				}
+			}
+			if (producer.compareAndSet(p, p + 1)) {
+				buffer.lazySet((int) p & mask, e);
+				return true;
+			}
+		}
+	}
+
+	/**
+	 * 只能由消费者线程调用
+	 */
+	@Override
+	public E poll() {
+		final AtomicReferenceArray<E> buffer = this.buffer;
+		for (;;) {
+			long c = consumer.get();
+			int index = (int) c & mask;
+			E e = buffer.get(index);
+			if (e == null) {
+				if (c == producer.get()) {
+					return null;
+				}
+				// 位置已经被生产者抢占，元素马上就会写入
+				do {
+					e = buffer.get(index);
+				} while (e == null);
+			}
+			buffer.lazySet(index, null);
+			consumer.lazySet(c + 1);
+			if (e != SKIP) {
+				return e;
+			}
+		}
+	}
+
+	/**
+	 * 只能由消费者线程调用，队头的 SKIP 会被移除
+	 */
+	@Override
+	public E peek() {
+		final AtomicReferenceArray<E> buffer = this.buffer;
+		for (;;) {
+			long c = consumer.get();
+			int index = (int) c & mask;
+			E e = buffer.get(index);
+			if (e == null && c != producer.get()) {
+				do {
+					e = buffer.get(index);
+				} while (e == null);
+			}
+			if (e != SKIP) {
+				return e;
+			}
+			buffer.lazySet(index, null);
+			consumer.lazySet(c + 1);
+		}
+	}
+
+	/**
+	 * 只能由消费者线程调用。遇到还没写好的槽位就停止，最后只发布一次消费者索引。
+	 * consumer 抛出异常时，已经交出的元素（包括抛出异常的那一个）都已经出队，
+	 * 消费者索引照常发布，剩下的元素留在队列中，异常原样抛出
+	 */
+	public int drain(Consumer<? super E> c, int limit) {
+		if (c == null) {
+			throw new NullPointerException();
+		}
+		final AtomicReferenceArray<E> buffer = this.buffer;
+		long start = consumer.get();
+		long pos = start;
+		int n = 0;
+		try {
+			while (n < limit) {
+				int index = (int) pos & mask;
+				E e = buffer.get(index);
+				if (e == null) {
+					break;
+				}
+				buffer.lazySet(index, null);
+				pos++;
+				if (e != SKIP) {
+					n++;
+					c.accept(e);
+				}
+			}
+		} finally {
+			if (pos != start) {
+				consumer.lazySet(pos);
+			}
+		}
+		return n;
+	}
+
+	/**
+	 * 只能由消费者线程调用。删除第一个就是 o 的元素（按 == 比较），它前面的元素各向后移动一个槽位，
+	 * 顺序不变，然后发布一次消费者索引。其他元素不会出队再入队，所以不会因为生产者同时入队而放不回去
+	 */
+	public boolean consumerRemove(Object o) {
+		final AtomicReferenceArray<E> buffer = this.buffer;
+		long c = consumer.get();
+		long p = producer.get();
+		for (long pos = c; pos < p; pos++) {
+			int index = (int) pos & mask;
+			E e;
+			// 位置已经被生产者抢占，元素马上就会写入
+			do {
+				e = buffer.get(index);
+			} while (e == null);
+			if (e == o) {
+				for (long k = pos; k > c; k--) {
+					buffer.lazySet((int) k & mask, buffer.get((int) (k - 1) & mask));
+				}
+				buffer.lazySet((int) c & mask, null);
+				consumer.lazySet(c + 1);
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * 先按剩余空间用一次 CAS 抢占最多 limit 个连续位置，再逐个从 s 取元素写入，不会等待消费者。
+	 * s 返回 null 或抛出异常时，剩下已经抢占的位置写入 SKIP，消费者跳过它们，不会一直等待。
+	 * 写入之前消费者会在这些位置上自旋，所以 s 应该很快返回
+	 */
+	@SuppressWarnings("unchecked")
+	public int fill(Supplier<? extends E> s, int limit) {
+		if (s == null) {
+			throw new NullPointerException();
+		}
+		final AtomicReferenceArray<E> buffer = this.buffer;
+		final Counter producer = this.producer;
+		long p;
+		int n;
+		for (;;) {
+			p = producer.get();
+			long free = producer.cache + mask + 1 - p;
+			if (free < limit) {
+				long c = consumer.get();
+				producer.cache = c;
+				free = c + mask + 1 - p;
+			}
+			n = (int) Math.min(free, limit);
+			if (n <= 0) {
+				return 0;
+			}
+			if (producer.compareAndSet(p, p + n)) {
+				break;
+			}
+		}
+		int i = 0;
+		try {
+			for (; i < n; i++) {
+				E e = s.get();
+				if (e == null) {
+					break;
+				}
+				buffer.lazySet((int) (p + i) & mask, e);
+			}
+		} finally {
+			for (int j = i; j < n; j++) {
+				buffer.lazySet((int) (p + j) & mask, (E) SKIP);
+			}
+		}
+		return i;
+	}
+
+	/**
+	 * 包括还没有被消费者跳过的 SKIP，是一个近似值
+	 */
+	@Override
+	public int size() {
+		for (;;) {
+			long c = consumer.get();
+			long p = producer.get();
+			if (consumer.get() == c) {
+				return (int) Math.max(0, Math.min(p - c, mask + 1));
+			}
+		}
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return consumer.get() == producer.get();
+	}
+
+	public int capacity() {
+		return mask + 1;
+	}
+
+	/**
+	 * 从其他线程读取元素，是一个弱一致的快照
+	 */
+	@Override
+	public Object[] toArray() {
+		long c = consumer.get();
+		long p = producer.get();
+		int n = (int) Math.max(0, Math.min(p - c, mask + 1));
+		Object[] a = new Object[n];
+		int k = 0;
+		for (long pos = c; pos < c + n; pos++) {
+			Object e = buffer.get((int) pos & mask);
+			if (e != null && e != SKIP) {
+				a[k++] = e;
+			}
+		}
+		if (k < n) {
+			Object[] r = new Object[k];
+			System.arraycopy(a, 0, r, 0, k);
+			return r;
+		}
+		return a;
+	}
+
+	/**
+	 * 基于 toArray 快照的迭代器，不支持 remove
+	 */
+	@Override
+	public Iterator<E> iterator() {
+		final Object[] snapshot = toArray();
+		return new Iterator<E>() {
+			private int cursor;
+
+			public boolean hasNext() {
+				return cursor < snapshot.length;
+			}
+
+			@SuppressWarnings("unchecked")
+			public E next() {
+				if (cursor >= snapshot.length) {
+					throw new NoSuchElementException();
+				}
+				return (E) snapshot[cursor++];
+			}
+
+			public void remove() {
+				throw new UnsupportedOperationException();
+			}
+		};
+	}
+
+	@Override
+	public boolean remove(Object o) {
+		throw new UnsupportedOperationException();
+	}
+}
@@ -0,0 +1,471 @@
+package com.jerry.soundcode.concurrent.collection;
+
+import java.io.Serializable;
+import java.util.NoSuchElementException;
+import java.util.concurrent.TimeUnit;
+
+import com.jerry.soundcode.concurrent.atomic.AtomicInteger;
+import com.jerry.soundcode.concurrent.locks.Condition;
+import com.jerry.soundcode.concurrent.locks.ReentrantLock;
+import com.jerry.soundcode.list.AbstractQueue;
+import com.jerry.soundcode.list.Collection;
+import com.jerry.soundcode.list.Comparable;
+import com.jerry.soundcode.list.Comparator;
+import com.jerry.soundcode.list.Iterator;
+
+/**
+ * 无界的并发优先级阻塞队列，用 MultiQueue 的方式实现，出队顺序是放宽的。
+ *
+ * 内部有若干个各自带锁的二叉堆（PriorityQueue）。入队时随机选一个堆，tryLock 成功就放进去；
+ * 出队时随机选两个堆，比较两个堆顶，从较小的那个取出。不同线程大多操作不同的堆，
+ * 不像 PriorityBlockingQueue 那样所有操作都串行在一把锁上。
+ *
+ * 代价是出队的元素不一定是全局最小的：期望的排名误差与堆的个数成正比，
+ * 适合调度这类只需要大致按优先级处理的场景。堆的个数为 1 时退化为严格的优先级队列。
+ *
+ * 元素个数由 count 计数，出队前先扣减 count 预定一个元素，预定成功后一定能在某个堆中取到，
+ * 阻塞等待只在 count 为 0 时才需要，等待者登记在 waiters 中，入队时只有存在等待者才去获取 waitLock 唤醒。
+ */
+public class MultiPriorityBlockingQueue<E> extends AbstractQueue<E>
+	implements BlockingQueue<E>, Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	/** 默认每个 CPU 对应的堆的个数 */
+	private static final int DEFAULT_QUEUES_PER_CPU = 2;
+
+	/** 随机选取失败多少次后改为依次检查所有的堆 */
+	private static final int MAX_RANDOM_ATTEMPTS = 8;
+
+	/**
+	 * 一个堆和保护它的锁，top 缓存堆顶，选择堆时不需要加锁读取
+	 */
+	static final class Shard<E> extends ReentrantLock {
+		private static final long serialVersionUID = 1L;
+		final PriorityQueue<E> heap;
+		volatile E top;
+		@SuppressWarnings("unused")
+		long q0, q1, q2, q3, q4, q5, q6, q7;
+
+		Shard(Comparator<? super E> comparator) {
+			heap = new PriorityQueue<E>(16, comparator);
+		}
+	}
+
+	private final Shard<E>[] shards;
+
+	private final Comparator<? super E> comparator;
+
+	private final AtomicInteger count = new AtomicInteger();
+
+	/** 在 take/poll(timeout) 中等待的线程个数 */
+	private volatile int waiters;
+
+	private final ReentrantLock waitLock = new ReentrantLock();
+
+	private final Condition notEmpty = waitLock.newCondition();
+
+	private static final ThreadLocal<int[]> seeds = new ThreadLocal<int[]>() {
+		protected int[] initialValue() {
+			return new int[] { System.identityHashCode(Thread.currentThread()) | 1 };
+		}
+	};
+
+	public MultiPriorityBlockingQueue() {
+		this(DEFAULT_QUEUES_PER_CPU * Runtime.getRuntime().availableProcessors(), null);
+	}
+
+	public MultiPriorityBlockingQueue(int queues) {
+		this(queues, null);
+	}
+
+	/**
+	 * @param queues 内部堆的个数，越多竞争越少，出队顺序也越宽松，为 1 时严格按优先级出队
+	 */
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	public MultiPriorityBlockingQueue(int queues, Comparator<? super E> comparator) {
+		if(queues < 1) {
+			throw new IllegalArgumentException();
+		}
+		this.comparator = comparator;
+		this.shards = new Shard[queues];
+		for(int i = 0; i < queues; i++) {
+			shards[i] = new Shard<E>(comparator);
+		}
+	}
+
+	public MultiPriorityBlockingQueue(Collection<? extends E> c) {
+		this();
+		for(Iterator<? extends E> it = c.iterator(); it.hasNext(); ) {
+			add(it.next());
+		}
+	}
+
+	private int nextRandom(int bound) {
+		int[] seed = seeds.get();
+		int x = seed[0];
+		x ^= x << 13;
+		x ^= x >>> 17;
+		x ^= x << 5;
+		seed[0] = x;
+		return (x & Integer.MAX_VALUE) % bound;
+	}
+
+	@SuppressWarnings("unchecked")
+	private int compare(E a, E b) {
+		return (comparator == null) ? ((Comparable<? super E>) a).compareTo(b) : comparator.compare(a, b);
+	}
+
+	@Override
+	public boolean add(E e) {
+		return offer(e);
+	}
+
+	@Override
+	public boolean offer(E e) {
+		if(e == null) {
+			throw new NullPointerException();
+		}
+		final Shard<E>[] shards = this.shards;
+		for(int attempts = 0; ; attempts++) {
+			Shard<E> s = shards[nextRandom(shards.length)];
+			// 多次 tryLock 失败说明堆比线程少，直接排队等锁
+			if(attempts < MAX_RANDOM_ATTEMPTS ? s.tryLock() : lockShard(s)) {
+				try {
+					s.heap.offer(e);
+					s.top = s.heap.peek();
+				} finally {
+					s.unlock();
+				}
+				break;
+			}
+		}
+
+		count.getAndIncrement();
+		if(waiters > 0) {
+			signalNotEmpty();
+		}
+		return true;
+	}
+
+	private static boolean lockShard(ReentrantLock s) {
+		s.lock();
+		return true;
+	}
+
+	private void signalNotEmpty() {
+		final ReentrantLock waitLock = this.waitLock;
+		waitLock.lock();
+		try {
+			notEmpty.signal();
+		} finally {
+			waitLock.unlock();
+		}
+	}
+
+	/**
+	 * 队列无界，不会阻塞
+	 */
+	@Override
+	public void put(E e) {
+		offer(e);
+	}
+
+	/**
+	 * 队列无界，不会阻塞，总是返回 true
+	 */
+	@Override
+	public boolean offer(E e, long timeout, TimeUnit unit) {
+		return offer(e);
+	}
+
+	/**
+	 * 扣减 count 预定一个元素，count 为 0 时返回 false
+	 */
+	private boolean tryReserve() {
+		final AtomicInteger count = this.count;
+		for(;;) {
+			int c = count.get();
+			if(c == 0) {
+				return false;
+			}
+			if(count.compareAndSet(c, c - 1)) {
+				return true;
+			}
+		}
+	}
+
+	/**
+	 * 预定成功之后调用，随机选两个堆，从堆顶较小的那个取出元素
+	 */
+	private E removeReserved() {
+		final Shard<E>[] shards = this.shards;
+		final int n = shards.length;
+		for(int attempts = 0; ; attempts++) {
+			Shard<E> s;
+			if(attempts >= MAX_RANDOM_ATTEMPTS) {
+				s = minShard();
+				if(s == null) {
+					// 元素已经计数但是还没有被别的预定者取走，只是暂时没有看到
+					Thread.yield();
+					continue;
+				}
+				s.lock();
+			} else {
+				s = shards[nextRandom(n)];
+				if(n > 1) {
+					Shard<E> other = shards[nextRandom(n)];
+					E a = s.top;
+					E b = other.top;
+					if(a == null || (b != null && compare(b, a) < 0)) {
+						s = other;
+					}
+				}
+				if(s.top == null || !s.tryLock()) {
+					continue;
+				}
+			}
+
+			try {
+				E x = s.heap.poll();
+				if(x != null) {
+					s.top = s.heap.peek();
+					return x;
+				}
+			} finally {
+				s.unlock();
+			}
+		}
+	}
+
+	/**
+	 * 依次检查所有的堆，返回堆顶最小的那个，全部为空时返回 null
+	 */
+	private Shard<E> minShard() {
+		Shard<E> min = null;
+		E minTop = null;
+		for(Shard<E> s : shards) {
+			E t = s.top;
+			if(t != null && (minTop == null || compare(t, minTop) < 0)) {
+				min = s;
+				minTop = t;
+			}
+		}
+		return min;
+	}
+
+	@Override
+	public E poll() {
+		if(!tryReserve()) {
+			return null;
+		}
+		return removeReserved();
+	}
+
+	@Override
+	public E take() throws InterruptedException {
+		if(!tryReserve()) {
+			final ReentrantLock waitLock = this.waitLock;
+			waitLock.lockInterruptibly();
+			try {
+				waiters++;
+				try {
+					while(!tryReserve()) {
+						notEmpty.await();
+					}
+				} finally {
+					waiters--;
+				}
+				// 可能还有别的元素和等待者
+				if(count.get() > 0) {
+					notEmpty.signal();
+				}
+			} finally {
+				waitLock.unlock();
+			}
+		}
+		return removeReserved();
+	}
+
+	@Override
+	public E poll(long timeout, TimeUnit unit) throws InterruptedException {
+		if(!tryReserve()) {
+			long nanos = unit.toNanos(timeout);
+			final ReentrantLock waitLock = this.waitLock;
+			waitLock.lockInterruptibly();
+			try {
+				waiters++;
+				try {
+					while(!tryReserve()) {
+						if(nanos <= 0) {
+							return null;
+						}
+						nanos = notEmpty.awaitNanos(nanos);
+					}
+				} finally {
+					waiters--;
+				}
+				if(count.get() > 0) {
+					notEmpty.signal();
+				}
+			} finally {
+				waitLock.unlock();
+			}
+		}
+		return removeReserved();
+	}
+
+	/**
+	 * 所有堆顶中最小的元素，并发修改时只是一个近似值
+	 */
+	@Override
+	public E peek() {
+		Shard<E> s = minShard();
+		return (s == null) ? null : s.top;
+	}
+
+	@Override
+	public int size() {
+		return count.get();
+	}
+
+	@Override
+	public int remainingCapacity() {
+		return Integer.MAX_VALUE;
+	}
+
+	public Comparator<? super E> comparator() {
+		return comparator;
+	}
+
+	@Override
+	public boolean remove(Object o) {
+		if(o == null || !tryReserve()) {
+			return false;
+		}
+		for(Shard<E> s : shards) {
+			s.lock();
+			try {
+				if(s.heap.remove(o)) {
+					s.top = s.heap.peek();
+					return true;
+				}
+			} finally {
+				s.unlock();
+			}
+		}
+		// 没有找到，归还预定
+		count.getAndIncrement();
+		if(waiters > 0) {
+			signalNotEmpty();
+		}
+		return false;
+	}
+
+	@Override
+	public boolean contains(Object o) {
+		if(o == null) {
+			return false;
+		}
+		for(Shard<E> s : shards) {
+			s.lock();
+			try {
+				if(s.heap.contains(o)) {
+					return true;
+				}
+			} finally {
+				s.unlock();
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * 依次锁住每个堆复制元素，不是整个队列的原子快照，元素没有排序
+	 */
+	@Override
+	public Object[] toArray() {
+		Object[][] parts = new Object[shards.length][];
+		int total = 0;
+		for(int i = 0; i < shards.length; i++) {
+			Shard<E> s = shards[i];
+			s.lock();
+			try {
+				parts[i] = s.heap.toArray();
+			} finally {
+				s.unlock();
+			}
+			total += parts[i].length;
+		}
+		Object[] a = new Object[total];
+		int k = 0;
+		for(Object[] part : parts) {
+			System.arraycopy(part, 0, a, k, part.length);
+			k += part.length;
+		}
+		return a;
+	}
+
+	@Override
+	public int drainTo(Collection<? super E> c) {
+		return drainTo(c, Integer.MAX_VALUE);
+	}
+
+	@Override
+	public int drainTo(Collection<? super E> c, int maxElements) {
+		if(c == null) {
+			throw new NullPointerException();
+		}
+		if(c == this) {
+			throw new IllegalArgumentException();
+		}
+		int n = 0;
+		while(n < maxElements && tryReserve()) {
+			c.add(removeReserved());
+			++n;
+		}
+		return n;
+	}
+
+	/**
+	 * 基于 toArray 快照的迭代器，remove 删除的是队列中相等的元素
+	 */
+	@Override
+	public Iterator<E> iterator() {
+		return new Itr(toArray());
+	}
+
+	private class Itr implements Iterator<E> {
+		final Object[] array;
+		int cursor;
+		int lastRet = -1;
+
+		Itr(Object[] array) {
+			this.array = array;
+		}
+
+		@Override
+		public boolean hasNext() {
+			return cursor < array.length;
+		}
+
+		@SuppressWarnings("unchecked")
+		@Override
+		public E next() {
+			if(cursor >= array.length) {
+				throw new NoSuchElementException();
+			}
+			lastRet = cursor;
+			return (E) array[cursor++];
+		}
+
+		@Override
+		public void remove() {
+			if(lastRet < 0) {
+				throw new IllegalStateException();
+			}
+			MultiPriorityBlockingQueue.this.remove(array[lastRet]);
+			lastRet = -1;
+		}
+	}
+}
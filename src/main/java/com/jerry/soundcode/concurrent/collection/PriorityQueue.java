@@ -336,14 +336,14 @@ public class PriorityQueue<E> extends AbstractQueue<E> implements Serializable {
 
 	private void siftDown(int k, E x) {
 		if(comparator != null) {
-			siftDownUsingComparable(k, x);
+			siftDownUsingComparator(k, x);
 		} else {
 			siftDownComparable(k, x);
 		}
 	}
 	
 	@SuppressWarnings("unchecked")
-	private void siftDownUsingComparable(int k, E x) {
+	private void siftDownComparable(int k, E x) {
 		Comparable<? super E> key = (Comparable<? super E>)x;
 		int half = size >>> 1;
 		while(k < half) {
@@ -362,7 +362,7 @@ public class PriorityQueue<E> extends AbstractQueue<E> implements Serializable {
 	}
 
 	@SuppressWarnings("unchecked")
-	private void siftDownComparable(int k, E x) {
+	private void siftDownUsingComparator(int k, E x) {
 		int half = size >>> 1;
         while (k < half) {
             int child = (k << 1) + 1;
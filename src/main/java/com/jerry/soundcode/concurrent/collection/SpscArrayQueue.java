@@ -0,0 +1,256 @@
+package com.jerry.soundcode.concurrent.collection;
+
+import java.io.Serializable;
+import java.util.NoSuchElementException;
+
+import com.jerry.soundcode.concurrent.atomic.AtomicLong;
+import com.jerry.soundcode.list.AbstractQueue;
+import com.jerry.soundcode.list.Iterator;
+
+/**
+ * 单生产者单消费者的有界环形队列，同一时刻只能有一个线程入队、一个线程出队。
+ *
+ * 生产者和消费者各自独占一个索引，只有自己会修改，因此不需要 CAS：
+ * 先写元素再用 lazySet（有序写）发布索引，另一方用 volatile 读取索引后就能看到写好的元素。
+ * 双方各自缓存一份对方的索引，只有按缓存判断队列满（空）时才去读取对方的索引，
+ * 大部分操作不会读取对方所在的缓存行，减少核间的缓存一致性流量。
+ */
+public class SpscArrayQueue<E> extends AbstractQueue<E>
+	implements MessageQueue<E>, Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * 索引和对方索引的缓存放在同一个填充过的对象中，只被一个线程修改
+	 */
+	private static final class Counter extends AtomicLong {
+		private static final long serialVersionUID = 1L;
+		long cache;
+		@SuppressWarnings("unused")
+		long q0, q1, q2, q3, q4, q5, q6, q7, q8, q9, qa, qb, qc, qd;
+	}
+
+	private final Object[] buffer;
+
+	private final int mask;
+
+	/** 下一个入队的位置，cache 为消费者索引的缓存 */
+	private final Counter producer = new Counter();
+
+	/** 下一个出队的位置，cache 为生产者索引的缓存 */
+	private final Counter consumer = new Counter();
+
+	public SpscArrayQueue(int capacity) {
+		if (capacity <= 0 || capacity > (1 << 30)) {
+			throw new IllegalArgumentException();
+		}
+		int size = 1;
+		while (size < capacity) {
+			size <<= 1;
+		}
+		this.buffer = new Object[size];
+		this.mask = size - 1;
+	}
+
+	/**
+	 * 只能由生产者线程调用
+	 */
+	@Override
+	public boolean offer(E e) {
+		if (e == null) {
+			throw new NullPointerException();
+		}
+		final Counter producer = this.producer;
+		long p = producer.get();
+		if (p - producer.cache > mask) {
+			producer.cache = consumer.get();
+			if (p - producer.cache > mask) {
+				return false;
+			}
+		}
+		buffer[(int) p & mask] = e;
+		producer.lazySet(p + 1);
+		return true;
+	}
+
+	/**
+	 * 只能由消费者线程调用
+	 */
+	@SuppressWarnings("unchecked")
+	@Override
+	public E poll() {
+		final Counter consumer = this.consumer;
+		long c = consumer.get();
+		if (c >= consumer.cache) {
+			consumer.cache = producer.get();
+			if (c >= consumer.cache) {
+				return null;
+			}
+		}
+		int index = (int) c & mask;
+		E e = (E) buffer[index];
+		buffer[index] = null;
+		consumer.lazySet(c + 1);
+		return e;
+	}
+
+	/**
+	 * 只能由消费者线程调用
+	 */
+	@SuppressWarnings("unchecked")
+	@Override
+	public E peek() {
+		final Counter consumer = this.consumer;
+		long c = consumer.get();
+		if (c >= consumer.cache) {
+			consumer.cache = producer.get();
+			if (c >= consumer.cache) {
+				return null;
+			}
+		}
+		return (E) buffer[(int) c & mask];
+	}
+
+	/**
+	 * 只能由消费者线程调用。读一次生产者索引，取出全部元素后只发布一次消费者索引。
+	 * consumer 抛出异常时，已经交出的元素（包括抛出异常的那一个）都已经出队，
+	 * 消费者索引照常发布，剩下的元素留在队列中，异常原样抛出
+	 */
+	@SuppressWarnings("unchecked")
+	public int drain(Consumer<? super E> c, int limit) {
+		if (c == null) {
+			throw new NullPointerException();
+		}
+		final Object[] buffer = this.buffer;
+		final Counter consumer = this.consumer;
+		long start = consumer.get();
+		long available = consumer.cache - start;
+		if (available < limit) {
+			consumer.cache = producer.get();
+			available = consumer.cache - start;
+		}
+		int n = (int) Math.min(available, limit);
+		int i = 0;
+		try {
+			while (i < n) {
+				int index = (int) (start + i) & mask;
+				E e = (E) buffer[index];
+				buffer[index] = null;
+				i++;
+				c.accept(e);
+			}
+		} finally {
+			if (i > 0) {
+				consumer.lazySet(start + i);
+			}
+		}
+		return n;
+	}
+
+	/**
+	 * 只能由生产者线程调用。写好所有元素后只发布一次生产者索引
+	 */
+	public int fill(Supplier<? extends E> s, int limit) {
+		if (s == null) {
+			throw new NullPointerException();
+		}
+		final Object[] buffer = this.buffer;
+		final Counter producer = this.producer;
+		long start = producer.get();
+		long free = producer.cache + buffer.length - start;
+		if (free < limit) {
+			producer.cache = consumer.get();
+			free = producer.cache + buffer.length - start;
+		}
+		int n = (int) Math.min(free, limit);
+		for (int i = 0; i < n; i++) {
+			E e = s.get();
+			if (e == null) {
+				// 已经写入的元素仍然发布出去
+				n = i;
+				break;
+			}
+			buffer[(int) (start + i) & mask] = e;
+		}
+		if (n > 0) {
+			producer.lazySet(start + n);
+		}
+		return n;
+	}
+
+	@Override
+	public int size() {
+		for (;;) {
+			long c = consumer.get();
+			long p = producer.get();
+			if (consumer.get() == c) {
+				return (int) Math.max(0, Math.min(p - c, buffer.length));
+			}
+		}
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return consumer.get() == producer.get();
+	}
+
+	public int capacity() {
+		return buffer.length;
+	}
+
+	/**
+	 * 从其他线程读取元素，是一个弱一致的快照
+	 */
+	@Override
+	public Object[] toArray() {
+		long c = consumer.get();
+		long p = producer.get();
+		int n = (int) Math.max(0, Math.min(p - c, buffer.length));
+		Object[] a = new Object[n];
+		int k = 0;
+		for (long pos = c; pos < c + n; pos++) {
+			Object e = buffer[(int) pos & mask];
+			if (e != null) {
+				a[k++] = e;
+			}
+		}
+		if (k < n) {
+			Object[] r = new Object[k];
+			System.arraycopy(a, 0, r, 0, k);
+			return r;
+		}
+		return a;
+	}
+
+	/**
+	 * 基于 toArray 快照的迭代器，不支持 remove
+	 */
+	@Override
+	public Iterator<E> iterator() {
+		final Object[] snapshot = toArray();
+		return new Iterator<E>() {
+			private int cursor;
+
+			public boolean hasNext() {
+				return cursor < snapshot.length;
+			}
+
+			@SuppressWarnings("unchecked")
+			public E next() {
+				if (cursor >= snapshot.length) {
+					throw new NoSuchElementException();
+				}
+				return (E) snapshot[cursor++];
+			}
+
+			public void remove() {
+				throw new UnsupportedOperationException();
+			}
+		};
+	}
+
+	@Override
+	public boolean remove(Object o) {
+		throw new UnsupportedOperationException();
+	}
+}
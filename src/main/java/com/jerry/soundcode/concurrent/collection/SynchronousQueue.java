@@ -5,6 +5,7 @@ import java.io.ObjectOutputStream;
 import java.io.Serializable;
 import java.util.NoSuchElementException;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
 import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
 
 import com.jerry.soundcode.concurrent.locks.LockSupport;
@@ -385,7 +386,7 @@ public class SynchronousQueue<E> extends AbstractQueue<E>
 				
 				Object x = s.item;
 				if(x != e) {
-					return e;
+					return x;
 				}
 				
 				if(timed) {
@@ -464,14 +465,209 @@ public class SynchronousQueue<E> extends AbstractQueue<E>
 		}
 	}
 	
+	/**
+	 * 消除数组：生产者和消费者先在一个随机的槽位上直接配对，配对成功就不需要在 head/tail 上 CAS，
+	 * 只有没配对上的线程才进入 TransferStack/TransferQueue。
+	 *
+	 * 和 Exchanger 的 arena 一样，槽位做了缓存行填充；槽位被同类线程占用或者 CAS 失败时扩大使用的范围，
+	 * 在槽位上自旋等待超时时缩小，竞争小的时候大家集中在前面几个槽位上，更容易碰到对方。
+	 */
+	static final class EliminationArena {
+		static final int CAPACITY = 32;
+
+		/** 消费者配对成功时写入生产者节点的 match */
+		static final Object MATCHED = new Object();
+
+		static final Object CANCELLED = new Object();
+
+		static final class Node {
+			final Object item;
+			final boolean isData;
+			volatile Object match;
+
+			Node(Object item) {
+				this.item = item;
+				this.isData = (item != null);
+			}
+
+			static final AtomicReferenceFieldUpdater<Node, Object> matchUpdater = AtomicReferenceFieldUpdater.newUpdater(Node.class, Object.class, "match");
+
+			boolean casMatch(Object cmp, Object val) {
+				return match == cmp && matchUpdater.compareAndSet(this, cmp, val);
+			}
+		}
+
+		static final class Slot {
+			volatile Node node;
+			@SuppressWarnings("unused")
+			long q0, q1, q2, q3, q4, q5, q6, q7, q8, q9, qa, qb, qc, qd, qe;
+
+			static final AtomicReferenceFieldUpdater<Slot, Node> nodeUpdater = AtomicReferenceFieldUpdater.newUpdater(Slot.class, Node.class, "node");
+
+			boolean casNode(Node cmp, Node val) {
+				return node == cmp && nodeUpdater.compareAndSet(this, cmp, val);
+			}
+		}
+
+		final Slot[] slots;
+
+		/** 当前使用的最大槽位下标 */
+		volatile int bound;
+
+		/** 在槽位上等待配对的自旋次数 */
+		volatile int spins;
+
+		static final AtomicIntegerFieldUpdater<EliminationArena> boundUpdater = AtomicIntegerFieldUpdater.newUpdater(EliminationArena.class, "bound");
+
+		private static final ThreadLocal<int[]> seeds = new ThreadLocal<int[]>() {
+			protected int[] initialValue() {
+				return new int[] { System.identityHashCode(Thread.currentThread()) | 1 };
+			}
+		};
+
+		EliminationArena(int size, int spins) {
+			slots = new Slot[size];
+			for(int i = 0; i < size; i++) {
+				slots[i] = new Slot();
+			}
+			this.spins = spins;
+		}
+
+		private static int nextRandom(int bound) {
+			int[] seed = seeds.get();
+			int x = seed[0];
+			x ^= x << 13;
+			x ^= x >>> 17;
+			x ^= x << 5;
+			seed[0] = x;
+			return (x & Integer.MAX_VALUE) % bound;
+		}
+
+		private void grow(int b) {
+			if(b < slots.length - 1) {
+				boundUpdater.compareAndSet(this, b, b + 1);
+			}
+		}
+
+		private void shrink(int b) {
+			if(b > 0) {
+				boundUpdater.compareAndSet(this, b, b - 1);
+			}
+		}
+
+		/**
+		 * 在随机的槽位上尝试配对，成功时和 Transferer 一样返回交给消费者的元素，失败返回 null。
+		 *
+		 * @param mayWait 为 false 时只和已经在槽位上等待的线程配对，不会占用槽位自旋
+		 */
+		Object transfer(Object e, boolean mayWait) {
+			final boolean isData = (e != null);
+			final int b = bound;
+			Slot slot = slots[(b == 0) ? 0 : nextRandom(b + 1)];
+			Node y = slot.node;
+			if(y != null) {
+				if(y.isData != isData) {
+					if(slot.casNode(y, null) && y.casMatch(null, isData ? e : MATCHED)) {
+						return isData ? e : y.item;
+					}
+				} else {
+					grow(b);
+				}
+				return null;
+			}
+
+			int n = spins;
+			if(!mayWait || n <= 0) {
+				return null;
+			}
+			Node me = new Node(e);
+			if(!slot.casNode(null, me)) {
+				grow(b);
+				return null;
+			}
+			Object m;
+			while((m = me.match) == null && --n > 0) {
+			}
+			if(m == null) {
+				if(me.casMatch(null, CANCELLED)) {
+					slot.casNode(me, null);
+					shrink(b);
+					return null;
+				}
+				m = me.match;
+			}
+			return isData ? e : m;
+		}
+	}
+
+	/** 默认的消除数组槽位数，单核时不使用 */
+	static final int DEFAULT_ARENA_SIZE = (NCPUS < 2) ? 0 : Math.min(EliminationArena.CAPACITY, Math.max(2, NCPUS / 2));
+
+	static final int DEFAULT_ARENA_SPINS = maxUntimeSpins;
+
 	private transient volatile Transferer transferer;
+
+	/** 消除数组，为 null 时不使用 */
+	private transient volatile EliminationArena arena;
 	
 	public SynchronousQueue() {
 		this(false);
 	}
 	
+	/**
+	 * 非公平模式默认使用消除数组，公平模式要保证先来先配对，不使用
+	 */
 	public SynchronousQueue(boolean fair) {
+		this(fair, fair ? 0 : DEFAULT_ARENA_SIZE, DEFAULT_ARENA_SPINS);
+	}
+
+	/**
+	 * @param arenaSize 消除数组的槽位数，0 表示不使用消除数组，最大为 32
+	 * @param arenaSpins 在槽位上等待配对的自旋次数，0 表示只和已经在槽位上等待的线程配对
+	 */
+	public SynchronousQueue(boolean fair, int arenaSize, int arenaSpins) {
+		if(arenaSize < 0 || arenaSize > EliminationArena.CAPACITY || arenaSpins < 0) {
+			throw new IllegalArgumentException();
+		}
 		transferer = (fair) ? new TransferQueue() : new TransferStack();
+		if(arenaSize > 0) {
+			arena = new EliminationArena(arenaSize, arenaSpins);
+		}
+	}
+
+	/**
+	 * 在消除数组的槽位上等待配对的自旋次数，没有使用消除数组时返回 0
+	 */
+	public int getArenaSpins() {
+		EliminationArena a = arena;
+		return (a == null) ? 0 : a.spins;
+	}
+
+	/**
+	 * 调整在消除数组的槽位上等待配对的自旋次数，没有使用消除数组时不起作用
+	 */
+	public void setArenaSpins(int spins) {
+		if(spins < 0) {
+			throw new IllegalArgumentException();
+		}
+		EliminationArena a = arena;
+		if(a != null) {
+			a.spins = spins;
+		}
+	}
+
+	/**
+	 * 先在消除数组中尝试配对，没配对上再进入 Transferer
+	 */
+	private Object transfer(Object e, boolean timed, long nanos) {
+		EliminationArena a = arena;
+		if(a != null) {
+			Object x = a.transfer(e, !timed || nanos > 0);
+			if(x != null) {
+				return x;
+			}
+		}
+		return transferer.transfer(e, timed, nanos);
 	}
 	
 	@Override
@@ -480,7 +676,7 @@ public class SynchronousQueue<E> extends AbstractQueue<E>
 			throw new NullPointerException();
 		}
 		
-		if(transferer.transfer(o, false, 0) == null) {
+		if(transfer(o, false, 0) == null) {
 			Thread.interrupted();
 			throw new InterruptedException();
 		}
@@ -493,7 +689,7 @@ public class SynchronousQueue<E> extends AbstractQueue<E>
 			throw new NullPointerException();
 		}
 		
-		if(transferer.transfer(o, true, unit.toNanos(timeout)) != null) {
+		if(transfer(o, true, unit.toNanos(timeout)) != null) {
 			return true;
 		}
 		
@@ -509,12 +705,12 @@ public class SynchronousQueue<E> extends AbstractQueue<E>
 		if(e == null) {
 			throw new NullPointerException();
 		}
-		return transferer.transfer(e, true, 0) != null;
+		return transfer(e, true, 0) != null;
 	}
 	
 	@Override
 	public E take() throws InterruptedException {
-		Object e = transferer.transfer(null, false, 0);
+		Object e = transfer(null, false, 0);
 		if(e != null) {
 			return (E)e;
 		}
@@ -524,7 +720,7 @@ public class SynchronousQueue<E> extends AbstractQueue<E>
 	
 	@Override
 	public E poll(long timeout, TimeUnit unit) throws InterruptedException {
-		Object e = transferer.transfer(null, true, unit.toNanos(unit.toNanos(timeout)));
+		Object e = transfer(null, true, unit.toNanos(timeout));
 		if(e != null || !Thread.interrupted()) {
 			return (E)e;
 		}
@@ -533,7 +729,7 @@ public class SynchronousQueue<E> extends AbstractQueue<E>
 	
 	@Override
 	public E poll() {
-		return (E) transferer.transfer(null, true, 0);
+		return (E) transfer(null, true, 0);
 	}
 	
 	@Override
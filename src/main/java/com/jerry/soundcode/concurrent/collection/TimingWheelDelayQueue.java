@@ -0,0 +1,725 @@
+package com.jerry.soundcode.concurrent.collection;
+
+import java.util.NoSuchElementException;
+import java.util.concurrent.TimeUnit;
+
+import com.jerry.soundcode.concurrent.locks.Condition;
+import com.jerry.soundcode.concurrent.locks.ReentrantLock;
+import com.jerry.soundcode.list.AbstractQueue;
+import com.jerry.soundcode.list.Collection;
+import com.jerry.soundcode.list.Iterator;
+
+/**
+ * 用分层时间轮实现的 DelayQueue，适合大量超时时间、其中大部分会被取消的场景。
+ *
+ * 时间按 tick 划分，每层时间轮有 64 个槽，第 0 层一个槽是一个 tick，第 k 层一个槽是 64^k 个 tick。
+ * 元素按到期的 tick 与当前 tick 的差值放入对应的层，槽内是双向链表，所以放入和取消都是 O(1)，
+ * 不像 DelayQueue 那样每次放入、删除都要在二叉堆上 O(log n) 调整。
+ *
+ * 时间推进时直接跳到下一个需要处理的 tick，空的槽不会逐个经过：第 0 层当前槽中的元素已经到期，移到就绪链表；
+ * tick 是 64^k 的整数倍时才把第 k 层当前槽中的元素重新放入下面的层（延迟下放），
+ * 很早就被取消的元素根本不会被下放。上层的时间轮第一次用到时才分配。
+ *
+ * 元素在到期所在的 tick 结束后才会被取出，最多晚一个 tick，不会提前；同一个 tick 内到期的元素之间没有顺序。
+ * 取消元素应该使用 schedule 返回的 Timeout，remove(Object) 需要遍历所有的槽。
+ */
+public class TimingWheelDelayQueue<E extends Delayed> extends AbstractQueue<E>
+	implements BlockingQueue<E> {
+
+	private static final int WHEEL_BITS = 6;
+
+	private static final int WHEEL_SIZE = 1 << WHEEL_BITS;
+
+	private static final int WHEEL_MASK = WHEEL_SIZE - 1;
+
+	/** 64 位的 tick 最多需要的层数 */
+	private static final int MAX_LEVELS = (63 + WHEEL_BITS - 1) / WHEEL_BITS;
+
+	/**
+	 * 一个槽或者就绪链表，level 为所在的层，就绪链表为 -1
+	 */
+	static final class Bucket<E extends Delayed> {
+		final int level;
+		TimingWheelDelayQueue<E>.Timeout head;
+		TimingWheelDelayQueue<E>.Timeout tail;
+
+		Bucket(int level) {
+			this.level = level;
+		}
+	}
+
+	/**
+	 * 队列中的一个元素，可以用来取消它
+	 */
+	public final class Timeout {
+		final E element;
+		final long tick;
+		Timeout prev;
+		Timeout next;
+		/** 所在的槽或就绪链表，已经取出或取消时为 null */
+		Bucket<E> bucket;
+
+		Timeout(E element, long tick) {
+			this.element = element;
+			this.tick = tick;
+		}
+
+		public E get() {
+			return element;
+		}
+
+		/**
+		 * 从队列中删除，已经被取出或者已经取消时返回 false
+		 */
+		public boolean cancel() {
+			final ReentrantLock lock = TimingWheelDelayQueue.this.lock;
+			lock.lock();
+			try {
+				if(bucket == null) {
+					return false;
+				}
+				unlink(this);
+				return true;
+			} finally {
+				lock.unlock();
+			}
+		}
+	}
+
+	private transient final ReentrantLock lock = new ReentrantLock();
+
+	private transient final Condition available = lock.newCondition();
+
+	private final long tickNanos;
+
+	/** tick 0 开始的时间 */
+	private final long startNanos;
+
+	/** 下一个要处理的 tick，之前的 tick 都已经处理过 */
+	private long currentTick;
+
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	private final Bucket<E>[][] wheels = new Bucket[MAX_LEVELS][];
+
+	/** 每层时间轮中的元素个数 */
+	private final int[] levelCounts = new int[MAX_LEVELS];
+
+	/** 时间轮中的元素个数，不包括就绪链表 */
+	private int wheelCount;
+
+	private final Bucket<E> ready = new Bucket<E>(-1);
+
+	private int readyCount;
+
+	/** 正在限时等待下一个到期元素的线程，其他取元素的线程无限期等待 */
+	private Thread leader;
+
+	/** leader 等待到的 tick */
+	private long leaderTick = Long.MAX_VALUE;
+
+	/**
+	 * 默认 tick 为 1 毫秒
+	 */
+	public TimingWheelDelayQueue() {
+		this(1, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * @param tick 时间轮的精度，元素最多晚一个 tick 到期
+	 */
+	public TimingWheelDelayQueue(long tick, TimeUnit unit) {
+		long nanos = unit.toNanos(tick);
+		if(nanos <= 0) {
+			throw new IllegalArgumentException();
+		}
+		this.tickNanos = nanos;
+		this.startNanos = System.nanoTime();
+	}
+
+	public TimingWheelDelayQueue(Collection<? extends E> c) {
+		this();
+		for(Iterator<? extends E> it = c.iterator(); it.hasNext(); ) {
+			add(it.next());
+		}
+	}
+
+	/**
+	 * 在 now 之后 delay 纳秒到期的元素所在的 tick，向上取整，保证不会提前取出。
+	 * delay 接近 Long.MAX_VALUE 时 now + delay 会溢出成负数，这时按能表示的最晚的 tick 计算
+	 */
+	private long tickOf(long now, long delay) {
+		long elapsed = now - startNanos;
+		if(delay > Long.MAX_VALUE - elapsed) {
+			elapsed = Long.MAX_VALUE;
+		} else {
+			elapsed += delay;
+		}
+		if(elapsed <= 0) {
+			return 0;
+		}
+		long t = elapsed / tickNanos;
+		return (t * tickNanos == elapsed) ? t : t + 1;
+	}
+
+	private static <E extends Delayed> void append(Bucket<E> b, TimingWheelDelayQueue<E>.Timeout t) {
+		t.bucket = b;
+		t.next = null;
+		t.prev = b.tail;
+		if(b.tail == null) {
+			b.head = t;
+		} else {
+			b.tail.next = t;
+		}
+		b.tail = t;
+	}
+
+	private void unlink(Timeout t) {
+		Bucket<E> b = t.bucket;
+		Timeout p = t.prev;
+		Timeout n = t.next;
+		if(p == null) {
+			b.head = n;
+		} else {
+			p.next = n;
+		}
+		if(n == null) {
+			b.tail = p;
+		} else {
+			n.prev = p;
+		}
+		t.prev = t.next = null;
+		t.bucket = null;
+		if(b.level < 0) {
+			--readyCount;
+		} else {
+			--levelCounts[b.level];
+			--wheelCount;
+		}
+	}
+
+	/**
+	 * 按到期 tick 与 currentTick 的差值放入对应的层，已经到期的直接放入就绪链表
+	 */
+	private void place(Timeout t) {
+		long delta = t.tick - currentTick;
+		if(delta < 0) {
+			append(ready, t);
+			++readyCount;
+			return;
+		}
+		int level = (delta < WHEEL_SIZE) ? 0 : (63 - Long.numberOfLeadingZeros(delta)) / WHEEL_BITS;
+		Bucket<E>[] wheel = wheels[level];
+		if(wheel == null) {
+			wheel = newWheel(level);
+		}
+		append(wheel[(int) (t.tick >>> (level * WHEEL_BITS)) & WHEEL_MASK], t);
+		++levelCounts[level];
+		++wheelCount;
+	}
+
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	private Bucket<E>[] newWheel(int level) {
+		Bucket<E>[] wheel = new Bucket[WHEEL_SIZE];
+		for(int i = 0; i < WHEEL_SIZE; i++) {
+			wheel[i] = new Bucket<E>(level);
+		}
+		wheels[level] = wheel;
+		return wheel;
+	}
+
+	/**
+	 * 处理到 now 为止所有已经结束的 tick，中间没有元素的 tick 直接跳过
+	 */
+	private void advance(long now) {
+		long target = (now - startNanos) / tickNanos;
+		while(currentTick <= target) {
+			long tick = nextWakeTick();
+			if(tick > target) {
+				currentTick = target + 1;
+				return;
+			}
+			currentTick = tick;
+			if((tick & WHEEL_MASK) == 0) {
+				cascade(tick);
+			}
+			Bucket<E> slot = wheels[0] == null ? null : wheels[0][(int) tick & WHEEL_MASK];
+			currentTick = tick + 1;
+			if(slot != null) {
+				for(Timeout t = slot.head; t != null; ) {
+					Timeout next = t.next;
+					unlink(t);
+					append(ready, t);
+					++readyCount;
+					t = next;
+				}
+			}
+		}
+	}
+
+	/**
+	 * tick 是 64^k 的整数倍时，从高到低把第 k 层当前槽中的元素重新放入下面的层
+	 */
+	private void cascade(long tick) {
+		int top = 1;
+		while(top < MAX_LEVELS - 1 && (tick & ((1L << ((top + 1) * WHEEL_BITS)) - 1)) == 0) {
+			++top;
+		}
+		for(int level = top; level >= 1; level--) {
+			if(levelCounts[level] == 0) {
+				continue;
+			}
+			Bucket<E> slot = wheels[level][(int) (tick >>> (level * WHEEL_BITS)) & WHEEL_MASK];
+			for(Timeout t = slot.head; t != null; ) {
+				Timeout next = t.next;
+				unlink(t);
+				place(t);
+				t = next;
+			}
+		}
+	}
+
+	/**
+	 * 第 level 层从 currentTick 开始扫描的第一个槽相对当前槽的偏移。
+	 * 上层的当前槽只有在 currentTick 正好是 64^level 的整数倍时还没有下放，从它开始；
+	 * 否则它已经下放过，里面是 64 个槽之后的元素，放到最后
+	 */
+	private int firstSlot(int level) {
+		return (currentTick & ((1L << (level * WHEEL_BITS)) - 1)) == 0 ? 0 : 1;
+	}
+
+	/**
+	 * 下一个需要推进时间轮的 tick：第 0 层下一个非空的槽，或者上层下一个非空的槽需要下放的 tick，
+	 * 时间轮为空时返回 Long.MAX_VALUE
+	 */
+	private long nextWakeTick() {
+		long next = Long.MAX_VALUE;
+		if(wheelCount == 0) {
+			return next;
+		}
+		for(int level = 0; level < MAX_LEVELS; level++) {
+			if(levelCounts[level] == 0) {
+				continue;
+			}
+			Bucket<E>[] wheel = wheels[level];
+			int shift = level * WHEEL_BITS;
+			long base = currentTick >>> shift;
+			int from = firstSlot(level);
+			for(int k = from; k < from + WHEEL_SIZE; k++) {
+				if(wheel[(int) (base + k) & WHEEL_MASK].head != null) {
+					next = Math.min(next, (base + k) << shift);
+					break;
+				}
+			}
+		}
+		return next;
+	}
+
+	/**
+	 * 从 now 到 tick 开始的纳秒数，超出 long 的范围时返回 Long.MAX_VALUE
+	 */
+	private long nanosUntil(long tick, long now) {
+		if(tick >= Long.MAX_VALUE / tickNanos) {
+			return Long.MAX_VALUE;
+		}
+		return tick * tickNanos - (now - startNanos);
+	}
+
+	private E pollReady() {
+		Timeout t = ready.head;
+		unlink(t);
+		return t.element;
+	}
+
+	/**
+	 * 放入元素，返回可以用来在 O(1) 时间内取消它的 Timeout
+	 */
+	public Timeout schedule(E e) {
+		if(e == null) {
+			throw new NullPointerException();
+		}
+		// 先取延迟再取当前时间，两次调用之间被挂起时截止时间只会偏晚，不会提前触发
+		long delay = e.getDelay(TimeUnit.NANOSECONDS);
+		long tick = tickOf(System.nanoTime(), delay);
+		final ReentrantLock lock = this.lock;
+		lock.lock();
+		try {
+			Timeout t = new Timeout(e, tick);
+			place(t);
+			if(t.tick < leaderTick) {
+				leader = null;
+				leaderTick = Long.MAX_VALUE;
+				available.signal();
+			}
+			return t;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public boolean add(E e) {
+		return offer(e);
+	}
+
+	@Override
+	public boolean offer(E e) {
+		schedule(e);
+		return true;
+	}
+
+	@Override
+	public void put(E e) {
+		offer(e);
+	}
+
+	@Override
+	public boolean offer(E e, long timeout, TimeUnit unit) {
+		return offer(e);
+	}
+
+	@Override
+	public E poll() {
+		final ReentrantLock lock = this.lock;
+		lock.lock();
+		try {
+			advance(System.nanoTime());
+			return (readyCount == 0) ? null : pollReady();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public E take() throws InterruptedException {
+		final ReentrantLock lock = this.lock;
+		lock.lockInterruptibly();
+		try {
+			for(;;) {
+				long now = System.nanoTime();
+				advance(now);
+				if(readyCount > 0) {
+					return pollReady();
+				}
+				long wakeTick = nextWakeTick();
+				if(wakeTick == Long.MAX_VALUE || leader != null) {
+					available.await();
+				} else {
+					Thread thisThread = Thread.currentThread();
+					leader = thisThread;
+					leaderTick = wakeTick;
+					try {
+						available.awaitNanos(nanosUntil(wakeTick, now));
+					} finally {
+						if(leader == thisThread) {
+							leader = null;
+							leaderTick = Long.MAX_VALUE;
+						}
+					}
+				}
+			}
+		} finally {
+			if(leader == null && (readyCount > 0 || wheelCount > 0)) {
+				available.signal();
+			}
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public E poll(long timeout, TimeUnit unit) throws InterruptedException {
+		long nanos = unit.toNanos(timeout);
+		final ReentrantLock lock = this.lock;
+		lock.lockInterruptibly();
+		try {
+			for(;;) {
+				long now = System.nanoTime();
+				advance(now);
+				if(readyCount > 0) {
+					return pollReady();
+				}
+				if(nanos <= 0) {
+					return null;
+				}
+				long wakeTick = nextWakeTick();
+				long delay = (wakeTick == Long.MAX_VALUE) ? Long.MAX_VALUE : nanosUntil(wakeTick, now);
+				if(nanos < delay || leader != null) {
+					nanos = available.awaitNanos(nanos);
+				} else {
+					Thread thisThread = Thread.currentThread();
+					leader = thisThread;
+					leaderTick = wakeTick;
+					try {
+						long timeLeft = available.awaitNanos(delay);
+						nanos -= delay - timeLeft;
+					} finally {
+						if(leader == thisThread) {
+							leader = null;
+							leaderTick = Long.MAX_VALUE;
+						}
+					}
+				}
+			}
+		} finally {
+			if(leader == null && (readyCount > 0 || wheelCount > 0)) {
+				available.signal();
+			}
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * 返回已经到期的元素，没有时返回最早到期的元素。后者需要扫描时间轮，不是 O(1) 的
+	 */
+	@Override
+	public E peek() {
+		final ReentrantLock lock = this.lock;
+		lock.lock();
+		try {
+			advance(System.nanoTime());
+			if(readyCount > 0) {
+				return ready.head.element;
+			}
+			// 上层的元素可能比第 0 层的更早到期，每层取最早的一个再比较
+			Timeout min = null;
+			for(int level = 0; level < MAX_LEVELS; level++) {
+				if(levelCounts[level] == 0) {
+					continue;
+				}
+				Bucket<E>[] wheel = wheels[level];
+				int start = (int) (currentTick >>> (level * WHEEL_BITS)) & WHEEL_MASK;
+				int from = firstSlot(level);
+				for(int k = from; k < from + WHEEL_SIZE; k++) {
+					Timeout first = wheel[(start + k) & WHEEL_MASK].head;
+					if(first != null) {
+						for(Timeout t = first; t != null; t = t.next) {
+							if(min == null || t.tick < min.tick) {
+								min = t;
+							}
+						}
+						break;
+					}
+				}
+			}
+			return (min == null) ? null : min.element;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	public int size() {
+		final ReentrantLock lock = this.lock;
+		lock.lock();
+		try {
+			return readyCount + wheelCount;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public int drainTo(Collection<? super E> c) {
+		return drainTo(c, Integer.MAX_VALUE);
+	}
+
+	@Override
+	public int drainTo(Collection<? super E> c, int maxElements) {
+		if(c == null) {
+			throw new NullPointerException();
+		}
+		if(c == this) {
+			throw new IllegalArgumentException();
+		}
+		if(maxElements <= 0) {
+			return 0;
+		}
+		final ReentrantLock lock = this.lock;
+		lock.lock();
+		try {
+			advance(System.nanoTime());
+			int n = 0;
+			while(n < maxElements && readyCount > 0) {
+				c.add(pollReady());
+				++n;
+			}
+			return n;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public void clear() {
+		final ReentrantLock lock = this.lock;
+		lock.lock();
+		try {
+			for(Bucket<E>[] wheel : wheels) {
+				if(wheel != null) {
+					for(Bucket<E> b : wheel) {
+						clear(b);
+					}
+				}
+			}
+			clear(ready);
+			wheelCount = readyCount = 0;
+			for(int i = 0; i < MAX_LEVELS; i++) {
+				levelCounts[i] = 0;
+			}
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	private void clear(Bucket<E> b) {
+		for(Timeout t = b.head; t != null; ) {
+			Timeout next = t.next;
+			t.prev = t.next = null;
+			t.bucket = null;
+			t = next;
+		}
+		b.head = b.tail = null;
+	}
+
+	@Override
+	public int remainingCapacity() {
+		return Integer.MAX_VALUE;
+	}
+
+	/**
+	 * 找到元素所在的 Timeout，需要遍历所有的槽
+	 */
+	private Timeout find(Object o, boolean identity) {
+		Timeout t = find(ready, o, identity);
+		for(int level = 0; t == null && level < MAX_LEVELS; level++) {
+			if(levelCounts[level] == 0) {
+				continue;
+			}
+			for(Bucket<E> b : wheels[level]) {
+				if((t = find(b, o, identity)) != null) {
+					break;
+				}
+			}
+		}
+		return t;
+	}
+
+	private Timeout find(Bucket<E> b, Object o, boolean identity) {
+		for(Timeout t = b.head; t != null; t = t.next) {
+			if(identity ? t.element == o : o.equals(t.element)) {
+				return t;
+			}
+		}
+		return null;
+	}
+
+	@Override
+	public boolean remove(Object o) {
+		if(o == null) {
+			return false;
+		}
+		final ReentrantLock lock = this.lock;
+		lock.lock();
+		try {
+			Timeout t = find(o, false);
+			if(t == null) {
+				return false;
+			}
+			unlink(t);
+			return true;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public boolean contains(Object o) {
+		if(o == null) {
+			return false;
+		}
+		final ReentrantLock lock = this.lock;
+		lock.lock();
+		try {
+			return find(o, false) != null;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * 就绪的元素在前，其余的元素没有顺序
+	 */
+	@Override
+	public Object[] toArray() {
+		final ReentrantLock lock = this.lock;
+		lock.lock();
+		try {
+			Object[] a = new Object[readyCount + wheelCount];
+			int k = toArray(ready, a, 0);
+			for(Bucket<E>[] wheel : wheels) {
+				if(wheel != null) {
+					for(Bucket<E> b : wheel) {
+						k = toArray(b, a, k);
+					}
+				}
+			}
+			return a;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	private int toArray(Bucket<E> b, Object[] a, int k) {
+		for(Timeout t = b.head; t != null; t = t.next) {
+			a[k++] = t.element;
+		}
+		return k;
+	}
+
+	@Override
+	public Iterator<E> iterator() {
+		return new Itr(toArray());
+	}
+
+	private class Itr implements Iterator<E> {
+		final Object[] array;
+		int cursor;
+		int lastRet;
+
+		Itr(Object[] array) {
+			lastRet = -1;
+			this.array = array;
+		}
+
+		@Override
+		public boolean hasNext() {
+			return cursor < array.length;
+		}
+
+		@SuppressWarnings("unchecked")
+		@Override
+		public E next() {
+			if(cursor >= array.length) {
+				throw new NoSuchElementException();
+			}
+			lastRet = cursor;
+			return (E) array[cursor++];
+		}
+
+		@Override
+		public void remove() {
+			if(lastRet < 0) {
+				throw new IllegalStateException();
+			}
+			Object x = array[lastRet];
+			lastRet = -1;
+			lock.lock();
+			try {
+				Timeout t = find(x, true);
+				if(t != null) {
+					unlink(t);
+				}
+			} finally {
+				lock.unlock();
+			}
+		}
+	}
+}
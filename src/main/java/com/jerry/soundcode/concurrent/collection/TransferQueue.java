@@ -0,0 +1,35 @@
+package com.jerry.soundcode.concurrent.collection;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 生产者可以等待消费者取走元素的 BlockingQueue。
+ * put/offer 放入元素后立即返回，transfer 要一直等到元素被消费者取走才返回。
+ */
+public interface TransferQueue<E> extends BlockingQueue<E> {
+
+	/**
+	 * 如果已经有消费者在等待，直接把元素交给它并返回 true，否则不放入队列，返回 false
+	 */
+	boolean tryTransfer(E e);
+
+	/**
+	 * 把元素交给消费者，没有消费者在等待时放入队尾，一直等到元素被取走
+	 */
+	void transfer(E e) throws InterruptedException;
+
+	/**
+	 * 和 transfer 相同，但是最多等待指定的时间，超时的元素会从队列中删除并返回 false
+	 */
+	boolean tryTransfer(E e, long timeout, TimeUnit unit) throws InterruptedException;
+
+	/**
+	 * 是否至少有一个消费者在 take 或者 poll(timeout) 中等待
+	 */
+	boolean hasWaitingConsumer();
+
+	/**
+	 * 正在等待的消费者个数的估计值
+	 */
+	int getWaitingConsumerCount();
+}
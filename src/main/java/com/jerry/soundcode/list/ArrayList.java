@@ -256,6 +256,19 @@ public class ArrayList<T> extends AbstractList<T>
 		}
 	}
 	
+	/**
+	 * 使用 TimSort 对列表原地排序，c 为 null 时按自然顺序排序
+	 */
+	@SuppressWarnings("unchecked")
+	public void sort(Comparator<? super T> c) {
+		final int expectedModCount = modCount;
+		TimSort.sort((T[]) elementData, 0, size, c);
+		if(modCount != expectedModCount) {
+			throw new ConcurrentModificationException();
+		}
+		modCount ++;
+	}
+	
 	private void RangeCheck(int index) {
 		if(index >= size) {
 			throw new IndexOutOfBoundsException(
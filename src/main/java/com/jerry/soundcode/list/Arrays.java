@@ -0,0 +1,94 @@
+package com.jerry.soundcode.list;
+
+/**
+ * 数组排序入口。
+ * 基本类型数组使用双轴快速排序（不稳定），对象数组使用 TimSort（稳定），
+ * parallelSort 在数组足够大且有多个处理器时使用并行归并排序。
+ */
+public class Arrays {
+
+	private Arrays() {}
+
+	public static void sort(int[] a) {
+		DualPivotQuicksort.sort(a, 0, a.length - 1);
+	}
+
+	public static void sort(int[] a, int fromIndex, int toIndex) {
+		TimSort.rangeCheck(a.length, fromIndex, toIndex);
+		DualPivotQuicksort.sort(a, fromIndex, toIndex - 1);
+	}
+
+	public static void sort(long[] a) {
+		DualPivotQuicksort.sort(a, 0, a.length - 1);
+	}
+
+	public static void sort(long[] a, int fromIndex, int toIndex) {
+		TimSort.rangeCheck(a.length, fromIndex, toIndex);
+		DualPivotQuicksort.sort(a, fromIndex, toIndex - 1);
+	}
+
+	public static void sort(double[] a) {
+		DualPivotQuicksort.sort(a, 0, a.length - 1);
+	}
+
+	public static void sort(double[] a, int fromIndex, int toIndex) {
+		TimSort.rangeCheck(a.length, fromIndex, toIndex);
+		DualPivotQuicksort.sort(a, fromIndex, toIndex - 1);
+	}
+
+	/**
+	 * 按自然顺序排序，元素需要实现 {@link Comparable}
+	 */
+	public static void sort(Object[] a) {
+		TimSort.sort(a, null);
+	}
+
+	public static void sort(Object[] a, int fromIndex, int toIndex) {
+		TimSort.sort(a, fromIndex, toIndex, null);
+	}
+
+	/**
+	 * c 为 null 时按自然顺序排序
+	 */
+	public static <T> void sort(T[] a, Comparator<? super T> c) {
+		TimSort.sort(a, c);
+	}
+
+	public static <T> void sort(T[] a, int fromIndex, int toIndex, Comparator<? super T> c) {
+		TimSort.sort(a, fromIndex, toIndex, c);
+	}
+
+	public static void parallelSort(int[] a) {
+		int n = a.length;
+		int p = Runtime.getRuntime().availableProcessors();
+		if (n <= ParallelMergeSort.MIN_ARRAY_SORT_GRAN || p == 1) {
+			DualPivotQuicksort.sort(a, 0, n - 1);
+		} else {
+			ParallelMergeSort.sort(a, 0, n, p);
+		}
+	}
+
+	public static void parallelSort(long[] a) {
+		int n = a.length;
+		int p = Runtime.getRuntime().availableProcessors();
+		if (n <= ParallelMergeSort.MIN_ARRAY_SORT_GRAN || p == 1) {
+			DualPivotQuicksort.sort(a, 0, n - 1);
+		} else {
+			ParallelMergeSort.sort(a, 0, n, p);
+		}
+	}
+
+	public static void parallelSort(Object[] a) {
+		parallelSort(a, null);
+	}
+
+	public static <T> void parallelSort(T[] a, Comparator<? super T> c) {
+		int n = a.length;
+		int p = Runtime.getRuntime().availableProcessors();
+		if (n <= ParallelMergeSort.MIN_ARRAY_SORT_GRAN || p == 1) {
+			TimSort.sort(a, 0, n, c);
+		} else {
+			ParallelMergeSort.sort(a, 0, n, c, p);
+		}
+	}
+}
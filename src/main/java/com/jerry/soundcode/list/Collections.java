@@ -0,0 +1,35 @@
+package com.jerry.soundcode.list;
+
+/**
+ * List 排序入口。
+ * 先把元素拷贝到数组中用 TimSort 排序，再通过 ListIterator 逐个写回，
+ * 避免在 LinkedList 这类非随机访问的列表上直接排序带来的 n^2*log(n) 开销。
+ */
+public class Collections {
+
+	private Collections() {}
+
+	public static <T extends Comparable<? super T>> void sort(List<T> list) {
+		sort(list, null);
+	}
+
+	@SuppressWarnings("unchecked")
+	public static <T> void sort(List<T> list, Comparator<? super T> c) {
+		if (list instanceof ArrayList) {
+			((ArrayList<T>) list).sort(c);
+			return;
+		}
+		if (list instanceof Vector) {
+			((Vector<T>) list).sort(c);
+			return;
+		}
+
+		Object[] a = list.toArray();
+		TimSort.sort(a, (Comparator<Object>) c);
+		ListIterator<T> i = list.listIterator();
+		for (int j = 0; j < a.length; j++) {
+			i.next();
+			i.set((T) a[j]);
+		}
+	}
+}
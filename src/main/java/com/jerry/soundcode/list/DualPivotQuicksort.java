@@ -0,0 +1,904 @@
+package com.jerry.soundcode.list;
+
+/**
+ * 基本类型数组的双轴快速排序（Dual-Pivot Quicksort）。
+ * 小区间使用插入排序；大区间先识别已有的有序 run，结构明显时直接归并，否则用两个轴把区间分成三段递归排序。
+ * 相比单轴快速排序，双轴划分的比较次数相近但交换次数更少，对缓存也更友好。
+ */
+final class DualPivotQuicksort {
+
+	private DualPivotQuicksort() {}
+
+	/** 归并排序允许的最大 run 数量 */
+	private static final int MAX_RUN_COUNT = 67;
+
+	/** 相等元素组成的 run 的最大长度 */
+	private static final int MAX_RUN_LENGTH = 33;
+
+	/** 长度小于该值时直接使用快速排序，不做 run 识别 */
+	private static final int QUICKSORT_THRESHOLD = 286;
+
+	/** 长度小于该值时使用插入排序 */
+	private static final int INSERTION_SORT_THRESHOLD = 47;
+
+	/**
+	 * 对 int 数组的 [left, right] 区间排序
+	 */
+	static void sort(int[] a, int left, int right) {
+		if (right - left < QUICKSORT_THRESHOLD) {
+			sort(a, left, right, true);
+			return;
+		}
+
+		// 识别升序/降序 run，run[i] 为第 i 个 run 的起点
+		int[] run = new int[MAX_RUN_COUNT + 1];
+		int count = 0;
+		run[0] = left;
+
+		for (int k = left; k < right; run[count] = k) {
+			if (a[k] < a[k + 1]) {
+				while (++k <= right && a[k - 1] <= a[k]);
+			} else if (a[k] > a[k + 1]) {
+				while (++k <= right && a[k - 1] >= a[k]);
+				for (int lo = run[count] - 1, hi = k; ++lo < --hi; ) {
+					int t = a[lo];
+					a[lo] = a[hi];
+					a[hi] = t;
+				}
+			} else {
+				for (int m = MAX_RUN_LENGTH; ++k <= right && a[k - 1] == a[k]; ) {
+					if (--m == 0) {
+						sort(a, left, right, true);
+						return;
+					}
+				}
+			}
+
+			// run 太多说明数据没有明显结构，改用快速排序
+			if (++count == MAX_RUN_COUNT) {
+				sort(a, left, right, true);
+				return;
+			}
+		}
+
+		if (run[count] == right++) {
+			run[++count] = right;
+		} else if (count == 1) {
+			return;
+		}
+
+		// 自底向上归并所有 run，a 与 b 交替作为源和目标
+		int[] b;
+		byte odd = 0;
+		for (int n = 1; (n <<= 1) < count; odd ^= 1);
+
+		if (odd == 0) {
+			b = a;
+			a = new int[b.length];
+			for (int i = left - 1; ++i < right; a[i] = b[i]);
+		} else {
+			b = new int[a.length];
+		}
+
+		for (int last; count > 1; count = last) {
+			for (int k = (last = 0) + 2; k <= count; k += 2) {
+				int hi = run[k], mi = run[k - 1];
+				for (int i = run[k - 2], p = i, q = mi; i < hi; ++i) {
+					if (q >= hi || p < mi && a[p] <= a[q]) {
+						b[i] = a[p++];
+					} else {
+						b[i] = a[q++];
+					}
+				}
+				run[++last] = hi;
+			}
+			if ((count & 1) != 0) {
+				for (int i = right, lo = run[count - 1]; --i >= lo; b[i] = a[i]);
+				run[++last] = right;
+			}
+			int[] t = a;
+			a = b;
+			b = t;
+		}
+	}
+
+	/**
+	 * 双轴快速排序，leftmost 表示区间是否位于最左边；不在最左边时 a[left - 1] 可以作为插入排序的哨兵
+	 */
+	private static void sort(int[] a, int left, int right, boolean leftmost) {
+		int length = right - left + 1;
+
+		if (length < INSERTION_SORT_THRESHOLD) {
+			if (leftmost) {
+				for (int i = left, j = i; i < right; j = ++i) {
+					int ai = a[i + 1];
+					while (ai < a[j]) {
+						a[j + 1] = a[j];
+						if (j-- == left) {
+							break;
+						}
+					}
+					a[j + 1] = ai;
+				}
+			} else {
+				// 跳过开头已经有序的部分
+				do {
+					if (left >= right) {
+						return;
+					}
+				} while (a[++left] >= a[left - 1]);
+
+				// 成对插入排序，每次插入两个元素，左边的哨兵保证不会越界
+				for (int k = left; ++left <= right; k = ++left) {
+					int a1 = a[k], a2 = a[left];
+
+					if (a1 < a2) {
+						a2 = a1;
+						a1 = a[left];
+					}
+					while (a1 < a[--k]) {
+						a[k + 2] = a[k];
+					}
+					a[++k + 1] = a1;
+
+					while (a2 < a[--k]) {
+						a[k + 1] = a[k];
+					}
+					a[k + 1] = a2;
+				}
+				int last = a[right];
+
+				while (last < a[--right]) {
+					a[right + 1] = a[right];
+				}
+				a[right + 1] = last;
+			}
+			return;
+		}
+
+		// 约 length / 7
+		int seventh = (length >> 3) + (length >> 6) + 1;
+
+		// 在中点附近等距取 5 个样本
+		int e3 = (left + right) >>> 1;
+		int e2 = e3 - seventh;
+		int e1 = e2 - seventh;
+		int e4 = e3 + seventh;
+		int e5 = e4 + seventh;
+
+		// 对 5 个样本做插入排序
+		if (a[e2] < a[e1]) { int t = a[e2]; a[e2] = a[e1]; a[e1] = t; }
+
+		if (a[e3] < a[e2]) { int t = a[e3]; a[e3] = a[e2]; a[e2] = t;
+			if (t < a[e1]) { a[e2] = a[e1]; a[e1] = t; }
+		}
+		if (a[e4] < a[e3]) { int t = a[e4]; a[e4] = a[e3]; a[e3] = t;
+			if (t < a[e2]) { a[e3] = a[e2]; a[e2] = t;
+				if (t < a[e1]) { a[e2] = a[e1]; a[e1] = t; }
+			}
+		}
+		if (a[e5] < a[e4]) { int t = a[e5]; a[e5] = a[e4]; a[e4] = t;
+			if (t < a[e3]) { a[e4] = a[e3]; a[e3] = t;
+				if (t < a[e2]) { a[e3] = a[e2]; a[e2] = t;
+					if (t < a[e1]) { a[e2] = a[e1]; a[e1] = t; }
+				}
+			}
+		}
+
+		int less = left;
+		int great = right;
+
+		if (a[e1] != a[e2] && a[e2] != a[e3] && a[e3] != a[e4] && a[e4] != a[e5]) {
+			// 以第 2、4 个样本为双轴，划分为 < pivot1, [pivot1, pivot2], > pivot2 三段
+			int pivot1 = a[e2];
+			int pivot2 = a[e4];
+
+			a[e2] = a[left];
+			a[e4] = a[right];
+
+			while (a[++less] < pivot1);
+			while (a[--great] > pivot2);
+
+		outer:
+			for (int k = less - 1; ++k <= great; ) {
+				int ak = a[k];
+				if (ak < pivot1) {
+					a[k] = a[less];
+					a[less] = ak;
+					++less;
+				} else if (ak > pivot2) {
+					while (a[great] > pivot2) {
+						if (great-- == k) {
+							break outer;
+						}
+					}
+					if (a[great] < pivot1) {
+						a[k] = a[less];
+						a[less] = a[great];
+						++less;
+					} else {
+						a[k] = a[great];
+					}
+					a[great] = ak;
+					--great;
+				}
+			}
+
+			a[left] = a[less - 1]; a[less - 1] = pivot1;
+			a[right] = a[great + 1]; a[great + 1] = pivot2;
+
+			sort(a, left, less - 2, leftmost);
+			sort(a, great + 2, right, false);
+
+			// 中间段过大时，先把等于两个轴的元素挪到两端，缩小需要递归的区间
+			if (less < e1 && e5 < great) {
+				while (a[less] == pivot1) {
+					++less;
+				}
+				while (a[great] == pivot2) {
+					--great;
+				}
+
+			outer:
+				for (int k = less - 1; ++k <= great; ) {
+					int ak = a[k];
+					if (ak == pivot1) {
+						a[k] = a[less];
+						a[less] = ak;
+						++less;
+					} else if (ak == pivot2) {
+						while (a[great] == pivot2) {
+							if (great-- == k) {
+								break outer;
+							}
+						}
+						if (a[great] == pivot1) {
+							a[k] = a[less];
+							a[less] = pivot1;
+							++less;
+						} else {
+							a[k] = a[great];
+						}
+						a[great] = ak;
+						--great;
+					}
+				}
+			}
+
+			sort(a, less, great, false);
+		} else {
+			// 样本中有相等元素，退化为以 a[e3] 为轴的三路划分
+			int pivot = a[e3];
+
+			for (int k = less; k <= great; ++k) {
+				if (a[k] == pivot) {
+					continue;
+				}
+				int ak = a[k];
+				if (ak < pivot) {
+					a[k] = a[less];
+					a[less] = ak;
+					++less;
+				} else {
+					while (a[great] > pivot) {
+						--great;
+					}
+					if (a[great] < pivot) {
+						a[k] = a[less];
+						a[less] = a[great];
+						++less;
+					} else {
+						a[k] = pivot;
+					}
+					a[great] = ak;
+					--great;
+				}
+			}
+
+			sort(a, left, less - 1, leftmost);
+			sort(a, great + 1, right, false);
+		}
+	}
+
+	/**
+	 * 对 long 数组的 [left, right] 区间排序
+	 */
+	static void sort(long[] a, int left, int right) {
+		if (right - left < QUICKSORT_THRESHOLD) {
+			sort(a, left, right, true);
+			return;
+		}
+
+		// 识别升序/降序 run，run[i] 为第 i 个 run 的起点
+		int[] run = new int[MAX_RUN_COUNT + 1];
+		int count = 0;
+		run[0] = left;
+
+		for (int k = left; k < right; run[count] = k) {
+			if (a[k] < a[k + 1]) {
+				while (++k <= right && a[k - 1] <= a[k]);
+			} else if (a[k] > a[k + 1]) {
+				while (++k <= right && a[k - 1] >= a[k]);
+				for (int lo = run[count] - 1, hi = k; ++lo < --hi; ) {
+					long t = a[lo];
+					a[lo] = a[hi];
+					a[hi] = t;
+				}
+			} else {
+				for (int m = MAX_RUN_LENGTH; ++k <= right && a[k - 1] == a[k]; ) {
+					if (--m == 0) {
+						sort(a, left, right, true);
+						return;
+					}
+				}
+			}
+
+			// run 太多说明数据没有明显结构，改用快速排序
+			if (++count == MAX_RUN_COUNT) {
+				sort(a, left, right, true);
+				return;
+			}
+		}
+
+		if (run[count] == right++) {
+			run[++count] = right;
+		} else if (count == 1) {
+			return;
+		}
+
+		// 自底向上归并所有 run，a 与 b 交替作为源和目标
+		long[] b;
+		byte odd = 0;
+		for (int n = 1; (n <<= 1) < count; odd ^= 1);
+
+		if (odd == 0) {
+			b = a;
+			a = new long[b.length];
+			for (int i = left - 1; ++i < right; a[i] = b[i]);
+		} else {
+			b = new long[a.length];
+		}
+
+		for (int last; count > 1; count = last) {
+			for (int k = (last = 0) + 2; k <= count; k += 2) {
+				int hi = run[k], mi = run[k - 1];
+				for (int i = run[k - 2], p = i, q = mi; i < hi; ++i) {
+					if (q >= hi || p < mi && a[p] <= a[q]) {
+						b[i] = a[p++];
+					} else {
+						b[i] = a[q++];
+					}
+				}
+				run[++last] = hi;
+			}
+			if ((count & 1) != 0) {
+				for (int i = right, lo = run[count - 1]; --i >= lo; b[i] = a[i]);
+				run[++last] = right;
+			}
+			long[] t = a;
+			a = b;
+			b = t;
+		}
+	}
+
+	/**
+	 * 双轴快速排序，leftmost 表示区间是否位于最左边；不在最左边时 a[left - 1] 可以作为插入排序的哨兵
+	 */
+	private static void sort(long[] a, int left, int right, boolean leftmost) {
+		int length = right - left + 1;
+
+		if (length < INSERTION_SORT_THRESHOLD) {
+			if (leftmost) {
+				for (int i = left, j = i; i < right; j = ++i) {
+					long ai = a[i + 1];
+					while (ai < a[j]) {
+						a[j + 1] = a[j];
+						if (j-- == left) {
+							break;
+						}
+					}
+					a[j + 1] = ai;
+				}
+			} else {
+				// 跳过开头已经有序的部分
+				do {
+					if (left >= right) {
+						return;
+					}
+				} while (a[++left] >= a[left - 1]);
+
+				// 成对插入排序，每次插入两个元素，左边的哨兵保证不会越界
+				for (int k = left; ++left <= right; k = ++left) {
+					long a1 = a[k], a2 = a[left];
+
+					if (a1 < a2) {
+						a2 = a1;
+						a1 = a[left];
+					}
+					while (a1 < a[--k]) {
+						a[k + 2] = a[k];
+					}
+					a[++k + 1] = a1;
+
+					while (a2 < a[--k]) {
+						a[k + 1] = a[k];
+					}
+					a[k + 1] = a2;
+				}
+				long last = a[right];
+
+				while (last < a[--right]) {
+					a[right + 1] = a[right];
+				}
+				a[right + 1] = last;
+			}
+			return;
+		}
+
+		// 约 length / 7
+		int seventh = (length >> 3) + (length >> 6) + 1;
+
+		// 在中点附近等距取 5 个样本
+		int e3 = (left + right) >>> 1;
+		int e2 = e3 - seventh;
+		int e1 = e2 - seventh;
+		int e4 = e3 + seventh;
+		int e5 = e4 + seventh;
+
+		// 对 5 个样本做插入排序
+		if (a[e2] < a[e1]) { long t = a[e2]; a[e2] = a[e1]; a[e1] = t; }
+
+		if (a[e3] < a[e2]) { long t = a[e3]; a[e3] = a[e2]; a[e2] = t;
+			if (t < a[e1]) { a[e2] = a[e1]; a[e1] = t; }
+		}
+		if (a[e4] < a[e3]) { long t = a[e4]; a[e4] = a[e3]; a[e3] = t;
+			if (t < a[e2]) { a[e3] = a[e2]; a[e2] = t;
+				if (t < a[e1]) { a[e2] = a[e1]; a[e1] = t; }
+			}
+		}
+		if (a[e5] < a[e4]) { long t = a[e5]; a[e5] = a[e4]; a[e4] = t;
+			if (t < a[e3]) { a[e4] = a[e3]; a[e3] = t;
+				if (t < a[e2]) { a[e3] = a[e2]; a[e2] = t;
+					if (t < a[e1]) { a[e2] = a[e1]; a[e1] = t; }
+				}
+			}
+		}
+
+		int less = left;
+		int great = right;
+
+		if (a[e1] != a[e2] && a[e2] != a[e3] && a[e3] != a[e4] && a[e4] != a[e5]) {
+			// 以第 2、4 个样本为双轴，划分为 < pivot1, [pivot1, pivot2], > pivot2 三段
+			long pivot1 = a[e2];
+			long pivot2 = a[e4];
+
+			a[e2] = a[left];
+			a[e4] = a[right];
+
+			while (a[++less] < pivot1);
+			while (a[--great] > pivot2);
+
+		outer:
+			for (int k = less - 1; ++k <= great; ) {
+				long ak = a[k];
+				if (ak < pivot1) {
+					a[k] = a[less];
+					a[less] = ak;
+					++less;
+				} else if (ak > pivot2) {
+					while (a[great] > pivot2) {
+						if (great-- == k) {
+							break outer;
+						}
+					}
+					if (a[great] < pivot1) {
+						a[k] = a[less];
+						a[less] = a[great];
+						++less;
+					} else {
+						a[k] = a[great];
+					}
+					a[great] = ak;
+					--great;
+				}
+			}
+
+			a[left] = a[less - 1]; a[less - 1] = pivot1;
+			a[right] = a[great + 1]; a[great + 1] = pivot2;
+
+			sort(a, left, less - 2, leftmost);
+			sort(a, great + 2, right, false);
+
+			// 中间段过大时，先把等于两个轴的元素挪到两端，缩小需要递归的区间
+			if (less < e1 && e5 < great) {
+				while (a[less] == pivot1) {
+					++less;
+				}
+				while (a[great] == pivot2) {
+					--great;
+				}
+
+			outer:
+				for (int k = less - 1; ++k <= great; ) {
+					long ak = a[k];
+					if (ak == pivot1) {
+						a[k] = a[less];
+						a[less] = ak;
+						++less;
+					} else if (ak == pivot2) {
+						while (a[great] == pivot2) {
+							if (great-- == k) {
+								break outer;
+							}
+						}
+						if (a[great] == pivot1) {
+							a[k] = a[less];
+							a[less] = pivot1;
+							++less;
+						} else {
+							a[k] = a[great];
+						}
+						a[great] = ak;
+						--great;
+					}
+				}
+			}
+
+			sort(a, less, great, false);
+		} else {
+			// 样本中有相等元素，退化为以 a[e3] 为轴的三路划分
+			long pivot = a[e3];
+
+			for (int k = less; k <= great; ++k) {
+				if (a[k] == pivot) {
+					continue;
+				}
+				long ak = a[k];
+				if (ak < pivot) {
+					a[k] = a[less];
+					a[less] = ak;
+					++less;
+				} else {
+					while (a[great] > pivot) {
+						--great;
+					}
+					if (a[great] < pivot) {
+						a[k] = a[less];
+						a[less] = a[great];
+						++less;
+					} else {
+						a[k] = pivot;
+					}
+					a[great] = ak;
+					--great;
+				}
+			}
+
+			sort(a, left, less - 1, leftmost);
+			sort(a, great + 1, right, false);
+		}
+	}
+
+	/**
+	 * 对 double 数组的 [left, right] 区间排序。
+	 * NaN 被移到末尾，-0.0 先当作 0.0 参与排序，排序后再放回所有 0.0 的前面。
+	 */
+	static void sort(double[] a, int left, int right) {
+		while (left <= right && Double.isNaN(a[right])) {
+			--right;
+		}
+		for (int k = right; --k >= left; ) {
+			double ak = a[k];
+			if (ak != ak) {
+				a[k] = a[right];
+				a[right] = ak;
+				--right;
+			}
+		}
+
+		int numNegativeZeros = 0;
+		for (int k = left; k <= right; k++) {
+			if (a[k] == 0.0d && Double.doubleToRawLongBits(a[k]) != 0L) {
+				numNegativeZeros++;
+				a[k] = 0.0d;
+			}
+		}
+
+		doSort(a, left, right);
+
+		if (numNegativeZeros == 0) {
+			return;
+		}
+
+		// 二分查找第一个 0.0 的位置
+		int hi = right;
+		int lo = left;
+		while (lo < hi) {
+			int middle = (lo + hi) >>> 1;
+			if (a[middle] < 0.0d) {
+				lo = middle + 1;
+			} else {
+				hi = middle;
+			}
+		}
+		while (lo <= right && a[lo] == 0.0d && numNegativeZeros-- > 0) {
+			a[lo++] = -0.0d;
+		}
+	}
+
+	private static void doSort(double[] a, int left, int right) {
+		if (right - left < QUICKSORT_THRESHOLD) {
+			sort(a, left, right, true);
+			return;
+		}
+
+		// 识别升序/降序 run，run[i] 为第 i 个 run 的起点
+		int[] run = new int[MAX_RUN_COUNT + 1];
+		int count = 0;
+		run[0] = left;
+
+		for (int k = left; k < right; run[count] = k) {
+			if (a[k] < a[k + 1]) {
+				while (++k <= right && a[k - 1] <= a[k]);
+			} else if (a[k] > a[k + 1]) {
+				while (++k <= right && a[k - 1] >= a[k]);
+				for (int lo = run[count] - 1, hi = k; ++lo < --hi; ) {
+					double t = a[lo];
+					a[lo] = a[hi];
+					a[hi] = t;
+				}
+			} else {
+				for (int m = MAX_RUN_LENGTH; ++k <= right && a[k - 1] == a[k]; ) {
+					if (--m == 0) {
+						sort(a, left, right, true);
+						return;
+					}
+				}
+			}
+
+			// run 太多说明数据没有明显结构，改用快速排序
+			if (++count == MAX_RUN_COUNT) {
+				sort(a, left, right, true);
+				return;
+			}
+		}
+
+		if (run[count] == right++) {
+			run[++count] = right;
+		} else if (count == 1) {
+			return;
+		}
+
+		// 自底向上归并所有 run，a 与 b 交替作为源和目标
+		double[] b;
+		byte odd = 0;
+		for (int n = 1; (n <<= 1) < count; odd ^= 1);
+
+		if (odd == 0) {
+			b = a;
+			a = new double[b.length];
+			for (int i = left - 1; ++i < right; a[i] = b[i]);
+		} else {
+			b = new double[a.length];
+		}
+
+		for (int last; count > 1; count = last) {
+			for (int k = (last = 0) + 2; k <= count; k += 2) {
+				int hi = run[k], mi = run[k - 1];
+				for (int i = run[k - 2], p = i, q = mi; i < hi; ++i) {
+					if (q >= hi || p < mi && a[p] <= a[q]) {
+						b[i] = a[p++];
+					} else {
+						b[i] = a[q++];
+					}
+				}
+				run[++last] = hi;
+			}
+			if ((count & 1) != 0) {
+				for (int i = right, lo = run[count - 1]; --i >= lo; b[i] = a[i]);
+				run[++last] = right;
+			}
+			double[] t = a;
+			a = b;
+			b = t;
+		}
+	}
+
+	/**
+	 * 双轴快速排序，leftmost 表示区间是否位于最左边；不在最左边时 a[left - 1] 可以作为插入排序的哨兵
+	 */
+	private static void sort(double[] a, int left, int right, boolean leftmost) {
+		int length = right - left + 1;
+
+		if (length < INSERTION_SORT_THRESHOLD) {
+			if (leftmost) {
+				for (int i = left, j = i; i < right; j = ++i) {
+					double ai = a[i + 1];
+					while (ai < a[j]) {
+						a[j + 1] = a[j];
+						if (j-- == left) {
+							break;
+						}
+					}
+					a[j + 1] = ai;
+				}
+			} else {
+				// 跳过开头已经有序的部分
+				do {
+					if (left >= right) {
+						return;
+					}
+				} while (a[++left] >= a[left - 1]);
+
+				// 成对插入排序，每次插入两个元素，左边的哨兵保证不会越界
+				for (int k = left; ++left <= right; k = ++left) {
+					double a1 = a[k], a2 = a[left];
+
+					if (a1 < a2) {
+						a2 = a1;
+						a1 = a[left];
+					}
+					while (a1 < a[--k]) {
+						a[k + 2] = a[k];
+					}
+					a[++k + 1] = a1;
+
+					while (a2 < a[--k]) {
+						a[k + 1] = a[k];
+					}
+					a[k + 1] = a2;
+				}
+				double last = a[right];
+
+				while (last < a[--right]) {
+					a[right + 1] = a[right];
+				}
+				a[right + 1] = last;
+			}
+			return;
+		}
+
+		// 约 length / 7
+		int seventh = (length >> 3) + (length >> 6) + 1;
+
+		// 在中点附近等距取 5 个样本
+		int e3 = (left + right) >>> 1;
+		int e2 = e3 - seventh;
+		int e1 = e2 - seventh;
+		int e4 = e3 + seventh;
+		int e5 = e4 + seventh;
+
+		// 对 5 个样本做插入排序
+		if (a[e2] < a[e1]) { double t = a[e2]; a[e2] = a[e1]; a[e1] = t; }
+
+		if (a[e3] < a[e2]) { double t = a[e3]; a[e3] = a[e2]; a[e2] = t;
+			if (t < a[e1]) { a[e2] = a[e1]; a[e1] = t; }
+		}
+		if (a[e4] < a[e3]) { double t = a[e4]; a[e4] = a[e3]; a[e3] = t;
+			if (t < a[e2]) { a[e3] = a[e2]; a[e2] = t;
+				if (t < a[e1]) { a[e2] = a[e1]; a[e1] = t; }
+			}
+		}
+		if (a[e5] < a[e4]) { double t = a[e5]; a[e5] = a[e4]; a[e4] = t;
+			if (t < a[e3]) { a[e4] = a[e3]; a[e3] = t;
+				if (t < a[e2]) { a[e3] = a[e2]; a[e2] = t;
+					if (t < a[e1]) { a[e2] = a[e1]; a[e1] = t; }
+				}
+			}
+		}
+
+		int less = left;
+		int great = right;
+
+		if (a[e1] != a[e2] && a[e2] != a[e3] && a[e3] != a[e4] && a[e4] != a[e5]) {
+			// 以第 2、4 个样本为双轴，划分为 < pivot1, [pivot1, pivot2], > pivot2 三段
+			double pivot1 = a[e2];
+			double pivot2 = a[e4];
+
+			a[e2] = a[left];
+			a[e4] = a[right];
+
+			while (a[++less] < pivot1);
+			while (a[--great] > pivot2);
+
+		outer:
+			for (int k = less - 1; ++k <= great; ) {
+				double ak = a[k];
+				if (ak < pivot1) {
+					a[k] = a[less];
+					a[less] = ak;
+					++less;
+				} else if (ak > pivot2) {
+					while (a[great] > pivot2) {
+						if (great-- == k) {
+							break outer;
+						}
+					}
+					if (a[great] < pivot1) {
+						a[k] = a[less];
+						a[less] = a[great];
+						++less;
+					} else {
+						a[k] = a[great];
+					}
+					a[great] = ak;
+					--great;
+				}
+			}
+
+			a[left] = a[less - 1]; a[less - 1] = pivot1;
+			a[right] = a[great + 1]; a[great + 1] = pivot2;
+
+			sort(a, left, less - 2, leftmost);
+			sort(a, great + 2, right, false);
+
+			// 中间段过大时，先把等于两个轴的元素挪到两端，缩小需要递归的区间
+			if (less < e1 && e5 < great) {
+				while (a[less] == pivot1) {
+					++less;
+				}
+				while (a[great] == pivot2) {
+					--great;
+				}
+
+			outer:
+				for (int k = less - 1; ++k <= great; ) {
+					double ak = a[k];
+					if (ak == pivot1) {
+						a[k] = a[less];
+						a[less] = ak;
+						++less;
+					} else if (ak == pivot2) {
+						while (a[great] == pivot2) {
+							if (great-- == k) {
+								break outer;
+							}
+						}
+						if (a[great] == pivot1) {
+							a[k] = a[less];
+							a[less] = pivot1;
+							++less;
+						} else {
+							a[k] = a[great];
+						}
+						a[great] = ak;
+						--great;
+					}
+				}
+			}
+
+			sort(a, less, great, false);
+		} else {
+			// 样本中有相等元素，退化为以 a[e3] 为轴的三路划分
+			double pivot = a[e3];
+
+			for (int k = less; k <= great; ++k) {
+				if (a[k] == pivot) {
+					continue;
+				}
+				double ak = a[k];
+				if (ak < pivot) {
+					a[k] = a[less];
+					a[less] = ak;
+					++less;
+				} else {
+					while (a[great] > pivot) {
+						--great;
+					}
+					if (a[great] < pivot) {
+						a[k] = a[less];
+						a[less] = a[great];
+						++less;
+					} else {
+						a[k] = pivot;
+					}
+					a[great] = ak;
+					--great;
+				}
+			}
+
+			sort(a, left, less - 1, leftmost);
+			sort(a, great + 1, right, false);
+		}
+	}
+}
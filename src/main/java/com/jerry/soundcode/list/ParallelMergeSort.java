@@ -0,0 +1,239 @@
+package com.jerry.soundcode.list;
+
+/**
+ * 大数组的并行归并排序。
+ * 递归地把区间一分为二，左半部分交给新线程、右半部分由当前线程继续拆分，
+ * 拆到 MIN_ARRAY_SORT_GRAN 以下或并行度用完后在叶子上做串行排序，再逐层归并。
+ * 左右两段已经首尾有序时跳过归并，部分有序的数据几乎没有归并开销。
+ */
+final class ParallelMergeSort {
+
+	private ParallelMergeSort() {}
+
+	/** 小于该长度的区间不再拆分 */
+	static final int MIN_ARRAY_SORT_GRAN = 1 << 13;
+
+	static <T> void sort(T[] a, int lo, int hi, Comparator<? super T> c, int parallelism) {
+		if (c == null) {
+			c = TimSort.naturalOrder();
+		}
+		@SuppressWarnings("unchecked")
+		T[] w = (T[]) new Object[hi - lo];
+		new ObjectSorter<T>(a, w, lo, lo, hi, c, depthOf(parallelism)).invoke();
+	}
+
+	static void sort(int[] a, int lo, int hi, int parallelism) {
+		new IntSorter(a, new int[hi - lo], lo, lo, hi, depthOf(parallelism)).invoke();
+	}
+
+	static void sort(long[] a, int lo, int hi, int parallelism) {
+		new LongSorter(a, new long[hi - lo], lo, lo, hi, depthOf(parallelism)).invoke();
+	}
+
+	/**
+	 * 拆分深度，叶子数为 2^depth，不少于并行度
+	 */
+	private static int depthOf(int parallelism) {
+		return parallelism <= 1 ? 0 : 32 - Integer.numberOfLeadingZeros(parallelism - 1);
+	}
+
+	private static abstract class Sorter implements Runnable {
+
+		/** 工作数组中 lo 对应的下标为 lo - base */
+		final int base;
+		final int lo;
+		final int hi;
+		final int depth;
+
+		Throwable failure;
+
+		Sorter(int base, int lo, int hi, int depth) {
+			this.base = base;
+			this.lo = lo;
+			this.hi = hi;
+			this.depth = depth;
+		}
+
+		/** 串行排序 [lo, hi) */
+		abstract void sortLeaf(int lo, int hi);
+
+		/** 归并 [lo, mid) 与 [mid, hi) */
+		abstract void merge(int lo, int mid, int hi);
+
+		abstract Sorter fork(int lo, int hi, int depth);
+
+		public void run() {
+			try {
+				compute();
+			} catch (Throwable ex) {
+				failure = ex;
+			}
+		}
+
+		final void invoke() {
+			compute();
+		}
+
+		private void compute() {
+			if (depth <= 0 || hi - lo <= MIN_ARRAY_SORT_GRAN) {
+				sortLeaf(lo, hi);
+				return;
+			}
+
+			int mid = (lo + hi) >>> 1;
+			Sorter left = fork(lo, mid, depth - 1);
+			Thread t = new Thread(left, "ParallelMergeSort-" + lo);
+			t.setDaemon(true);
+			t.start();
+
+			fork(mid, hi, depth - 1).compute();
+
+			// 排序不能半途放弃，被中断时继续等待并在结束后恢复中断状态
+			boolean interrupted = false;
+			while (true) {
+				try {
+					t.join();
+					break;
+				} catch (InterruptedException e) {
+					interrupted = true;
+				}
+			}
+			if (interrupted) {
+				Thread.currentThread().interrupt();
+			}
+
+			Throwable ex = left.failure;
+			if (ex != null) {
+				if (ex instanceof RuntimeException) {
+					throw (RuntimeException) ex;
+				}
+				if (ex instanceof Error) {
+					throw (Error) ex;
+				}
+				throw new RuntimeException(ex);
+			}
+
+			merge(lo, mid, hi);
+		}
+	}
+
+	private static final class ObjectSorter<T> extends Sorter {
+
+		private final T[] a;
+		private final T[] w;
+		private final Comparator<? super T> c;
+
+		ObjectSorter(T[] a, T[] w, int base, int lo, int hi, Comparator<? super T> c, int depth) {
+			super(base, lo, hi, depth);
+			this.a = a;
+			this.w = w;
+			this.c = c;
+		}
+
+		void sortLeaf(int lo, int hi) {
+			TimSort.sort(a, lo, hi, c);
+		}
+
+		void merge(int lo, int mid, int hi) {
+			if (c.compare(a[mid - 1], a[mid]) <= 0) {
+				return;
+			}
+			int wlo = lo - base;
+			System.arraycopy(a, lo, w, wlo, mid - lo);
+
+			int i = wlo;
+			int iEnd = wlo + (mid - lo);
+			int j = mid;
+			int k = lo;
+			while (i < iEnd && j < hi) {
+				// 相等时取左边的元素，保证稳定
+				a[k++] = (c.compare(a[j], w[i]) < 0) ? a[j++] : w[i++];
+			}
+			if (i < iEnd) {
+				System.arraycopy(w, i, a, k, iEnd - i);
+			}
+		}
+
+		Sorter fork(int lo, int hi, int depth) {
+			return new ObjectSorter<T>(a, w, base, lo, hi, c, depth);
+		}
+	}
+
+	private static final class IntSorter extends Sorter {
+
+		private final int[] a;
+		private final int[] w;
+
+		IntSorter(int[] a, int[] w, int base, int lo, int hi, int depth) {
+			super(base, lo, hi, depth);
+			this.a = a;
+			this.w = w;
+		}
+
+		void sortLeaf(int lo, int hi) {
+			DualPivotQuicksort.sort(a, lo, hi - 1);
+		}
+
+		void merge(int lo, int mid, int hi) {
+			if (a[mid - 1] <= a[mid]) {
+				return;
+			}
+			int wlo = lo - base;
+			System.arraycopy(a, lo, w, wlo, mid - lo);
+
+			int i = wlo;
+			int iEnd = wlo + (mid - lo);
+			int j = mid;
+			int k = lo;
+			while (i < iEnd && j < hi) {
+				a[k++] = (a[j] < w[i]) ? a[j++] : w[i++];
+			}
+			if (i < iEnd) {
+				System.arraycopy(w, i, a, k, iEnd - i);
+			}
+		}
+
+		Sorter fork(int lo, int hi, int depth) {
+			return new IntSorter(a, w, base, lo, hi, depth);
+		}
+	}
+
+	private static final class LongSorter extends Sorter {
+
+		private final long[] a;
+		private final long[] w;
+
+		LongSorter(long[] a, long[] w, int base, int lo, int hi, int depth) {
+			super(base, lo, hi, depth);
+			this.a = a;
+			this.w = w;
+		}
+
+		void sortLeaf(int lo, int hi) {
+			DualPivotQuicksort.sort(a, lo, hi - 1);
+		}
+
+		void merge(int lo, int mid, int hi) {
+			if (a[mid - 1] <= a[mid]) {
+				return;
+			}
+			int wlo = lo - base;
+			System.arraycopy(a, lo, w, wlo, mid - lo);
+
+			int i = wlo;
+			int iEnd = wlo + (mid - lo);
+			int j = mid;
+			int k = lo;
+			while (i < iEnd && j < hi) {
+				a[k++] = (a[j] < w[i]) ? a[j++] : w[i++];
+			}
+			if (i < iEnd) {
+				System.arraycopy(w, i, a, k, iEnd - i);
+			}
+		}
+
+		Sorter fork(int lo, int hi, int depth) {
+			return new LongSorter(a, w, base, lo, hi, depth);
+		}
+	}
+}
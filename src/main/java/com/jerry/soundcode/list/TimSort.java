@@ -0,0 +1,640 @@
+package com.jerry.soundcode.list;
+
+/**
+ * 自适应、稳定的归并排序（TimSort）。
+ * 先在数组中识别已有的升序/严格降序片段（run），过短的 run 用二分插入排序补齐到 minRun，
+ * 然后按栈上 run 长度的不变式合并相邻 run，合并时使用 galloping 模式跳过大段有序数据。
+ * 对部分有序的数据只需要远少于 n*lg(n) 次比较，完全有序时只需要 n-1 次比较。
+ */
+class TimSort<T> {
+
+	/** 长度小于该值的数组直接使用二分插入排序 */
+	private static final int MIN_MERGE = 32;
+
+	private final T[] a;
+
+	private final Comparator<? super T> c;
+
+	/** 进入 galloping 模式的初始阈值 */
+	private static final int MIN_GALLOP = 7;
+
+	private int minGallop = MIN_GALLOP;
+
+	private static final int INITIAL_TMP_STORAGE_LENGTH = 256;
+
+	/** 合并时使用的临时数组 */
+	private T[] tmp;
+
+	/** 待合并的 run 栈，runBase[i] + runLen[i] == runBase[i + 1] */
+	private int stackSize = 0;
+	private final int[] runBase;
+	private final int[] runLen;
+
+	@SuppressWarnings("unchecked")
+	private TimSort(T[] a, Comparator<? super T> c) {
+		this.a = a;
+		this.c = c;
+
+		int len = a.length;
+		T[] newArray = (T[]) new Object[len < 2 * INITIAL_TMP_STORAGE_LENGTH ?
+				len >>> 1 : INITIAL_TMP_STORAGE_LENGTH];
+		tmp = newArray;
+
+		int stackLen = (len < 120 ? 5 :
+						len < 1542 ? 10 :
+						len < 119151 ? 24 : 49);
+		runBase = new int[stackLen];
+		runLen = new int[stackLen];
+	}
+
+	static <T> void sort(T[] a, Comparator<? super T> c) {
+		sort(a, 0, a.length, c);
+	}
+
+	static <T> void sort(T[] a, int lo, int hi, Comparator<? super T> c) {
+		if (c == null) {
+			c = naturalOrder();
+		}
+
+		rangeCheck(a.length, lo, hi);
+		int nRemaining = hi - lo;
+		if (nRemaining < 2) {
+			return;
+		}
+
+		if (nRemaining < MIN_MERGE) {
+			int initRunLen = countRunAndMakeAscending(a, lo, hi, c);
+			binarySort(a, lo, hi, lo + initRunLen, c);
+			return;
+		}
+
+		TimSort<T> ts = new TimSort<T>(a, c);
+		int minRun = minRunLength(nRemaining);
+		do {
+			int runLen = countRunAndMakeAscending(a, lo, hi, c);
+
+			// run 太短则用二分插入排序扩展到 min(minRun, nRemaining)
+			if (runLen < minRun) {
+				int force = nRemaining <= minRun ? nRemaining : minRun;
+				binarySort(a, lo, lo + force, lo + runLen, c);
+				runLen = force;
+			}
+
+			ts.pushRun(lo, runLen);
+			ts.mergeCollapse();
+
+			lo += runLen;
+			nRemaining -= runLen;
+		} while (nRemaining != 0);
+
+		assert lo == hi;
+		ts.mergeForceCollapse();
+		assert ts.stackSize == 1;
+	}
+
+	@SuppressWarnings("unchecked")
+	static <T> Comparator<T> naturalOrder() {
+		return (Comparator<T>) NATURAL_ORDER;
+	}
+
+	/**
+	 * 自然顺序比较器，元素需要实现 {@link Comparable}
+	 */
+	private static final Comparator<Object> NATURAL_ORDER = new Comparator<Object>() {
+		@SuppressWarnings("unchecked")
+		public int compare(Object o1, Object o2) {
+			return ((Comparable<Object>) o1).compareTo(o2);
+		}
+	};
+
+	/**
+	 * 二分插入排序，[lo, start) 已经有序
+	 */
+	@SuppressWarnings("fallthrough")
+	private static <T> void binarySort(T[] a, int lo, int hi, int start,
+			Comparator<? super T> c) {
+		assert lo <= start && start <= hi;
+		if (start == lo) {
+			start++;
+		}
+		for ( ; start < hi; start++) {
+			T pivot = a[start];
+
+			int left = lo;
+			int right = start;
+			assert left <= right;
+			while (left < right) {
+				int mid = (left + right) >>> 1;
+				if (c.compare(pivot, a[mid]) < 0) {
+					right = mid;
+				} else {
+					left = mid + 1;
+				}
+			}
+			assert left == right;
+
+			int n = start - left;
+			switch (n) {
+				case 2:  a[left + 2] = a[left + 1];
+				case 1:  a[left + 1] = a[left];
+						 break;
+				default: System.arraycopy(a, left, a, left + 1, n);
+			}
+			a[left] = pivot;
+		}
+	}
+
+	/**
+	 * 从 lo 开始识别一个 run 并返回其长度，严格降序的 run 会被原地翻转成升序，保证排序稳定
+	 */
+	private static <T> int countRunAndMakeAscending(T[] a, int lo, int hi,
+			Comparator<? super T> c) {
+		assert lo < hi;
+		int runHi = lo + 1;
+		if (runHi == hi) {
+			return 1;
+		}
+
+		if (c.compare(a[runHi++], a[lo]) < 0) {
+			while (runHi < hi && c.compare(a[runHi], a[runHi - 1]) < 0) {
+				runHi++;
+			}
+			reverseRange(a, lo, runHi);
+		} else {
+			while (runHi < hi && c.compare(a[runHi], a[runHi - 1]) >= 0) {
+				runHi++;
+			}
+		}
+
+		return runHi - lo;
+	}
+
+	private static void reverseRange(Object[] a, int lo, int hi) {
+		hi--;
+		while (lo < hi) {
+			Object t = a[lo];
+			a[lo++] = a[hi];
+			a[hi--] = t;
+		}
+	}
+
+	/**
+	 * 返回 [MIN_MERGE/2, MIN_MERGE] 之间的最小 run 长度，使 n/minRun 接近且不超过 2 的幂
+	 */
+	static int minRunLength(int n) {
+		assert n >= 0;
+		int r = 0;
+		while (n >= MIN_MERGE) {
+			r |= (n & 1);
+			n >>= 1;
+		}
+		return n + r;
+	}
+
+	private void pushRun(int runBase, int runLen) {
+		this.runBase[stackSize] = runBase;
+		this.runLen[stackSize] = runLen;
+		stackSize++;
+	}
+
+	/**
+	 * 维持栈上 run 长度的不变式：
+	 * 1. runLen[i - 3] > runLen[i - 2] + runLen[i - 1]
+	 * 2. runLen[i - 2] > runLen[i - 1]
+	 */
+	private void mergeCollapse() {
+		while (stackSize > 1) {
+			int n = stackSize - 2;
+			if ((n > 0 && runLen[n - 1] <= runLen[n] + runLen[n + 1])
+					|| (n > 1 && runLen[n - 2] <= runLen[n] + runLen[n - 1])) {
+				if (runLen[n - 1] < runLen[n + 1]) {
+					n--;
+				}
+			} else if (runLen[n] > runLen[n + 1]) {
+				break;
+			}
+			mergeAt(n);
+		}
+	}
+
+	private void mergeForceCollapse() {
+		while (stackSize > 1) {
+			int n = stackSize - 2;
+			if (n > 0 && runLen[n - 1] < runLen[n + 1]) {
+				n--;
+			}
+			mergeAt(n);
+		}
+	}
+
+	/**
+	 * 合并栈上第 i 和第 i + 1 个 run
+	 */
+	private void mergeAt(int i) {
+		assert stackSize >= 2;
+		assert i >= 0;
+		assert i == stackSize - 2 || i == stackSize - 3;
+
+		int base1 = runBase[i];
+		int len1 = runLen[i];
+		int base2 = runBase[i + 1];
+		int len2 = runLen[i + 1];
+		assert len1 > 0 && len2 > 0;
+		assert base1 + len1 == base2;
+
+		runLen[i] = len1 + len2;
+		if (i == stackSize - 3) {
+			runBase[i + 1] = runBase[i + 2];
+			runLen[i + 1] = runLen[i + 2];
+		}
+		stackSize--;
+
+		// run2 的第一个元素在 run1 中的位置，之前的元素已经就位
+		int k = gallopRight(a[base2], a, base1, len1, 0, c);
+		assert k >= 0;
+		base1 += k;
+		len1 -= k;
+		if (len1 == 0) {
+			return;
+		}
+
+		// run1 的最后一个元素在 run2 中的位置，之后的元素已经就位
+		len2 = gallopLeft(a[base1 + len1 - 1], a, base2, len2, len2 - 1, c);
+		assert len2 >= 0;
+		if (len2 == 0) {
+			return;
+		}
+
+		if (len1 <= len2) {
+			mergeLo(base1, len1, base2, len2);
+		} else {
+			mergeHi(base1, len1, base2, len2);
+		}
+	}
+
+	/**
+	 * 在有序区间中查找 key 的插入位置，存在相等元素时返回最左边的位置
+	 */
+	static <T> int gallopLeft(T key, T[] a, int base, int len, int hint,
+			Comparator<? super T> c) {
+		assert len > 0 && hint >= 0 && hint < len;
+		int lastOfs = 0;
+		int ofs = 1;
+		if (c.compare(key, a[base + hint]) > 0) {
+			int maxOfs = len - hint;
+			while (ofs < maxOfs && c.compare(key, a[base + hint + ofs]) > 0) {
+				lastOfs = ofs;
+				ofs = (ofs << 1) + 1;
+				if (ofs <= 0) {
+					ofs = maxOfs;
+				}
+			}
+			if (ofs > maxOfs) {
+				ofs = maxOfs;
+			}
+
+			lastOfs += hint;
+			ofs += hint;
+		} else {
+			int maxOfs = hint + 1;
+			while (ofs < maxOfs && c.compare(key, a[base + hint - ofs]) <= 0) {
+				lastOfs = ofs;
+				ofs = (ofs << 1) + 1;
+				if (ofs <= 0) {
+					ofs = maxOfs;
+				}
+			}
+			if (ofs > maxOfs) {
+				ofs = maxOfs;
+			}
+
+			int tmp = lastOfs;
+			lastOfs = hint - ofs;
+			ofs = hint - tmp;
+		}
+		assert -1 <= lastOfs && lastOfs < ofs && ofs <= len;
+
+		lastOfs++;
+		while (lastOfs < ofs) {
+			int m = lastOfs + ((ofs - lastOfs) >>> 1);
+
+			if (c.compare(key, a[base + m]) > 0) {
+				lastOfs = m + 1;
+			} else {
+				ofs = m;
+			}
+		}
+		assert lastOfs == ofs;
+		return ofs;
+	}
+
+	/**
+	 * 与 gallopLeft 相同，但存在相等元素时返回最右边之后的位置
+	 */
+	static <T> int gallopRight(T key, T[] a, int base, int len, int hint,
+			Comparator<? super T> c) {
+		assert len > 0 && hint >= 0 && hint < len;
+
+		int ofs = 1;
+		int lastOfs = 0;
+		if (c.compare(key, a[base + hint]) < 0) {
+			int maxOfs = hint + 1;
+			while (ofs < maxOfs && c.compare(key, a[base + hint - ofs]) < 0) {
+				lastOfs = ofs;
+				ofs = (ofs << 1) + 1;
+				if (ofs <= 0) {
+					ofs = maxOfs;
+				}
+			}
+			if (ofs > maxOfs) {
+				ofs = maxOfs;
+			}
+
+			int tmp = lastOfs;
+			lastOfs = hint - ofs;
+			ofs = hint - tmp;
+		} else {
+			int maxOfs = len - hint;
+			while (ofs < maxOfs && c.compare(key, a[base + hint + ofs]) >= 0) {
+				lastOfs = ofs;
+				ofs = (ofs << 1) + 1;
+				if (ofs <= 0) {
+					ofs = maxOfs;
+				}
+			}
+			if (ofs > maxOfs) {
+				ofs = maxOfs;
+			}
+
+			lastOfs += hint;
+			ofs += hint;
+		}
+		assert -1 <= lastOfs && lastOfs < ofs && ofs <= len;
+
+		lastOfs++;
+		while (lastOfs < ofs) {
+			int m = lastOfs + ((ofs - lastOfs) >>> 1);
+
+			if (c.compare(key, a[base + m]) < 0) {
+				ofs = m;
+			} else {
+				lastOfs = m + 1;
+			}
+		}
+		assert lastOfs == ofs;
+		return ofs;
+	}
+
+	/**
+	 * 从左向右合并，run1 较短时使用，run1 被复制到临时数组
+	 */
+	private void mergeLo(int base1, int len1, int base2, int len2) {
+		assert len1 > 0 && len2 > 0 && base1 + len1 == base2;
+
+		T[] a = this.a;
+		T[] tmp = ensureCapacity(len1);
+		System.arraycopy(a, base1, tmp, 0, len1);
+
+		int cursor1 = 0;
+		int cursor2 = base2;
+		int dest = base1;
+
+		a[dest++] = a[cursor2++];
+		if (--len2 == 0) {
+			System.arraycopy(tmp, cursor1, a, dest, len1);
+			return;
+		}
+		if (len1 == 1) {
+			System.arraycopy(a, cursor2, a, dest, len2);
+			a[dest + len2] = tmp[cursor1];
+			return;
+		}
+
+		Comparator<? super T> c = this.c;
+		int minGallop = this.minGallop;
+	outer:
+		while (true) {
+			int count1 = 0;
+			int count2 = 0;
+
+			// 逐个比较，直到某一个 run 连续胜出 minGallop 次
+			do {
+				assert len1 > 1 && len2 > 0;
+				if (c.compare(a[cursor2], tmp[cursor1]) < 0) {
+					a[dest++] = a[cursor2++];
+					count2++;
+					count1 = 0;
+					if (--len2 == 0) {
+						break outer;
+					}
+				} else {
+					a[dest++] = tmp[cursor1++];
+					count1++;
+					count2 = 0;
+					if (--len1 == 1) {
+						break outer;
+					}
+				}
+			} while ((count1 | count2) < minGallop);
+
+			// galloping 模式，成批搬移
+			do {
+				assert len1 > 1 && len2 > 0;
+				count1 = gallopRight(a[cursor2], tmp, cursor1, len1, 0, c);
+				if (count1 != 0) {
+					System.arraycopy(tmp, cursor1, a, dest, count1);
+					dest += count1;
+					cursor1 += count1;
+					len1 -= count1;
+					if (len1 <= 1) {
+						break outer;
+					}
+				}
+				a[dest++] = a[cursor2++];
+				if (--len2 == 0) {
+					break outer;
+				}
+
+				count2 = gallopLeft(tmp[cursor1], a, cursor2, len2, 0, c);
+				if (count2 != 0) {
+					System.arraycopy(a, cursor2, a, dest, count2);
+					dest += count2;
+					cursor2 += count2;
+					len2 -= count2;
+					if (len2 == 0) {
+						break outer;
+					}
+				}
+				a[dest++] = tmp[cursor1++];
+				if (--len1 == 1) {
+					break outer;
+				}
+				minGallop--;
+			} while (count1 >= MIN_GALLOP | count2 >= MIN_GALLOP);
+			if (minGallop < 0) {
+				minGallop = 0;
+			}
+			minGallop += 2;
+		}
+		this.minGallop = minGallop < 1 ? 1 : minGallop;
+
+		if (len1 == 1) {
+			assert len2 > 0;
+			System.arraycopy(a, cursor2, a, dest, len2);
+			a[dest + len2] = tmp[cursor1];
+		} else if (len1 == 0) {
+			throw new IllegalArgumentException(
+					"Comparison method violates its general contract!");
+		} else {
+			assert len2 == 0;
+			assert len1 > 1;
+			System.arraycopy(tmp, cursor1, a, dest, len1);
+		}
+	}
+
+	/**
+	 * 从右向左合并，run2 较短时使用，run2 被复制到临时数组
+	 */
+	private void mergeHi(int base1, int len1, int base2, int len2) {
+		assert len1 > 0 && len2 > 0 && base1 + len1 == base2;
+
+		T[] a = this.a;
+		T[] tmp = ensureCapacity(len2);
+		System.arraycopy(a, base2, tmp, 0, len2);
+
+		int cursor1 = base1 + len1 - 1;
+		int cursor2 = len2 - 1;
+		int dest = base2 + len2 - 1;
+
+		a[dest--] = a[cursor1--];
+		if (--len1 == 0) {
+			System.arraycopy(tmp, 0, a, dest - (len2 - 1), len2);
+			return;
+		}
+		if (len2 == 1) {
+			dest -= len1;
+			cursor1 -= len1;
+			System.arraycopy(a, cursor1 + 1, a, dest + 1, len1);
+			a[dest] = tmp[cursor2];
+			return;
+		}
+
+		Comparator<? super T> c = this.c;
+		int minGallop = this.minGallop;
+	outer:
+		while (true) {
+			int count1 = 0;
+			int count2 = 0;
+
+			do {
+				assert len1 > 0 && len2 > 1;
+				if (c.compare(tmp[cursor2], a[cursor1]) < 0) {
+					a[dest--] = a[cursor1--];
+					count1++;
+					count2 = 0;
+					if (--len1 == 0) {
+						break outer;
+					}
+				} else {
+					a[dest--] = tmp[cursor2--];
+					count2++;
+					count1 = 0;
+					if (--len2 == 1) {
+						break outer;
+					}
+				}
+			} while ((count1 | count2) < minGallop);
+
+			do {
+				assert len1 > 0 && len2 > 1;
+				count1 = len1 - gallopRight(tmp[cursor2], a, base1, len1, len1 - 1, c);
+				if (count1 != 0) {
+					dest -= count1;
+					cursor1 -= count1;
+					len1 -= count1;
+					System.arraycopy(a, cursor1 + 1, a, dest + 1, count1);
+					if (len1 == 0) {
+						break outer;
+					}
+				}
+				a[dest--] = tmp[cursor2--];
+				if (--len2 == 1) {
+					break outer;
+				}
+
+				count2 = len2 - gallopLeft(a[cursor1], tmp, 0, len2, len2 - 1, c);
+				if (count2 != 0) {
+					dest -= count2;
+					cursor2 -= count2;
+					len2 -= count2;
+					System.arraycopy(tmp, cursor2 + 1, a, dest + 1, count2);
+					if (len2 <= 1) {
+						break outer;
+					}
+				}
+				a[dest--] = a[cursor1--];
+				if (--len1 == 0) {
+					break outer;
+				}
+				minGallop--;
+			} while (count1 >= MIN_GALLOP | count2 >= MIN_GALLOP);
+			if (minGallop < 0) {
+				minGallop = 0;
+			}
+			minGallop += 2;
+		}
+		this.minGallop = minGallop < 1 ? 1 : minGallop;
+
+		if (len2 == 1) {
+			assert len1 > 0;
+			dest -= len1;
+			cursor1 -= len1;
+			System.arraycopy(a, cursor1 + 1, a, dest + 1, len1);
+			a[dest] = tmp[cursor2];
+		} else if (len2 == 0) {
+			throw new IllegalArgumentException(
+					"Comparison method violates its general contract!");
+		} else {
+			assert len1 == 0;
+			assert len2 > 0;
+			System.arraycopy(tmp, 0, a, dest - (len2 - 1), len2);
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private T[] ensureCapacity(int minCapacity) {
+		if (tmp.length < minCapacity) {
+			// 向上取到 2 的幂
+			int newSize = minCapacity;
+			newSize |= newSize >> 1;
+			newSize |= newSize >> 2;
+			newSize |= newSize >> 4;
+			newSize |= newSize >> 8;
+			newSize |= newSize >> 16;
+			newSize++;
+
+			if (newSize < 0) {
+				newSize = minCapacity;
+			} else {
+				newSize = Math.min(newSize, a.length >>> 1);
+			}
+
+			T[] newArray = (T[]) new Object[newSize];
+			tmp = newArray;
+		}
+		return tmp;
+	}
+
+	static void rangeCheck(int arrayLen, int fromIndex, int toIndex) {
+		if (fromIndex > toIndex) {
+			throw new IllegalArgumentException("fromIndex(" + fromIndex
+					+ ") > toIndex(" + toIndex + ")");
+		}
+		if (fromIndex < 0) {
+			throw new ArrayIndexOutOfBoundsException(fromIndex);
+		}
+		if (toIndex > arrayLen) {
+			throw new ArrayIndexOutOfBoundsException(toIndex);
+		}
+	}
+}
@@ -4,6 +4,7 @@ import java.io.IOException;
 import java.io.ObjectOutputStream;
 import java.io.Serializable;
 import java.util.Arrays;
+import java.util.ConcurrentModificationException;
 import java.util.NoSuchElementException;
 
 public class Vector<T> extends AbstractList<T>
@@ -416,6 +417,19 @@ public class Vector<T> extends AbstractList<T>
 		return null;
 	}
 	
+	/**
+	 * 使用 TimSort 对列表原地排序，c 为 null 时按自然顺序排序
+	 */
+	@SuppressWarnings("unchecked")
+	public synchronized void sort(Comparator<? super T> c) {
+		final int expectedModCount = modCount;
+		TimSort.sort((T[]) elementData, 0, elementCount, c);
+		if(modCount != expectedModCount) {
+			throw new ConcurrentModificationException();
+		}
+		modCount ++;
+	}
+	
 	protected synchronized void removeRange(int fromIndex, int toIndex) {
 		modCount ++;
 		int numMoved = elementCount - toIndex;
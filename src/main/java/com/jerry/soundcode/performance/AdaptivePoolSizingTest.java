@@ -0,0 +1,75 @@
+package com.jerry.soundcode.performance;
+
+import java.util.concurrent.TimeUnit;
+
+import com.jerry.soundcode.concurrent.atomic.AtomicLong;
+import com.jerry.soundcode.concurrent.collection.LinkedBlockingQueue;
+import com.jerry.soundcode.thread.PoolSizeDecision;
+import com.jerry.soundcode.thread.Runnable;
+import com.jerry.soundcode.thread.ThreadPoolExecutor;
+
+/**
+ * ThreadPoolExecutor 自动调整线程数测试：
+ * 按 低负载 -> 高负载 -> 空闲 三个阶段以固定速率提交会阻塞一段时间的任务（模拟 IO），
+ * 比较固定 1 个线程、固定 32 个线程和自动调整（1 ~ 32）的任务平均等待时间和线程数。
+ */
+public class AdaptivePoolSizingTest {
+
+	private static final long TASK_MILLIS = 5;
+
+	/** 每个阶段的每秒提交任务数，0 表示空闲 */
+	private static final int[] RATES = { 100, 2000, 0 };
+
+	private static final long PHASE_MILLIS = 3000;
+
+	public static void main(String[] args) throws InterruptedException {
+		test("fixed-1", new ThreadPoolExecutor(1, 1, 1L, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>()), false);
+		test("fixed-32", new ThreadPoolExecutor(32, 32, 1L, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>()), false);
+		test("adaptive", new ThreadPoolExecutor(1, 1, 1L, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>()), true);
+	}
+
+	private static void test(String name, ThreadPoolExecutor executor, boolean adaptive) throws InterruptedException {
+		if (adaptive) {
+			executor.enableAutoTuning(1, 32, 100, TimeUnit.MILLISECONDS);
+		}
+		System.out.println("-------------------------");
+		for (int rate : RATES) {
+			final AtomicLong waitNanos = new AtomicLong();
+			final AtomicLong done = new AtomicLong();
+			long submitted = 0;
+			long start = System.nanoTime();
+			long end = start + TimeUnit.MILLISECONDS.toNanos(PHASE_MILLIS);
+			long now;
+			while ((now = System.nanoTime()) < end) {
+				if (rate > 0 && submitted < (now - start) * rate / 1000000000L) {
+					final long enqueued = now;
+					executor.execute(new Runnable() {
+						public void run() {
+							waitNanos.addAndGet(System.nanoTime() - enqueued);
+							try {
+								Thread.sleep(TASK_MILLIS);
+							} catch (InterruptedException e) {
+							}
+							done.incrementAndGet();
+						}
+					});
+					submitted++;
+				} else {
+					Thread.sleep(1);
+				}
+			}
+			long n = Math.max(done.get(), 1);
+			System.out.println(name + ": rate " + rate + "/s, submitted " + submitted + ", completed " + done.get()
+					+ ", queue " + executor.getQueue().size()
+					+ ", avg wait " + waitNanos.get() / n / 1000 + "us"
+					+ ", core " + executor.getCorePoolSize() + ", threads " + executor.getPoolSize());
+			PoolSizeDecision d = executor.getLastPoolSizeDecision();
+			if (d != null) {
+				System.out.println("    " + d + ", increases " + executor.getPoolSizeIncreaseCount()
+						+ ", decreases " + executor.getPoolSizeDecreaseCount());
+			}
+		}
+		executor.shutdownNow();
+		executor.awaitTermination(5, TimeUnit.SECONDS);
+	}
+}
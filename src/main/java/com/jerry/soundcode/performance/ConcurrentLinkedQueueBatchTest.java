@@ -0,0 +1,130 @@
+package com.jerry.soundcode.performance;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.jerry.soundcode.concurrent.collection.ConcurrentLinkedQueue;
+import com.jerry.soundcode.concurrent.collection.MessageQueue;
+
+/**
+ * ConcurrentLinkedQueue 批量操作测试：
+ * 先在同一个线程里交替入队、出队，测量没有线程调度干扰时每个元素的开销；
+ * 再把生产者线程数从 1 增加到 8，对应同样个数的消费者线程，
+ * 比较逐个 offer/poll 和 offerAll/pollBatch（批大小 100、1000）时每个元素的平均耗时。
+ */
+public class ConcurrentLinkedQueueBatchTest {
+
+	private static final int ELEMENTS = 1 << 21;
+
+	private static final int[] THREADS = { 1, 2, 4, 8 };
+
+	private static final int[] BATCH = { 1, 100, 1000 };
+
+	public static void main(String[] args) throws InterruptedException {
+		for (int round = 0; round < 3; round++) {
+			System.out.println("-------------------------");
+			System.out.println("round:" + round + "; single thread");
+			for (int batch : BATCH) {
+				testSingleThread(batch);
+			}
+			for (int threads : THREADS) {
+				System.out.println("round:" + round + "; producers:" + threads + "; consumers:" + threads);
+				for (int batch : BATCH) {
+					test(threads, batch);
+				}
+			}
+		}
+	}
+
+	private static void testSingleThread(int batch) {
+		final ConcurrentLinkedQueue<Integer> queue = new ConcurrentLinkedQueue<Integer>();
+		final Integer item = Integer.valueOf(1);
+		final List<Integer> chunk = new ArrayList<Integer>(batch);
+		for (int i = 0; i < batch; i++) {
+			chunk.add(item);
+		}
+		final int[] taken = new int[1];
+		MessageQueue.Consumer<Integer> consumer = new MessageQueue.Consumer<Integer>() {
+			public void accept(Integer e) {
+				taken[0]++;
+			}
+		};
+
+		long start = System.nanoTime();
+		for (int k = 0; k < ELEMENTS; k += batch) {
+			if (batch == 1) {
+				queue.offer(item);
+				if (queue.poll() != null) {
+					taken[0]++;
+				}
+			} else {
+				queue.offerAll(chunk);
+				queue.pollBatch(batch, consumer);
+			}
+		}
+		long total = System.nanoTime() - start;
+
+		System.out.println((batch == 1 ? "offer/poll" : "offerAll/pollBatch(" + batch + ")") + ": "
+				+ (total / 1000000) + "ms, " + (total / taken[0]) + " ns/element");
+	}
+
+	private static void test(final int threads, final int batch) throws InterruptedException {
+		final ConcurrentLinkedQueue<Integer> queue = new ConcurrentLinkedQueue<Integer>();
+		final int perThread = ELEMENTS / threads;
+		final Integer item = Integer.valueOf(1);
+
+		final List<Integer> chunk = new ArrayList<Integer>(batch);
+		for (int i = 0; i < batch; i++) {
+			chunk.add(item);
+		}
+
+		Thread[] workers = new Thread[threads * 2];
+		for (int t = 0; t < threads; t++) {
+			workers[t] = new Thread() {
+				public void run() {
+					if (batch == 1) {
+						for (int k = 0; k < perThread; k++) {
+							queue.offer(item);
+						}
+					} else {
+						for (int k = 0; k < perThread; k += batch) {
+							queue.offerAll(chunk);
+						}
+					}
+				}
+			};
+			workers[threads + t] = new Thread() {
+				public void run() {
+					final int[] taken = new int[1];
+					MessageQueue.Consumer<Integer> consumer = new MessageQueue.Consumer<Integer>() {
+						public void accept(Integer e) {
+							taken[0]++;
+						}
+					};
+					while (taken[0] < perThread) {
+						if (batch == 1) {
+							if (queue.poll() != null) {
+								taken[0]++;
+							}
+						} else {
+							queue.pollBatch(Math.min(batch, perThread - taken[0]), consumer);
+						}
+					}
+				}
+			};
+		}
+
+		long start = System.nanoTime();
+		for (Thread t : workers) {
+			t.start();
+		}
+		for (Thread t : workers) {
+			t.join();
+		}
+		long total = System.nanoTime() - start;
+
+		long ops = (long) perThread * threads;
+		System.out.println((batch == 1 ? "offer/poll" : "offerAll/pollBatch(" + batch + ")") + ": "
+				+ (total / 1000000) + "ms, " + (total / ops) + " ns/element");
+	}
+}
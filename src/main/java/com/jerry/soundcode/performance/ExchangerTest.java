@@ -0,0 +1,71 @@
+package com.jerry.soundcode.performance;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import com.jerry.soundcode.thread.Exchanger;
+
+/**
+ * Exchanger 交换吞吐量测试：
+ * 线程数从 2 增加到 64，所有线程共用一个 Exchanger，每个线程手里拿着一个缓冲区不断和别的线程交换（双缓冲的用法），
+ * 每种线程数运行固定的时间，输出交换速率以及 Exchanger 的统计：使用的 Slot 个数、阻塞次数、平均等待时间。
+ */
+public class ExchangerTest {
+
+	private static final int[] THREADS = { 2, 4, 8, 16, 32, 64 };
+
+	private static final long DURATION_MILLIS = 2000;
+
+	public static void main(String[] args) throws InterruptedException {
+		for (int round = 0; round < 3; round++) {
+			System.out.println("-------------------------");
+			for (int threads : THREADS) {
+				System.out.println("round:" + round + "; threads:" + threads);
+				test(threads);
+			}
+		}
+	}
+
+	private static void test(int threads) throws InterruptedException {
+		final Exchanger<long[]> exchanger = new Exchanger<long[]>();
+		final long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(DURATION_MILLIS);
+
+		Thread[] workers = new Thread[threads];
+		for (int t = 0; t < threads; t++) {
+			workers[t] = new Thread() {
+				public void run() {
+					long[] buffer = new long[64];
+					try {
+						while (System.nanoTime() < deadline) {
+							buffer[0]++;
+							try {
+								buffer = exchanger.exchange(buffer, 10, TimeUnit.MILLISECONDS);
+							} catch (TimeoutException e) {
+								// 快结束时可能找不到交换的对象
+							}
+						}
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+					}
+				}
+			};
+		}
+
+		long start = System.nanoTime();
+		for (Thread t : workers) {
+			t.start();
+		}
+		for (Thread t : workers) {
+			t.join();
+		}
+		long total = System.nanoTime() - start;
+
+		long exchanges = exchanger.getExchangeCount();
+		System.out.println("exchanges: " + exchanges
+				+ ", " + (exchanges * 1000000L / Math.max(total, 1)) + " exchanges/ms"
+				+ ", arena: " + exchanger.getArenaSize()
+				+ ", parks: " + exchanger.getParkCount()
+				+ ", spinTimeouts: " + exchanger.getSpinTimeoutCount()
+				+ ", avgWait: " + exchanger.getAverageWaitNanos() + "ns");
+	}
+}
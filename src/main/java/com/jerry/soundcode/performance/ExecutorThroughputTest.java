@@ -0,0 +1,82 @@
+package com.jerry.soundcode.performance;
+
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import com.jerry.soundcode.concurrent.atomic.AtomicLong;
+import com.jerry.soundcode.concurrent.collection.LinkedBlockingQueue;
+import com.jerry.soundcode.thread.ExecutorService;
+import com.jerry.soundcode.thread.Runnable;
+import com.jerry.soundcode.thread.StripedThreadPoolExecutor;
+import com.jerry.soundcode.thread.ThreadPoolExecutor;
+
+/**
+ * 线程池提交吞吐量测试：
+ * 提交线程数从 1 增加到 64，每个提交线程提交固定个数的很小的任务，
+ * 比较共用一个 LinkedBlockingQueue 的 ThreadPoolExecutor 和每个线程一个队列的 StripedThreadPoolExecutor。
+ */
+public class ExecutorThroughputTest {
+
+	private static final int TASKS = 1 << 20;
+
+	private static final int[] SUBMITTERS = { 1, 4, 16, 64 };
+
+	public static void main(String[] args) throws InterruptedException {
+		int nThreads = Runtime.getRuntime().availableProcessors();
+		for (int round = 0; round < 3; round++) {
+			System.out.println("-------------------------");
+			for (int submitters : SUBMITTERS) {
+				System.out.println("round:" + round + "; submitters:" + submitters + "; threads:" + nThreads);
+				test("ThreadPoolExecutor", new ThreadPoolExecutor(nThreads, nThreads, 0L, TimeUnit.MILLISECONDS,
+						new LinkedBlockingQueue<Runnable>()), submitters);
+				test("StripedThreadPoolExecutor", new StripedThreadPoolExecutor(nThreads), submitters);
+			}
+		}
+	}
+
+	private static void test(String name, final ExecutorService executor, int submitters) throws InterruptedException {
+		final int perThread = TASKS / submitters;
+		final AtomicLong done = new AtomicLong();
+		final Runnable task = new Runnable() {
+			public void run() {
+				done.incrementAndGet();
+			}
+		};
+
+		Thread[] threads = new Thread[submitters];
+		for (int i = 0; i < submitters; i++) {
+			threads[i] = new Thread() {
+				public void run() {
+					for (int k = 0; k < perThread; k++) {
+						for (;;) {
+							try {
+								executor.execute(task);
+								break;
+							} catch (RejectedExecutionException e) {
+								// 队列满了，稍后重试
+								Thread.yield();
+							}
+						}
+					}
+				}
+			};
+		}
+
+		long start = System.nanoTime();
+		for (Thread t : threads) {
+			t.start();
+		}
+		for (Thread t : threads) {
+			t.join();
+		}
+		long ops = (long) perThread * submitters;
+		while (done.get() < ops) {
+			Thread.sleep(1);
+		}
+		long total = System.nanoTime() - start;
+		executor.shutdown();
+
+		System.out.println(name + ": " + (total / 1000000) + "ms, "
+				+ (ops * 1000000L / Math.max(total, 1)) + " tasks/ms, completed " + done.get());
+	}
+}
@@ -0,0 +1,113 @@
+package com.jerry.soundcode.performance;
+
+import com.jerry.soundcode.thread.ForkJoinPool;
+import com.jerry.soundcode.thread.RecursiveAction;
+import com.jerry.soundcode.thread.RecursiveTask;
+
+/**
+ * ForkJoinPool 分治计算测试：
+ * 递归计算斐波那契数（大量很小的任务，考验 fork/join 本身的开销）和大数组求平方和（按阈值二分），
+ * 并行度从 1 增加到 8，和单线程串行计算比较耗时，同时输出窃取次数。
+ */
+public class ForkJoinPoolTest {
+
+	private static final int FIB_N = 32;
+
+	private static final int FIB_THRESHOLD = 16;
+
+	private static final int ARRAY_SIZE = 1 << 24;
+
+	private static final int SUM_THRESHOLD = 1 << 13;
+
+	private static final int[] PARALLELISM = { 1, 2, 4, 8 };
+
+	static final class Fib extends RecursiveTask<Long> {
+		final int n;
+
+		Fib(int n) {
+			this.n = n;
+		}
+
+		protected Long compute() {
+			if (n <= FIB_THRESHOLD) {
+				return fib(n);
+			}
+			Fib f1 = new Fib(n - 1);
+			f1.fork();
+			return new Fib(n - 2).compute() + f1.join();
+		}
+	}
+
+	static final class SquareSum extends RecursiveAction {
+		final double[] a;
+		final int lo;
+		final int hi;
+		double result;
+
+		SquareSum(double[] a, int lo, int hi) {
+			this.a = a;
+			this.lo = lo;
+			this.hi = hi;
+		}
+
+		protected void compute() {
+			if (hi - lo <= SUM_THRESHOLD) {
+				result = squareSum(a, lo, hi);
+				return;
+			}
+			int mid = (lo + hi) >>> 1;
+			SquareSum left = new SquareSum(a, lo, mid);
+			SquareSum right = new SquareSum(a, mid, hi);
+			invokeAll(left, right);
+			result = left.result + right.result;
+		}
+	}
+
+	static long fib(int n) {
+		return n < 2 ? n : fib(n - 1) + fib(n - 2);
+	}
+
+	static double squareSum(double[] a, int lo, int hi) {
+		double sum = 0;
+		for (int i = lo; i < hi; i++) {
+			sum += a[i] * a[i];
+		}
+		return sum;
+	}
+
+	public static void main(String[] args) {
+		double[] a = new double[ARRAY_SIZE];
+		for (int i = 0; i < a.length; i++) {
+			a[i] = i % 1000;
+		}
+
+		for (int round = 0; round < 3; round++) {
+			System.out.println("-------------------------");
+			long start = System.nanoTime();
+			long f = fib(FIB_N);
+			System.out.println("round:" + round + "; sequential fib: " + (System.nanoTime() - start) / 1000000 + "ms, " + f);
+			start = System.nanoTime();
+			double s = squareSum(a, 0, a.length);
+			System.out.println("round:" + round + "; sequential sum: " + (System.nanoTime() - start) / 1000000 + "ms, " + s);
+
+			for (int parallelism : PARALLELISM) {
+				ForkJoinPool pool = new ForkJoinPool(parallelism);
+
+				start = System.nanoTime();
+				f = pool.invoke(new Fib(FIB_N));
+				long fibTime = System.nanoTime() - start;
+
+				SquareSum task = new SquareSum(a, 0, a.length);
+				start = System.nanoTime();
+				pool.invoke(task);
+				long sumTime = System.nanoTime() - start;
+
+				System.out.println("round:" + round + "; parallelism:" + parallelism
+						+ "; fib: " + fibTime / 1000000 + "ms, " + f
+						+ "; sum: " + sumTime / 1000000 + "ms, " + task.result
+						+ "; steals: " + pool.getStealCount());
+				pool.shutdown();
+			}
+		}
+	}
+}
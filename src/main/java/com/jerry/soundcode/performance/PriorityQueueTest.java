@@ -0,0 +1,78 @@
+package com.jerry.soundcode.performance;
+
+import java.util.Random;
+
+import com.jerry.soundcode.concurrent.collection.BlockingQueue;
+import com.jerry.soundcode.concurrent.collection.MultiPriorityBlockingQueue;
+import com.jerry.soundcode.concurrent.collection.PriorityBlockingQueue;
+import com.jerry.soundcode.list.Comparator;
+
+/**
+ * 并发优先级队列吞吐量测试：
+ * 32 个线程各自按给定的比例随机执行 offer 和 poll，队列中预先放入一批元素，
+ * 比较 PriorityBlockingQueue（单锁二叉堆）和 MultiPriorityBlockingQueue（多个堆，出队顺序放宽）。
+ */
+public class PriorityQueueTest {
+
+	private static final int THREADS = 32;
+
+	private static final int OPS_PER_THREAD = 200000;
+
+	private static final int PREFILL = 10000;
+
+	private static final Comparator<Long> ORDER = new Comparator<Long>() {
+		public int compare(Long a, Long b) {
+			return a.compareTo(b);
+		}
+	};
+
+	public static void main(String[] args) throws InterruptedException {
+		int[] insertPercents = { 50, 80, 20 };
+		for (int round = 0; round < 3; round++) {
+			System.out.println("-------------------------");
+			for (int percent : insertPercents) {
+				System.out.println("round:" + round + "; threads:" + THREADS + "; insert:" + percent + "%");
+				test("PriorityBlockingQueue", new PriorityBlockingQueue<Long>(PREFILL, ORDER), percent);
+				test("MultiPriorityBlockingQueue", new MultiPriorityBlockingQueue<Long>(2 * Runtime.getRuntime().availableProcessors(), ORDER), percent);
+				test("MultiPriorityBlockingQueue(1)", new MultiPriorityBlockingQueue<Long>(1, ORDER), percent);
+			}
+		}
+	}
+
+	private static void test(String name, final BlockingQueue<Long> queue, final int insertPercent) throws InterruptedException {
+		Random random = new Random(42);
+		for (int i = 0; i < PREFILL; i++) {
+			queue.offer(random.nextLong());
+		}
+
+		Thread[] threads = new Thread[THREADS];
+		for (int t = 0; t < THREADS; t++) {
+			final long seed = t;
+			threads[t] = new Thread() {
+				public void run() {
+					Random r = new Random(seed);
+					for (int i = 0; i < OPS_PER_THREAD; i++) {
+						if (r.nextInt(100) < insertPercent) {
+							queue.offer(r.nextLong());
+						} else {
+							queue.poll();
+						}
+					}
+				}
+			};
+		}
+
+		long start = System.nanoTime();
+		for (Thread t : threads) {
+			t.start();
+		}
+		for (Thread t : threads) {
+			t.join();
+		}
+		long total = System.nanoTime() - start;
+
+		long ops = (long) THREADS * OPS_PER_THREAD;
+		System.out.println(name + ": " + (total / 1000000) + "ms, "
+				+ (ops * 1000000L / Math.max(total, 1)) + " ops/ms, size = " + queue.size());
+	}
+}
@@ -0,0 +1,156 @@
+package com.jerry.soundcode.performance;
+
+import com.jerry.soundcode.concurrent.collection.ArrayBlockingQueue;
+import com.jerry.soundcode.concurrent.collection.ConcurrentLinkedQueue;
+import com.jerry.soundcode.concurrent.collection.LinkedBlockingQueue;
+import com.jerry.soundcode.concurrent.collection.MessageQueue;
+import com.jerry.soundcode.concurrent.collection.MpmcArrayBlockingQueue;
+import com.jerry.soundcode.concurrent.collection.MpscArrayQueue;
+import com.jerry.soundcode.concurrent.collection.SpscArrayQueue;
+import com.jerry.soundcode.list.Arrays;
+import com.jerry.soundcode.list.Queue;
+
+/**
+ * 队列延迟分布测试：
+ * 生产者把发送时的 System.nanoTime() 放入队列，单个消费者取出后记录从入队到出队的耗时，
+ * 输出各个百分位的延迟。生产者每发一条消息停顿一小段时间，测的是非饱和状态下的传递延迟而不是吞吐量。
+ * 所有队列都只使用非阻塞的 offer/poll，失败时自旋重试。
+ * MpscArrayQueue 另外测一遍批量的 fill/drain：生产者每次最多放入 BURST 条，发完时 supplier 返回 null 提前结束
+ */
+public class QueueLatencyTest {
+
+	private static final int MESSAGES = 200000;
+
+	private static final int CAPACITY = 1024;
+
+	/** 两次发送之间的停顿 */
+	private static final long PAUSE_NANOS = 1000;
+
+	/** fill 一次最多放入的消息数 */
+	private static final int BURST = 8;
+
+	public static void main(String[] args) throws InterruptedException {
+		for (int round = 0; round < 3; round++) {
+			System.out.println("-------------------------");
+			System.out.println("round:" + round + "; producers:1");
+			test("SpscArrayQueue", new SpscArrayQueue<Long>(CAPACITY), 1);
+			test("MpscArrayQueue", new MpscArrayQueue<Long>(CAPACITY), 1);
+			testBatch("MpscArrayQueue fill/drain", new MpscArrayQueue<Long>(CAPACITY), 1);
+			test("MpmcArrayBlockingQueue", new MpmcArrayBlockingQueue<Long>(CAPACITY), 1);
+			test("ArrayBlockingQueue", new ArrayBlockingQueue<Long>(CAPACITY), 1);
+			test("LinkedBlockingQueue", new LinkedBlockingQueue<Long>(CAPACITY), 1);
+			test("ConcurrentLinkedQueue", new ConcurrentLinkedQueue<Long>(), 1);
+
+			System.out.println("round:" + round + "; producers:4");
+			test("MpscArrayQueue", new MpscArrayQueue<Long>(CAPACITY), 4);
+			testBatch("MpscArrayQueue fill/drain", new MpscArrayQueue<Long>(CAPACITY), 4);
+			test("MpmcArrayBlockingQueue", new MpmcArrayBlockingQueue<Long>(CAPACITY), 4);
+			test("ArrayBlockingQueue", new ArrayBlockingQueue<Long>(CAPACITY), 4);
+			test("LinkedBlockingQueue", new LinkedBlockingQueue<Long>(CAPACITY), 4);
+			test("ConcurrentLinkedQueue", new ConcurrentLinkedQueue<Long>(), 4);
+		}
+	}
+
+	private static void test(String name, final Queue<Long> queue, int producers) throws InterruptedException {
+		final int perProducer = MESSAGES / producers;
+		final long[] latencies = new long[perProducer * producers];
+
+		Thread consumer = new Thread() {
+			public void run() {
+				for (int i = 0; i < latencies.length; ) {
+					Long sent = queue.poll();
+					if (sent != null) {
+						latencies[i++] = System.nanoTime() - sent.longValue();
+					}
+				}
+			}
+		};
+
+		Thread[] threads = new Thread[producers];
+		for (int p = 0; p < producers; p++) {
+			threads[p] = new Thread() {
+				public void run() {
+					for (int i = 0; i < perProducer; i++) {
+						while (!queue.offer(System.nanoTime())) ;
+						long until = System.nanoTime() + PAUSE_NANOS;
+						while (System.nanoTime() < until) ;
+					}
+				}
+			};
+		}
+
+		run(name, consumer, threads, latencies);
+	}
+
+	private static void testBatch(String name, final MpscArrayQueue<Long> queue, int producers) throws InterruptedException {
+		final int perProducer = MESSAGES / producers;
+		final long[] latencies = new long[perProducer * producers];
+
+		Thread consumer = new Thread() {
+			public void run() {
+				final int[] received = new int[1];
+				final long[] now = new long[1];
+				MessageQueue.Consumer<Long> sink = new MessageQueue.Consumer<Long>() {
+					public void accept(Long sent) {
+						latencies[received[0]++] = now[0] - sent.longValue();
+					}
+				};
+				while (received[0] < latencies.length) {
+					now[0] = System.nanoTime();
+					queue.drain(sink, CAPACITY);
+				}
+			}
+		};
+
+		Thread[] threads = new Thread[producers];
+		for (int p = 0; p < producers; p++) {
+			threads[p] = new Thread() {
+				public void run() {
+					final int[] remaining = { perProducer };
+					MessageQueue.Supplier<Long> source = new MessageQueue.Supplier<Long>() {
+						public Long get() {
+							if (remaining[0] == 0) {
+								return null;
+							}
+							remaining[0]--;
+							return System.nanoTime();
+						}
+					};
+					while (remaining[0] > 0) {
+						queue.fill(source, BURST);
+						long until = System.nanoTime() + PAUSE_NANOS * BURST;
+						while (System.nanoTime() < until) ;
+					}
+				}
+			};
+		}
+
+		run(name, consumer, threads, latencies);
+	}
+
+	private static void run(String name, Thread consumer, Thread[] threads, long[] latencies) throws InterruptedException {
+		long start = System.nanoTime();
+		consumer.start();
+		for (Thread t : threads) {
+			t.start();
+		}
+		for (Thread t : threads) {
+			t.join();
+		}
+		consumer.join();
+		long total = System.nanoTime() - start;
+
+		Arrays.sort(latencies);
+		System.out.println(name + ": p50 = " + percentile(latencies, 0.50)
+				+ "ns, p90 = " + percentile(latencies, 0.90)
+				+ "ns, p99 = " + percentile(latencies, 0.99)
+				+ "ns, p99.9 = " + percentile(latencies, 0.999)
+				+ "ns, max = " + latencies[latencies.length - 1]
+				+ "ns, total = " + (total / 1000000) + "ms");
+	}
+
+	private static long percentile(long[] sorted, double p) {
+		int index = (int) Math.ceil(p * sorted.length) - 1;
+		return sorted[Math.max(0, Math.min(index, sorted.length - 1))];
+	}
+}
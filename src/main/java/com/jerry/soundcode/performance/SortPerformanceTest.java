@@ -0,0 +1,107 @@
+package com.jerry.soundcode.performance;
+
+import java.util.Random;
+
+import com.jerry.soundcode.list.Arrays;
+import com.jerry.soundcode.list.Comparator;
+
+/**
+ * 排序性能测试：
+ * 对随机、部分有序、降序、锯齿状等数据比较 TimSort 的耗时与比较次数，验证 run 识别在部分有序数据上的效果；
+ * 同时比较基本类型双轴快排和并行归并排序的耗时
+ */
+public class SortPerformanceTest {
+
+	private static final int SIZE = 1000000;
+
+	private static final int ROUND = 5;
+
+	/** 并行排序时使用不计数的比较器，避免多线程修改计数器 */
+	private static final Comparator<Integer> NATURAL = new Comparator<Integer>() {
+		public int compare(Integer o1, Integer o2) {
+			return o1.compareTo(o2);
+		}
+	};
+
+	public static void main(String[] args) {
+		String[] names = {"random", "sorted", "sorted+1%noise", "descending", "sawtooth(1000 runs)"};
+		for (int i = 0; i < names.length; i++) {
+			int[] data = generate(i, SIZE, new Random(47));
+			System.out.println("-------------------------");
+			System.out.println("data:" + names[i] + "; size:" + SIZE);
+			testObjectSort(data);
+			testPrimitiveSort(data);
+		}
+	}
+
+	private static int[] generate(int type, int n, Random r) {
+		int[] a = new int[n];
+		for (int i = 0; i < n; i++) {
+			switch (type) {
+				case 0: a[i] = r.nextInt(); break;
+				case 1: a[i] = i; break;
+				case 2: a[i] = r.nextInt(100) == 0 ? r.nextInt(n) : i; break;
+				case 3: a[i] = n - i; break;
+				default: a[i] = i % (n / 1000); break;
+			}
+		}
+		return a;
+	}
+
+	private static void testObjectSort(int[] data) {
+		final long[] comparisons = new long[1];
+		Comparator<Integer> c = new Comparator<Integer>() {
+			public int compare(Integer o1, Integer o2) {
+				comparisons[0]++;
+				return o1.compareTo(o2);
+			}
+		};
+
+		long total = 0;
+		for (int round = 0; round < ROUND; round++) {
+			Integer[] a = box(data);
+			comparisons[0] = 0;
+			long start = System.nanoTime();
+			Arrays.sort(a, c);
+			total += System.nanoTime() - start;
+		}
+		System.out.println("timsort = " + (total / ROUND / 1000000) + "ms, comparisons = " + comparisons[0]);
+
+		total = 0;
+		for (int round = 0; round < ROUND; round++) {
+			Integer[] a = box(data);
+			long start = System.nanoTime();
+			Arrays.parallelSort(a, NATURAL);
+			total += System.nanoTime() - start;
+		}
+		System.out.println("parallel merge sort (object) = " + (total / ROUND / 1000000) + "ms");
+	}
+
+	private static void testPrimitiveSort(int[] data) {
+		long total = 0;
+		for (int round = 0; round < ROUND; round++) {
+			int[] a = data.clone();
+			long start = System.nanoTime();
+			Arrays.sort(a);
+			total += System.nanoTime() - start;
+		}
+		System.out.println("dual-pivot quicksort = " + (total / ROUND / 1000000) + "ms");
+
+		total = 0;
+		for (int round = 0; round < ROUND; round++) {
+			int[] a = data.clone();
+			long start = System.nanoTime();
+			Arrays.parallelSort(a);
+			total += System.nanoTime() - start;
+		}
+		System.out.println("parallel merge sort (int) = " + (total / ROUND / 1000000) + "ms");
+	}
+
+	private static Integer[] box(int[] data) {
+		Integer[] a = new Integer[data.length];
+		for (int i = 0; i < data.length; i++) {
+			a[i] = data[i];
+		}
+		return a;
+	}
+}
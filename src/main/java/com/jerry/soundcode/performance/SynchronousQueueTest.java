@@ -0,0 +1,76 @@
+package com.jerry.soundcode.performance;
+
+import com.jerry.soundcode.concurrent.collection.SynchronousQueue;
+
+/**
+ * SynchronousQueue 交接吞吐量测试：
+ * 一半线程 put，一半线程 take，线程数从 2 增加到 64，
+ * 比较只用 TransferStack、前面加上消除数组，以及不同自旋次数下的吞吐量。
+ */
+public class SynchronousQueueTest {
+
+	private static final int HANDOFFS = 1 << 20;
+
+	private static final int[] THREADS = { 2, 4, 8, 16, 32, 64 };
+
+	private static final int[] ARENA_SPINS = { 64, 512, 2048 };
+
+	public static void main(String[] args) throws InterruptedException {
+		for (int round = 0; round < 3; round++) {
+			System.out.println("-------------------------");
+			for (int threads : THREADS) {
+				System.out.println("round:" + round + "; threads:" + threads);
+				test("TransferStack", new SynchronousQueue<Integer>(false, 0, 0), threads);
+				for (int spins : ARENA_SPINS) {
+					test("Arena(spins=" + spins + ")", new SynchronousQueue<Integer>(false, 32, spins), threads);
+				}
+				test("TransferQueue(fair)", new SynchronousQueue<Integer>(true), threads);
+			}
+		}
+	}
+
+	private static void test(String name, final SynchronousQueue<Integer> queue, int threads) throws InterruptedException {
+		final int pairs = threads / 2;
+		final int perThread = HANDOFFS / pairs;
+		final Integer item = Integer.valueOf(1);
+
+		Thread[] workers = new Thread[pairs * 2];
+		for (int i = 0; i < pairs; i++) {
+			workers[i] = new Thread() {
+				public void run() {
+					try {
+						for (int k = 0; k < perThread; k++) {
+							queue.put(item);
+						}
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+					}
+				}
+			};
+			workers[pairs + i] = new Thread() {
+				public void run() {
+					try {
+						for (int k = 0; k < perThread; k++) {
+							queue.take();
+						}
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+					}
+				}
+			};
+		}
+
+		long start = System.nanoTime();
+		for (Thread t : workers) {
+			t.start();
+		}
+		for (Thread t : workers) {
+			t.join();
+		}
+		long total = System.nanoTime() - start;
+
+		long ops = (long) pairs * perThread;
+		System.out.println(name + ": " + (total / 1000000) + "ms, "
+				+ (ops * 1000000L / Math.max(total, 1)) + " handoffs/ms");
+	}
+}
@@ -0,0 +1,123 @@
+package com.jerry.soundcode.performance;
+
+import java.util.concurrent.TimeUnit;
+
+import com.jerry.soundcode.concurrent.atomic.AtomicLong;
+import com.jerry.soundcode.concurrent.atomic.LongAdder;
+import com.jerry.soundcode.concurrent.collection.LinkedBlockingQueue;
+import com.jerry.soundcode.thread.Runnable;
+import com.jerry.soundcode.thread.ThreadPoolExecutor;
+import com.jerry.soundcode.thread.ThreadPoolMetrics;
+
+/**
+ * ThreadPoolExecutor 运行统计的开销测试：
+ * 1. 多个线程同时累加 AtomicLong 和 LongAdder，比较每次累加的耗时；
+ * 2. 提交线程数从 1 增加到 16，比较开启和不开启统计时线程池执行很小的任务的吞吐量，并输出统计结果。
+ */
+public class ThreadPoolMetricsTest {
+
+	private static final int COUNTS = 1 << 22;
+
+	private static final int TASKS = 1 << 19;
+
+	private static final int[] THREADS = { 1, 4, 16 };
+
+	public static void main(String[] args) throws InterruptedException {
+		int nThreads = Runtime.getRuntime().availableProcessors();
+		for (int round = 0; round < 3; round++) {
+			System.out.println("-------------------------");
+			for (int threads : THREADS) {
+				testCounter(round, threads);
+			}
+			for (int submitters : THREADS) {
+				System.out.println("round:" + round + "; submitters:" + submitters + "; threads:" + nThreads);
+				testPool(submitters, nThreads, false);
+				testPool(submitters, nThreads, true);
+			}
+		}
+	}
+
+	private static void testCounter(int round, int threads) throws InterruptedException {
+		final int perThread = COUNTS / threads;
+		final AtomicLong atomic = new AtomicLong();
+		final LongAdder adder = new LongAdder();
+
+		Thread[] ts = new Thread[threads];
+		for (int i = 0; i < threads; i++) {
+			ts[i] = new Thread() {
+				public void run() {
+					for (int k = 0; k < perThread; k++) {
+						atomic.incrementAndGet();
+					}
+				}
+			};
+		}
+		long atomicTime = run(ts);
+
+		for (int i = 0; i < threads; i++) {
+			ts[i] = new Thread() {
+				public void run() {
+					for (int k = 0; k < perThread; k++) {
+						adder.increment();
+					}
+				}
+			};
+		}
+		long adderTime = run(ts);
+
+		long ops = (long) perThread * threads;
+		System.out.println("round:" + round + "; threads:" + threads
+				+ "; AtomicLong: " + atomicTime / ops + "ns/op, " + atomic.get()
+				+ "; LongAdder: " + adderTime / ops + "ns/op, " + adder.sum());
+	}
+
+	private static long run(Thread[] ts) throws InterruptedException {
+		long start = System.nanoTime();
+		for (Thread t : ts) {
+			t.start();
+		}
+		for (Thread t : ts) {
+			t.join();
+		}
+		return System.nanoTime() - start;
+	}
+
+	private static void testPool(int submitters, int nThreads, boolean metrics) throws InterruptedException {
+		final ThreadPoolExecutor executor = new ThreadPoolExecutor(nThreads, nThreads, 0L, TimeUnit.MILLISECONDS,
+				new LinkedBlockingQueue<Runnable>());
+		ThreadPoolMetrics m = metrics ? executor.enableMetrics() : null;
+		final int perThread = TASKS / submitters;
+		final AtomicLong done = new AtomicLong();
+		final Runnable task = new Runnable() {
+			public void run() {
+				done.incrementAndGet();
+			}
+		};
+
+		Thread[] ts = new Thread[submitters];
+		for (int i = 0; i < submitters; i++) {
+			ts[i] = new Thread() {
+				public void run() {
+					for (int k = 0; k < perThread; k++) {
+						executor.execute(task);
+					}
+				}
+			};
+		}
+		long start = System.nanoTime();
+		run(ts);
+		long ops = (long) perThread * submitters;
+		while (done.get() < ops) {
+			Thread.sleep(1);
+		}
+		long total = System.nanoTime() - start;
+		executor.shutdown();
+		executor.awaitTermination(5, TimeUnit.SECONDS);
+
+		System.out.println((metrics ? "metrics on: " : "metrics off: ") + (total / 1000000) + "ms, "
+				+ (ops * 1000000L / Math.max(total, 1)) + " tasks/ms");
+		if (m != null) {
+			System.out.println("    " + m);
+		}
+	}
+}
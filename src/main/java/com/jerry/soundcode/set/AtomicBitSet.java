@@ -0,0 +1,265 @@
+package com.jerry.soundcode.set;
+
+import java.io.Serializable;
+
+import com.jerry.soundcode.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 线程安全的定长位集合，所有操作都是无锁的。
+ * 每 64 位保存在 AtomicLongArray 的一个 long 中，单个位的修改通过对所在 long 做 CAS 完成，
+ * 不同线程修改不同的 long 时互不影响，适合作为多个工作线程共享的槽位占用表。
+ *
+ * 与 {@link BitSet} 不同，容量在构造时确定，不会自动扩展。
+ */
+public class AtomicBitSet implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	private final static int ADDRESS_BITS_PER_WORD = 6;
+	private final static int BITS_PER_WORD = 1 << ADDRESS_BITS_PER_WORD;
+
+	private static final long WORD_MASK = 0xffffffffffffffffL;
+
+	private final AtomicLongArray words;
+
+	/** 位的个数 */
+	private final int nbits;
+
+	public AtomicBitSet(int nbits) {
+		if (nbits < 0) {
+			throw new NegativeArraySizeException("nbits < 0: " + nbits);
+		}
+		this.nbits = nbits;
+		this.words = new AtomicLongArray(wordIndex(nbits - 1) + 1);
+	}
+
+	private static int wordIndex(int bitIndex) {
+		return bitIndex >> ADDRESS_BITS_PER_WORD;
+	}
+
+	private void checkIndex(int bitIndex) {
+		if (bitIndex < 0 || bitIndex >= nbits) {
+			throw new IndexOutOfBoundsException("bitIndex: " + bitIndex + ", size: " + nbits);
+		}
+	}
+
+	/**
+	 * 最后一个 long 中超出 nbits 的位不能被分配
+	 */
+	private long validMask(int u) {
+		int remaining = nbits - u * BITS_PER_WORD;
+		return remaining >= BITS_PER_WORD ? WORD_MASK : WORD_MASK >>> -remaining;
+	}
+
+	public boolean get(int bitIndex) {
+		checkIndex(bitIndex);
+		return (words.get(wordIndex(bitIndex)) & (1L << bitIndex)) != 0;
+	}
+
+	public void set(int bitIndex) {
+		getAndSet(bitIndex, true);
+	}
+
+	public void clear(int bitIndex) {
+		getAndSet(bitIndex, false);
+	}
+
+	/**
+	 * 设置为 value 并返回原来的值
+	 */
+	public boolean getAndSet(int bitIndex, boolean value) {
+		checkIndex(bitIndex);
+
+		int u = wordIndex(bitIndex);
+		long mask = 1L << bitIndex;
+		while (true) {
+			long current = words.get(u);
+			boolean old = (current & mask) != 0;
+			if (old == value) {
+				return old;
+			}
+			long next = value ? (current | mask) : (current & ~mask);
+			if (words.compareAndSet(u, current, next)) {
+				return old;
+			}
+		}
+	}
+
+	/**
+	 * 当前值等于 expect 时设置为 update，成功返回 true。
+	 * compareAndSet(i, false, true) 可以用来抢占一个指定的槽位
+	 */
+	public boolean compareAndSet(int bitIndex, boolean expect, boolean update) {
+		checkIndex(bitIndex);
+
+		int u = wordIndex(bitIndex);
+		long mask = 1L << bitIndex;
+		while (true) {
+			long current = words.get(u);
+			if (((current & mask) != 0) != expect) {
+				return false;
+			}
+			if (expect == update) {
+				return true;
+			}
+			long next = update ? (current | mask) : (current & ~mask);
+			// 同一个 long 中其他位的变化会导致 CAS 失败，重新读取后重试
+			if (words.compareAndSet(u, current, next)) {
+				return true;
+			}
+		}
+	}
+
+	public int nextSetBit(int fromIndex) {
+		if (fromIndex < 0) {
+			throw new IndexOutOfBoundsException("fromIndex < 0: " + fromIndex);
+		}
+		if (fromIndex >= nbits) {
+			return -1;
+		}
+
+		int u = wordIndex(fromIndex);
+		long word = words.get(u) & (WORD_MASK << fromIndex);
+		int wordsInUse = words.length();
+		while (true) {
+			if (word != 0) {
+				return (u * BITS_PER_WORD) + Long.numberOfTrailingZeros(word);
+			}
+			if (++u == wordsInUse) {
+				return -1;
+			}
+			word = words.get(u);
+		}
+	}
+
+	/**
+	 * 返回不小于 fromIndex 的第一个空位，没有空位时返回 -1
+	 */
+	public int nextClearBit(int fromIndex) {
+		if (fromIndex < 0) {
+			throw new IndexOutOfBoundsException("fromIndex < 0: " + fromIndex);
+		}
+		if (fromIndex >= nbits) {
+			return -1;
+		}
+
+		int u = wordIndex(fromIndex);
+		long word = ~words.get(u) & (WORD_MASK << fromIndex) & validMask(u);
+		int wordsInUse = words.length();
+		while (true) {
+			if (word != 0) {
+				return (u * BITS_PER_WORD) + Long.numberOfTrailingZeros(word);
+			}
+			if (++u == wordsInUse) {
+				return -1;
+			}
+			word = ~words.get(u) & validMask(u);
+		}
+	}
+
+	/**
+	 * 从 fromIndex 开始查找第一个空位并原子地占用它，返回占用的位置，没有空位时返回 -1。
+	 * CAS 失败时只重新读取当前的 long，不会从头扫描
+	 */
+	public int nextClearBitAndSet(int fromIndex) {
+		if (fromIndex < 0) {
+			throw new IndexOutOfBoundsException("fromIndex < 0: " + fromIndex);
+		}
+		if (fromIndex >= nbits) {
+			return -1;
+		}
+		return claim(wordIndex(fromIndex), words.length(), WORD_MASK << fromIndex);
+	}
+
+	/**
+	 * 占用任意一个空位，没有空位时返回 -1。
+	 * 不同线程从不同的 long 开始查找并回绕，避免所有线程都在开头的几个 long 上竞争 CAS
+	 */
+	public int nextClearBitAndSet() {
+		int wordsInUse = words.length();
+		if (wordsInUse == 0) {
+			return -1;
+		}
+		int start = probe(wordsInUse);
+		int r = claim(start, wordsInUse, WORD_MASK);
+		if (r < 0 && start > 0) {
+			r = claim(0, start, WORD_MASK);
+		}
+		return r;
+	}
+
+	/**
+	 * 在 [u, end) 内占用第一个空位，firstMask 用于屏蔽第一个 long 中 fromIndex 之前的位
+	 */
+	private int claim(int u, int end, long firstMask) {
+		long mask = firstMask;
+		for (; u < end; u++) {
+			long valid = mask & validMask(u);
+			while (true) {
+				long current = words.get(u);
+				long free = ~current & valid;
+				if (free == 0) {
+					break;
+				}
+				long bit = free & -free;
+				if (words.compareAndSet(u, current, current | bit)) {
+					return (u * BITS_PER_WORD) + Long.numberOfTrailingZeros(bit);
+				}
+			}
+			mask = WORD_MASK;
+		}
+		return -1;
+	}
+
+	private static int probe(int wordsInUse) {
+		long id = Thread.currentThread().getId();
+		int h = (int) (id ^ (id >>> 32)) * 0x9E3779B9;
+		return (h >>> 1) % wordsInUse;
+	}
+
+	/**
+	 * 置位的个数。逐个读取 long，不加锁，并发修改时得到的是一个近似快照
+	 */
+	public int cardinality() {
+		int sum = 0;
+		for (int i = 0, n = words.length(); i < n; i++) {
+			sum += Long.bitCount(words.get(i));
+		}
+		return sum;
+	}
+
+	public boolean isEmpty() {
+		for (int i = 0, n = words.length(); i < n; i++) {
+			if (words.get(i) != 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	public void clear() {
+		for (int i = 0, n = words.length(); i < n; i++) {
+			words.set(i, 0);
+		}
+	}
+
+	public int size() {
+		return nbits;
+	}
+
+	/**
+	 * 拷贝当前内容到一个普通的 BitSet
+	 */
+	public BitSet toBitSet() {
+		long[] snapshot = new long[words.length()];
+		for (int i = 0; i < snapshot.length; i++) {
+			snapshot[i] = words.get(i);
+		}
+		return BitSet.valueOf(snapshot);
+	}
+
+	@Override
+	public String toString() {
+		return toBitSet().toString();
+	}
+}
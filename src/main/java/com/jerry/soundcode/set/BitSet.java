@@ -60,6 +60,29 @@ public class BitSet implements Cloneable, Serializable {
 		sizeIsSticky = true;
 	}
 	
+	private BitSet(long[] words) {
+		this.words = words;
+		this.wordsInUse = words.length;
+		checkInvariants();
+	}
+	
+	/**
+	 * 用 long 数组构造 BitSet，第 n 位对应 longs[n / 64] 的第 n % 64 位
+	 */
+	public static BitSet valueOf(long[] longs) {
+		int n;
+		for (n = longs.length; n > 0 && longs[n - 1] == 0; n--)
+			;
+		return new BitSet(Arrays.copyOf(longs, n));
+	}
+	
+	/**
+	 * 返回包含所有位的 long 数组，末尾的 0 会被去掉
+	 */
+	public long[] toLongArray() {
+		return Arrays.copyOf(words, wordsInUse);
+	}
+	
 	private void initWords(int nbits) {
 		words = new long[wordIndex(nbits - 1) + 1];
 	}
@@ -353,6 +376,177 @@ public class BitSet implements Cloneable, Serializable {
 		return sum;
 	}
 	
+	/**
+	 * [fromIndex, toIndex) 内置位的个数
+	 */
+	public int cardinality(int fromIndex, int toIndex) {
+		checkRange(fromIndex, toIndex);
+
+		int len = length();
+		if (toIndex > len)
+			toIndex = len;
+		if (fromIndex >= toIndex)
+			return 0;
+
+		final long[] words = this.words;
+		int startWordIndex = wordIndex(fromIndex);
+		int endWordIndex = wordIndex(toIndex - 1);
+		long firstWordMask = WORD_MASK << fromIndex;
+		long lastWordMask = WORD_MASK >>> -toIndex;
+		if (startWordIndex == endWordIndex)
+			return Long.bitCount(words[startWordIndex] & firstWordMask & lastWordMask);
+
+		int sum = Long.bitCount(words[startWordIndex] & firstWordMask);
+		for (int i = startWordIndex + 1; i < endWordIndex; i++)
+			sum += Long.bitCount(words[i]);
+		return sum + Long.bitCount(words[endWordIndex] & lastWordMask);
+	}
+	
+	/**
+	 * 小于 bitIndex 的置位个数
+	 */
+	public int rank(int bitIndex) {
+		if (bitIndex < 0)
+			throw new IndexOutOfBoundsException("bitIndex < 0: " + bitIndex);
+
+		return cardinality(0, bitIndex);
+	}
+	
+	/**
+	 * 第 n 个（从 0 开始）置位的索引，n 不小于 cardinality() 时返回 -1
+	 */
+	public int select(int n) {
+		if (n < 0)
+			throw new IndexOutOfBoundsException("n < 0: " + n);
+
+		final long[] words = this.words;
+		final int wordsInUse = this.wordsInUse;
+		for (int i = 0; i < wordsInUse; i++) {
+			long word = words[i];
+			int count = Long.bitCount(word);
+			if (n < count) {
+				for (; n > 0; n--)
+					word &= word - 1;
+				return i * BITS_PER_WORD + Long.numberOfTrailingZeros(word);
+			}
+			n -= count;
+		}
+		return -1;
+	}
+	
+	/**
+	 * 与 set 求交后的置位个数，不生成中间结果。
+	 * 以下几个方法的循环都是没有提前退出的计数循环，便于 JIT 展开和向量化
+	 */
+	public int andCardinality(BitSet set) {
+		final long[] a = this.words;
+		final long[] b = set.words;
+		final int n = Math.min(wordsInUse, set.wordsInUse);
+		int sum = 0;
+		for (int i = 0; i < n; i++)
+			sum += Long.bitCount(a[i] & b[i]);
+		return sum;
+	}
+	
+	public int orCardinality(BitSet set) {
+		final long[] a = this.words;
+		final long[] b = set.words;
+		final int n = Math.min(wordsInUse, set.wordsInUse);
+		int sum = 0;
+		for (int i = 0; i < n; i++)
+			sum += Long.bitCount(a[i] | b[i]);
+		for (int i = n; i < wordsInUse; i++)
+			sum += Long.bitCount(a[i]);
+		for (int i = n; i < set.wordsInUse; i++)
+			sum += Long.bitCount(b[i]);
+		return sum;
+	}
+	
+	public int xorCardinality(BitSet set) {
+		final long[] a = this.words;
+		final long[] b = set.words;
+		final int n = Math.min(wordsInUse, set.wordsInUse);
+		int sum = 0;
+		for (int i = 0; i < n; i++)
+			sum += Long.bitCount(a[i] ^ b[i]);
+		for (int i = n; i < wordsInUse; i++)
+			sum += Long.bitCount(a[i]);
+		for (int i = n; i < set.wordsInUse; i++)
+			sum += Long.bitCount(b[i]);
+		return sum;
+	}
+	
+	public int andNotCardinality(BitSet set) {
+		final long[] a = this.words;
+		final long[] b = set.words;
+		final int n = Math.min(wordsInUse, set.wordsInUse);
+		int sum = 0;
+		for (int i = 0; i < n; i++)
+			sum += Long.bitCount(a[i] & ~b[i]);
+		for (int i = n; i < wordsInUse; i++)
+			sum += Long.bitCount(a[i]);
+		return sum;
+	}
+	
+	/**
+	 * 把不小于 fromIndex 的置位索引依次写入 buffer，返回写入的个数。
+	 * 写满时停止，调用方可以从 buffer[n - 1] + 1 继续
+	 */
+	public int nextSetBits(int fromIndex, int[] buffer) {
+		if (fromIndex < 0)
+			throw new IndexOutOfBoundsException("fromIndex < 0: " + fromIndex);
+
+		int u = wordIndex(fromIndex);
+		if (u >= wordsInUse)
+			return 0;
+
+		final long[] words = this.words;
+		final int capacity = buffer.length;
+		long word = words[u] & (WORD_MASK << fromIndex);
+		int n = 0;
+		while (true) {
+			while (word != 0) {
+				if (n == capacity)
+					return n;
+				buffer[n++] = u * BITS_PER_WORD + Long.numberOfTrailingZeros(word);
+				word &= word - 1;
+			}
+			if (++u == wordsInUse)
+				return n;
+			word = words[u];
+		}
+	}
+	
+	/**
+	 * 与 nextSetBits 相同，但只输出同时在 set 中置位的索引，用于不分配临时 BitSet 的求交
+	 */
+	public int andNextSetBits(BitSet set, int fromIndex, int[] buffer) {
+		if (fromIndex < 0)
+			throw new IndexOutOfBoundsException("fromIndex < 0: " + fromIndex);
+
+		final int wordsInCommon = Math.min(wordsInUse, set.wordsInUse);
+		int u = wordIndex(fromIndex);
+		if (u >= wordsInCommon)
+			return 0;
+
+		final long[] a = this.words;
+		final long[] b = set.words;
+		final int capacity = buffer.length;
+		long word = a[u] & b[u] & (WORD_MASK << fromIndex);
+		int n = 0;
+		while (true) {
+			while (word != 0) {
+				if (n == capacity)
+					return n;
+				buffer[n++] = u * BITS_PER_WORD + Long.numberOfTrailingZeros(word);
+				word &= word - 1;
+			}
+			if (++u == wordsInCommon)
+				return n;
+			word = a[u] & b[u];
+		}
+	}
+	
 	public void and(BitSet set) {
 		if(this == set) 
 			return ;
@@ -0,0 +1,538 @@
+package com.jerry.soundcode.set;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.ConcurrentModificationException;
+import java.util.NoSuchElementException;
+
+/**
+ * 元素为 int 的开放寻址 HashSet，不装箱也不分配 Entry，每个元素只占一个 int 槽位。
+ * 0 用来表示空槽，集合中的 0 单独用 containsZero 记录。
+ * 删除和 OpenHashSet 一样前移同一探测链上的后续元素，不留墓碑。
+ *
+ * 迭代器直接返回基本类型，遍历过程中不产生任何对象。
+ */
+public class IntHashSet implements Cloneable, Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	private static final int DEFAULT_INITIAL_CAPACITY = 16;
+
+	private static final float DEFAULT_LOAD_FACTOR = 0.75f;
+
+	private static final int MAXIMUM_CAPACITY = 1 << 30;
+
+	private transient int[] table;
+
+	private transient boolean containsZero;
+
+	private transient int size;
+
+	private transient int threshold;
+
+	private final float loadFactor;
+
+	private transient int modCount;
+
+	public IntHashSet() {
+		this(DEFAULT_INITIAL_CAPACITY, DEFAULT_LOAD_FACTOR);
+	}
+
+	public IntHashSet(int initialCapacity) {
+		this(initialCapacity, DEFAULT_LOAD_FACTOR);
+	}
+
+	public IntHashSet(int initialCapacity, float loadFactor) {
+		if (initialCapacity < 0) {
+			throw new IllegalArgumentException("Illegal initial capacity: " + initialCapacity);
+		}
+		if (!(loadFactor > 0 && loadFactor < 1)) {
+			throw new IllegalArgumentException("Illegal load factor: " + loadFactor);
+		}
+		this.loadFactor = loadFactor;
+		init(capacity(initialCapacity, loadFactor));
+	}
+
+	public IntHashSet(int[] values) {
+		this(values.length, DEFAULT_LOAD_FACTOR);
+		addAll(values);
+	}
+
+	private void init(int capacity) {
+		table = new int[capacity];
+		threshold = (int) Math.min(capacity * loadFactor, capacity - 1);
+	}
+
+	private static int capacity(int expected, float loadFactor) {
+		long needed = (long) Math.ceil(expected / (double) loadFactor) + 1;
+		int capacity = 2;
+		while (capacity < needed && capacity < MAXIMUM_CAPACITY) {
+			capacity <<= 1;
+		}
+		return capacity;
+	}
+
+	private static int hash(int v, int length) {
+		int h = v * 0x9E3779B9;
+		return (h ^ (h >>> 16)) & (length - 1);
+	}
+
+	private static int nextKeyIndex(int i, int len) {
+		return (i + 1) & (len - 1);
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	public boolean contains(int v) {
+		if (v == 0) {
+			return containsZero;
+		}
+		int[] tab = table;
+		int len = tab.length;
+		int i = hash(v, len);
+		int item;
+		while ((item = tab[i]) != 0) {
+			if (item == v) {
+				return true;
+			}
+			i = nextKeyIndex(i, len);
+		}
+		return false;
+	}
+
+	public boolean add(int v) {
+		if (v == 0) {
+			if (containsZero) {
+				return false;
+			}
+			modCount++;
+			containsZero = true;
+			size++;
+			return true;
+		}
+
+		int[] tab = table;
+		int len = tab.length;
+		int i = hash(v, len);
+		int item;
+		while ((item = tab[i]) != 0) {
+			if (item == v) {
+				return false;
+			}
+			i = nextKeyIndex(i, len);
+		}
+
+		modCount++;
+		tab[i] = v;
+		if (++size > threshold) {
+			resize(len * 2);
+		}
+		return true;
+	}
+
+	/**
+	 * 批量添加，只在开始时按需要扩容一次
+	 */
+	public boolean addAll(int[] values) {
+		if (size + values.length > threshold) {
+			resize(capacity(size + values.length, loadFactor));
+		}
+		boolean modified = false;
+		for (int i = 0; i < values.length; i++) {
+			modified |= add(values[i]);
+		}
+		return modified;
+	}
+
+	public boolean addAll(IntHashSet set) {
+		if (size + set.size > threshold) {
+			resize(capacity(size + set.size, loadFactor));
+		}
+		boolean modified = false;
+		if (set.containsZero) {
+			modified |= add(0);
+		}
+		int[] tab = set.table;
+		for (int i = 0; i < tab.length; i++) {
+			if (tab[i] != 0) {
+				modified |= add(tab[i]);
+			}
+		}
+		return modified;
+	}
+
+	public boolean containsAll(int[] values) {
+		for (int i = 0; i < values.length; i++) {
+			if (!contains(values[i])) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private void resize(int newLength) {
+		int[] oldTable = table;
+		int oldLength = oldTable.length;
+		if (oldLength == MAXIMUM_CAPACITY) {
+			if (size >= MAXIMUM_CAPACITY - 1) {
+				throw new IllegalStateException("Capacity exhausted.");
+			}
+			threshold = MAXIMUM_CAPACITY - 1;
+			return;
+		}
+		if (oldLength >= newLength) {
+			return;
+		}
+
+		init(newLength);
+		rehash(oldTable, table);
+	}
+
+	private static void rehash(int[] oldTable, int[] newTable) {
+		int newLength = newTable.length;
+		for (int j = 0; j < oldTable.length; j++) {
+			int v = oldTable[j];
+			if (v != 0) {
+				int i = hash(v, newLength);
+				while (newTable[i] != 0) {
+					i = nextKeyIndex(i, newLength);
+				}
+				newTable[i] = v;
+			}
+		}
+	}
+
+	public boolean remove(int v) {
+		if (v == 0) {
+			if (!containsZero) {
+				return false;
+			}
+			modCount++;
+			containsZero = false;
+			size--;
+			return true;
+		}
+
+		int[] tab = table;
+		int len = tab.length;
+		int i = hash(v, len);
+		int item;
+		while ((item = tab[i]) != 0) {
+			if (item == v) {
+				modCount++;
+				size--;
+				tab[i] = 0;
+				closeDeletion(tab, i);
+				return true;
+			}
+			i = nextKeyIndex(i, len);
+		}
+		return false;
+	}
+
+	public boolean removeAll(int[] values) {
+		boolean modified = false;
+		for (int i = 0; i < values.length; i++) {
+			modified |= remove(values[i]);
+		}
+		return modified;
+	}
+
+	private static void closeDeletion(int[] tab, int d) {
+		int len = tab.length;
+		int item;
+		for (int i = nextKeyIndex(d, len); (item = tab[i]) != 0; i = nextKeyIndex(i, len)) {
+			int r = hash(item, len);
+			if ((i < r && (r <= d || d <= i)) || (r <= d && d <= i)) {
+				tab[d] = item;
+				tab[i] = 0;
+				d = i;
+			}
+		}
+	}
+
+	/**
+	 * 只保留同时在 set 中的元素
+	 */
+	public boolean retainAll(IntHashSet set) {
+		int[] tab = table;
+		int kept = 0;
+		for (int i = 0; i < tab.length; i++) {
+			int v = tab[i];
+			if (v != 0) {
+				if (set.contains(v)) {
+					kept++;
+				} else {
+					tab[i] = 0;
+				}
+			}
+		}
+		boolean zero = containsZero && set.containsZero;
+		return retained(kept, zero);
+	}
+
+	/**
+	 * 只保留在 bits 中置位的元素，负数都会被删除
+	 */
+	public boolean retainAll(BitSet bits) {
+		int[] tab = table;
+		int kept = 0;
+		for (int i = 0; i < tab.length; i++) {
+			int v = tab[i];
+			if (v != 0) {
+				if (v > 0 && bits.get(v)) {
+					kept++;
+				} else {
+					tab[i] = 0;
+				}
+			}
+		}
+		boolean zero = containsZero && bits.get(0);
+		return retained(kept, zero);
+	}
+
+	/**
+	 * retainAll 直接把删除的槽位清零，探测链因此可能断开，有删除时原地重新插入剩下的元素
+	 */
+	private boolean retained(int kept, boolean zero) {
+		int newSize = kept + (zero ? 1 : 0);
+		if (newSize == size) {
+			return false;
+		}
+		modCount++;
+		int[] tab = table;
+		int[] copy = tab.clone();
+		for (int i = 0; i < tab.length; i++) {
+			tab[i] = 0;
+		}
+		rehash(copy, tab);
+		containsZero = zero;
+		size = newSize;
+		return true;
+	}
+
+	public void clear() {
+		modCount++;
+		int[] tab = table;
+		for (int i = 0; i < tab.length; i++) {
+			tab[i] = 0;
+		}
+		containsZero = false;
+		size = 0;
+	}
+
+	public int[] toArray() {
+		int[] r = new int[size];
+		int j = 0;
+		if (containsZero) {
+			r[j++] = 0;
+		}
+		int[] tab = table;
+		for (int i = 0; i < tab.length; i++) {
+			if (tab[i] != 0) {
+				r[j++] = tab[i];
+			}
+		}
+		return r;
+	}
+
+	public IntIterator iterator() {
+		return new IntIterator();
+	}
+
+	/**
+	 * 基本类型的迭代器，先返回 0（如果有），再按槽位顺序返回其余元素
+	 */
+	public class IntIterator {
+		int index = -1;
+		int expectedModCount = modCount;
+		int lastReturnedIndex = -2;
+		boolean indexValid;
+		int[] traversalTable = table;
+
+		IntIterator() {
+			if (!containsZero) {
+				index = 0;
+			}
+		}
+
+		public boolean hasNext() {
+			if (index < 0) {
+				return true;
+			}
+			int[] tab = traversalTable;
+			for (int i = index; i < tab.length; i++) {
+				if (tab[i] != 0) {
+					index = i;
+					return indexValid = true;
+				}
+			}
+			index = tab.length;
+			return false;
+		}
+
+		public int next() {
+			if (modCount != expectedModCount) {
+				throw new ConcurrentModificationException();
+			}
+			if (index < 0) {
+				lastReturnedIndex = -1;
+				index = 0;
+				return 0;
+			}
+			if (!indexValid && !hasNext()) {
+				throw new NoSuchElementException();
+			}
+
+			indexValid = false;
+			lastReturnedIndex = index;
+			index++;
+			return traversalTable[lastReturnedIndex];
+		}
+
+		public void remove() {
+			if (lastReturnedIndex == -2) {
+				throw new IllegalStateException();
+			}
+			if (modCount != expectedModCount) {
+				throw new ConcurrentModificationException();
+			}
+			if (lastReturnedIndex == -1) {
+				IntHashSet.this.remove(0);
+				expectedModCount = modCount;
+				lastReturnedIndex = -2;
+				return;
+			}
+
+			expectedModCount = ++modCount;
+			int deletedSlot = lastReturnedIndex;
+			lastReturnedIndex = -2;
+			index = deletedSlot;
+			indexValid = false;
+
+			int[] tab = traversalTable;
+			int len = tab.length;
+
+			int d = deletedSlot;
+			int key = tab[d];
+			tab[d] = 0;
+
+			if (tab != IntHashSet.this.table) {
+				IntHashSet.this.remove(key);
+				expectedModCount = modCount;
+				return;
+			}
+			size--;
+
+			int item;
+			for (int i = nextKeyIndex(d, len); (item = tab[i]) != 0; i = nextKeyIndex(i, len)) {
+				int r = hash(item, len);
+				if ((i < r && (r <= d || d <= i)) || (r <= d && d <= i)) {
+					// 回绕到表头的已遍历元素被移到后面时，改为遍历剩余部分的拷贝，避免重复
+					if (i < deletedSlot && d >= deletedSlot && traversalTable == IntHashSet.this.table) {
+						int remaining = len - deletedSlot;
+						int[] newTable = new int[remaining];
+						System.arraycopy(tab, deletedSlot, newTable, 0, remaining);
+						traversalTable = newTable;
+						index = 0;
+					}
+
+					tab[d] = item;
+					tab[i] = 0;
+					d = i;
+				}
+			}
+		}
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		if (o == this) {
+			return true;
+		}
+		if (!(o instanceof IntHashSet)) {
+			return false;
+		}
+		IntHashSet s = (IntHashSet) o;
+		if (s.size != size || s.containsZero != containsZero) {
+			return false;
+		}
+		int[] tab = table;
+		for (int i = 0; i < tab.length; i++) {
+			if (tab[i] != 0 && !s.contains(tab[i])) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * 与元素相同的 Set&lt;Integer&gt; 的 hashCode 一致
+	 */
+	@Override
+	public int hashCode() {
+		int h = 0;
+		int[] tab = table;
+		for (int i = 0; i < tab.length; i++) {
+			h += tab[i];
+		}
+		return h;
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder();
+		sb.append('[');
+		for (IntIterator it = iterator(); it.hasNext(); ) {
+			sb.append(it.next());
+			if (it.hasNext()) {
+				sb.append(", ");
+			}
+		}
+		return sb.append(']').toString();
+	}
+
+	@Override
+	public Object clone() {
+		try {
+			IntHashSet newSet = (IntHashSet) super.clone();
+			newSet.table = table.clone();
+			newSet.modCount = 0;
+			return newSet;
+		} catch (CloneNotSupportedException e) {
+			throw new InternalError();
+		}
+	}
+
+	private void writeObject(ObjectOutputStream s) throws IOException {
+		s.defaultWriteObject();
+		s.writeInt(size);
+		if (containsZero) {
+			s.writeInt(0);
+		}
+		int[] tab = table;
+		for (int i = 0; i < tab.length; i++) {
+			if (tab[i] != 0) {
+				s.writeInt(tab[i]);
+			}
+		}
+	}
+
+	private void readObject(ObjectInputStream s) throws IOException, ClassNotFoundException {
+		s.defaultReadObject();
+
+		int n = s.readInt();
+		init(capacity(n, loadFactor));
+		for (int i = 0; i < n; i++) {
+			add(s.readInt());
+		}
+	}
+}
@@ -0,0 +1,375 @@
+package com.jerry.soundcode.set;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.ConcurrentModificationException;
+import java.util.NoSuchElementException;
+
+import com.jerry.soundcode.list.Collection;
+import com.jerry.soundcode.list.Iterator;
+
+/**
+ * 按插入顺序迭代的开放寻址 HashSet，用来代替基于 LinkedHashMap 的 LinkedHashSet。
+ * 元素按插入顺序紧密地放在 elements 数组中，另有一个 int[] 开放寻址索引表保存元素在 elements 中的位置（加 1，0 表示空槽），
+ * 每个元素只占一个引用和一个 int，不需要 Entry 以及前后指针。
+ *
+ * 删除时 elements 中留下空洞，扩容时一并压缩；索引表删除时和 OpenHashSet 一样前移后续元素，不留墓碑。允许 null 元素。
+ */
+public class LinkedOpenHashSet<T> extends AbstractSet<T>
+	implements Set<T>, Cloneable, Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	private static final int DEFAULT_INITIAL_CAPACITY = 16;
+
+	private static final float DEFAULT_LOAD_FACTOR = 0.75f;
+
+	private static final int MAXIMUM_CAPACITY = 1 << 30;
+
+	private static final Object NULL_KEY = new Object();
+
+	/** 按插入顺序保存的元素，被删除的位置为 null */
+	private transient Object[] elements;
+
+	/** 开放寻址索引表，保存 elements 的下标加 1 */
+	private transient int[] index;
+
+	/** elements 中已经使用的位置，包括空洞 */
+	private transient int used;
+
+	private transient int size;
+
+	private final float loadFactor;
+
+	private transient int modCount;
+
+	public LinkedOpenHashSet() {
+		this(DEFAULT_INITIAL_CAPACITY, DEFAULT_LOAD_FACTOR);
+	}
+
+	public LinkedOpenHashSet(int initialCapacity) {
+		this(initialCapacity, DEFAULT_LOAD_FACTOR);
+	}
+
+	public LinkedOpenHashSet(int initialCapacity, float loadFactor) {
+		if (initialCapacity < 0) {
+			throw new IllegalArgumentException("Illegal initial capacity: " + initialCapacity);
+		}
+		if (!(loadFactor > 0 && loadFactor < 1)) {
+			throw new IllegalArgumentException("Illegal load factor: " + loadFactor);
+		}
+		this.loadFactor = loadFactor;
+		init(initialCapacity);
+	}
+
+	public LinkedOpenHashSet(Collection<? extends T> c) {
+		this(c.size(), DEFAULT_LOAD_FACTOR);
+		addAll(c);
+	}
+
+	private void init(int capacity) {
+		capacity = Math.max(capacity, 1);
+		int length = 2;
+		long needed = (long) Math.ceil(capacity / (double) loadFactor) + 1;
+		while (length < needed && length < MAXIMUM_CAPACITY) {
+			length <<= 1;
+		}
+		// 索引表至少留一个空槽，elements 的长度就是最多能放的元素个数
+		elements = new Object[Math.min(capacity, length - 1)];
+		index = new int[length];
+		used = 0;
+	}
+
+	private static Object maskNull(Object o) {
+		return (o == null ? NULL_KEY : o);
+	}
+
+	private static Object unmaskNull(Object o) {
+		return (o == NULL_KEY ? null : o);
+	}
+
+	private static int hash(Object x, int length) {
+		int h = x.hashCode() * 0x9E3779B9;
+		return (h ^ (h >>> 16)) & (length - 1);
+	}
+
+	private static int nextKeyIndex(int i, int len) {
+		return (i + 1) & (len - 1);
+	}
+
+	private static boolean eq(Object k, Object item) {
+		return item == k || (k != NULL_KEY && k.equals(item));
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * 返回元素在 elements 中的位置，不存在时返回 -1
+	 */
+	private int indexOf(Object k) {
+		Object[] elems = elements;
+		int[] idx = index;
+		int len = idx.length;
+		int i = hash(k, len);
+		int p;
+		while ((p = idx[i]) != 0) {
+			if (eq(k, elems[p - 1])) {
+				return p - 1;
+			}
+			i = nextKeyIndex(i, len);
+		}
+		return -1;
+	}
+
+	@Override
+	public boolean contains(Object o) {
+		return indexOf(maskNull(o)) >= 0;
+	}
+
+	@Override
+	public boolean add(T t) {
+		Object k = maskNull(t);
+		if (indexOf(k) >= 0) {
+			return false;
+		}
+
+		modCount++;
+		if (used == elements.length) {
+			// 空洞较多时原地压缩，否则扩容
+			rehash(size < elements.length / 2 ? elements.length : elements.length * 2);
+		}
+		int pos = used++;
+		elements[pos] = k;
+		insertIndex(k, pos);
+		size++;
+		return true;
+	}
+
+	@Override
+	public boolean addAll(Collection<? extends T> c) {
+		int n = size + c.size();
+		if (n > elements.length) {
+			rehash(n);
+		}
+		return super.addAll(c);
+	}
+
+	private void insertIndex(Object k, int pos) {
+		int[] idx = index;
+		int len = idx.length;
+		int i = hash(k, len);
+		while (idx[i] != 0) {
+			i = nextKeyIndex(i, len);
+		}
+		idx[i] = pos + 1;
+	}
+
+	/**
+	 * 按新的容量重建 elements 和索引表，同时去掉 elements 中的空洞
+	 */
+	private void rehash(int capacity) {
+		if (capacity >= MAXIMUM_CAPACITY) {
+			if (size >= MAXIMUM_CAPACITY - 1) {
+				throw new IllegalStateException("Capacity exhausted.");
+			}
+			capacity = MAXIMUM_CAPACITY - 1;
+		}
+		Object[] old = elements;
+		int oldUsed = used;
+		init(capacity);
+		Object[] elems = elements;
+		int j = 0;
+		for (int i = 0; i < oldUsed; i++) {
+			Object k = old[i];
+			if (k != null) {
+				elems[j] = k;
+				insertIndex(k, j);
+				j++;
+			}
+		}
+		used = j;
+	}
+
+	@Override
+	public boolean remove(Object o) {
+		Object k = maskNull(o);
+		int[] idx = index;
+		int len = idx.length;
+		int i = hash(k, len);
+		int p;
+		while ((p = idx[i]) != 0) {
+			if (eq(k, elements[p - 1])) {
+				modCount++;
+				removeAt(i, p - 1);
+				return true;
+			}
+			i = nextKeyIndex(i, len);
+		}
+		return false;
+	}
+
+	/**
+	 * 删除索引表第 slot 个槽位对应的 elements[pos]
+	 */
+	private void removeAt(int slot, int pos) {
+		elements[pos] = null;
+		size--;
+		// 删除的是末尾元素时回收末尾的空洞
+		while (used > 0 && elements[used - 1] == null) {
+			used--;
+		}
+		closeDeletion(slot);
+	}
+
+	private void closeDeletion(int d) {
+		int[] idx = index;
+		Object[] elems = elements;
+		int len = idx.length;
+		idx[d] = 0;
+
+		int p;
+		for (int i = nextKeyIndex(d, len); (p = idx[i]) != 0; i = nextKeyIndex(i, len)) {
+			int r = hash(elems[p - 1], len);
+			if ((i < r && (r <= d || d <= i)) || (r <= d && d <= i)) {
+				idx[d] = p;
+				idx[i] = 0;
+				d = i;
+			}
+		}
+	}
+
+	/**
+	 * 迭代器删除时已经知道元素的位置，按位置而不是 equals 查找索引槽位
+	 */
+	private void removePosition(int pos) {
+		int[] idx = index;
+		int len = idx.length;
+		int i = hash(elements[pos], len);
+		while (idx[i] != pos + 1) {
+			i = nextKeyIndex(i, len);
+		}
+		modCount++;
+		removeAt(i, pos);
+	}
+
+	@Override
+	public void clear() {
+		modCount++;
+		Object[] elems = elements;
+		for (int i = 0; i < used; i++) {
+			elems[i] = null;
+		}
+		int[] idx = index;
+		for (int i = 0; i < idx.length; i++) {
+			idx[i] = 0;
+		}
+		used = 0;
+		size = 0;
+	}
+
+	@Override
+	public Object[] toArray() {
+		Object[] r = new Object[size];
+		Object[] elems = elements;
+		int j = 0;
+		for (int i = 0; i < used; i++) {
+			if (elems[i] != null) {
+				r[j++] = unmaskNull(elems[i]);
+			}
+		}
+		return r;
+	}
+
+	@Override
+	public Iterator<T> iterator() {
+		return new Itr();
+	}
+
+	private class Itr implements Iterator<T> {
+		int cursor;
+		int lastRet = -1;
+		int expectedModCount = modCount;
+
+		public boolean hasNext() {
+			Object[] elems = elements;
+			int i = cursor;
+			while (i < used && elems[i] == null) {
+				i++;
+			}
+			cursor = i;
+			return i < used;
+		}
+
+		@SuppressWarnings("unchecked")
+		public T next() {
+			if (modCount != expectedModCount) {
+				throw new ConcurrentModificationException();
+			}
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+			lastRet = cursor++;
+			return (T) unmaskNull(elements[lastRet]);
+		}
+
+		public void remove() {
+			if (lastRet < 0) {
+				throw new IllegalStateException();
+			}
+			if (modCount != expectedModCount) {
+				throw new ConcurrentModificationException();
+			}
+			// 删除只会在 elements 中留下空洞，不会移动其他元素的位置
+			removePosition(lastRet);
+			lastRet = -1;
+			expectedModCount = modCount;
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	@Override
+	public Object clone() {
+		try {
+			LinkedOpenHashSet<T> newSet = (LinkedOpenHashSet<T>) super.clone();
+			newSet.elements = elements.clone();
+			newSet.index = index.clone();
+			newSet.modCount = 0;
+			return newSet;
+		} catch (CloneNotSupportedException e) {
+			throw new InternalError();
+		}
+	}
+
+	private void writeObject(ObjectOutputStream s) throws IOException {
+		s.defaultWriteObject();
+		s.writeInt(size);
+
+		Object[] elems = elements;
+		for (int i = 0; i < used; i++) {
+			if (elems[i] != null) {
+				s.writeObject(unmaskNull(elems[i]));
+			}
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private void readObject(ObjectInputStream s) throws IOException, ClassNotFoundException {
+		s.defaultReadObject();
+
+		int n = s.readInt();
+		init(n);
+		for (int i = 0; i < n; i++) {
+			add((T) s.readObject());
+		}
+	}
+}
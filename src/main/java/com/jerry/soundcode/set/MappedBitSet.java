@@ -0,0 +1,303 @@
+package com.jerry.soundcode.set;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * 映射到文件的定长位集合，数据不占用堆内存。
+ * 文件内容就是按小端序排列的 long 数组，第 n 位对应第 n / 64 个 long 的第 n % 64 位，
+ * 与 {@link BitSet#toLongArray()} 的布局相同，打开时只建立映射，不读取也不拷贝数据。
+ *
+ * 以可写方式打开时修改直接作用在映射上，调用 {@link #force()} 把修改刷到磁盘。
+ * 与 BitSet 一样不是线程安全的。
+ *
+ * 位索引是 int，size() 也要能用 int 表示，所以文件最多 2^25 - 1 个 long，
+ * 即 2^31 - 64 位（约 256MB），创建或打开更大的文件会失败。
+ */
+public class MappedBitSet {
+
+	private final static int ADDRESS_BITS_PER_WORD = 6;
+	private final static int BITS_PER_WORD = 1 << ADDRESS_BITS_PER_WORD;
+
+	private static final long WORD_MASK = 0xffffffffffffffffL;
+
+	/** 文件最多包含的 long 个数，保证最大的位索引和 size() 不超过 Integer.MAX_VALUE */
+	private static final int MAX_WORDS = Integer.MAX_VALUE >> ADDRESS_BITS_PER_WORD;
+
+	private final MappedByteBuffer buffer;
+
+	private final LongBuffer words;
+
+	private final int wordCount;
+
+	private MappedBitSet(MappedByteBuffer buffer) {
+		buffer.order(ByteOrder.LITTLE_ENDIAN);
+		this.buffer = buffer;
+		this.words = buffer.asLongBuffer();
+		this.wordCount = words.capacity();
+	}
+
+	/**
+	 * 映射已有的文件，文件长度必须是 8 的倍数
+	 */
+	public static MappedBitSet open(File file, boolean writable) throws IOException {
+		RandomAccessFile raf = new RandomAccessFile(file, writable ? "rw" : "r");
+		try {
+			long length = raf.length();
+			if ((length & 7) != 0) {
+				throw new IOException("File length is not a multiple of 8: " + length);
+			}
+			if (length > (long) MAX_WORDS * 8) {
+				throw new IOException("File too large: " + length);
+			}
+			FileChannel channel = raf.getChannel();
+			return new MappedBitSet(channel.map(
+					writable ? FileChannel.MapMode.READ_WRITE : FileChannel.MapMode.READ_ONLY, 0, length));
+		} finally {
+			// 映射建立后关闭文件不影响映射
+			raf.close();
+		}
+	}
+
+	/**
+	 * 创建（或截断后重建）能容纳 nbits 位的文件并以可写方式映射，所有位初始为 0
+	 *
+	 * @throws IllegalArgumentException nbits 超过 2^31 - 64
+	 */
+	public static MappedBitSet create(File file, int nbits) throws IOException {
+		if (nbits < 0) {
+			throw new NegativeArraySizeException("nbits < 0: " + nbits);
+		}
+		if (nbits > MAX_WORDS * BITS_PER_WORD) {
+			throw new IllegalArgumentException("nbits > " + (MAX_WORDS * BITS_PER_WORD) + ": " + nbits);
+		}
+		long length = (long) (wordIndex(nbits - 1) + 1) * 8;
+		RandomAccessFile raf = new RandomAccessFile(file, "rw");
+		try {
+			raf.setLength(0);
+			raf.setLength(length);
+			return new MappedBitSet(raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, length));
+		} finally {
+			raf.close();
+		}
+	}
+
+	/**
+	 * 把堆上的 BitSet 写入文件并返回可写的映射
+	 */
+	public static MappedBitSet create(File file, BitSet set) throws IOException {
+		long[] src = set.toLongArray();
+		if (src.length > MAX_WORDS) {
+			throw new IllegalArgumentException("set.length() > " + (MAX_WORDS * BITS_PER_WORD) + ": " + set.length());
+		}
+		MappedBitSet mapped = create(file, src.length * BITS_PER_WORD);
+		mapped.words.put(src, 0, src.length);
+		return mapped;
+	}
+
+	private static int wordIndex(int bitIndex) {
+		return bitIndex >> ADDRESS_BITS_PER_WORD;
+	}
+
+	private void checkIndex(int bitIndex) {
+		if (bitIndex < 0) {
+			throw new IndexOutOfBoundsException("bitIndex < 0: " + bitIndex);
+		}
+		if (wordIndex(bitIndex) >= wordCount) {
+			throw new IndexOutOfBoundsException("bitIndex: " + bitIndex + ", size: " + size());
+		}
+	}
+
+	public boolean get(int bitIndex) {
+		if (bitIndex < 0) {
+			throw new IndexOutOfBoundsException("bitIndex < 0: " + bitIndex);
+		}
+		int u = wordIndex(bitIndex);
+		return u < wordCount && (words.get(u) & (1L << bitIndex)) != 0;
+	}
+
+	/**
+	 * 只读映射上调用会抛出 ReadOnlyBufferException
+	 */
+	public void set(int bitIndex) {
+		checkIndex(bitIndex);
+		int u = wordIndex(bitIndex);
+		words.put(u, words.get(u) | (1L << bitIndex));
+	}
+
+	public void clear(int bitIndex) {
+		checkIndex(bitIndex);
+		int u = wordIndex(bitIndex);
+		words.put(u, words.get(u) & ~(1L << bitIndex));
+	}
+
+	public void set(int bitIndex, boolean value) {
+		if (value) {
+			set(bitIndex);
+		} else {
+			clear(bitIndex);
+		}
+	}
+
+	public int nextSetBit(int fromIndex) {
+		if (fromIndex < 0) {
+			throw new IndexOutOfBoundsException("fromIndex < 0: " + fromIndex);
+		}
+
+		int u = wordIndex(fromIndex);
+		if (u >= wordCount) {
+			return -1;
+		}
+
+		long word = words.get(u) & (WORD_MASK << fromIndex);
+		while (true) {
+			if (word != 0) {
+				return (u * BITS_PER_WORD) + Long.numberOfTrailingZeros(word);
+			}
+			if (++u == wordCount) {
+				return -1;
+			}
+			word = words.get(u);
+		}
+	}
+
+	public int nextClearBit(int fromIndex) {
+		if (fromIndex < 0) {
+			throw new IndexOutOfBoundsException("fromIndex < 0: " + fromIndex);
+		}
+
+		int u = wordIndex(fromIndex);
+		if (u >= wordCount) {
+			return fromIndex;
+		}
+
+		long word = ~words.get(u) & (WORD_MASK << fromIndex);
+		while (true) {
+			if (word != 0) {
+				return (u * BITS_PER_WORD) + Long.numberOfTrailingZeros(word);
+			}
+			if (++u == wordCount) {
+				return wordCount * BITS_PER_WORD;
+			}
+			word = ~words.get(u);
+		}
+	}
+
+	public int cardinality() {
+		int sum = 0;
+		for (int i = 0; i < wordCount; i++) {
+			sum += Long.bitCount(words.get(i));
+		}
+		return sum;
+	}
+
+	public boolean intersects(BitSet set) {
+		long[] other = set.toLongArray();
+		for (int i = Math.min(wordCount, other.length) - 1; i >= 0; i--) {
+			if ((words.get(i) & other[i]) != 0) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	public int andCardinality(BitSet set) {
+		long[] other = set.toLongArray();
+		int n = Math.min(wordCount, other.length);
+		int sum = 0;
+		for (int i = 0; i < n; i++) {
+			sum += Long.bitCount(words.get(i) & other[i]);
+		}
+		return sum;
+	}
+
+	/**
+	 * 与 set 的交集，结果在堆上，不修改映射
+	 */
+	public BitSet and(BitSet set) {
+		long[] r = set.toLongArray();
+		int n = Math.min(wordCount, r.length);
+		for (int i = 0; i < n; i++) {
+			r[i] &= words.get(i);
+		}
+		for (int i = n; i < r.length; i++) {
+			r[i] = 0;
+		}
+		return BitSet.valueOf(r);
+	}
+
+	/**
+	 * 与 set 的并集，结果在堆上，不修改映射
+	 */
+	public BitSet or(BitSet set) {
+		long[] other = set.toLongArray();
+		long[] r = new long[Math.max(wordCount, other.length)];
+		for (int i = 0; i < wordCount; i++) {
+			r[i] = words.get(i);
+		}
+		for (int i = 0; i < other.length; i++) {
+			r[i] |= other[i];
+		}
+		return BitSet.valueOf(r);
+	}
+
+	/**
+	 * 在映射上原地求交，需要以可写方式打开
+	 */
+	public void andInPlace(BitSet set) {
+		long[] other = set.toLongArray();
+		for (int i = 0; i < wordCount; i++) {
+			words.put(i, i < other.length ? words.get(i) & other[i] : 0L);
+		}
+	}
+
+	/**
+	 * 在映射上原地求并，需要以可写方式打开。映射的长度是固定的，
+	 * set 中有超出 size() 的位时抛出 IndexOutOfBoundsException，映射不会被修改
+	 */
+	public void orInPlace(BitSet set) {
+		long[] other = set.toLongArray();
+		// toLongArray 去掉了末尾为 0 的 long，比文件长说明有放不下的位
+		if (other.length > wordCount) {
+			throw new IndexOutOfBoundsException("set.length(): " + set.length() + ", size: " + size());
+		}
+		for (int i = 0; i < other.length; i++) {
+			words.put(i, words.get(i) | other[i]);
+		}
+	}
+
+	/**
+	 * 拷贝到堆上的 BitSet
+	 */
+	public BitSet toBitSet() {
+		long[] r = new long[wordCount];
+		LongBuffer view = words.duplicate();
+		view.rewind();
+		view.get(r);
+		return BitSet.valueOf(r);
+	}
+
+	/**
+	 * 把对映射的修改刷到磁盘
+	 */
+	public void force() {
+		buffer.force();
+	}
+
+	/**
+	 * 文件能容纳的位数
+	 */
+	public int size() {
+		return wordCount * BITS_PER_WORD;
+	}
+
+	@Override
+	public String toString() {
+		return toBitSet().toString();
+	}
+}
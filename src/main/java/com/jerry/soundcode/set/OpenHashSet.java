@@ -0,0 +1,383 @@
+package com.jerry.soundcode.set;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.ConcurrentModificationException;
+import java.util.NoSuchElementException;
+
+import com.jerry.soundcode.list.Collection;
+import com.jerry.soundcode.list.Iterator;
+
+/**
+ * 基于开放寻址（线性探测）的 HashSet，元素直接保存在一个 Object[] 中。
+ * HashSet 包装 HashMap，每个元素都要一个 Entry 对象和一个无用的 value 引用；
+ * 这里每个元素只占一个数组槽位，加上装载因子带来的空槽。
+ *
+ * 删除时不留墓碑，而是像 IdentityHashMap 那样把后面同一探测链上的元素前移（closeDeletion），
+ * 所以查找失败时遇到空槽就可以停止。允许 null 元素。
+ */
+public class OpenHashSet<T> extends AbstractSet<T>
+	implements Set<T>, Cloneable, Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	private static final int DEFAULT_INITIAL_CAPACITY = 16;
+
+	private static final float DEFAULT_LOAD_FACTOR = 0.75f;
+
+	private static final int MAXIMUM_CAPACITY = 1 << 30;
+
+	private static final Object NULL_KEY = new Object();
+
+	private transient Object[] table;
+
+	private transient int size;
+
+	private transient int threshold;
+
+	private final float loadFactor;
+
+	private transient int modCount;
+
+	public OpenHashSet() {
+		this(DEFAULT_INITIAL_CAPACITY, DEFAULT_LOAD_FACTOR);
+	}
+
+	public OpenHashSet(int initialCapacity) {
+		this(initialCapacity, DEFAULT_LOAD_FACTOR);
+	}
+
+	public OpenHashSet(int initialCapacity, float loadFactor) {
+		if (initialCapacity < 0) {
+			throw new IllegalArgumentException("Illegal initial capacity: " + initialCapacity);
+		}
+		if (!(loadFactor > 0 && loadFactor < 1)) {
+			throw new IllegalArgumentException("Illegal load factor: " + loadFactor);
+		}
+		this.loadFactor = loadFactor;
+		init(capacity(initialCapacity, loadFactor));
+	}
+
+	public OpenHashSet(Collection<? extends T> c) {
+		this(c.size(), DEFAULT_LOAD_FACTOR);
+		addAll(c);
+	}
+
+	private void init(int capacity) {
+		table = new Object[capacity];
+		threshold = (int) Math.min(capacity * loadFactor, capacity - 1);
+	}
+
+	/**
+	 * 能放下 expected 个元素的最小的 2 的幂
+	 */
+	private static int capacity(int expected, float loadFactor) {
+		long needed = (long) Math.ceil(expected / (double) loadFactor) + 1;
+		int capacity = 2;
+		while (capacity < needed && capacity < MAXIMUM_CAPACITY) {
+			capacity <<= 1;
+		}
+		return capacity;
+	}
+
+	private static Object maskNull(Object o) {
+		return (o == null ? NULL_KEY : o);
+	}
+
+	private static Object unmaskNull(Object o) {
+		return (o == NULL_KEY ? null : o);
+	}
+
+	/**
+	 * 线性探测对低位的聚集很敏感，先用黄金分割数把高位混到低位
+	 */
+	private static int hash(Object x, int length) {
+		int h = x.hashCode() * 0x9E3779B9;
+		return (h ^ (h >>> 16)) & (length - 1);
+	}
+
+	private static int nextKeyIndex(int i, int len) {
+		return (i + 1) & (len - 1);
+	}
+
+	private static boolean eq(Object k, Object item) {
+		return item == k || (k != NULL_KEY && k.equals(item));
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	@Override
+	public boolean contains(Object o) {
+		Object k = maskNull(o);
+		Object[] tab = table;
+		int len = tab.length;
+		int i = hash(k, len);
+		while (true) {
+			Object item = tab[i];
+			if (item == null) {
+				return false;
+			}
+			if (eq(k, item)) {
+				return true;
+			}
+			i = nextKeyIndex(i, len);
+		}
+	}
+
+	@Override
+	public boolean add(T t) {
+		Object k = maskNull(t);
+		Object[] tab = table;
+		int len = tab.length;
+		int i = hash(k, len);
+		Object item;
+		while ((item = tab[i]) != null) {
+			if (eq(k, item)) {
+				return false;
+			}
+			i = nextKeyIndex(i, len);
+		}
+
+		modCount++;
+		tab[i] = k;
+		if (++size > threshold) {
+			resize(len * 2);
+		}
+		return true;
+	}
+
+	@Override
+	public boolean addAll(Collection<? extends T> c) {
+		int n = c.size();
+		if (size + n > threshold) {
+			resize(capacity(size + n, loadFactor));
+		}
+		return super.addAll(c);
+	}
+
+	private void resize(int newLength) {
+		Object[] oldTable = table;
+		int oldLength = oldTable.length;
+		if (oldLength == MAXIMUM_CAPACITY) {
+			if (size >= MAXIMUM_CAPACITY - 1) {
+				throw new IllegalStateException("Capacity exhausted.");
+			}
+			threshold = MAXIMUM_CAPACITY - 1;
+			return;
+		}
+		if (oldLength >= newLength) {
+			return;
+		}
+
+		init(newLength);
+		Object[] newTable = table;
+		for (int j = 0; j < oldLength; j++) {
+			Object key = oldTable[j];
+			if (key != null) {
+				int i = hash(key, newLength);
+				while (newTable[i] != null) {
+					i = nextKeyIndex(i, newLength);
+				}
+				newTable[i] = key;
+			}
+		}
+	}
+
+	@Override
+	public boolean remove(Object o) {
+		Object k = maskNull(o);
+		Object[] tab = table;
+		int len = tab.length;
+		int i = hash(k, len);
+		while (true) {
+			Object item = tab[i];
+			if (item == null) {
+				return false;
+			}
+			if (eq(k, item)) {
+				modCount++;
+				size--;
+				tab[i] = null;
+				closeDeletion(i);
+				return true;
+			}
+			i = nextKeyIndex(i, len);
+		}
+	}
+
+	/**
+	 * 把 d 之后探测链上能前移的元素移到空出的槽位，保证查找遇到空槽即可停止
+	 */
+	private void closeDeletion(int d) {
+		Object[] tab = table;
+		int len = tab.length;
+
+		Object item;
+		for (int i = nextKeyIndex(d, len); (item = tab[i]) != null; i = nextKeyIndex(i, len)) {
+			int r = hash(item, len);
+			if ((i < r && (r <= d || d <= i)) || (r <= d && d <= i)) {
+				tab[d] = item;
+				tab[i] = null;
+				d = i;
+			}
+		}
+	}
+
+	@Override
+	public void clear() {
+		modCount++;
+		Object[] tab = table;
+		for (int i = 0; i < tab.length; i++) {
+			tab[i] = null;
+		}
+		size = 0;
+	}
+
+	@Override
+	public Object[] toArray() {
+		Object[] r = new Object[size];
+		Object[] tab = table;
+		int j = 0;
+		for (int i = 0; i < tab.length; i++) {
+			if (tab[i] != null) {
+				r[j++] = unmaskNull(tab[i]);
+			}
+		}
+		return r;
+	}
+
+	@Override
+	public Iterator<T> iterator() {
+		return new Itr();
+	}
+
+	private class Itr implements Iterator<T> {
+		int index = (size != 0 ? 0 : table.length);
+		int expectedModCount = modCount;
+		int lastReturnedIndex = -1;
+		boolean indexValid;
+		Object[] traversalTable = table;
+
+		public boolean hasNext() {
+			Object[] tab = traversalTable;
+			for (int i = index; i < tab.length; i++) {
+				if (tab[i] != null) {
+					index = i;
+					return indexValid = true;
+				}
+			}
+			index = tab.length;
+			return false;
+		}
+
+		@SuppressWarnings("unchecked")
+		public T next() {
+			if (modCount != expectedModCount) {
+				throw new ConcurrentModificationException();
+			}
+			if (!indexValid && !hasNext()) {
+				throw new NoSuchElementException();
+			}
+
+			indexValid = false;
+			lastReturnedIndex = index;
+			index++;
+			return (T) unmaskNull(traversalTable[lastReturnedIndex]);
+		}
+
+		public void remove() {
+			if (lastReturnedIndex == -1) {
+				throw new IllegalStateException();
+			}
+			if (modCount != expectedModCount) {
+				throw new ConcurrentModificationException();
+			}
+
+			expectedModCount = ++modCount;
+			int deletedSlot = lastReturnedIndex;
+			lastReturnedIndex = -1;
+			index = deletedSlot;
+			indexValid = false;
+
+			Object[] tab = traversalTable;
+			int len = tab.length;
+
+			int d = deletedSlot;
+			Object key = tab[d];
+			tab[d] = null;
+
+			// 已经切换到剩余部分的拷贝上遍历，直接从真正的表中删除
+			if (tab != OpenHashSet.this.table) {
+				OpenHashSet.this.remove(unmaskNull(key));
+				expectedModCount = modCount;
+				return;
+			}
+			size--;
+
+			Object item;
+			for (int i = nextKeyIndex(d, len); (item = tab[i]) != null; i = nextKeyIndex(i, len)) {
+				int r = hash(item, len);
+				if ((i < r && (r <= d || d <= i)) || (r <= d && d <= i)) {
+					// 回绕到表头的未遍历元素被移到已遍历的位置上时，改为遍历剩余部分的拷贝，避免漏掉或重复
+					if (i < deletedSlot && d >= deletedSlot && traversalTable == OpenHashSet.this.table) {
+						int remaining = len - deletedSlot;
+						Object[] newTable = new Object[remaining];
+						System.arraycopy(tab, deletedSlot, newTable, 0, remaining);
+						traversalTable = newTable;
+						index = 0;
+					}
+
+					tab[d] = item;
+					tab[i] = null;
+					d = i;
+				}
+			}
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	@Override
+	public Object clone() {
+		try {
+			OpenHashSet<T> newSet = (OpenHashSet<T>) super.clone();
+			newSet.table = table.clone();
+			newSet.modCount = 0;
+			return newSet;
+		} catch (CloneNotSupportedException e) {
+			throw new InternalError();
+		}
+	}
+
+	private void writeObject(ObjectOutputStream s) throws IOException {
+		s.defaultWriteObject();
+		s.writeInt(size);
+
+		Object[] tab = table;
+		for (int i = 0; i < tab.length; i++) {
+			if (tab[i] != null) {
+				s.writeObject(unmaskNull(tab[i]));
+			}
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private void readObject(ObjectInputStream s) throws IOException, ClassNotFoundException {
+		s.defaultReadObject();
+
+		int n = s.readInt();
+		init(capacity(n, loadFactor));
+		for (int i = 0; i < n; i++) {
+			add((T) s.readObject());
+		}
+	}
+}
@@ -0,0 +1,1647 @@
+package com.jerry.soundcode.set;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * 压缩位图（Roaring Bitmap）。
+ * 把索引按高 16 位分成最多 2^16 个块，每块用一个容器保存低 16 位：
+ * 元素少于 4096 个时用有序 char 数组（ArrayContainer），元素多时用 1024 个 long 的位图（BitmapContainer），
+ * 连续区间多时用 [起点, 长度] 对组成的行程编码（RunContainer）。
+ * 稀疏的集合只占用与元素个数成正比的空间，and/or 等运算只处理两边都存在的块。
+ *
+ * 与 {@link BitSet} 一样，索引必须是非负整数。
+ */
+public class RoaringBitmap implements Cloneable, Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	/** 数组容器最多保存的元素个数，超过后转为位图容器 */
+	static final int ARRAY_MAX_SIZE = 4096;
+
+	/** 位图容器的 long 个数，2^16 / 64 */
+	static final int BITMAP_WORDS = 1024;
+
+	private static final int MAX_CAPACITY = 1 << 16;
+
+	/** 有序的高 16 位 */
+	private transient char[] keys;
+
+	private transient Container[] containers;
+
+	private transient int size;
+
+	public RoaringBitmap() {
+		keys = new char[4];
+		containers = new Container[4];
+	}
+
+	private static char highbits(int x) {
+		return (char) (x >>> 16);
+	}
+
+	private static char lowbits(int x) {
+		return (char) x;
+	}
+
+	private static void checkIndex(int bitIndex) {
+		if (bitIndex < 0) {
+			throw new IndexOutOfBoundsException("bitIndex < 0: " + bitIndex);
+		}
+	}
+
+	private static void checkRange(int fromIndex, int toIndex) {
+		if (fromIndex < 0) {
+			throw new IndexOutOfBoundsException("fromIndex < 0: " + fromIndex);
+		}
+		if (toIndex < 0) {
+			throw new IndexOutOfBoundsException("toIndex < 0: " + toIndex);
+		}
+		if (fromIndex > toIndex) {
+			throw new IndexOutOfBoundsException("fromIndex: " + fromIndex
+					+ " > toIndex: " + toIndex);
+		}
+	}
+
+	/**
+	 * 查找 key 所在的下标，不存在时返回 -(插入点 + 1)
+	 */
+	private int getIndex(char key) {
+		// 顺序写入时 key 通常就是最后一个
+		if (size > 0 && keys[size - 1] == key) {
+			return size - 1;
+		}
+		return Arrays.binarySearch(keys, 0, size, key);
+	}
+
+	/**
+	 * 第一个不小于 key 的下标
+	 */
+	private int lowerBound(char key) {
+		int i = getIndex(key);
+		return i >= 0 ? i : -i - 1;
+	}
+
+	/**
+	 * 从 pos 开始按倍增步长查找第一个不小于 key 的下标，用于跳过大段只在一边存在的块
+	 */
+	private int advanceUntil(char key, int pos) {
+		int lower = pos + 1;
+		if (lower >= size || keys[lower] >= key) {
+			return lower;
+		}
+
+		int spansize = 1;
+		while (lower + spansize < size && keys[lower + spansize] < key) {
+			spansize <<= 1;
+		}
+		int upper = (lower + spansize < size) ? lower + spansize : size - 1;
+		if (keys[upper] == key) {
+			return upper;
+		}
+		if (keys[upper] < key) {
+			return size;
+		}
+
+		lower += (spansize >>> 1);
+		while (lower + 1 != upper) {
+			int mid = (lower + upper) >>> 1;
+			if (keys[mid] == key) {
+				return mid;
+			} else if (keys[mid] < key) {
+				lower = mid;
+			} else {
+				upper = mid;
+			}
+		}
+		return upper;
+	}
+
+	private void ensureCapacity(int minCapacity) {
+		if (keys.length < minCapacity) {
+			int newCapacity = Math.max(keys.length * 2, minCapacity);
+			keys = Arrays.copyOf(keys, newCapacity);
+			containers = Arrays.copyOf(containers, newCapacity);
+		}
+	}
+
+	private void insertAt(int i, char key, Container c) {
+		ensureCapacity(size + 1);
+		System.arraycopy(keys, i, keys, i + 1, size - i);
+		System.arraycopy(containers, i, containers, i + 1, size - i);
+		keys[i] = key;
+		containers[i] = c;
+		size++;
+	}
+
+	private void removeAt(int i) {
+		System.arraycopy(keys, i + 1, keys, i, size - i - 1);
+		System.arraycopy(containers, i + 1, containers, i, size - i - 1);
+		containers[--size] = null;
+	}
+
+	private void append(char key, Container c) {
+		ensureCapacity(size + 1);
+		keys[size] = key;
+		containers[size] = c;
+		size++;
+	}
+
+	public void set(int bitIndex) {
+		checkIndex(bitIndex);
+
+		char hb = highbits(bitIndex);
+		int i = getIndex(hb);
+		if (i >= 0) {
+			containers[i] = containers[i].add(lowbits(bitIndex));
+		} else {
+			ArrayContainer c = new ArrayContainer();
+			c.add(lowbits(bitIndex));
+			insertAt(-i - 1, hb, c);
+		}
+	}
+
+	public void set(int bitIndex, boolean value) {
+		if (value) {
+			set(bitIndex);
+		} else {
+			clear(bitIndex);
+		}
+	}
+
+	/**
+	 * 设置 [fromIndex, toIndex) 内的所有位，新建的块使用行程编码
+	 */
+	public void set(int fromIndex, int toIndex) {
+		checkRange(fromIndex, toIndex);
+		if (fromIndex == toIndex) {
+			return;
+		}
+
+		int hbStart = fromIndex >>> 16;
+		int hbLast = (toIndex - 1) >>> 16;
+		for (int hb = hbStart; hb <= hbLast; hb++) {
+			int lo = (hb == hbStart) ? (fromIndex & 0xFFFF) : 0;
+			int hi = (hb == hbLast) ? ((toIndex - 1) & 0xFFFF) + 1 : MAX_CAPACITY;
+			int i = getIndex((char) hb);
+			if (i >= 0) {
+				containers[i] = containers[i].add(lo, hi);
+			} else {
+				insertAt(-i - 1, (char) hb, RunContainer.range(lo, hi));
+			}
+		}
+	}
+
+	public void clear(int bitIndex) {
+		checkIndex(bitIndex);
+
+		int i = getIndex(highbits(bitIndex));
+		if (i < 0) {
+			return;
+		}
+		Container c = containers[i].remove(lowbits(bitIndex));
+		if (c.cardinality() == 0) {
+			removeAt(i);
+		} else {
+			containers[i] = c;
+		}
+	}
+
+	public void clear(int fromIndex, int toIndex) {
+		checkRange(fromIndex, toIndex);
+		if (fromIndex == toIndex) {
+			return;
+		}
+
+		int hbStart = fromIndex >>> 16;
+		int hbLast = (toIndex - 1) >>> 16;
+		int i = lowerBound((char) hbStart);
+		while (i < size && keys[i] <= hbLast) {
+			int hb = keys[i];
+			int lo = (hb == hbStart) ? (fromIndex & 0xFFFF) : 0;
+			int hi = (hb == hbLast) ? ((toIndex - 1) & 0xFFFF) + 1 : MAX_CAPACITY;
+			Container c = containers[i].remove(lo, hi);
+			if (c.cardinality() == 0) {
+				removeAt(i);
+			} else {
+				containers[i++] = c;
+			}
+		}
+	}
+
+	public void clear() {
+		while (size > 0) {
+			containers[--size] = null;
+		}
+	}
+
+	public void flip(int bitIndex) {
+		if (get(bitIndex)) {
+			clear(bitIndex);
+		} else {
+			set(bitIndex);
+		}
+	}
+
+	public boolean get(int bitIndex) {
+		checkIndex(bitIndex);
+
+		int i = getIndex(highbits(bitIndex));
+		return i >= 0 && containers[i].contains(lowbits(bitIndex));
+	}
+
+	public int nextSetBit(int fromIndex) {
+		if (fromIndex < 0) {
+			throw new IndexOutOfBoundsException("fromIndex < 0: " + fromIndex);
+		}
+
+		char hb = highbits(fromIndex);
+		for (int i = lowerBound(hb); i < size; i++) {
+			int from = (keys[i] == hb) ? lowbits(fromIndex) : 0;
+			int r = containers[i].nextSetBit(from);
+			if (r >= 0) {
+				return (keys[i] << 16) | r;
+			}
+		}
+		return -1;
+	}
+
+	public int nextClearBit(int fromIndex) {
+		if (fromIndex < 0) {
+			throw new IndexOutOfBoundsException("fromIndex < 0: " + fromIndex);
+		}
+
+		int x = fromIndex;
+		while (true) {
+			char hb = highbits(x);
+			int i = getIndex(hb);
+			if (i < 0) {
+				return x;
+			}
+			int r = containers[i].nextClearBit(lowbits(x));
+			if (r < MAX_CAPACITY) {
+				return (hb << 16) | r;
+			}
+			if (hb == Character.MAX_VALUE >>> 1) {
+				return -1;
+			}
+			x = (hb + 1) << 16;
+		}
+	}
+
+	/**
+	 * 最高位的索引加 1
+	 */
+	public int length() {
+		if (size == 0) {
+			return 0;
+		}
+		return ((keys[size - 1] << 16) | containers[size - 1].last()) + 1;
+	}
+
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	public int cardinality() {
+		int sum = 0;
+		for (int i = 0; i < size; i++) {
+			sum += containers[i].cardinality();
+		}
+		return sum;
+	}
+
+	public void and(RoaringBitmap set) {
+		if (this != set) {
+			replaceWith(and(this, set));
+		}
+	}
+
+	public void or(RoaringBitmap set) {
+		if (this != set) {
+			replaceWith(or(this, set));
+		}
+	}
+
+	public void xor(RoaringBitmap set) {
+		replaceWith(xor(this, set));
+	}
+
+	public void andNot(RoaringBitmap set) {
+		replaceWith(andNot(this, set));
+	}
+
+	private void replaceWith(RoaringBitmap r) {
+		keys = r.keys;
+		containers = r.containers;
+		size = r.size;
+	}
+
+	public static RoaringBitmap and(RoaringBitmap x1, RoaringBitmap x2) {
+		RoaringBitmap answer = new RoaringBitmap();
+		int pos1 = 0;
+		int pos2 = 0;
+		while (pos1 < x1.size && pos2 < x2.size) {
+			char s1 = x1.keys[pos1];
+			char s2 = x2.keys[pos2];
+			if (s1 == s2) {
+				Container c = x1.containers[pos1].and(x2.containers[pos2]);
+				if (c.cardinality() > 0) {
+					answer.append(s1, c);
+				}
+				pos1++;
+				pos2++;
+			} else if (s1 < s2) {
+				pos1 = x1.advanceUntil(s2, pos1);
+			} else {
+				pos2 = x2.advanceUntil(s1, pos2);
+			}
+		}
+		return answer;
+	}
+
+	public static RoaringBitmap or(RoaringBitmap x1, RoaringBitmap x2) {
+		RoaringBitmap answer = new RoaringBitmap();
+		int pos1 = 0;
+		int pos2 = 0;
+		while (pos1 < x1.size && pos2 < x2.size) {
+			char s1 = x1.keys[pos1];
+			char s2 = x2.keys[pos2];
+			if (s1 == s2) {
+				answer.append(s1, x1.containers[pos1].or(x2.containers[pos2]));
+				pos1++;
+				pos2++;
+			} else if (s1 < s2) {
+				answer.append(s1, x1.containers[pos1].copy());
+				pos1++;
+			} else {
+				answer.append(s2, x2.containers[pos2].copy());
+				pos2++;
+			}
+		}
+		answer.appendCopies(x1, pos1);
+		answer.appendCopies(x2, pos2);
+		return answer;
+	}
+
+	public static RoaringBitmap xor(RoaringBitmap x1, RoaringBitmap x2) {
+		RoaringBitmap answer = new RoaringBitmap();
+		int pos1 = 0;
+		int pos2 = 0;
+		while (pos1 < x1.size && pos2 < x2.size) {
+			char s1 = x1.keys[pos1];
+			char s2 = x2.keys[pos2];
+			if (s1 == s2) {
+				Container c = x1.containers[pos1].xor(x2.containers[pos2]);
+				if (c.cardinality() > 0) {
+					answer.append(s1, c);
+				}
+				pos1++;
+				pos2++;
+			} else if (s1 < s2) {
+				answer.append(s1, x1.containers[pos1].copy());
+				pos1++;
+			} else {
+				answer.append(s2, x2.containers[pos2].copy());
+				pos2++;
+			}
+		}
+		answer.appendCopies(x1, pos1);
+		answer.appendCopies(x2, pos2);
+		return answer;
+	}
+
+	public static RoaringBitmap andNot(RoaringBitmap x1, RoaringBitmap x2) {
+		RoaringBitmap answer = new RoaringBitmap();
+		int pos1 = 0;
+		int pos2 = 0;
+		while (pos1 < x1.size && pos2 < x2.size) {
+			char s1 = x1.keys[pos1];
+			char s2 = x2.keys[pos2];
+			if (s1 == s2) {
+				Container c = x1.containers[pos1].andNot(x2.containers[pos2]);
+				if (c.cardinality() > 0) {
+					answer.append(s1, c);
+				}
+				pos1++;
+				pos2++;
+			} else if (s1 < s2) {
+				answer.append(s1, x1.containers[pos1].copy());
+				pos1++;
+			} else {
+				pos2 = x2.advanceUntil(s1, pos2);
+			}
+		}
+		answer.appendCopies(x1, pos1);
+		return answer;
+	}
+
+	private void appendCopies(RoaringBitmap src, int from) {
+		for (int i = from; i < src.size; i++) {
+			append(src.keys[i], src.containers[i].copy());
+		}
+	}
+
+	/**
+	 * 把连续区间较多的块转为行程编码，返回是否有块被转换
+	 */
+	public boolean runOptimize() {
+		boolean changed = false;
+		for (int i = 0; i < size; i++) {
+			Container c = containers[i].runOptimize();
+			if (c != containers[i]) {
+				containers[i] = c;
+				changed = true;
+			}
+		}
+		return changed;
+	}
+
+	/**
+	 * 从 BitSet 构造，每 1024 个 long 对应一个块
+	 */
+	public static RoaringBitmap valueOf(BitSet set) {
+		long[] words = set.toLongArray();
+		RoaringBitmap answer = new RoaringBitmap();
+		for (int base = 0; base < words.length; base += BITMAP_WORDS) {
+			long[] chunk = new long[BITMAP_WORDS];
+			System.arraycopy(words, base, chunk, 0, Math.min(BITMAP_WORDS, words.length - base));
+			Container c = Container.fromWords(chunk);
+			if (c.cardinality() > 0) {
+				answer.append((char) (base / BITMAP_WORDS), c.runOptimize());
+			}
+		}
+		return answer;
+	}
+
+	public BitSet toBitSet() {
+		if (size == 0) {
+			return new BitSet();
+		}
+		long[] words = new long[(keys[size - 1] + 1) * BITMAP_WORDS];
+		for (int i = 0; i < size; i++) {
+			containers[i].fillWords(words, keys[i] * BITMAP_WORDS);
+		}
+		return BitSet.valueOf(words);
+	}
+
+	/**
+	 * 序列化格式：块数，然后每块依次为高 16 位、容器类型、容器内容
+	 */
+	public void serialize(DataOutput out) throws IOException {
+		out.writeInt(size);
+		for (int i = 0; i < size; i++) {
+			out.writeShort(keys[i]);
+			out.writeByte(containers[i].type());
+			containers[i].writeTo(out);
+		}
+	}
+
+	public void deserialize(DataInput in) throws IOException {
+		clear();
+		int n = in.readInt();
+		if (n < 0 || n > MAX_CAPACITY) {
+			throw new IOException("Invalid container count: " + n);
+		}
+		ensureCapacity(n);
+		for (int i = 0; i < n; i++) {
+			char key = (char) in.readUnsignedShort();
+			if (i > 0 && key <= keys[i - 1]) {
+				throw new IOException("Keys out of order: " + (int) key);
+			}
+			append(key, Container.readFrom(in.readByte(), in));
+		}
+	}
+
+	public int serializedSizeInBytes() {
+		int bytes = 4;
+		for (int i = 0; i < size; i++) {
+			bytes += 3 + containers[i].serializedSizeInBytes();
+		}
+		return bytes;
+	}
+
+	private void writeObject(ObjectOutputStream s) throws IOException {
+		s.defaultWriteObject();
+		serialize(s);
+	}
+
+	private void readObject(ObjectInputStream s) throws IOException, ClassNotFoundException {
+		s.defaultReadObject();
+		keys = new char[4];
+		containers = new Container[4];
+		deserialize(s);
+	}
+
+	@Override
+	public int hashCode() {
+		int h = 1234;
+		for (int i = 0; i < size; i++) {
+			h = 31 * h + keys[i];
+			h = 31 * h + containers[i].cardinality();
+			h = 31 * h + containers[i].last();
+		}
+		return h;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (!(obj instanceof RoaringBitmap)) {
+			return false;
+		}
+		if (this == obj) {
+			return true;
+		}
+
+		RoaringBitmap set = (RoaringBitmap) obj;
+		if (size != set.size) {
+			return false;
+		}
+		for (int i = 0; i < size; i++) {
+			if (keys[i] != set.keys[i] || !containers[i].sameAs(set.containers[i])) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	@Override
+	public RoaringBitmap clone() {
+		try {
+			RoaringBitmap result = (RoaringBitmap) super.clone();
+			result.keys = Arrays.copyOf(keys, Math.max(size, 1));
+			result.containers = new Container[Math.max(size, 1)];
+			for (int i = 0; i < size; i++) {
+				result.containers[i] = containers[i].copy();
+			}
+			return result;
+		} catch (CloneNotSupportedException e) {
+			throw new InternalError();
+		}
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder b = new StringBuilder();
+		b.append('{');
+		int i = nextSetBit(0);
+		if (i != -1) {
+			b.append(i);
+			for (i = nextSetBit(i + 1); i >= 0; i = nextSetBit(i + 1)) {
+				b.append(", ").append(i);
+			}
+		}
+		b.append('}');
+		return b.toString();
+	}
+
+	static void setBitmapRange(long[] bitmap, int offset, int start, int end) {
+		if (start == end) {
+			return;
+		}
+		int firstword = offset + (start >>> 6);
+		int endword = offset + ((end - 1) >>> 6);
+		if (firstword == endword) {
+			bitmap[firstword] |= (~0L << start) & (~0L >>> -end);
+			return;
+		}
+		bitmap[firstword] |= ~0L << start;
+		for (int i = firstword + 1; i < endword; i++) {
+			bitmap[i] = ~0L;
+		}
+		bitmap[endword] |= ~0L >>> -end;
+	}
+
+	static void clearBitmapRange(long[] bitmap, int start, int end) {
+		if (start == end) {
+			return;
+		}
+		int firstword = start >>> 6;
+		int endword = (end - 1) >>> 6;
+		if (firstword == endword) {
+			bitmap[firstword] &= ~((~0L << start) & (~0L >>> -end));
+			return;
+		}
+		bitmap[firstword] &= ~(~0L << start);
+		for (int i = firstword + 1; i < endword; i++) {
+			bitmap[i] = 0L;
+		}
+		bitmap[endword] &= ~(~0L >>> -end);
+	}
+
+	/**
+	 * 保存一个块内低 16 位的容器。
+	 * 修改操作可能返回另一种类型的新容器，调用方需要用返回值替换原来的容器；
+	 * 集合运算总是返回新的容器，不会修改两个参数。
+	 */
+	static abstract class Container {
+
+		static final byte ARRAY = 0;
+		static final byte BITMAP = 1;
+		static final byte RUN = 2;
+
+		abstract Container add(char x);
+
+		/** 添加 [begin, end) */
+		abstract Container add(int begin, int end);
+
+		abstract Container remove(char x);
+
+		/** 删除 [begin, end) */
+		abstract Container remove(int begin, int end);
+
+		abstract boolean contains(char x);
+
+		abstract int cardinality();
+
+		/** 不小于 from 的第一个元素，不存在时返回 -1 */
+		abstract int nextSetBit(int from);
+
+		/** 不小于 from 的第一个空位，可能返回 2^16 */
+		abstract int nextClearBit(int from);
+
+		abstract int last();
+
+		abstract Container and(Container x);
+
+		abstract Container or(Container x);
+
+		abstract Container xor(Container x);
+
+		abstract Container andNot(Container x);
+
+		/** 如果行程编码更省空间则返回转换后的容器，否则返回自身 */
+		abstract Container runOptimize();
+
+		/** 把所有元素按位写入 bitmap 中从 offset 开始的 1024 个 long */
+		abstract void fillWords(long[] bitmap, int offset);
+
+		abstract byte type();
+
+		abstract void writeTo(DataOutput out) throws IOException;
+
+		abstract int serializedSizeInBytes();
+
+		abstract Container copy();
+
+		/** 只读的位图形式，位图容器直接返回内部数组 */
+		long[] words() {
+			long[] bitmap = new long[BITMAP_WORDS];
+			fillWords(bitmap, 0);
+			return bitmap;
+		}
+
+		boolean sameAs(Container x) {
+			return cardinality() == x.cardinality() && Arrays.equals(words(), x.words());
+		}
+
+		/**
+		 * 根据元素个数选择数组容器或位图容器，bitmap 的所有权交给返回的容器
+		 */
+		static Container fromWords(long[] bitmap) {
+			int card = 0;
+			for (int i = 0; i < BITMAP_WORDS; i++) {
+				card += Long.bitCount(bitmap[i]);
+			}
+			if (card > ARRAY_MAX_SIZE) {
+				return new BitmapContainer(bitmap, card);
+			}
+			char[] content = new char[card];
+			int k = 0;
+			for (int i = 0; i < BITMAP_WORDS; i++) {
+				long w = bitmap[i];
+				while (w != 0) {
+					content[k++] = (char) (i * 64 + Long.numberOfTrailingZeros(w));
+					w &= w - 1;
+				}
+			}
+			return new ArrayContainer(content, card);
+		}
+
+		static Container readFrom(byte type, DataInput in) throws IOException {
+			switch (type) {
+				case ARRAY: {
+					int card = in.readUnsignedShort();
+					if (card > ARRAY_MAX_SIZE) {
+						throw new IOException("Invalid array container cardinality: " + card);
+					}
+					char[] content = new char[card];
+					for (int i = 0; i < card; i++) {
+						content[i] = in.readChar();
+					}
+					return new ArrayContainer(content, card);
+				}
+				case BITMAP: {
+					long[] bitmap = new long[BITMAP_WORDS];
+					int card = 0;
+					for (int i = 0; i < BITMAP_WORDS; i++) {
+						bitmap[i] = in.readLong();
+						card += Long.bitCount(bitmap[i]);
+					}
+					return new BitmapContainer(bitmap, card);
+				}
+				case RUN: {
+					int nbrruns = in.readUnsignedShort();
+					char[] valueslength = new char[2 * nbrruns];
+					for (int i = 0; i < 2 * nbrruns; i++) {
+						valueslength[i] = in.readChar();
+					}
+					return new RunContainer(valueslength, nbrruns);
+				}
+				default:
+					throw new IOException("Unknown container type: " + type);
+			}
+		}
+	}
+
+	/**
+	 * 有序 char 数组，最多 4096 个元素
+	 */
+	static final class ArrayContainer extends Container {
+
+		char[] content;
+
+		int cardinality;
+
+		ArrayContainer() {
+			this(new char[4], 0);
+		}
+
+		ArrayContainer(char[] content, int cardinality) {
+			this.content = content;
+			this.cardinality = cardinality;
+		}
+
+		/** 第一个不小于 v 的下标 */
+		private int lowerBound(int v) {
+			int low = 0;
+			int high = cardinality;
+			while (low < high) {
+				int mid = (low + high) >>> 1;
+				if (content[mid] < v) {
+					low = mid + 1;
+				} else {
+					high = mid;
+				}
+			}
+			return low;
+		}
+
+		Container add(char x) {
+			int i = Arrays.binarySearch(content, 0, cardinality, x);
+			if (i >= 0) {
+				return this;
+			}
+			if (cardinality >= ARRAY_MAX_SIZE) {
+				return toBitmapContainer().add(x);
+			}
+			i = -i - 1;
+			if (cardinality == content.length) {
+				int newCapacity = cardinality < 64 ? cardinality * 2 : cardinality * 3 / 2;
+				content = Arrays.copyOf(content, Math.max(4, Math.min(newCapacity, ARRAY_MAX_SIZE)));
+			}
+			System.arraycopy(content, i, content, i + 1, cardinality - i);
+			content[i] = x;
+			cardinality++;
+			return this;
+		}
+
+		Container add(int begin, int end) {
+			if (begin >= end) {
+				return this;
+			}
+			int lo = lowerBound(begin);
+			int hi = lowerBound(end);
+			int newCard = lo + (end - begin) + (cardinality - hi);
+			if (newCard > ARRAY_MAX_SIZE) {
+				return toBitmapContainer().add(begin, end);
+			}
+			char[] c = new char[Math.max(newCard, content.length)];
+			System.arraycopy(content, 0, c, 0, lo);
+			for (int v = begin, k = lo; v < end; v++, k++) {
+				c[k] = (char) v;
+			}
+			System.arraycopy(content, hi, c, lo + (end - begin), cardinality - hi);
+			content = c;
+			cardinality = newCard;
+			return this;
+		}
+
+		Container remove(char x) {
+			int i = Arrays.binarySearch(content, 0, cardinality, x);
+			if (i >= 0) {
+				System.arraycopy(content, i + 1, content, i, cardinality - i - 1);
+				cardinality--;
+			}
+			return this;
+		}
+
+		Container remove(int begin, int end) {
+			if (begin >= end) {
+				return this;
+			}
+			int lo = lowerBound(begin);
+			int hi = lowerBound(end);
+			System.arraycopy(content, hi, content, lo, cardinality - hi);
+			cardinality -= hi - lo;
+			return this;
+		}
+
+		boolean contains(char x) {
+			return Arrays.binarySearch(content, 0, cardinality, x) >= 0;
+		}
+
+		int cardinality() {
+			return cardinality;
+		}
+
+		int nextSetBit(int from) {
+			int i = lowerBound(from);
+			return i < cardinality ? content[i] : -1;
+		}
+
+		int nextClearBit(int from) {
+			int i = lowerBound(from);
+			int v = from;
+			while (i < cardinality && content[i] == v) {
+				i++;
+				v++;
+			}
+			return v;
+		}
+
+		int last() {
+			return content[cardinality - 1];
+		}
+
+		Container and(Container x) {
+			if (x instanceof ArrayContainer) {
+				ArrayContainer y = (ArrayContainer) x;
+				char[] c = new char[Math.min(cardinality, y.cardinality)];
+				int i = 0, j = 0, k = 0;
+				while (i < cardinality && j < y.cardinality) {
+					char a = content[i];
+					char b = y.content[j];
+					if (a == b) {
+						c[k++] = a;
+						i++;
+						j++;
+					} else if (a < b) {
+						i++;
+					} else {
+						j++;
+					}
+				}
+				return new ArrayContainer(c, k);
+			}
+			char[] c = new char[cardinality];
+			int k = 0;
+			for (int i = 0; i < cardinality; i++) {
+				if (x.contains(content[i])) {
+					c[k++] = content[i];
+				}
+			}
+			return new ArrayContainer(c, k);
+		}
+
+		Container or(Container x) {
+			if (!(x instanceof ArrayContainer)) {
+				return x.or(this);
+			}
+			ArrayContainer y = (ArrayContainer) x;
+			if (cardinality + y.cardinality > ARRAY_MAX_SIZE) {
+				long[] bitmap = new long[BITMAP_WORDS];
+				fillWords(bitmap, 0);
+				y.fillWords(bitmap, 0);
+				return Container.fromWords(bitmap);
+			}
+			char[] c = new char[cardinality + y.cardinality];
+			int i = 0, j = 0, k = 0;
+			while (i < cardinality && j < y.cardinality) {
+				char a = content[i];
+				char b = y.content[j];
+				if (a == b) {
+					c[k++] = a;
+					i++;
+					j++;
+				} else if (a < b) {
+					c[k++] = a;
+					i++;
+				} else {
+					c[k++] = b;
+					j++;
+				}
+			}
+			while (i < cardinality) {
+				c[k++] = content[i++];
+			}
+			while (j < y.cardinality) {
+				c[k++] = y.content[j++];
+			}
+			return new ArrayContainer(c, k);
+		}
+
+		Container xor(Container x) {
+			if (!(x instanceof ArrayContainer)) {
+				return x.xor(this);
+			}
+			ArrayContainer y = (ArrayContainer) x;
+			if (cardinality + y.cardinality > ARRAY_MAX_SIZE) {
+				long[] bitmap = new long[BITMAP_WORDS];
+				fillWords(bitmap, 0);
+				for (int j = 0; j < y.cardinality; j++) {
+					bitmap[y.content[j] >>> 6] ^= 1L << y.content[j];
+				}
+				return Container.fromWords(bitmap);
+			}
+			char[] c = new char[cardinality + y.cardinality];
+			int i = 0, j = 0, k = 0;
+			while (i < cardinality && j < y.cardinality) {
+				char a = content[i];
+				char b = y.content[j];
+				if (a == b) {
+					i++;
+					j++;
+				} else if (a < b) {
+					c[k++] = a;
+					i++;
+				} else {
+					c[k++] = b;
+					j++;
+				}
+			}
+			while (i < cardinality) {
+				c[k++] = content[i++];
+			}
+			while (j < y.cardinality) {
+				c[k++] = y.content[j++];
+			}
+			return new ArrayContainer(c, k);
+		}
+
+		Container andNot(Container x) {
+			char[] c = new char[cardinality];
+			int k = 0;
+			for (int i = 0; i < cardinality; i++) {
+				if (!x.contains(content[i])) {
+					c[k++] = content[i];
+				}
+			}
+			return new ArrayContainer(c, k);
+		}
+
+		int numberOfRuns() {
+			if (cardinality == 0) {
+				return 0;
+			}
+			int runs = 1;
+			for (int i = 1; i < cardinality; i++) {
+				if (content[i] != content[i - 1] + 1) {
+					runs++;
+				}
+			}
+			return runs;
+		}
+
+		Container runOptimize() {
+			int runs = numberOfRuns();
+			if (RunContainer.sizeInBytes(runs) < 2 + 2 * cardinality) {
+				return toRunContainer();
+			}
+			return this;
+		}
+
+		RunContainer toRunContainer() {
+			RunContainer r = new RunContainer();
+			for (int i = 0; i < cardinality; i++) {
+				r.appendRun(content[i], content[i]);
+			}
+			return r;
+		}
+
+		BitmapContainer toBitmapContainer() {
+			long[] bitmap = new long[BITMAP_WORDS];
+			fillWords(bitmap, 0);
+			return new BitmapContainer(bitmap, cardinality);
+		}
+
+		void fillWords(long[] bitmap, int offset) {
+			for (int i = 0; i < cardinality; i++) {
+				bitmap[offset + (content[i] >>> 6)] |= 1L << content[i];
+			}
+		}
+
+		boolean sameAs(Container x) {
+			if (x instanceof ArrayContainer) {
+				ArrayContainer y = (ArrayContainer) x;
+				if (cardinality != y.cardinality) {
+					return false;
+				}
+				for (int i = 0; i < cardinality; i++) {
+					if (content[i] != y.content[i]) {
+						return false;
+					}
+				}
+				return true;
+			}
+			return super.sameAs(x);
+		}
+
+		byte type() {
+			return ARRAY;
+		}
+
+		void writeTo(DataOutput out) throws IOException {
+			out.writeShort(cardinality);
+			for (int i = 0; i < cardinality; i++) {
+				out.writeChar(content[i]);
+			}
+		}
+
+		int serializedSizeInBytes() {
+			return 2 + 2 * cardinality;
+		}
+
+		ArrayContainer copy() {
+			return new ArrayContainer(Arrays.copyOf(content, Math.max(cardinality, 1)), cardinality);
+		}
+	}
+
+	/**
+	 * 2^16 位的位图，元素多于 4096 个时使用
+	 */
+	static final class BitmapContainer extends Container {
+
+		final long[] bitmap;
+
+		int cardinality;
+
+		BitmapContainer(long[] bitmap, int cardinality) {
+			this.bitmap = bitmap;
+			this.cardinality = cardinality;
+		}
+
+		private void recount() {
+			int card = 0;
+			for (int i = 0; i < BITMAP_WORDS; i++) {
+				card += Long.bitCount(bitmap[i]);
+			}
+			cardinality = card;
+		}
+
+		Container add(char x) {
+			long before = bitmap[x >>> 6];
+			long after = before | (1L << x);
+			if (before != after) {
+				bitmap[x >>> 6] = after;
+				cardinality++;
+			}
+			return this;
+		}
+
+		Container add(int begin, int end) {
+			setBitmapRange(bitmap, 0, begin, end);
+			recount();
+			return this;
+		}
+
+		Container remove(char x) {
+			long before = bitmap[x >>> 6];
+			long after = before & ~(1L << x);
+			if (before != after) {
+				bitmap[x >>> 6] = after;
+				if (--cardinality <= ARRAY_MAX_SIZE) {
+					return Container.fromWords(bitmap);
+				}
+			}
+			return this;
+		}
+
+		Container remove(int begin, int end) {
+			clearBitmapRange(bitmap, begin, end);
+			recount();
+			if (cardinality <= ARRAY_MAX_SIZE) {
+				return Container.fromWords(bitmap);
+			}
+			return this;
+		}
+
+		boolean contains(char x) {
+			return (bitmap[x >>> 6] & (1L << x)) != 0;
+		}
+
+		int cardinality() {
+			return cardinality;
+		}
+
+		int nextSetBit(int from) {
+			int u = from >>> 6;
+			long word = bitmap[u] & (~0L << from);
+			while (true) {
+				if (word != 0) {
+					return u * 64 + Long.numberOfTrailingZeros(word);
+				}
+				if (++u == BITMAP_WORDS) {
+					return -1;
+				}
+				word = bitmap[u];
+			}
+		}
+
+		int nextClearBit(int from) {
+			int u = from >>> 6;
+			long word = ~bitmap[u] & (~0L << from);
+			while (true) {
+				if (word != 0) {
+					return u * 64 + Long.numberOfTrailingZeros(word);
+				}
+				if (++u == BITMAP_WORDS) {
+					return MAX_CAPACITY;
+				}
+				word = ~bitmap[u];
+			}
+		}
+
+		int last() {
+			for (int i = BITMAP_WORDS - 1; i >= 0; i--) {
+				if (bitmap[i] != 0) {
+					return i * 64 + 63 - Long.numberOfLeadingZeros(bitmap[i]);
+				}
+			}
+			return -1;
+		}
+
+		Container and(Container x) {
+			if (x instanceof ArrayContainer) {
+				return x.and(this);
+			}
+			long[] other = x.words();
+			long[] r = new long[BITMAP_WORDS];
+			for (int i = 0; i < BITMAP_WORDS; i++) {
+				r[i] = bitmap[i] & other[i];
+			}
+			return Container.fromWords(r);
+		}
+
+		Container or(Container x) {
+			long[] r = Arrays.copyOf(bitmap, BITMAP_WORDS);
+			if (x instanceof BitmapContainer) {
+				long[] other = ((BitmapContainer) x).bitmap;
+				for (int i = 0; i < BITMAP_WORDS; i++) {
+					r[i] |= other[i];
+				}
+			} else {
+				x.fillWords(r, 0);
+			}
+			BitmapContainer answer = new BitmapContainer(r, 0);
+			answer.recount();
+			return answer;
+		}
+
+		Container xor(Container x) {
+			long[] r = Arrays.copyOf(bitmap, BITMAP_WORDS);
+			if (x instanceof ArrayContainer) {
+				ArrayContainer y = (ArrayContainer) x;
+				for (int j = 0; j < y.cardinality; j++) {
+					r[y.content[j] >>> 6] ^= 1L << y.content[j];
+				}
+			} else {
+				long[] other = x.words();
+				for (int i = 0; i < BITMAP_WORDS; i++) {
+					r[i] ^= other[i];
+				}
+			}
+			return Container.fromWords(r);
+		}
+
+		Container andNot(Container x) {
+			long[] r = Arrays.copyOf(bitmap, BITMAP_WORDS);
+			if (x instanceof ArrayContainer) {
+				ArrayContainer y = (ArrayContainer) x;
+				for (int j = 0; j < y.cardinality; j++) {
+					r[y.content[j] >>> 6] &= ~(1L << y.content[j]);
+				}
+			} else {
+				long[] other = x.words();
+				for (int i = 0; i < BITMAP_WORDS; i++) {
+					r[i] &= ~other[i];
+				}
+			}
+			return Container.fromWords(r);
+		}
+
+		int numberOfRuns() {
+			int runs = 0;
+			long prev = 0;
+			for (int i = 0; i < BITMAP_WORDS; i++) {
+				long w = bitmap[i];
+				// 统计前一位为 0 的置位，即每个 run 的起点
+				runs += Long.bitCount(w & ~((w << 1) | (prev >>> 63)));
+				prev = w;
+			}
+			return runs;
+		}
+
+		Container runOptimize() {
+			if (RunContainer.sizeInBytes(numberOfRuns()) < 8 * BITMAP_WORDS) {
+				RunContainer r = new RunContainer();
+				int start = nextSetBit(0);
+				while (start >= 0) {
+					int end = nextClearBit(start);
+					r.appendRun(start, end - 1);
+					start = end < MAX_CAPACITY ? nextSetBit(end) : -1;
+				}
+				return r;
+			}
+			return this;
+		}
+
+		void fillWords(long[] words, int offset) {
+			for (int i = 0; i < BITMAP_WORDS; i++) {
+				words[offset + i] |= bitmap[i];
+			}
+		}
+
+		long[] words() {
+			return bitmap;
+		}
+
+		byte type() {
+			return BITMAP;
+		}
+
+		void writeTo(DataOutput out) throws IOException {
+			for (int i = 0; i < BITMAP_WORDS; i++) {
+				out.writeLong(bitmap[i]);
+			}
+		}
+
+		int serializedSizeInBytes() {
+			return 8 * BITMAP_WORDS;
+		}
+
+		BitmapContainer copy() {
+			return new BitmapContainer(Arrays.copyOf(bitmap, BITMAP_WORDS), cardinality);
+		}
+	}
+
+	/**
+	 * 行程编码，valueslength[2i] 为第 i 个 run 的起点，valueslength[2i + 1] 为长度减 1。
+	 * run 按起点有序且互不相邻。
+	 */
+	static final class RunContainer extends Container {
+
+		char[] valueslength;
+
+		int nbrruns;
+
+		RunContainer() {
+			this(new char[8], 0);
+		}
+
+		RunContainer(char[] valueslength, int nbrruns) {
+			this.valueslength = valueslength;
+			this.nbrruns = nbrruns;
+		}
+
+		static RunContainer range(int begin, int end) {
+			RunContainer r = new RunContainer(new char[2], 0);
+			r.appendRun(begin, end - 1);
+			return r;
+		}
+
+		static int sizeInBytes(int nbrruns) {
+			return 2 + 4 * nbrruns;
+		}
+
+		private int start(int i) {
+			return valueslength[2 * i];
+		}
+
+		private int end(int i) {
+			return valueslength[2 * i] + valueslength[2 * i + 1];
+		}
+
+		private void setRun(int i, int start, int end) {
+			valueslength[2 * i] = (char) start;
+			valueslength[2 * i + 1] = (char) (end - start);
+		}
+
+		private void ensureRuns(int n) {
+			if (2 * n > valueslength.length) {
+				valueslength = Arrays.copyOf(valueslength, Math.max(2 * n, valueslength.length * 2));
+			}
+		}
+
+		/**
+		 * 追加 [start, end]，与最后一个 run 重叠或相邻时合并；要求 start 不小于最后一个 run 的起点
+		 */
+		void appendRun(int start, int end) {
+			if (nbrruns > 0 && start <= end(nbrruns - 1) + 1) {
+				if (end > end(nbrruns - 1)) {
+					setRun(nbrruns - 1, start(nbrruns - 1), end);
+				}
+				return;
+			}
+			ensureRuns(nbrruns + 1);
+			setRun(nbrruns++, start, end);
+		}
+
+		private void insertRun(int i, int start, int end) {
+			ensureRuns(nbrruns + 1);
+			System.arraycopy(valueslength, 2 * i, valueslength, 2 * i + 2, 2 * (nbrruns - i));
+			setRun(i, start, end);
+			nbrruns++;
+		}
+
+		private void removeRun(int i) {
+			System.arraycopy(valueslength, 2 * i + 2, valueslength, 2 * i, 2 * (nbrruns - i - 1));
+			nbrruns--;
+		}
+
+		/**
+		 * 起点不大于 x 的最后一个 run，不存在时返回 -1
+		 */
+		private int findRun(int x) {
+			int low = 0;
+			int high = nbrruns - 1;
+			while (low <= high) {
+				int mid = (low + high) >>> 1;
+				if (start(mid) <= x) {
+					low = mid + 1;
+				} else {
+					high = mid - 1;
+				}
+			}
+			return high;
+		}
+
+		Container add(char x) {
+			int i = findRun(x);
+			if (i >= 0 && x <= end(i)) {
+				return this;
+			}
+			if (i >= 0 && x == end(i) + 1) {
+				if (i + 1 < nbrruns && start(i + 1) == x + 1) {
+					setRun(i, start(i), end(i + 1));
+					removeRun(i + 1);
+				} else {
+					setRun(i, start(i), x);
+				}
+				return this;
+			}
+			if (i + 1 < nbrruns && start(i + 1) == x + 1) {
+				setRun(i + 1, x, end(i + 1));
+				return this;
+			}
+			insertRun(i + 1, x, x);
+			return this;
+		}
+
+		Container add(int begin, int end) {
+			if (begin >= end) {
+				return this;
+			}
+			return runOr(this, range(begin, end));
+		}
+
+		Container remove(char x) {
+			int i = findRun(x);
+			if (i < 0 || x > end(i)) {
+				return this;
+			}
+			int s = start(i);
+			int e = end(i);
+			if (s == e) {
+				removeRun(i);
+			} else if (x == s) {
+				setRun(i, s + 1, e);
+			} else if (x == e) {
+				setRun(i, s, e - 1);
+			} else {
+				setRun(i, s, x - 1);
+				insertRun(i + 1, x + 1, e);
+			}
+			return this;
+		}
+
+		Container remove(int begin, int end) {
+			if (begin >= end) {
+				return this;
+			}
+			return runAndNot(this, range(begin, end)).toEfficientContainer();
+		}
+
+		boolean contains(char x) {
+			int i = findRun(x);
+			return i >= 0 && x <= end(i);
+		}
+
+		int cardinality() {
+			int card = nbrruns;
+			for (int i = 0; i < nbrruns; i++) {
+				card += valueslength[2 * i + 1];
+			}
+			return card;
+		}
+
+		int nextSetBit(int from) {
+			int i = findRun(from);
+			if (i >= 0 && from <= end(i)) {
+				return from;
+			}
+			return (i + 1 < nbrruns) ? start(i + 1) : -1;
+		}
+
+		int nextClearBit(int from) {
+			int i = findRun(from);
+			if (i >= 0 && from <= end(i)) {
+				return end(i) + 1;
+			}
+			return from;
+		}
+
+		int last() {
+			return end(nbrruns - 1);
+		}
+
+		Container and(Container x) {
+			if (x instanceof RunContainer) {
+				return runAnd(this, (RunContainer) x).toEfficientContainer();
+			}
+			return x.and(this);
+		}
+
+		Container or(Container x) {
+			if (x instanceof RunContainer) {
+				return runOr(this, (RunContainer) x);
+			}
+			if (x instanceof ArrayContainer) {
+				return runOr(this, ((ArrayContainer) x).toRunContainer()).toEfficientContainer();
+			}
+			return x.or(this);
+		}
+
+		Container xor(Container x) {
+			long[] r = new long[BITMAP_WORDS];
+			fillWords(r, 0);
+			long[] other = x.words();
+			for (int i = 0; i < BITMAP_WORDS; i++) {
+				r[i] ^= other[i];
+			}
+			return Container.fromWords(r);
+		}
+
+		Container andNot(Container x) {
+			if (x instanceof RunContainer) {
+				return runAndNot(this, (RunContainer) x).toEfficientContainer();
+			}
+			if (x instanceof ArrayContainer) {
+				return runAndNot(this, ((ArrayContainer) x).toRunContainer()).toEfficientContainer();
+			}
+			long[] r = new long[BITMAP_WORDS];
+			fillWords(r, 0);
+			long[] other = x.words();
+			for (int i = 0; i < BITMAP_WORDS; i++) {
+				r[i] &= ~other[i];
+			}
+			return Container.fromWords(r);
+		}
+
+		/**
+		 * 在行程编码、数组、位图三种表示中选择占用空间最小的
+		 */
+		Container toEfficientContainer() {
+			int card = cardinality();
+			int runBytes = sizeInBytes(nbrruns);
+			int arrayBytes = card <= ARRAY_MAX_SIZE ? 2 + 2 * card : Integer.MAX_VALUE;
+			int bitmapBytes = 8 * BITMAP_WORDS;
+			if (runBytes <= Math.min(arrayBytes, bitmapBytes)) {
+				return this;
+			}
+			if (arrayBytes <= bitmapBytes) {
+				char[] content = new char[card];
+				int k = 0;
+				for (int i = 0; i < nbrruns; i++) {
+					for (int v = start(i), e = end(i); v <= e; v++) {
+						content[k++] = (char) v;
+					}
+				}
+				return new ArrayContainer(content, card);
+			}
+			long[] bitmap = new long[BITMAP_WORDS];
+			fillWords(bitmap, 0);
+			return new BitmapContainer(bitmap, card);
+		}
+
+		Container runOptimize() {
+			return toEfficientContainer();
+		}
+
+		void fillWords(long[] bitmap, int offset) {
+			for (int i = 0; i < nbrruns; i++) {
+				setBitmapRange(bitmap, offset, start(i), end(i) + 1);
+			}
+		}
+
+		boolean sameAs(Container x) {
+			if (x instanceof RunContainer) {
+				RunContainer y = (RunContainer) x;
+				if (nbrruns != y.nbrruns) {
+					return false;
+				}
+				for (int i = 0; i < 2 * nbrruns; i++) {
+					if (valueslength[i] != y.valueslength[i]) {
+						return false;
+					}
+				}
+				return true;
+			}
+			return super.sameAs(x);
+		}
+
+		byte type() {
+			return RUN;
+		}
+
+		void writeTo(DataOutput out) throws IOException {
+			out.writeShort(nbrruns);
+			for (int i = 0; i < 2 * nbrruns; i++) {
+				out.writeChar(valueslength[i]);
+			}
+		}
+
+		int serializedSizeInBytes() {
+			return sizeInBytes(nbrruns);
+		}
+
+		RunContainer copy() {
+			return new RunContainer(Arrays.copyOf(valueslength, Math.max(2 * nbrruns, 2)), nbrruns);
+		}
+
+		static RunContainer runOr(RunContainer a, RunContainer b) {
+			RunContainer r = new RunContainer(new char[2 * (a.nbrruns + b.nbrruns)], 0);
+			int i = 0, j = 0;
+			while (i < a.nbrruns || j < b.nbrruns) {
+				if (j >= b.nbrruns || (i < a.nbrruns && a.start(i) <= b.start(j))) {
+					r.appendRun(a.start(i), a.end(i));
+					i++;
+				} else {
+					r.appendRun(b.start(j), b.end(j));
+					j++;
+				}
+			}
+			return r;
+		}
+
+		static RunContainer runAnd(RunContainer a, RunContainer b) {
+			RunContainer r = new RunContainer(new char[2 * (a.nbrruns + b.nbrruns)], 0);
+			int i = 0, j = 0;
+			while (i < a.nbrruns && j < b.nbrruns) {
+				int s = Math.max(a.start(i), b.start(j));
+				int e = Math.min(a.end(i), b.end(j));
+				if (s <= e) {
+					r.appendRun(s, e);
+				}
+				if (a.end(i) < b.end(j)) {
+					i++;
+				} else {
+					j++;
+				}
+			}
+			return r;
+		}
+
+		static RunContainer runAndNot(RunContainer a, RunContainer b) {
+			RunContainer r = new RunContainer(new char[2 * (a.nbrruns + b.nbrruns)], 0);
+			int j = 0;
+			for (int i = 0; i < a.nbrruns; i++) {
+				int cur = a.start(i);
+				int e = a.end(i);
+				while (j < b.nbrruns && b.end(j) < cur) {
+					j++;
+				}
+				while (j < b.nbrruns && b.start(j) <= e) {
+					if (b.start(j) > cur) {
+						r.appendRun(cur, b.start(j) - 1);
+					}
+					if (b.end(j) >= e) {
+						cur = e + 1;
+						break;
+					}
+					cur = b.end(j) + 1;
+					j++;
+				}
+				if (cur <= e) {
+					r.appendRun(cur, e);
+				}
+			}
+			return r;
+		}
+	}
+}
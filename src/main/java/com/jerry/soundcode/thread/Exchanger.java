@@ -2,6 +2,7 @@ package com.jerry.soundcode.thread;
 
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
 
 import com.jerry.soundcode.concurrent.atomic.AtomicInteger;
 import com.jerry.soundcode.concurrent.atomic.AtomicReference;
@@ -35,6 +36,15 @@ public class Exchanger<V> {
 	 * 这里的值是一个经验值。 
 	 */  
 	private static final int TIME_SPINS = SPINS / 20;
+
+	/**
+	 * 自适应自旋次数的上下限。Slot 根据观察到的交换等待时间调整自旋次数：
+	 * 对方通常很快到达时自旋到大约两倍的平均等待时间，
+	 * 平均等待时间比最多自旋的时间还长时只自旋 MIN_SPINS 次就阻塞，不白白占用 CPU。
+	 */
+	private static final int MIN_SPINS = SPINS / 16;
+
+	private static final int MAX_SPINS = SPINS * 4;
 	
 	private static final Object CANCEL = new Object();
 	
@@ -49,6 +59,9 @@ public class Exchanger<V> {
 		
 		/** 等待唤醒的线程 */  
 		public volatile Thread waiter;
+
+		/** 放入Slot的时间，配对的线程用它计算对方等了多久，0 表示还没有记录 */
+		volatile long start;
 		
 		public Node(Object item) {
 			this.item = item;
@@ -62,8 +75,65 @@ public class Exchanger<V> {
 	 */  
 	@SuppressWarnings("serial")
 	private static final class Slot extends AtomicReference<Object> {
+		/** 在这个Slot上完成的交换次数 */
+		volatile long exchanges;
+
+		/** 等待者自旋结束、准备阻塞的次数 */
+		volatile long parks;
+
+		/** 非0下标的Slot上自旋超时放弃的次数 */
+		volatile long spinTimeouts;
+
+		/** 等待者从放入Slot到被配对的平均时间（纳秒），指数滑动平均，并发更新时丢失一些样本没有关系 */
+		volatile long avgWaitNanos;
+
+		/** 每次自旋花费的纳秒数乘以16，0 表示还没有样本 */
+		volatile long spinCost;
+
 		@SuppressWarnings("unused")
 		long q0, q1, q2, q3, q4, q5, q6, q7, q8, q9, qa, qb, qc, qd, qe;
+
+		static final AtomicLongFieldUpdater<Slot> exchangesUpdater = AtomicLongFieldUpdater.newUpdater(Slot.class, "exchanges");
+		static final AtomicLongFieldUpdater<Slot> parksUpdater = AtomicLongFieldUpdater.newUpdater(Slot.class, "parks");
+		static final AtomicLongFieldUpdater<Slot> spinTimeoutsUpdater = AtomicLongFieldUpdater.newUpdater(Slot.class, "spinTimeouts");
+
+		/**
+		 * 配对成功的线程调用，start 为对方放入Slot的时间
+		 */
+		void recordExchange(long start) {
+			exchangesUpdater.getAndIncrement(this);
+			if(start != 0) {
+				long waited = System.nanoTime() - start;
+				long avg = avgWaitNanos;
+				avgWaitNanos = avg + ((waited - avg) >> 3);
+			}
+		}
+
+		/**
+		 * 等待者在自旋阶段被配对时调用，用 spinsUsed 次自旋花了多少时间估计每次自旋的开销
+		 */
+		void recordSpin(long waited, int spinsUsed) {
+			if(spinsUsed > 0 && waited > 0) {
+				long sample = (waited << 4) / spinsUsed;
+				long cost = spinCost;
+				spinCost = (cost == 0) ? sample : cost + ((sample - cost) >> 3);
+			}
+		}
+
+		/**
+		 * 根据平均等待时间和自旋开销计算的自旋次数
+		 */
+		int spinLimit() {
+			long cost = spinCost;
+			if(cost == 0) {
+				return SPINS;
+			}
+			long n = (avgWaitNanos << 5) / cost;
+			if(n > MAX_SPINS) {
+				return MIN_SPINS;
+			}
+			return (int) Math.max(MIN_SPINS, n);
+		}
 	}
 	
 	/** 
@@ -114,6 +184,8 @@ public class Exchanger<V> {
 					
 					// 然后唤醒you节点上等待的线程。
 					LockSupport.unpark(you.waiter);
+					// 记录交换次数和对方的等待时间。
+					slot.recordExchange(you.start);
 					// 返回you的item。
 					return you.item;
 				}
@@ -123,6 +195,8 @@ public class Exchanger<V> {
 				// 如果slot为空，那么说明没有要和当前线程交换数据的线程，  
 				// 那么当前线程先尝试把这个slot给占了。
 				
+				// 记录开始等待的时间。
+				me.start = System.nanoTime();
 				if(index == 0) {
 					// 如果slot下标为0，那么阻塞等待。
 					return timed ? awaitNanos(me, slot, nanos) : await(me, slot);
@@ -203,28 +277,39 @@ public class Exchanger<V> {
 	}
 	
 	private Object spinWait(Node node, Slot slot) {
-		int spins = SPINS;
+		// 自旋次数根据这个slot上观察到的等待时间调整。
+		int limit = slot.spinLimit();
+		int spins = limit;
 		for(;;) {
 			Object v = node.get();
 			if(v != null) {
+				if(v != CANCEL) {
+					// 在自旋阶段等到了，记录自旋的开销。
+					slot.recordSpin(System.nanoTime() - node.start, limit - spins);
+				}
 				return v;
 			} else if(spins > 0) {
 				// 先自旋  
 				--spins;
-			} else {
+			} else if(tryCancel(node, slot)) {
 				// 自旋了指定的次数还没等到交换的数据，尝试取消。
-				tryCancel(node, slot);
+				Slot.spinTimeoutsUpdater.getAndIncrement(slot);
 			}
 		}
 	}
 
 	private Object await(Node node, Slot slot) {
 		Thread w = Thread.currentThread();
-		int spins = SPINS;
+		int limit = slot.spinLimit();
+		int spins = limit;
 		for(;;) {
 			Object v = node.get();
 			if(v != null) {
 				// 如果已经被其他线程填充了值，那么返回这个值。
+				if(v != CANCEL && node.waiter == null) {
+					// 在自旋阶段等到了，记录自旋的开销。
+					slot.recordSpin(System.nanoTime() - node.start, limit - spins);
+				}
 				return v;
 			} else if(spins > 0) {
 				// 先自旋几次。
@@ -232,6 +317,7 @@ public class Exchanger<V> {
 			} else if(node.waiter == null) {
 				// 自旋阶段完毕后，将当前线程设置到node的waiter域。  
 				node.waiter = w;
+				Slot.parksUpdater.getAndIncrement(slot);
 			} else if(w.isInterrupted()) {
 				// 如果当前线程被中断，尝试取消当前node。 
 				tryCancel(node, slot);
@@ -247,7 +333,8 @@ public class Exchanger<V> {
 	 * 如果在Slot被填充之前超时或者被中断，那么操作失败。 
 	 */ 
 	private Object awaitNanos(Node node, Slot slot, long nanos) {
-		int spins = TIME_SPINS;
+		// 每次自旋都要检查时间，所以自旋次数比不限时的少。
+		int spins = slot.spinLimit() * TIME_SPINS / Math.max(SPINS, 1);
 		long lastTime = 0;
 		Thread w = null;
 		for(;;) {
@@ -271,6 +358,7 @@ public class Exchanger<V> {
 				} else if(node.waiter == null) {
 					// 自旋阶段完毕后，将当前线程设置到node的waiter域。
 					node.waiter = w; 
+					Slot.parksUpdater.getAndIncrement(slot);
 				} else if(w.isInterrupted()) {
 					// 如果当前线程被中断，尝试取消node。
 					tryCancel(node, slot);
@@ -301,6 +389,7 @@ public class Exchanger<V> {
 							
 							// 如果交换成功(把当前节点的数据交给you)，唤醒you上面等待的线程。
 							LockSupport.unpark(you.waiter);
+							slot.recordExchange(you.start);
 							// 返回you的数据。
 							return you.item;
 						}
@@ -372,4 +461,67 @@ public class Exchanger<V> {
 		}
 		throw new InterruptedException();
 	}
+
+	/** 
+	 * 当前正在使用的Slot个数，竞争激烈时增加，自旋等待超时时减少。 
+	 */ 
+	public int getArenaSize() {
+		return max.get() + 1;
+	}
+
+	/** 
+	 * 累计完成的交换次数，两次读取的差值除以间隔时间就是交换速率。 
+	 * 各个Slot分别计数，读取时求和，不影响正在进行的交换。 
+	 */ 
+	public long getExchangeCount() {
+		long n = 0;
+		for(Slot slot : arena) {
+			if(slot != null) {
+				n += slot.exchanges;
+			}
+		}
+		return n;
+	}
+
+	/** 
+	 * 累计自旋结束后准备阻塞的次数，和交换次数的比值越高说明对方到达得越慢。 
+	 */ 
+	public long getParkCount() {
+		long n = 0;
+		for(Slot slot : arena) {
+			if(slot != null) {
+				n += slot.parks;
+			}
+		}
+		return n;
+	}
+
+	/** 
+	 * 累计在非0下标的Slot上自旋超时、退回到更小下标的次数。 
+	 */ 
+	public long getSpinTimeoutCount() {
+		long n = 0;
+		for(Slot slot : arena) {
+			if(slot != null) {
+				n += slot.spinTimeouts;
+			}
+		}
+		return n;
+	}
+
+	/** 
+	 * 按交换次数加权的平均等待时间（纳秒），即等待者从放入Slot到被配对的时间。 
+	 */ 
+	public long getAverageWaitNanos() {
+		long total = 0;
+		long weighted = 0;
+		for(Slot slot : arena) {
+			if(slot != null) {
+				long n = slot.exchanges;
+				total += n;
+				weighted += n * slot.avgWaitNanos;
+			}
+		}
+		return (total == 0) ? 0 : weighted / total;
+	}
 }
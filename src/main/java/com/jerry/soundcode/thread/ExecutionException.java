@@ -15,7 +15,7 @@ public class ExecutionException extends Exception {
     }
 	
 	public ExecutionException(Throwable cause) {
-        super();
+        super(cause);
     }
 
 }
@@ -7,6 +7,7 @@ import java.security.PrivilegedExceptionAction;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 
+import com.jerry.soundcode.concurrent.atomic.AtomicInteger;
 import com.jerry.soundcode.concurrent.collection.LinkedBlockingQueue;
 import com.jerry.soundcode.concurrent.collection.SynchronousQueue;
 import com.jerry.soundcode.list.Collection;
@@ -39,6 +40,22 @@ public class Executors {
 		return new ThreadPoolExecutor(0, Integer.MAX_VALUE, 60L, TimeUnit.SECONDS, new SynchronousQueue<Runnable>(), threadFactory);
 	}
 	
+	public static ExecutorService newWorkStealingPool(int parallelism) {
+		return new ForkJoinPool(parallelism);
+	}
+	
+	public static ExecutorService newWorkStealingPool() {
+		return new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+	}
+	
+	public static ExecutorService newStripedThreadPool(int nThreads) {
+		return new StripedThreadPoolExecutor(nThreads);
+	}
+	
+	public static ExecutorService newStripedThreadPool(int nThreads, ThreadFactory threadFactory) {
+		return new StripedThreadPoolExecutor(nThreads, StripedThreadPoolExecutor.DEFAULT_QUEUE_CAPACITY, threadFactory);
+	}
+	
 	public static ScheduledExecutorService newSingleThreadScheduledExecutor() {
 		return new DelegatedScheduledExecutorService(new ScheduledThreadPoolExecutor(1));
 	}
@@ -269,9 +286,21 @@ public class Executors {
 	
 	static class DefaultThreadFactory implements ThreadFactory {
 		
+		private static final AtomicInteger poolNumber = new AtomicInteger(1);
+		private final AtomicInteger threadNumber = new AtomicInteger(1);
+		private final String namePrefix;
+		
+		DefaultThreadFactory() {
+			namePrefix = "pool-" + poolNumber.getAndIncrement() + "-thread-";
+		}
+		
 		@Override
 		public Thread newThread(Runnable r) {
-			return null;
+			Thread t = new Thread(r, namePrefix + threadNumber.getAndIncrement());
+			if(t.isDaemon()) {
+				t.setDaemon(false);
+			}
+			return t;
 		}
 		
 	}
@@ -0,0 +1,634 @@
+package com.jerry.soundcode.thread;
+
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import com.jerry.soundcode.concurrent.atomic.AtomicInteger;
+import com.jerry.soundcode.concurrent.locks.Condition;
+import com.jerry.soundcode.concurrent.locks.ReentrantLock;
+import com.jerry.soundcode.list.ArrayList;
+import com.jerry.soundcode.list.Collection;
+import com.jerry.soundcode.list.Iterator;
+import com.jerry.soundcode.list.List;
+
+/**
+ * 运行 ForkJoinTask 的线程池，用于递归分治的计算。
+ *
+ * 和 ThreadPoolExecutor 所有线程共用一个 BlockingQueue 不同，这里每个工作线程有自己的 WorkStealingDeque：
+ * 任务 fork 出的子任务压入本线程的队列，本线程按后进先出执行，空闲的线程随机挑选别的线程的队列窃取。
+ * 外部线程提交的任务放在一个单独的提交队列中，由空闲的工作线程窃取。
+ *
+ * 工作线程按需创建，最多 parallelism 个。找不到任务的线程在 work 条件上等待，
+ * 只有存在空闲线程时 push 才需要加锁唤醒，线程都忙的时候 fork 只是一次无竞争的入队。
+ */
+public class ForkJoinPool extends AbstractExecutorService {
+
+	public static interface ForkJoinWorkerThreadFactory {
+		ForkJoinWorkerThread newThread(ForkJoinPool pool);
+	}
+
+	static final class DefaultForkJoinWorkerThreadFactory implements ForkJoinWorkerThreadFactory {
+		public ForkJoinWorkerThread newThread(ForkJoinPool pool) {
+			return new ForkJoinWorkerThread(pool);
+		}
+	}
+
+	public static final ForkJoinWorkerThreadFactory defaultForkJoinWorkerThreadFactory =
+			new DefaultForkJoinWorkerThreadFactory();
+
+	private static final int MAX_PARALLELISM = 0x7fff;
+
+	/** join 时找不到可以帮忙的任务，每次最多等待的毫秒数，之后再尝试帮忙 */
+	private static final long JOIN_TIMEOUT_MILLIS = 1L;
+
+	private static final AtomicInteger poolNumberSequence = new AtomicInteger();
+
+	private static volatile ForkJoinPool common;
+
+	volatile int runState;
+	static final int RUNNING 	= 0;
+	static final int SHUTDOWN 	= 1;
+	static final int STOP		= 2;
+	static final int TERMINATED = 3;
+
+	private final int parallelism;
+
+	private final ForkJoinWorkerThreadFactory factory;
+
+	private final boolean daemon;
+
+	private final int poolNumber;
+
+	private final ForkJoinWorkerThread[] workers;
+
+	/** 已经创建的工作线程数，只在 mainLock 中增加 */
+	private volatile int workerCount;
+
+	/** 还没有退出的工作线程数 */
+	private int liveWorkers;
+
+	/** 外部线程提交的任务，push 需要持有 submissionLock */
+	private final WorkStealingDeque<ForkJoinTask<?>> submissionQueue = new WorkStealingDeque<ForkJoinTask<?>>();
+
+	private final ReentrantLock submissionLock = new ReentrantLock();
+
+	private final ReentrantLock mainLock = new ReentrantLock();
+
+	/** 空闲的工作线程在这里等待新的任务 */
+	private final Condition work = mainLock.newCondition();
+
+	private final Condition termination = mainLock.newCondition();
+
+	/** 在 work 上等待或准备等待的线程数 */
+	private volatile int idleWorkers;
+
+	/** 唤醒的次数，只在 mainLock 中修改，等待的线程以它是否变化判断是否错过了唤醒 */
+	private volatile int eventCount;
+
+	private final AtomicInteger nextWorkerNumber = new AtomicInteger();
+
+	public ForkJoinPool() {
+		this(Runtime.getRuntime().availableProcessors(), defaultForkJoinWorkerThreadFactory);
+	}
+
+	public ForkJoinPool(int parallelism) {
+		this(parallelism, defaultForkJoinWorkerThreadFactory);
+	}
+
+	public ForkJoinPool(int parallelism, ForkJoinWorkerThreadFactory factory) {
+		this(parallelism, factory, false);
+	}
+
+	private ForkJoinPool(int parallelism, ForkJoinWorkerThreadFactory factory, boolean daemon) {
+		if (parallelism <= 0 || parallelism > MAX_PARALLELISM) {
+			throw new IllegalArgumentException();
+		}
+		if (factory == null) {
+			throw new NullPointerException();
+		}
+		this.parallelism = parallelism;
+		this.factory = factory;
+		this.daemon = daemon;
+		this.poolNumber = poolNumberSequence.incrementAndGet();
+		this.workers = new ForkJoinWorkerThread[parallelism];
+	}
+
+	/**
+	 * 公共的线程池，在非工作线程中 fork 的任务提交到这里。
+	 * 工作线程是守护线程，shutdown 对它不起作用。
+	 */
+	public static ForkJoinPool commonPool() {
+		ForkJoinPool p = common;
+		if (p == null) {
+			synchronized (ForkJoinPool.class) {
+				p = common;
+				if (p == null) {
+					int n = Runtime.getRuntime().availableProcessors() - 1;
+					common = p = new ForkJoinPool(n > 0 ? n : 1, defaultForkJoinWorkerThreadFactory, true);
+				}
+			}
+		}
+		return p;
+	}
+
+	final String nextWorkerName() {
+		return "ForkJoinPool-" + poolNumber + "-worker-" + nextWorkerNumber.incrementAndGet();
+	}
+
+	// ------------------------- 工作线程 -------------------------
+
+	/**
+	 * 有新任务时调用：有空闲线程就唤醒一个，否则线程数没到 parallelism 时再创建一个
+	 */
+	final void signalWork() {
+		if (idleWorkers > 0) {
+			final ReentrantLock mainLock = this.mainLock;
+			mainLock.lock();
+			try {
+				if (idleWorkers > 0) {
+					eventCount++;
+					work.signal();
+				}
+			} finally {
+				mainLock.unlock();
+			}
+		} else if (workerCount < parallelism) {
+			addWorker();
+		}
+	}
+
+	private void addWorker() {
+		final ReentrantLock mainLock = this.mainLock;
+		mainLock.lock();
+		try {
+			int n = workerCount;
+			if (n >= parallelism || runState != RUNNING) {
+				return;
+			}
+			ForkJoinWorkerThread w = factory.newThread(this);
+			if (w == null) {
+				return;
+			}
+			if (daemon) {
+				w.setDaemon(true);
+			}
+			w.poolIndex = n;
+			workers[n] = w;
+			workerCount = n + 1;
+			liveWorkers++;
+			boolean started = false;
+			try {
+				w.start();
+				started = true;
+			} finally {
+				if (!started) {
+					workers[n] = null;
+					workerCount = n;
+					liveWorkers--;
+				}
+			}
+		} finally {
+			mainLock.unlock();
+		}
+	}
+
+	final void runWorker(ForkJoinWorkerThread w) {
+		ForkJoinTask<?> t = null;
+		while (runState < STOP) {
+			if (t == null && (t = scan(w)) == null && (t = awaitWork(w)) == null) {
+				break;
+			}
+			w.execStolen(t);
+			t = null;
+		}
+	}
+
+	/**
+	 * 从随机的位置开始依次尝试窃取其他工作线程的任务，最后是提交队列
+	 */
+	private ForkJoinTask<?> scan(ForkJoinWorkerThread w) {
+		ForkJoinWorkerThread[] ws = workers;
+		int n = workerCount;
+		if (n > 1) {
+			int r = w.nextRandom() & Integer.MAX_VALUE;
+			for (int i = 0; i < n; i++) {
+				ForkJoinWorkerThread v = ws[(r + i) % n];
+				if (v != null && v != w) {
+					ForkJoinTask<?> t = v.workQueue.poll();
+					if (t != null) {
+						return t;
+					}
+				}
+			}
+		}
+		return submissionQueue.poll();
+	}
+
+	/**
+	 * 登记为空闲后再扫描一遍，仍然没有任务时等待唤醒。
+	 * 返回找到的任务，线程应该退出时返回 null。
+	 */
+	private ForkJoinTask<?> awaitWork(ForkJoinWorkerThread w) {
+		final ReentrantLock mainLock = this.mainLock;
+		for (;;) {
+			int ec;
+			mainLock.lock();
+			try {
+				idleWorkers++;
+				ec = eventCount;
+			} finally {
+				mainLock.unlock();
+			}
+
+			// push 在登记之前完成的话这里一定能看到，之后完成的话 push 一方会看到 idleWorkers 并唤醒
+			ForkJoinTask<?> t = (runState < STOP) ? scan(w) : null;
+
+			boolean exit = false;
+			mainLock.lock();
+			try {
+				if (t == null) {
+					while (eventCount == ec) {
+						if (runState != RUNNING) {
+							exit = true;
+							break;
+						}
+						try {
+							work.await();
+						} catch (InterruptedException ignore) {
+						}
+					}
+				}
+				idleWorkers--;
+			} finally {
+				mainLock.unlock();
+			}
+			if (t != null || exit) {
+				return t;
+			}
+			if (runState >= STOP) {
+				return null;
+			}
+		}
+	}
+
+	final void deregisterWorker(ForkJoinWorkerThread w, Throwable ex) {
+		final ReentrantLock mainLock = this.mainLock;
+		mainLock.lock();
+		try {
+			if (--liveWorkers == 0) {
+				tryTerminate();
+			}
+		} finally {
+			mainLock.unlock();
+		}
+		if (ex != null) {
+			if (ex instanceof RuntimeException) {
+				throw (RuntimeException) ex;
+			}
+			if (ex instanceof Error) {
+				throw (Error) ex;
+			}
+		}
+	}
+
+	/**
+	 * 调用时持有 mainLock
+	 */
+	private void tryTerminate() {
+		if (runState >= SHUTDOWN && runState != TERMINATED && liveWorkers == 0) {
+			runState = TERMINATED;
+			termination.signalAll();
+			terminated();
+		}
+	}
+
+	/**
+	 * 工作线程 w 等待 task 完成，等待期间尽量帮忙：
+	 * 先执行自己队列中的任务（task 之后 fork 的子任务，或者 task 本身），
+	 * 再找到窃取了 task 的线程，窃取它队列中 task 拆出的子任务来执行，
+	 * 然后是提交队列中的任务，都没有时在 task 上短暂等待后重试。
+	 */
+	final int awaitJoin(ForkJoinWorkerThread w, ForkJoinTask<?> task) {
+		int s;
+		while ((s = task.status) >= 0) {
+			ForkJoinTask<?> t = w.workQueue.pop();
+			if (t != null) {
+				t.doExec();
+				continue;
+			}
+			if ((t = findStolenSubtask(w, task)) != null || (t = submissionQueue.poll()) != null) {
+				w.execStolen(t);
+				continue;
+			}
+			try {
+				task.internalWait(JOIN_TIMEOUT_MILLIS);
+			} catch (InterruptedException ignore) {
+				// join 不响应中断
+			}
+		}
+		return s;
+	}
+
+	private ForkJoinTask<?> findStolenSubtask(ForkJoinWorkerThread w, ForkJoinTask<?> task) {
+		ForkJoinWorkerThread[] ws = workers;
+		int n = workerCount;
+		for (int i = 0; i < n; i++) {
+			ForkJoinWorkerThread v = ws[i];
+			if (v != null && v != w && v.currentSteal == task) {
+				return v.workQueue.poll();
+			}
+		}
+		return null;
+	}
+
+	// ------------------------- 提交任务 -------------------------
+
+	final void externalPush(ForkJoinTask<?> task) {
+		if (task == null) {
+			throw new NullPointerException();
+		}
+		final ReentrantLock lock = this.submissionLock;
+		lock.lock();
+		try {
+			if (runState != RUNNING) {
+				throw new RejectedExecutionException();
+			}
+			submissionQueue.push(task);
+		} finally {
+			lock.unlock();
+		}
+		signalWork();
+	}
+
+	/**
+	 * 执行任务并返回结果。在本池的工作线程中调用时直接执行。
+	 */
+	public <T> T invoke(ForkJoinTask<T> task) {
+		if (task == null) {
+			throw new NullPointerException();
+		}
+		Thread t = Thread.currentThread();
+		if (t instanceof ForkJoinWorkerThread && ((ForkJoinWorkerThread) t).pool == this) {
+			return task.invoke();
+		}
+		externalPush(task);
+		return task.join();
+	}
+
+	public void execute(ForkJoinTask<?> task) {
+		externalPush(task);
+	}
+
+	@Override
+	public void execute(Runnable task) {
+		if (task == null) {
+			throw new NullPointerException();
+		}
+		ForkJoinTask<?> job;
+		if (task instanceof ForkJoinTask<?>) {
+			job = (ForkJoinTask<?>) task;
+		} else {
+			job = ForkJoinTask.adapt(task);
+		}
+		externalPush(job);
+	}
+
+	public <T> ForkJoinTask<T> submit(ForkJoinTask<T> task) {
+		externalPush(task);
+		return task;
+	}
+
+	@Override
+	public <T> ForkJoinTask<T> submit(Callable<T> task) {
+		ForkJoinTask<T> job = ForkJoinTask.adapt(task);
+		externalPush(job);
+		return job;
+	}
+
+	@Override
+	public <T> ForkJoinTask<T> submit(Runnable task, T result) {
+		ForkJoinTask<T> job = ForkJoinTask.adapt(task, result);
+		externalPush(job);
+		return job;
+	}
+
+	@Override
+	public ForkJoinTask<?> submit(Runnable task) {
+		if (task == null) {
+			throw new NullPointerException();
+		}
+		ForkJoinTask<?> job;
+		if (task instanceof ForkJoinTask<?>) {
+			job = (ForkJoinTask<?>) task;
+		} else {
+			job = ForkJoinTask.adapt(task);
+		}
+		externalPush(job);
+		return job;
+	}
+
+	@Override
+	public <T> List<Future<T>> invokeAll(Collection<? extends Callable<T>> tasks) {
+		if (tasks == null) {
+			throw new NullPointerException();
+		}
+		List<Future<T>> futures = new ArrayList<Future<T>>(tasks.size());
+		boolean done = false;
+		try {
+			for (Iterator<? extends Callable<T>> it = tasks.iterator(); it.hasNext(); ) {
+				ForkJoinTask<T> f = ForkJoinTask.adapt(it.next());
+				futures.add(f);
+				externalPush(f);
+			}
+			for (int i = 0; i < futures.size(); i++) {
+				((ForkJoinTask<?>) futures.get(i)).quietlyJoin();
+			}
+			done = true;
+			return futures;
+		} finally {
+			if (!done) {
+				for (int i = 0; i < futures.size(); i++) {
+					futures.get(i).cancel(false);
+				}
+			}
+		}
+	}
+
+	// ------------------------- 关闭 -------------------------
+
+	/**
+	 * 不再接受新的任务，已经提交的任务会执行完。对 commonPool 无效。
+	 */
+	@Override
+	public void shutdown() {
+		if (this == common) {
+			return;
+		}
+		advanceRunState(SHUTDOWN);
+	}
+
+	/**
+	 * 取消所有排队中的任务，中断工作线程。对 commonPool 无效。
+	 * ForkJoinTask 不是 Runnable，返回的列表总是空的。
+	 */
+	@Override
+	public List<Runnable> shutdownNow() {
+		if (this == common) {
+			return new ArrayList<Runnable>();
+		}
+		advanceRunState(STOP);
+		cancelTasks(submissionQueue);
+		final ReentrantLock mainLock = this.mainLock;
+		mainLock.lock();
+		try {
+			for (int i = 0; i < workerCount; i++) {
+				ForkJoinWorkerThread w = workers[i];
+				if (w != null) {
+					cancelTasks(w.workQueue);
+					try {
+						w.interrupt();
+					} catch (SecurityException ignore) {
+					}
+				}
+			}
+		} finally {
+			mainLock.unlock();
+		}
+		return new ArrayList<Runnable>();
+	}
+
+	private void advanceRunState(int targetState) {
+		// 先拿 submissionLock，保证之后不会再有外部任务进入提交队列
+		final ReentrantLock lock = this.submissionLock;
+		lock.lock();
+		try {
+			final ReentrantLock mainLock = this.mainLock;
+			mainLock.lock();
+			try {
+				if (runState < targetState) {
+					runState = targetState;
+				}
+				eventCount++;
+				work.signalAll();
+				tryTerminate();
+			} finally {
+				mainLock.unlock();
+			}
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	private static void cancelTasks(WorkStealingDeque<ForkJoinTask<?>> q) {
+		ForkJoinTask<?> t;
+		while ((t = q.poll()) != null) {
+			t.cancel(false);
+		}
+	}
+
+	@Override
+	public boolean isShutdown() {
+		return runState != RUNNING;
+	}
+
+	public boolean isTerminating() {
+		int state = runState;
+		return state == SHUTDOWN || state == STOP;
+	}
+
+	@Override
+	public boolean isTerminated() {
+		return runState == TERMINATED;
+	}
+
+	@Override
+	public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+		long nanos = unit.toNanos(timeout);
+		final ReentrantLock mainLock = this.mainLock;
+		mainLock.lock();
+		try {
+			for (;;) {
+				if (runState == TERMINATED) {
+					return true;
+				}
+				if (nanos <= 0) {
+					return false;
+				}
+				nanos = termination.awaitNanos(nanos);
+			}
+		} finally {
+			mainLock.unlock();
+		}
+	}
+
+	protected void terminated() { }
+
+	// ------------------------- 监控 -------------------------
+
+	public int getParallelism() {
+		return parallelism;
+	}
+
+	/**
+	 * 已经启动的工作线程数
+	 */
+	public int getPoolSize() {
+		return workerCount;
+	}
+
+	/**
+	 * 空闲等待中的工作线程数
+	 */
+	public int getIdleCount() {
+		return idleWorkers;
+	}
+
+	/**
+	 * 工作线程从别的工作线程或提交队列取得任务的总次数
+	 */
+	public long getStealCount() {
+		long n = 0;
+		ForkJoinWorkerThread[] ws = workers;
+		for (int i = 0; i < workerCount; i++) {
+			ForkJoinWorkerThread w = ws[i];
+			if (w != null) {
+				n += w.stealCount;
+			}
+		}
+		return n;
+	}
+
+	/**
+	 * 工作线程队列中的任务数，不包括提交队列
+	 */
+	public long getQueuedTaskCount() {
+		long n = 0;
+		ForkJoinWorkerThread[] ws = workers;
+		for (int i = 0; i < workerCount; i++) {
+			ForkJoinWorkerThread w = ws[i];
+			if (w != null) {
+				n += w.workQueue.size();
+			}
+		}
+		return n;
+	}
+
+	public int getQueuedSubmissionCount() {
+		return submissionQueue.size();
+	}
+
+	@Override
+	public String toString() {
+		int state = runState;
+		String level = (state == RUNNING) ? "Running"
+				: (state == TERMINATED) ? "Terminated" : "Shutting down";
+		return super.toString() + "[" + level
+				+ ", parallelism = " + parallelism
+				+ ", size = " + workerCount
+				+ ", idle = " + idleWorkers
+				+ ", steals = " + getStealCount()
+				+ ", tasks = " + getQueuedTaskCount()
+				+ ", submissions = " + getQueuedSubmissionCount()
+				+ "]";
+	}
+}
@@ -0,0 +1,429 @@
+package com.jerry.soundcode.thread;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+
+/**
+ * 在 ForkJoinPool 中运行的轻量级任务。
+ *
+ * fork 把任务压入当前工作线程自己的双端队列，其他空闲的工作线程可以把它窃取过去执行；
+ * join 等待任务完成，等待期间工作线程不会闲着：任务还在自己队列顶端时直接自己执行，
+ * 被别的线程窃取时帮窃取者执行它拆出来的子任务，都帮不上时才阻塞。
+ *
+ * 不在 ForkJoinPool 工作线程中调用 fork 时，任务提交到 commonPool。
+ */
+public abstract class ForkJoinTask<V> implements Future<V> {
+
+	/** 状态，小于 0 表示已经完成 */
+	volatile int status;
+	static final int NORMAL 		= -1;
+	static final int CANCELLED 		= -2;
+	static final int EXCEPTIONAL 	= -3;
+	/** 有线程在 wait，完成时需要 notifyAll */
+	static final int SIGNAL 		= 1;
+
+	@SuppressWarnings("rawtypes")
+	private static final AtomicIntegerFieldUpdater<ForkJoinTask> STATUS =
+			AtomicIntegerFieldUpdater.newUpdater(ForkJoinTask.class, "status");
+
+	private Throwable exception;
+
+	public abstract V getRawResult();
+
+	protected abstract void setRawResult(V value);
+
+	/**
+	 * 执行任务，返回 true 表示正常完成
+	 */
+	protected abstract boolean exec();
+
+	private int setCompletion(int completion) {
+		for (;;) {
+			int s = status;
+			if (s < 0) {
+				return s;
+			}
+			if (STATUS.compareAndSet(this, s, completion)) {
+				if (s == SIGNAL) {
+					synchronized (this) {
+						notifyAll();
+					}
+				}
+				return completion;
+			}
+		}
+	}
+
+	private int setExceptionalCompletion(Throwable ex) {
+		if (status >= 0) {
+			synchronized (this) {
+				if (status >= 0) {
+					exception = ex;
+				}
+			}
+		}
+		return setCompletion(EXCEPTIONAL);
+	}
+
+	/**
+	 * 执行任务并记录结果，任务抛出的异常保存下来在 join 时重新抛出
+	 */
+	final int doExec() {
+		int s = status;
+		if (s >= 0) {
+			boolean completed;
+			try {
+				completed = exec();
+			} catch (Throwable ex) {
+				return setExceptionalCompletion(ex);
+			}
+			if (completed) {
+				s = setCompletion(NORMAL);
+			} else {
+				s = status;
+			}
+		}
+		return s;
+	}
+
+	/**
+	 * 在任务的监视器上等待最多 millis 毫秒，millis 为 0 时一直等到完成
+	 */
+	final void internalWait(long millis) throws InterruptedException {
+		int s = status;
+		if (s >= 0 && (s == SIGNAL || STATUS.compareAndSet(this, s, SIGNAL))) {
+			synchronized (this) {
+				if (status >= 0) {
+					wait(millis);
+				} else {
+					notifyAll();
+				}
+			}
+		}
+	}
+
+	/**
+	 * 非工作线程阻塞等待任务完成
+	 */
+	private int externalAwaitDone() {
+		boolean interrupted = false;
+		int s;
+		while ((s = status) >= 0) {
+			try {
+				internalWait(0L);
+			} catch (InterruptedException e) {
+				interrupted = true;
+			}
+		}
+		if (interrupted) {
+			Thread.currentThread().interrupt();
+		}
+		return s;
+	}
+
+	private int externalInterruptibleAwaitDone(long millis) throws InterruptedException {
+		if (Thread.interrupted()) {
+			throw new InterruptedException();
+		}
+		int s;
+		while ((s = status) >= 0) {
+			internalWait(millis);
+			if (millis > 0L) {
+				break;
+			}
+		}
+		return status;
+	}
+
+	private int doJoin() {
+		int s = status;
+		if (s < 0) {
+			return s;
+		}
+		Thread t = Thread.currentThread();
+		if (t instanceof ForkJoinWorkerThread) {
+			ForkJoinWorkerThread w = (ForkJoinWorkerThread) t;
+			if (w.workQueue.tryUnpush(this) && (s = doExec()) < 0) {
+				return s;
+			}
+			return w.pool.awaitJoin(w, this);
+		}
+		return externalAwaitDone();
+	}
+
+	private int doInvoke() {
+		int s = doExec();
+		if (s < 0) {
+			return s;
+		}
+		Thread t = Thread.currentThread();
+		if (t instanceof ForkJoinWorkerThread) {
+			ForkJoinWorkerThread w = (ForkJoinWorkerThread) t;
+			return w.pool.awaitJoin(w, this);
+		}
+		return externalAwaitDone();
+	}
+
+	private V reportResult(int s) {
+		if (s == CANCELLED) {
+			throw new CancellationException();
+		}
+		if (s == EXCEPTIONAL) {
+			Throwable ex = exception;
+			if (ex instanceof RuntimeException) {
+				throw (RuntimeException) ex;
+			}
+			if (ex instanceof Error) {
+				throw (Error) ex;
+			}
+			throw new RuntimeException(ex);
+		}
+		return getRawResult();
+	}
+
+	/**
+	 * 在工作线程中压入自己的队列，否则提交到 commonPool
+	 */
+	public final ForkJoinTask<V> fork() {
+		Thread t = Thread.currentThread();
+		if (t instanceof ForkJoinWorkerThread) {
+			((ForkJoinWorkerThread) t).pushTask(this);
+		} else {
+			ForkJoinPool.commonPool().externalPush(this);
+		}
+		return this;
+	}
+
+	/**
+	 * 等待任务完成并返回结果，任务异常结束时抛出同样的异常
+	 */
+	public final V join() {
+		return reportResult(doJoin());
+	}
+
+	/**
+	 * 在当前线程执行任务并返回结果
+	 */
+	public final V invoke() {
+		return reportResult(doInvoke());
+	}
+
+	public final void quietlyJoin() {
+		doJoin();
+	}
+
+	public final void quietlyInvoke() {
+		doInvoke();
+	}
+
+	/**
+	 * fork t2，当前线程执行 t1，再 join t2
+	 */
+	public static void invokeAll(ForkJoinTask<?> t1, ForkJoinTask<?> t2) {
+		t2.fork();
+		t1.reportResult(t1.doInvoke());
+		t2.reportResult(t2.doJoin());
+	}
+
+	/**
+	 * 除第一个任务外全部 fork，当前线程执行第一个任务，再按顺序 join 其余任务
+	 */
+	public static void invokeAll(ForkJoinTask<?>... tasks) {
+		int n = tasks.length;
+		if (n == 0) {
+			return;
+		}
+		for (int i = 1; i < n; i++) {
+			tasks[i].fork();
+		}
+		Throwable ex = null;
+		for (int i = 0; i < n; i++) {
+			ForkJoinTask<?> t = tasks[i];
+			int s = (i == 0) ? t.doInvoke() : t.doJoin();
+			if (s != NORMAL && ex == null) {
+				ex = (s == CANCELLED) ? new CancellationException() : t.exception;
+			}
+		}
+		if (ex != null) {
+			if (ex instanceof RuntimeException) {
+				throw (RuntimeException) ex;
+			}
+			if (ex instanceof Error) {
+				throw (Error) ex;
+			}
+			throw new RuntimeException(ex);
+		}
+	}
+
+	@Override
+	public boolean cancel(boolean mayInterruptIfRunning) {
+		return setCompletion(CANCELLED) == CANCELLED;
+	}
+
+	@Override
+	public final boolean isDone() {
+		return status < 0;
+	}
+
+	@Override
+	public final boolean isCancelled() {
+		return status == CANCELLED;
+	}
+
+	public final boolean isCompletedNormally() {
+		return status == NORMAL;
+	}
+
+	public final boolean isCompletedAbnormally() {
+		return status < NORMAL;
+	}
+
+	public final Throwable getException() {
+		int s = status;
+		return (s == CANCELLED) ? new CancellationException() : (s == EXCEPTIONAL) ? exception : null;
+	}
+
+	/**
+	 * 不执行任务，直接以 value 为结果完成
+	 */
+	public void complete(V value) {
+		try {
+			setRawResult(value);
+		} catch (Throwable ex) {
+			setExceptionalCompletion(ex);
+			return;
+		}
+		setCompletion(NORMAL);
+	}
+
+	public void completeExceptionally(Throwable ex) {
+		setExceptionalCompletion(ex);
+	}
+
+	@Override
+	public final V get() throws InterruptedException, ExecutionException {
+		int s = (Thread.currentThread() instanceof ForkJoinWorkerThread)
+				? doJoin() : externalInterruptibleAwaitDone(0L);
+		if (s == CANCELLED) {
+			throw new CancellationException();
+		}
+		if (s == EXCEPTIONAL) {
+			throw new ExecutionException(exception);
+		}
+		return getRawResult();
+	}
+
+	@Override
+	public final V get(long timeout, TimeUnit unit)
+			throws InterruptedException, ExecutionException, TimeoutException {
+		long nanos = unit.toNanos(timeout);
+		long deadline = System.nanoTime() + nanos;
+		int s;
+		while ((s = status) >= 0) {
+			if (nanos <= 0L) {
+				throw new TimeoutException();
+			}
+			long millis = TimeUnit.NANOSECONDS.toMillis(nanos);
+			externalInterruptibleAwaitDone(millis > 0L ? millis : 1L);
+			nanos = deadline - System.nanoTime();
+		}
+		if (s == CANCELLED) {
+			throw new CancellationException();
+		}
+		if (s == EXCEPTIONAL) {
+			throw new ExecutionException(exception);
+		}
+		return getRawResult();
+	}
+
+	/**
+	 * 当前线程所在的 ForkJoinPool，不是工作线程时返回 null
+	 */
+	public static ForkJoinPool getPool() {
+		Thread t = Thread.currentThread();
+		return (t instanceof ForkJoinWorkerThread) ? ((ForkJoinWorkerThread) t).pool : null;
+	}
+
+	public static boolean inForkJoinPool() {
+		return Thread.currentThread() instanceof ForkJoinWorkerThread;
+	}
+
+	public static ForkJoinTask<?> adapt(Runnable runnable) {
+		return new AdaptedRunnable<Void>(runnable, null);
+	}
+
+	public static <T> ForkJoinTask<T> adapt(Runnable runnable, T result) {
+		return new AdaptedRunnable<T>(runnable, result);
+	}
+
+	public static <T> ForkJoinTask<T> adapt(Callable<? extends T> callable) {
+		return new AdaptedCallable<T>(callable);
+	}
+
+	static final class AdaptedRunnable<T> extends ForkJoinTask<T> implements RunnableFuture<T> {
+		final Runnable runnable;
+		T result;
+
+		AdaptedRunnable(Runnable runnable, T result) {
+			if (runnable == null) {
+				throw new NullPointerException();
+			}
+			this.runnable = runnable;
+			this.result = result;
+		}
+
+		public T getRawResult() {
+			return result;
+		}
+
+		protected void setRawResult(T v) {
+			result = v;
+		}
+
+		protected boolean exec() {
+			runnable.run();
+			return true;
+		}
+
+		public void run() {
+			invoke();
+		}
+	}
+
+	static final class AdaptedCallable<T> extends ForkJoinTask<T> implements RunnableFuture<T> {
+		final Callable<? extends T> callable;
+		T result;
+
+		AdaptedCallable(Callable<? extends T> callable) {
+			if (callable == null) {
+				throw new NullPointerException();
+			}
+			this.callable = callable;
+		}
+
+		public T getRawResult() {
+			return result;
+		}
+
+		protected void setRawResult(T v) {
+			result = v;
+		}
+
+		protected boolean exec() {
+			try {
+				result = callable.call();
+				return true;
+			} catch (Exception e) {
+				// 直接保存原来的异常，get 抛出的 ExecutionException 以它为 cause，不再包一层 RuntimeException
+				completeExceptionally(e);
+				return false;
+			}
+		}
+
+		public void run() {
+			invoke();
+		}
+	}
+}
@@ -0,0 +1,92 @@
+package com.jerry.soundcode.thread;
+
+/**
+ * ForkJoinPool 的工作线程，每个线程持有一个自己的工作窃取队列
+ */
+public class ForkJoinWorkerThread extends Thread {
+
+	final ForkJoinPool pool;
+
+	final WorkStealingDeque<ForkJoinTask<?>> workQueue = new WorkStealingDeque<ForkJoinTask<?>>();
+
+	/** 在 pool 的工作线程数组中的下标 */
+	int poolIndex;
+
+	/** 正在执行的窃取来的任务，join 这个任务的线程会来帮忙执行它拆出的子任务 */
+	volatile ForkJoinTask<?> currentSteal;
+
+	/** 从别的工作线程或提交队列取得任务的次数，只被自己修改 */
+	volatile long stealCount;
+
+	/** 选择窃取对象的随机数种子 */
+	int seed;
+
+	protected ForkJoinWorkerThread(ForkJoinPool pool) {
+		super(pool.nextWorkerName());
+		this.pool = pool;
+		this.seed = System.identityHashCode(this) | 1;
+	}
+
+	public ForkJoinPool getPool() {
+		return pool;
+	}
+
+	public int getPoolIndex() {
+		return poolIndex;
+	}
+
+	final void pushTask(ForkJoinTask<?> task) {
+		workQueue.push(task);
+		pool.signalWork();
+	}
+
+	/**
+	 * 执行窃取来的任务，再把它拆出来、留在自己队列中的子任务执行完
+	 */
+	final void execStolen(ForkJoinTask<?> task) {
+		ForkJoinTask<?> prev = currentSteal;
+		currentSteal = task;
+		stealCount++;
+		try {
+			task.doExec();
+			ForkJoinTask<?> t;
+			while ((t = workQueue.pop()) != null) {
+				t.doExec();
+			}
+		} finally {
+			currentSteal = prev;
+		}
+	}
+
+	final int nextRandom() {
+		int r = seed;
+		r ^= r << 13;
+		r ^= r >>> 17;
+		r ^= r << 5;
+		seed = r;
+		return r;
+	}
+
+	protected void onStart() {
+	}
+
+	protected void onTermination(Throwable exception) {
+	}
+
+	@Override
+	public void run() {
+		Throwable exception = null;
+		try {
+			onStart();
+			pool.runWorker(this);
+		} catch (Throwable ex) {
+			exception = ex;
+		} finally {
+			try {
+				onTermination(exception);
+			} finally {
+				pool.deregisterWorker(this, exception);
+			}
+		}
+	}
+}
@@ -69,6 +69,24 @@ public class FutureTask<V> implements RunnableFuture<V> {
 		return sync.innerRunAndReset();
 	}
 
+	/**
+	 * 被包装的任务，线程池按任务类型统计时用它代替 FutureTask 本身
+	 */
+	Object getTask() {
+		Callable<V> c = sync.callable;
+		if(c instanceof Executors.RunnableAdapter) {
+			return ((Executors.RunnableAdapter<?>) c).task;
+		}
+		return c;
+	}
+
+	/**
+	 * 任务已经执行完并且抛出了异常，run 不会把异常抛出来，线程池用它统计失败的任务
+	 */
+	boolean ranExceptionally() {
+		return sync.innerRanExceptionally();
+	}
+
 
 	private final class Sync extends AbstractQueuedSynchronizer {
 
@@ -108,6 +126,10 @@ public class FutureTask<V> implements RunnableFuture<V> {
 			return ranOrCanelled(getState()) && runner == null;
 		}
 		
+		boolean innerRanExceptionally() {
+			return getState() == RAN && exception != null;
+		}
+		
 		V innerGet() throws InterruptedException, ExecutionException {
 			acquireSharedInterruptibly(0);
 			if(getState() == CANCELLED) {
@@ -0,0 +1,183 @@
+package com.jerry.soundcode.thread;
+
+import com.jerry.soundcode.concurrent.atomic.AtomicLong;
+import com.jerry.soundcode.concurrent.atomic.AtomicLongArray;
+import com.jerry.soundcode.concurrent.atomic.LongAdder;
+
+/**
+ * HDR 风格的对数线性直方图，记录纳秒耗时：
+ * 每个 2 的幂区间再平均分成 16 个子桶，相对误差不超过 1/16，0 ~ Long.MAX_VALUE 共 960 个桶。
+ * 记录只需要一次原子自增，多个线程按散列分到不同的计数数组上，减少同一个桶上的竞争；
+ * 读取时把各个计数数组加起来，不加锁，并发记录时得到的是一个近似的快照。
+ */
+public final class LatencyHistogram {
+
+	private static final int SUB_BUCKET_BITS = 5;
+
+	private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+
+	private static final int SUB_BUCKET_HALF = SUB_BUCKET_COUNT >> 1;
+
+	private static final int BUCKET_COUNT = (64 - SUB_BUCKET_BITS) * SUB_BUCKET_HALF + SUB_BUCKET_HALF;
+
+	private static final int STRIPES;
+
+	static {
+		int ncpu = Runtime.getRuntime().availableProcessors();
+		int n = 1;
+		while (n < ncpu && n < 8) {
+			n <<= 1;
+		}
+		STRIPES = n;
+	}
+
+	private static final java.lang.ThreadLocal<int[]> seeds = new java.lang.ThreadLocal<int[]>() {
+		protected int[] initialValue() {
+			return new int[] { System.identityHashCode(java.lang.Thread.currentThread()) | 1 };
+		}
+	};
+
+	private final AtomicLongArray[] counts;
+
+	private final LongAdder totalNanos = new LongAdder();
+
+	private final AtomicLong max = new AtomicLong();
+
+	public LatencyHistogram() {
+		counts = new AtomicLongArray[STRIPES];
+		for (int i = 0; i < STRIPES; i++) {
+			counts[i] = new AtomicLongArray(BUCKET_COUNT);
+		}
+	}
+
+	static int indexOf(long value) {
+		int bucket = 63 - Long.numberOfLeadingZeros(value | (SUB_BUCKET_COUNT - 1)) - (SUB_BUCKET_BITS - 1);
+		return bucket * SUB_BUCKET_HALF + (int) (value >>> bucket);
+	}
+
+	/** 桶能表示的最小值 */
+	static long lowestValueAt(int index) {
+		if (index < SUB_BUCKET_COUNT) {
+			return index;
+		}
+		int bucket = (index >> (SUB_BUCKET_BITS - 1)) - 1;
+		return (long) (index - bucket * SUB_BUCKET_HALF) << bucket;
+	}
+
+	/** 桶能表示的最大值 */
+	static long highestValueAt(int index) {
+		if (index < SUB_BUCKET_COUNT) {
+			return index;
+		}
+		int bucket = (index >> (SUB_BUCKET_BITS - 1)) - 1;
+		return lowestValueAt(index) + (1L << bucket) - 1;
+	}
+
+	/**
+	 * 记录一个耗时，负数按 0 记录
+	 */
+	public void record(long nanos) {
+		if (nanos < 0) {
+			nanos = 0;
+		}
+		AtomicLongArray c = STRIPES == 1 ? counts[0] : counts[seeds.get()[0] & (STRIPES - 1)];
+		c.getAndIncrement(indexOf(nanos));
+		totalNanos.add(nanos);
+		long m;
+		while (nanos > (m = max.get())) {
+			if (max.compareAndSet(m, nanos)) {
+				break;
+			}
+		}
+	}
+
+	private long[] snapshot() {
+		long[] s = new long[BUCKET_COUNT];
+		for (int k = 0; k < STRIPES; k++) {
+			AtomicLongArray c = counts[k];
+			for (int i = 0; i < BUCKET_COUNT; i++) {
+				s[i] += c.get(i);
+			}
+		}
+		return s;
+	}
+
+	public long getCount() {
+		long n = 0;
+		long[] s = snapshot();
+		for (int i = 0; i < s.length; i++) {
+			n += s[i];
+		}
+		return n;
+	}
+
+	public long getTotalNanos() {
+		return totalNanos.sum();
+	}
+
+	public long getMaxNanos() {
+		return max.get();
+	}
+
+	public double getMeanNanos() {
+		long n = getCount();
+		return n == 0 ? 0.0 : (double) totalNanos.sum() / n;
+	}
+
+	/**
+	 * 返回不小于 percentile% 的记录所在桶的上界，percentile 取 0 ~ 100
+	 */
+	public long getValueAtPercentile(double percentile) {
+		return valueAtPercentile(snapshot(), percentile);
+	}
+
+	private long valueAtPercentile(long[] s, double percentile) {
+		long n = 0;
+		for (int i = 0; i < s.length; i++) {
+			n += s[i];
+		}
+		if (n == 0) {
+			return 0L;
+		}
+		double p = Math.min(Math.max(percentile, 0.0), 100.0);
+		long target = Math.max(1L, (long) Math.ceil(p / 100.0 * n));
+		long seen = 0;
+		for (int i = 0; i < s.length; i++) {
+			seen += s[i];
+			if (seen >= target) {
+				return Math.min(highestValueAt(i), max.get());
+			}
+		}
+		return max.get();
+	}
+
+	/**
+	 * 清空所有记录，和 record 并发时可能丢掉一部分记录
+	 */
+	public void reset() {
+		for (int k = 0; k < STRIPES; k++) {
+			AtomicLongArray c = counts[k];
+			for (int i = 0; i < BUCKET_COUNT; i++) {
+				c.set(i, 0L);
+			}
+		}
+		totalNanos.reset();
+		max.set(0L);
+	}
+
+	@Override
+	public String toString() {
+		long[] s = snapshot();
+		long n = 0;
+		for (int i = 0; i < s.length; i++) {
+			n += s[i];
+		}
+		return "LatencyHistogram[count = " + n
+				+ ", mean = " + (n == 0 ? 0 : totalNanos.sum() / n) + "ns"
+				+ ", p50 = " + valueAtPercentile(s, 50) + "ns"
+				+ ", p90 = " + valueAtPercentile(s, 90) + "ns"
+				+ ", p99 = " + valueAtPercentile(s, 99) + "ns"
+				+ ", p99.9 = " + valueAtPercentile(s, 99.9) + "ns"
+				+ ", max = " + max.get() + "ns]";
+	}
+}
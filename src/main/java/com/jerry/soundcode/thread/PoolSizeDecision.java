@@ -0,0 +1,98 @@
+package com.jerry.soundcode.thread;
+
+/**
+ * ThreadPoolExecutor 自动调整线程数时一次采样的结果和做出的决定，不可变
+ */
+public final class PoolSizeDecision {
+
+	private final long timeMillis;
+	private final int previousCorePoolSize;
+	private final int corePoolSize;
+	private final int poolSize;
+	private final int queueSize;
+	private final double throughput;
+	private final double arrivalRate;
+	private final long serviceTimeNanos;
+	private final double utilization;
+	private final double requiredThreads;
+
+	PoolSizeDecision(long timeMillis, int previousCorePoolSize, int corePoolSize, int poolSize, int queueSize,
+			double throughput, double arrivalRate, long serviceTimeNanos, double utilization, double requiredThreads) {
+		this.timeMillis = timeMillis;
+		this.previousCorePoolSize = previousCorePoolSize;
+		this.corePoolSize = corePoolSize;
+		this.poolSize = poolSize;
+		this.queueSize = queueSize;
+		this.throughput = throughput;
+		this.arrivalRate = arrivalRate;
+		this.serviceTimeNanos = serviceTimeNanos;
+		this.utilization = utilization;
+		this.requiredThreads = requiredThreads;
+	}
+
+	/** 采样的时间，System.currentTimeMillis */
+	public long getTimeMillis() {
+		return timeMillis;
+	}
+
+	public int getPreviousCorePoolSize() {
+		return previousCorePoolSize;
+	}
+
+	/** 调整后的 corePoolSize，没有调整时和 previousCorePoolSize 相同 */
+	public int getCorePoolSize() {
+		return corePoolSize;
+	}
+
+	/** 采样时的线程数 */
+	public int getPoolSize() {
+		return poolSize;
+	}
+
+	public int getQueueSize() {
+		return queueSize;
+	}
+
+	/** 采样周期内每秒完成的任务数 */
+	public double getThroughput() {
+		return throughput;
+	}
+
+	/** 采样周期内每秒到达的任务数，由完成数和队列长度的变化推算 */
+	public double getArrivalRate() {
+		return arrivalRate;
+	}
+
+	/** 任务的平均执行时间 */
+	public long getServiceTimeNanos() {
+		return serviceTimeNanos;
+	}
+
+	/** 线程的平均忙碌比例 */
+	public double getUtilization() {
+		return utilization;
+	}
+
+	/** 按 Little 定律估算需要的线程数，限制在上下界之前 */
+	public double getRequiredThreads() {
+		return requiredThreads;
+	}
+
+	/** 队列中的任务按当前吞吐量还需要等待的时间 */
+	public long getEstimatedQueueDelayNanos() {
+		return throughput > 0 ? (long) (queueSize * 1e9 / throughput) : 0L;
+	}
+
+	@Override
+	public String toString() {
+		return "PoolSizeDecision[core " + previousCorePoolSize + " -> " + corePoolSize
+				+ ", poolSize = " + poolSize
+				+ ", queue = " + queueSize
+				+ ", throughput = " + (long) throughput + "/s"
+				+ ", arrival = " + (long) arrivalRate + "/s"
+				+ ", service = " + serviceTimeNanos + "ns"
+				+ ", utilization = " + (int) (utilization * 100) + "%"
+				+ ", required = " + ((long) (requiredThreads * 10) / 10.0)
+				+ "]";
+	}
+}
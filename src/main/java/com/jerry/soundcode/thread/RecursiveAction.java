@@ -0,0 +1,21 @@
+package com.jerry.soundcode.thread;
+
+/**
+ * 没有返回值的递归任务，在 compute 中拆分子任务并 fork/join
+ */
+public abstract class RecursiveAction extends ForkJoinTask<Void> {
+
+	protected abstract void compute();
+
+	public final Void getRawResult() {
+		return null;
+	}
+
+	protected final void setRawResult(Void mustBeNull) {
+	}
+
+	protected final boolean exec() {
+		compute();
+		return true;
+	}
+}
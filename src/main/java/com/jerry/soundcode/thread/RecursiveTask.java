@@ -0,0 +1,24 @@
+package com.jerry.soundcode.thread;
+
+/**
+ * 有返回值的递归任务，在 compute 中拆分子任务并 fork/join
+ */
+public abstract class RecursiveTask<V> extends ForkJoinTask<V> {
+
+	V result;
+
+	protected abstract V compute();
+
+	public final V getRawResult() {
+		return result;
+	}
+
+	protected final void setRawResult(V value) {
+		result = value;
+	}
+
+	protected final boolean exec() {
+		result = compute();
+		return true;
+	}
+}
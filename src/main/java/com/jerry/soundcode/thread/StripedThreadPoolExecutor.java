@@ -0,0 +1,750 @@
+package com.jerry.soundcode.thread;
+
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+
+import com.jerry.soundcode.concurrent.atomic.AtomicInteger;
+import com.jerry.soundcode.concurrent.collection.MessageQueue;
+import com.jerry.soundcode.concurrent.collection.MpscArrayQueue;
+import com.jerry.soundcode.concurrent.locks.Condition;
+import com.jerry.soundcode.concurrent.locks.LockSupport;
+import com.jerry.soundcode.concurrent.locks.ReentrantLock;
+import com.jerry.soundcode.list.ArrayList;
+import com.jerry.soundcode.list.List;
+
+/**
+ * 每个工作线程有自己任务队列的固定大小线程池。
+ *
+ * ThreadPoolExecutor 所有线程共用一个 workQueue，线程数和完成数在 mainLock 中维护，
+ * 提交很频繁时 workQueue 和 mainLock 都是竞争热点。这里：
+ * <ul>
+ * <li>每个线程一个有界的 MpscArrayQueue，提交时随机选两个线程，放进负载较轻的那个（power of two choices），
+ *     不同的提交线程大多落在不同的队列上</li>
+ * <li>线程空闲时从别的队列窃取任务。MpscArrayQueue 只允许一个消费者，
+ *     所以每个队列有一个消费令牌，所属线程和窃取者都要先 CAS 拿到令牌才能取任务</li>
+ * <li>运行状态和线程数打包在一个 int 的 ctl 中用 CAS 修改，执行任务的路径上不加锁；
+ *     mainLock 只在启动、退出线程和等待终止时使用</li>
+ * </ul>
+ *
+ * 线程在第一次被选中时才启动。所有队列都满时抛出 RejectedExecutionException。
+ */
+public class StripedThreadPoolExecutor extends AbstractExecutorService {
+
+	/** 高 3 位是运行状态，低 29 位是线程数 */
+	private volatile int ctl = ctlOf(RUNNING, 0);
+
+	private static final AtomicIntegerFieldUpdater<StripedThreadPoolExecutor> CTL =
+			AtomicIntegerFieldUpdater.newUpdater(StripedThreadPoolExecutor.class, "ctl");
+
+	private static final int COUNT_BITS = Integer.SIZE - 3;
+	private static final int CAPACITY	= (1 << COUNT_BITS) - 1;
+
+	private static final int RUNNING	= -1 << COUNT_BITS;
+	private static final int SHUTDOWN	=  0 << COUNT_BITS;
+	private static final int STOP		=  1 << COUNT_BITS;
+	private static final int TIDYING	=  2 << COUNT_BITS;
+	private static final int TERMINATED	=  3 << COUNT_BITS;
+
+	private static int runStateOf(int c)     { return c & ~CAPACITY; }
+	private static int workerCountOf(int c)  { return c & CAPACITY; }
+	private static int ctlOf(int rs, int wc) { return rs | wc; }
+
+	private static boolean isRunning(int c) {
+		return c < SHUTDOWN;
+	}
+
+	public static final int DEFAULT_QUEUE_CAPACITY = 1024;
+
+	private static final java.lang.ThreadLocal<int[]> seeds = new java.lang.ThreadLocal<int[]>() {
+		protected int[] initialValue() {
+			return new int[] { System.identityHashCode(Thread.currentThread()) | 1 };
+		}
+	};
+
+	private final Worker[] workers;
+
+	private final ThreadFactory threadFactory;
+
+	private final ReentrantLock mainLock = new ReentrantLock();
+
+	private final Condition termination = mainLock.newCondition();
+
+	/** 正在 park 或准备 park 的线程数，只被工作线程修改 */
+	private final AtomicInteger idleWorkers = new AtomicInteger();
+
+	/** 运行统计，为 null 表示没有开启 */
+	private volatile ThreadPoolMetrics metrics;
+
+	public StripedThreadPoolExecutor(int nThreads) {
+		this(nThreads, DEFAULT_QUEUE_CAPACITY, Executors.defaultThreadFactory());
+	}
+
+	public StripedThreadPoolExecutor(int nThreads, int queueCapacity) {
+		this(nThreads, queueCapacity, Executors.defaultThreadFactory());
+	}
+
+	public StripedThreadPoolExecutor(int nThreads, int queueCapacity, ThreadFactory threadFactory) {
+		if (nThreads <= 0 || nThreads > CAPACITY || queueCapacity <= 0) {
+			throw new IllegalArgumentException();
+		}
+		if (threadFactory == null) {
+			throw new NullPointerException();
+		}
+		this.threadFactory = threadFactory;
+		this.workers = new Worker[nThreads];
+		for (int i = 0; i < nThreads; i++) {
+			workers[i] = new Worker(queueCapacity);
+		}
+	}
+
+	/**
+	 * 一个工作线程的位置：任务队列和消费令牌一直存在，线程在第一次被选中时才启动，
+	 * 线程因为任务抛出异常而退出时由新线程接替
+	 */
+	final class Worker implements Runnable {
+
+		final MpscArrayQueue<Runnable> queue;
+
+		/** 消费令牌，1 表示有线程正在从 queue 中取任务 */
+		volatile int consuming;
+
+		/** 1 表示线程已经 park 或即将 park，唤醒方 CAS 为 0 后 unpark */
+		volatile int parked;
+
+		volatile Thread thread;
+
+		Runnable firstTask;
+
+		/** 以下计数只被所属线程修改 */
+		volatile long completedTasks;
+
+		volatile long stealCount;
+
+		Worker(int queueCapacity) {
+			this.queue = new MpscArrayQueue<Runnable>(queueCapacity);
+		}
+
+		boolean tryAcquireConsumer() {
+			return consuming == 0 && CONSUMING.compareAndSet(this, 0, 1);
+		}
+
+		void releaseConsumer() {
+			CONSUMING.lazySet(this, 0);
+		}
+
+		/**
+		 * 队列长度加上正在执行的任务，还没启动线程和空闲的位置负载最低
+		 */
+		int load() {
+			int n = queue.size();
+			return (thread == null || parked != 0) ? n : n + 1;
+		}
+
+		void signal() {
+			if (parked != 0 && PARKED.compareAndSet(this, 1, 0)) {
+				Thread t = thread;
+				if (t != null) {
+					LockSupport.unpark(t);
+				}
+			}
+		}
+
+		public void run() {
+			runWorker(this);
+		}
+	}
+
+	private static final AtomicIntegerFieldUpdater<Worker> CONSUMING =
+			AtomicIntegerFieldUpdater.newUpdater(Worker.class, "consuming");
+
+	private static final AtomicIntegerFieldUpdater<Worker> PARKED =
+			AtomicIntegerFieldUpdater.newUpdater(Worker.class, "parked");
+
+	private int nextRandom(int bound) {
+		int[] seed = seeds.get();
+		int x = seed[0];
+		x ^= x << 13;
+		x ^= x >>> 17;
+		x ^= x << 5;
+		seed[0] = x;
+		return (x & Integer.MAX_VALUE) % bound;
+	}
+
+	// ------------------------- 提交任务 -------------------------
+
+	@Override
+	public void execute(Runnable command) {
+		if (command == null) {
+			throw new NullPointerException();
+		}
+		final ThreadPoolMetrics m = metrics;
+		if (m != null) {
+			m.taskSubmitted();
+		}
+		if (!isRunning(ctl)) {
+			reject(command);
+			return;
+		}
+		final Worker[] ws = workers;
+		int n = ws.length;
+		Worker w = ws[nextRandom(n)];
+		if (n > 1) {
+			Worker other = ws[nextRandom(n)];
+			if (other.load() < w.load()) {
+				w = other;
+			}
+		}
+
+		if (w.thread == null && startWorker(w, command)) {
+			return;
+		}
+		if (!w.queue.offer(command)) {
+			w = offerToAny(command);
+			if (w == null) {
+				reject(command);
+				return;
+			}
+		}
+
+		if (w.parked != 0) {
+			w.signal();
+		} else if (idleWorkers.get() > 0) {
+			// 选中的线程正忙，叫醒一个空闲线程来窃取
+			signalIdleWorker(w);
+		}
+
+		int c = ctl;
+		if (!isRunning(c)) {
+			recheckAfterShutdown(w, command, c);
+		}
+	}
+
+	/**
+	 * 两个随机选中的队列都满了，依次尝试所有队列
+	 */
+	private Worker offerToAny(Runnable command) {
+		final Worker[] ws = workers;
+		int n = ws.length;
+		int r = nextRandom(n);
+		for (int i = 0; i < n; i++) {
+			Worker w = ws[(r + i) % n];
+			if (w.queue.offer(command)) {
+				return w;
+			}
+		}
+		return null;
+	}
+
+	private void signalIdleWorker(Worker busy) {
+		final Worker[] ws = workers;
+		int n = ws.length;
+		int r = nextRandom(n);
+		for (int i = 0; i < n; i++) {
+			Worker w = ws[(r + i) % n];
+			if (w != busy && w.parked != 0 && PARKED.compareAndSet(w, 1, 0)) {
+				Thread t = w.thread;
+				if (t != null) {
+					LockSupport.unpark(t);
+				}
+				return;
+			}
+		}
+	}
+
+	/**
+	 * 入队之后发现线程池已经关闭：SHUTDOWN 时保证至少还有一个线程把队列执行完，
+	 * STOP 时如果任务还在队列中就把它拿出来拒绝
+	 */
+	private void recheckAfterShutdown(Worker w, Runnable command, int c) {
+		if (runStateOf(c) == SHUTDOWN) {
+			if (workerCountOf(c) == 0) {
+				startWorker(w, null);
+			}
+		} else if (removeTask(w, command)) {
+			reject(command);
+		}
+	}
+
+	/**
+	 * 从 w 的队列中删除 task，其他任务留在原来的位置
+	 */
+	private boolean removeTask(Worker w, Runnable task) {
+		while (!w.tryAcquireConsumer()) {
+			Thread.yield();
+		}
+		try {
+			return w.queue.consumerRemove(task);
+		} finally {
+			w.releaseConsumer();
+		}
+	}
+
+	private void reject(Runnable command) {
+		final ThreadPoolMetrics m = metrics;
+		if (m != null) {
+			m.taskRejected(null);
+		}
+		throw new RejectedExecutionException();
+	}
+
+	/**
+	 * 开启统计时 submit 创建的任务带上提交时间，用来统计排队时间
+	 */
+	@Override
+	protected <T> RunnableFuture<T> newTaskFor(Runnable runnable, T value) {
+		if (metrics != null) {
+			return new TimedFutureTask<T>(runnable, value);
+		}
+		return super.newTaskFor(runnable, value);
+	}
+
+	@Override
+	protected <T> RunnableFuture<T> newTaskFor(Callable<T> callable) {
+		if (metrics != null) {
+			return new TimedFutureTask<T>(callable);
+		}
+		return super.newTaskFor(callable);
+	}
+
+	// ------------------------- 工作线程 -------------------------
+
+	/**
+	 * 为位置 w 启动一个线程。RUNNING 时总是可以启动；
+	 * SHUTDOWN 时只有 firstTask 为 null、为了执行剩余的任务才启动
+	 */
+	private boolean startWorker(Worker w, Runnable firstTask) {
+		final ReentrantLock mainLock = this.mainLock;
+		mainLock.lock();
+		try {
+			if (w.thread != null) {
+				return false;
+			}
+			for (;;) {
+				int c = ctl;
+				int rs = runStateOf(c);
+				if (rs >= STOP || (rs == SHUTDOWN && firstTask != null)) {
+					return false;
+				}
+				if (CTL.compareAndSet(this, c, c + 1)) {
+					break;
+				}
+			}
+			Thread t = threadFactory.newThread(w);
+			if (t == null) {
+				decrementWorkerCount();
+				return false;
+			}
+			w.firstTask = firstTask;
+			w.thread = t;
+			boolean started = false;
+			try {
+				t.start();
+				started = true;
+			} finally {
+				if (!started) {
+					w.thread = null;
+					w.firstTask = null;
+					decrementWorkerCount();
+				}
+			}
+			return true;
+		} finally {
+			mainLock.unlock();
+		}
+	}
+
+	private void decrementWorkerCount() {
+		for (;;) {
+			int c = ctl;
+			if (CTL.compareAndSet(this, c, c - 1)) {
+				return;
+			}
+		}
+	}
+
+	final void runWorker(Worker w) {
+		Thread wt = w.thread;
+		Runnable task = w.firstTask;
+		w.firstTask = null;
+		boolean completedAbruptly = true;
+		try {
+			while (task != null || (task = getTask(w)) != null) {
+				if (runStateOf(ctl) >= STOP && !wt.isInterrupted()) {
+					wt.interrupt();
+				}
+				beforeExecute(wt, task);
+				final ThreadPoolMetrics m = metrics;
+				long start = 0L;
+				if (m != null) {
+					start = System.nanoTime();
+					m.taskStarted(task, start);
+				}
+				boolean ran = false;
+				try {
+					task.run();
+					ran = true;
+				} catch (RuntimeException ex) {
+					afterExecute(task, ex);
+					throw ex;
+				} finally {
+					if (m != null) {
+						m.taskFinished(task, start, System.nanoTime(), !ran);
+					}
+				}
+				afterExecute(task, null);
+				w.completedTasks++;
+				task = null;
+			}
+			completedAbruptly = false;
+		} finally {
+			processWorkerExit(w, completedAbruptly);
+		}
+	}
+
+	/**
+	 * 依次从自己的队列、别的队列取任务，都没有时 park。
+	 * 线程池停止，或者关闭后所有队列都空了时返回 null
+	 */
+	private Runnable getTask(Worker w) {
+		for (;;) {
+			int c = ctl;
+			if (runStateOf(c) >= STOP) {
+				return null;
+			}
+			Runnable r = pollLocal(w);
+			if (r != null) {
+				return r;
+			}
+			r = steal(w);
+			if (r != null) {
+				return r;
+			}
+			if (runStateOf(c) == SHUTDOWN) {
+				if (allQueuesEmpty()) {
+					return null;
+				}
+				// 别的线程正拿着令牌，稍后再试
+				Thread.yield();
+				continue;
+			}
+			await(w);
+		}
+	}
+
+	private Runnable pollLocal(Worker w) {
+		if (w.queue.isEmpty() || !w.tryAcquireConsumer()) {
+			return null;
+		}
+		try {
+			return w.queue.poll();
+		} finally {
+			w.releaseConsumer();
+		}
+	}
+
+	private Runnable steal(Worker w) {
+		final Worker[] ws = workers;
+		int n = ws.length;
+		if (n == 1) {
+			return null;
+		}
+		int r = nextRandom(n);
+		for (int i = 0; i < n; i++) {
+			Worker v = ws[(r + i) % n];
+			if (v != w && !v.queue.isEmpty() && v.tryAcquireConsumer()) {
+				Runnable task;
+				try {
+					task = v.queue.poll();
+				} finally {
+					v.releaseConsumer();
+				}
+				if (task != null) {
+					w.stealCount++;
+					return task;
+				}
+			}
+		}
+		return null;
+	}
+
+	private boolean allQueuesEmpty() {
+		for (Worker w : workers) {
+			if (!w.queue.isEmpty()) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * 先声明要 park 再检查所有队列：提交方入队后读取 parked 和 idleWorkers，
+	 * 两边都是 volatile 读写，检查时看不到的任务，提交方一定能看到这里的声明并唤醒
+	 */
+	private void await(Worker w) {
+		idleWorkers.incrementAndGet();
+		w.parked = 1;
+		try {
+			if (allQueuesEmpty() && isRunning(ctl)) {
+				while (w.parked != 0 && isRunning(ctl)) {
+					LockSupport.park(this);
+					Thread.interrupted();
+				}
+			}
+		} finally {
+			w.parked = 0;
+			idleWorkers.decrementAndGet();
+		}
+	}
+
+	private void processWorkerExit(Worker w, boolean completedAbruptly) {
+		final ReentrantLock mainLock = this.mainLock;
+		mainLock.lock();
+		try {
+			w.thread = null;
+			decrementWorkerCount();
+		} finally {
+			mainLock.unlock();
+		}
+
+		int c = ctl;
+		int rs = runStateOf(c);
+		if (rs == RUNNING && completedAbruptly) {
+			// 任务抛出异常导致线程退出，换一个线程接着处理这个队列
+			startWorker(w, null);
+		} else if (rs == SHUTDOWN && workerCountOf(c) == 0 && !allQueuesEmpty()) {
+			startWorker(w, null);
+		} else {
+			tryTerminate();
+		}
+	}
+
+	private void tryTerminate() {
+		for (;;) {
+			int c = ctl;
+			int rs = runStateOf(c);
+			if (rs == RUNNING || rs >= TIDYING || workerCountOf(c) != 0
+					|| (rs == SHUTDOWN && !allQueuesEmpty())) {
+				return;
+			}
+			final ReentrantLock mainLock = this.mainLock;
+			mainLock.lock();
+			try {
+				if (CTL.compareAndSet(this, c, ctlOf(TIDYING, 0))) {
+					try {
+						terminated();
+					} finally {
+						ctl = ctlOf(TERMINATED, 0);
+						termination.signalAll();
+					}
+					return;
+				}
+			} finally {
+				mainLock.unlock();
+			}
+		}
+	}
+
+	// ------------------------- 关闭 -------------------------
+
+	private void advanceRunState(int targetState) {
+		for (;;) {
+			int c = ctl;
+			if (runStateOf(c) >= targetState
+					|| CTL.compareAndSet(this, c, ctlOf(targetState, workerCountOf(c)))) {
+				break;
+			}
+		}
+	}
+
+	private void wakeAll() {
+		for (Worker w : workers) {
+			w.parked = 0;
+			Thread t = w.thread;
+			if (t != null) {
+				LockSupport.unpark(t);
+			}
+		}
+	}
+
+	/**
+	 * 不再接受新任务，已经入队的任务会执行完
+	 */
+	@Override
+	public void shutdown() {
+		advanceRunState(SHUTDOWN);
+		wakeAll();
+		tryTerminate();
+	}
+
+	/**
+	 * 中断所有线程，返回还没有执行的任务
+	 */
+	@Override
+	public List<Runnable> shutdownNow() {
+		advanceRunState(STOP);
+		final ReentrantLock mainLock = this.mainLock;
+		mainLock.lock();
+		try {
+			for (Worker w : workers) {
+				Thread t = w.thread;
+				if (t != null) {
+					try {
+						t.interrupt();
+					} catch (SecurityException ignore) {
+					}
+				}
+			}
+		} finally {
+			mainLock.unlock();
+		}
+		wakeAll();
+		final List<Runnable> tasks = new ArrayList<Runnable>();
+		MessageQueue.Consumer<Runnable> collector = new MessageQueue.Consumer<Runnable>() {
+			public void accept(Runnable r) {
+				tasks.add(r);
+			}
+		};
+		for (Worker w : workers) {
+			while (!w.tryAcquireConsumer()) {
+				Thread.yield();
+			}
+			try {
+				w.queue.drain(collector, Integer.MAX_VALUE);
+			} finally {
+				w.releaseConsumer();
+			}
+		}
+		tryTerminate();
+		return tasks;
+	}
+
+	@Override
+	public boolean isShutdown() {
+		return !isRunning(ctl);
+	}
+
+	public boolean isTerminating() {
+		int c = ctl;
+		return !isRunning(c) && runStateOf(c) < TERMINATED;
+	}
+
+	@Override
+	public boolean isTerminated() {
+		return runStateOf(ctl) == TERMINATED;
+	}
+
+	@Override
+	public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+		long nanos = unit.toNanos(timeout);
+		final ReentrantLock mainLock = this.mainLock;
+		mainLock.lock();
+		try {
+			for (;;) {
+				if (runStateOf(ctl) == TERMINATED) {
+					return true;
+				}
+				if (nanos <= 0) {
+					return false;
+				}
+				nanos = termination.awaitNanos(nanos);
+			}
+		} finally {
+			mainLock.unlock();
+		}
+	}
+
+	@Override
+	protected void finalize() {
+		shutdown();
+	}
+
+	// ------------------------- 监控，都不加锁 -------------------------
+
+	public int getPoolSize() {
+		return workerCountOf(ctl);
+	}
+
+	public int getMaximumPoolSize() {
+		return workers.length;
+	}
+
+	/**
+	 * 没有 park 的线程数，近似值
+	 */
+	public int getActiveCount() {
+		int n = 0;
+		for (Worker w : workers) {
+			if (w.thread != null && w.parked == 0) {
+				n++;
+			}
+		}
+		return n;
+	}
+
+	public int getQueueSize() {
+		int n = 0;
+		for (Worker w : workers) {
+			n += w.queue.size();
+		}
+		return n;
+	}
+
+	public long getCompletedTaskCount() {
+		long n = 0;
+		for (Worker w : workers) {
+			n += w.completedTasks;
+		}
+		return n;
+	}
+
+	public long getTaskCount() {
+		return getCompletedTaskCount() + getActiveCount() + getQueueSize();
+	}
+
+	/**
+	 * 从别的线程的队列中取走任务的次数
+	 */
+	public long getStealCount() {
+		long n = 0;
+		for (Worker w : workers) {
+			n += w.stealCount;
+		}
+		return n;
+	}
+
+	/**
+	 * 开启运行统计并返回统计对象，已经开启时返回原来的对象。
+	 * 拒绝只计入总数，没有拒绝策略的分类。
+	 */
+	public ThreadPoolMetrics enableMetrics() {
+		final ReentrantLock mainLock = this.mainLock;
+		mainLock.lock();
+		try {
+			ThreadPoolMetrics m = metrics;
+			if (m == null) {
+				metrics = m = new ThreadPoolMetrics();
+			}
+			return m;
+		} finally {
+			mainLock.unlock();
+		}
+	}
+
+	public void disableMetrics() {
+		metrics = null;
+	}
+
+	/**
+	 * 运行统计，读取不加锁，没有开启时返回 null
+	 */
+	public ThreadPoolMetrics getMetrics() {
+		return metrics;
+	}
+
+	protected void beforeExecute(Thread t, Runnable r) { }
+
+	protected void afterExecute(Runnable task, RuntimeException ex) { }
+
+	protected void terminated() { }
+}
@@ -44,10 +44,31 @@ public class ThreadPoolExecutor extends AbstractExecutorService {
 	
 	private volatile ThreadFactory threadFactory;
 	
-	private int largestPoolSize;
+	private volatile int largestPoolSize;
 	
 	private long completedTaskCount;
 	
+	/** 已经决定因为空闲超时退出、但还没有执行 workerDone 的线程数 */
+	private int retiringWorkers;
+	
+	/** 已退出的线程执行任务的总耗时，和 completedTaskCount 一样在 workerDone 时累加 */
+	private long completedBusyNanos;
+	
+	/** 自动调整线程数的控制器，为 null 表示没有开启 */
+	private volatile PoolSizeController sizeController;
+	
+	/** 保证同一时刻只有一个线程在采样 */
+	private final ReentrantLock sizingLock = new ReentrantLock();
+	
+	private volatile PoolSizeDecision lastPoolSizeDecision;
+	
+	private volatile long poolSizeIncreaseCount;
+	
+	private volatile long poolSizeDecreaseCount;
+	
+	/** 运行统计，为 null 表示没有开启 */
+	private volatile ThreadPoolMetrics metrics;
+	
 	private static final RejectedExecutionHandler defaultHandler = new AbortPolicy();
 	
 	public ThreadPoolExecutor(int corePoolSize, int maximumPoolSize, long keepAliveTime,
@@ -87,12 +108,22 @@ public class ThreadPoolExecutor extends AbstractExecutorService {
 			throw new NullPointerException();
 		}
 		
+		final PoolSizeController c = sizeController;
+		if(c != null) {
+			c.maybeSample(System.nanoTime());
+		}
+		
+		final ThreadPoolMetrics m = metrics;
+		if(m != null) {
+			m.taskSubmitted();
+		}
+		
 		if(poolSize >= corePoolSize || !addIfUnderCorePoolSize(command)) {
 			if(runState == RUNNING && workQueue.offer(command)) {
 				if(runState != RUNNING || poolSize == 0) {
 					ensureQueuedTaskHandled(command);
 				}
-			} else if(!addIfUnderCorePoolSize(command)) {
+			} else if(!addIfUnderMaximumPoolSize(command)) {
 				reject(command);
 			}
 		}
@@ -141,7 +172,6 @@ public class ThreadPoolExecutor extends AbstractExecutorService {
 		return t != null;
 	}
 	
-	@SuppressWarnings("unused")
 	private boolean addIfUnderMaximumPoolSize(Runnable firstTask) {
 		Thread t = null;
 		final ReentrantLock mainLock = this.mainLock;
@@ -182,22 +212,53 @@ public class ThreadPoolExecutor extends AbstractExecutorService {
 	}
 
 	void reject(Runnable command) {
+		final RejectedExecutionHandler handler = this.handler;
+		final ThreadPoolMetrics m = metrics;
+		if(m != null) {
+			m.taskRejected(handler);
+		}
 		handler.rejectedExecution(command, this);
 	}
 	
+	/**
+	 * 开启统计时 submit 创建的任务带上提交时间，用来统计排队时间，队列中放的仍然是这个任务本身
+	 */
+	@Override
+	protected <T> RunnableFuture<T> newTaskFor(Runnable runnable, T value) {
+		if(metrics != null) {
+			return new TimedFutureTask<T>(runnable, value);
+		}
+		return super.newTaskFor(runnable, value);
+	}
+	
+	@Override
+	protected <T> RunnableFuture<T> newTaskFor(Callable<T> callable) {
+		if(metrics != null) {
+			return new TimedFutureTask<T>(callable);
+		}
+		return super.newTaskFor(callable);
+	}
+	
 	private final class Worker implements Runnable {
 		
 		private final ReentrantLock runLock = new ReentrantLock();
 		
 		private Runnable firstTask;
 		
-		volatile long competedTasks;
+		volatile long completedTasks;
+		
+		/** 开启自动调整时累计的任务执行时间 */
+		volatile long busyNanos;
+		
+		/** 开启自动调整时当前任务的开始时间，0 表示空闲 */
+		volatile long taskStartTime;
 		
 		Thread thread;
 		
 		volatile boolean hasRun = false;
-
-		public long completedTasks;
+		
+		/** workerCanExit 同意这个线程空闲退出，由 mainLock 保护 */
+		boolean retiring;
 		
 		Worker(Runnable firstTask) {
 			this.firstTask = firstTask;
@@ -238,16 +299,40 @@ public class ThreadPoolExecutor extends AbstractExecutorService {
 				boolean ran = false;
 				beforeExecute(thread, task);
 				
+				final PoolSizeController c = sizeController;
+				final ThreadPoolMetrics m = metrics;
+				long start = 0L;
+				if(c != null || m != null) {
+					start = System.nanoTime();
+				}
+				if(c != null) {
+					taskStartTime = start;
+				}
+				if(m != null) {
+					m.taskStarted(task, start);
+				}
 				try {
 					task.run();
-					ran = false;
+					ran = true;
 					afterExecute(task, null);
-					++competedTasks;
+					++completedTasks;
 				} catch (RuntimeException ex) {
 					if(!ran) {
 						afterExecute(task, ex);
 					}
 					throw ex;
+				} finally {
+					if(c != null || m != null) {
+						long now = System.nanoTime();
+						if(m != null) {
+							m.taskFinished(task, start, now, !ran);
+						}
+						if(c != null) {
+							taskStartTime = 0L;
+							busyNanos += now - start;
+							c.maybeSample(now);
+						}
+					}
 				}
 				
 			} finally {
@@ -261,7 +346,7 @@ public class ThreadPoolExecutor extends AbstractExecutorService {
 				hasRun = true;
 				Runnable task = firstTask;
 				firstTask = null;
-				while(task != null || (task = getTask()) != null) {
+				while(task != null || (task = getTask(this)) != null) {
 					runTask(task);
 					task = null;
 				}
@@ -271,7 +356,7 @@ public class ThreadPoolExecutor extends AbstractExecutorService {
 		}
 	}
 	
-	Runnable getTask() {
+	Runnable getTask(Worker w) {
 		for(;;) {
 			try {
 				int state = runState;
@@ -280,10 +365,18 @@ public class ThreadPoolExecutor extends AbstractExecutorService {
 				}
 				
 				Runnable r;
+				PoolSizeController c;
 				if(state == SHUTDOWN) {
 					r = workQueue.poll();
 				} else if(poolSize > corePoolSize || allowCoreThreadTimeOut) {
 					r = workQueue.poll(keepAliveTime, TimeUnit.NANOSECONDS);
+				} else if((c = sizeController) != null) {
+					// 没有任务提交和完成时由空闲线程按周期采样，这样线程池闲下来后也能减少核心线程数
+					r = workQueue.poll(c.periodNanos, TimeUnit.NANOSECONDS);
+					if(r == null) {
+						c.maybeSample(System.nanoTime());
+						continue;
+					}
 				} else {
 					r = workQueue.take();
 				} 
@@ -292,7 +385,10 @@ public class ThreadPoolExecutor extends AbstractExecutorService {
 					return r;
 				}
 				
-				if(workerCanExit()) {
+				if((c = sizeController) != null) {
+					c.maybeSample(System.nanoTime());
+				}
+				if(workerCanExit(w)) {
 					if(runState >= SHUTDOWN) {
 						interruptIdleWorders();
 					}
@@ -305,12 +401,28 @@ public class ThreadPoolExecutor extends AbstractExecutorService {
 		
 	}
 
-	private boolean workerCanExit() {
+	/**
+	 * 运行中空闲超时的线程只有在去掉已经准备退出的线程后仍多于 corePoolSize 时才能退出，
+	 * 否则多个线程同时超时会一起退出，线程数掉到 corePoolSize 以下
+	 */
+	private boolean workerCanExit(Worker w) {
 		final ReentrantLock mainLock = this.mainLock;
 		mainLock.lock();
 		boolean canExit;
 		try {
-			canExit = runState >= STOP || workQueue.isEmpty() || (allowCoreThreadTimeOut && poolSize > Math.max(1,  corePoolSize));
+			int state = runState;
+			int live = poolSize - retiringWorkers;
+			if(state >= SHUTDOWN) {
+				canExit = state >= STOP || workQueue.isEmpty();
+			} else if(workQueue.isEmpty()) {
+				canExit = allowCoreThreadTimeOut || live > corePoolSize;
+			} else {
+				canExit = allowCoreThreadTimeOut && live > Math.max(1,  corePoolSize);
+			}
+			if(canExit && !w.retiring) {
+				w.retiring = true;
+				++retiringWorkers;
+			}
 		} finally {
 			mainLock.unlock();
 		}
@@ -321,9 +433,10 @@ public class ThreadPoolExecutor extends AbstractExecutorService {
 		final ReentrantLock mainLock = this.mainLock;
 		mainLock.lock();
 		try {
-//			for(Worker w : workers) {
-//				w.interruptIfdle();
-//			}
+			Iterator<Worker> it = workers.iterator();
+			while(it.hasNext()) {
+				it.next().interruptIfdle();
+			}
 		} finally {
 			mainLock.unlock();
 		}
@@ -334,6 +447,10 @@ public class ThreadPoolExecutor extends AbstractExecutorService {
 		mainLock.lock();
 		try {
 			completedTaskCount += w.completedTasks;
+			completedBusyNanos += w.busyNanos;
+			if(w.retiring) {
+				--retiringWorkers;
+			}
 			workers.remove(w);
 			if(--poolSize == 0) {
 				tryTermainte();
@@ -349,6 +466,7 @@ public class ThreadPoolExecutor extends AbstractExecutorService {
 			int state = runState;
 			if(state < STOP && !workQueue.isEmpty()) {
 				state = RUNNING;
+				addThread(null);
 			}
 			
 			if(state == STOP || state == SHUTDOWN) {
@@ -370,24 +488,19 @@ public class ThreadPoolExecutor extends AbstractExecutorService {
 		mainLock.lock();
 		
 		try {
-			if(security != null) {
-//				for(Worker w : workers) {
-//					security.checkAccess(w.thread);
-//				}
-				
-				int state = runState;
-				if(state <  SHUTDOWN) {
-					runState = SHUTDOWN;
-				}
-				
-				try {
-//					for(Worker w : workers) {
-//						w.interruptIfdle();
-//					}
-				} catch (SecurityException e) {
-					runState = state;
-					throw e;
+			int state = runState;
+			if(state <  SHUTDOWN) {
+				runState = SHUTDOWN;
+			}
+			
+			try {
+				Iterator<Worker> it = workers.iterator();
+				while(it.hasNext()) {
+					it.next().interruptIfdle();
 				}
+			} catch (SecurityException e) {
+				runState = state;
+				throw e;
 			}
 			
 			tryTermainte();
@@ -407,24 +520,19 @@ public class ThreadPoolExecutor extends AbstractExecutorService {
 		mainLock.lock();
 		
 		try {
-			if(security != null) {
-//				for(Worker w : workers) {
-//					security.checkAccess(w.thread);
-//				}
-					
-				int state = runState;
-				if(state < STOP) {
-					runState = STOP;
-				}
-				
-				try {
-//					for(Worker w : workers) {
-//						w.interruptNow();
-//					}
-				} catch (SecurityException e) {
-					runState = state;
-					throw e;
+			int state = runState;
+			if(state < STOP) {
+				runState = STOP;
+			}
+			
+			try {
+				Iterator<Worker> it = workers.iterator();
+				while(it.hasNext()) {
+					it.next().interruptNow();
 				}
+			} catch (SecurityException e) {
+				runState = state;
+				throw e;
 			}
 			
 			List<Runnable> tasks = drainQueue();
@@ -667,11 +775,12 @@ public class ThreadPoolExecutor extends AbstractExecutorService {
 		
 		try {
 			int n = 0;
-//			for(Worker w : workers) {
-//				if(w.isActive()) {
-//					++n;
-//				}
-//			}
+			Iterator<Worker> it = workers.iterator();
+			while(it.hasNext()) {
+				if(it.next().isActive()) {
+					++n;
+				}
+			}
 			return n;
 		} finally {
 			mainLock.unlock();
@@ -679,13 +788,7 @@ public class ThreadPoolExecutor extends AbstractExecutorService {
 	}
 	
 	public int getLargestPoolSize() {
-		final ReentrantLock mainLock = this.mainLock;
-		mainLock.lock();
-		try {
-			return largestPoolSize;
-		} finally {
-			mainLock.unlock();
-		}
+		return largestPoolSize;
 	}
 	
 	public long getTaskCount() {
@@ -693,12 +796,14 @@ public class ThreadPoolExecutor extends AbstractExecutorService {
 		mainLock.lock();
 		try {
 			long n = completedTaskCount;
-			/*for(Worker w : workers) {
-				n += w.competedTasks;
+			Iterator<Worker> it = workers.iterator();
+			while(it.hasNext()) {
+				Worker w = it.next();
+				n += w.completedTasks;
 				if(w.isActive()) {
 					++n;
 				}
-			}*/
+			}
 			return n + workQueue.size();
 		} finally {
 			mainLock.unlock();
@@ -710,15 +815,265 @@ public class ThreadPoolExecutor extends AbstractExecutorService {
 		mainLock.lock();
 		try {
 			long n = completedTaskCount;
-			/*for(Worker w : workers) {
-				n += w.completedTasks;
-			}*/
+			Iterator<Worker> it = workers.iterator();
+			while(it.hasNext()) {
+				n += it.next().completedTasks;
+			}
 			return n;
 		} finally {
 			mainLock.unlock();
 		}
 	}
 	
+	/**
+	 * 开启运行统计并返回统计对象，已经开启时返回原来的对象。
+	 * 队列中的任务不会被替换，只有开启后 submit 的任务才统计排队时间。
+	 */
+	public ThreadPoolMetrics enableMetrics() {
+		final ReentrantLock mainLock = this.mainLock;
+		mainLock.lock();
+		try {
+			ThreadPoolMetrics m = metrics;
+			if(m == null) {
+				metrics = m = new ThreadPoolMetrics();
+			}
+			return m;
+		} finally {
+			mainLock.unlock();
+		}
+	}
+	
+	public void disableMetrics() {
+		metrics = null;
+	}
+	
+	/**
+	 * 运行统计，读取不加锁，没有开启时返回 null
+	 */
+	public ThreadPoolMetrics getMetrics() {
+		return metrics;
+	}
+	
+	/**
+	 * 开启自动调整线程数：按 samplePeriod 采样队列长度、任务执行时间和吞吐量，
+	 * 在 [minPoolSize, maxPoolSize] 之间调整 corePoolSize，maximumPoolSize 固定为 maxPoolSize。
+	 * 减少线程数只是调小 corePoolSize，多出来的线程空闲 keepAliveTime 之后才退出。
+	 * 采样由提交任务、执行完任务和空闲的核心线程顺带完成，不另外起线程。
+	 */
+	public void enableAutoTuning(int minPoolSize, int maxPoolSize, long samplePeriod, TimeUnit unit) {
+		if(minPoolSize < 0 || maxPoolSize <= 0 || maxPoolSize < minPoolSize || samplePeriod <= 0) {
+			throw new IllegalArgumentException();
+		}
+		long periodNanos = unit.toNanos(samplePeriod);
+		
+		final ReentrantLock mainLock = this.mainLock;
+		mainLock.lock();
+		try {
+			int core = corePoolSize;
+			if(core < minPoolSize) {
+				setCorePoolSize(minPoolSize);
+			} else if(core > maxPoolSize) {
+				setCorePoolSize(maxPoolSize);
+			}
+			setMaximumPoolSize(maxPoolSize);
+			sizeController = new PoolSizeController(minPoolSize, maxPoolSize, periodNanos);
+		} finally {
+			mainLock.unlock();
+		}
+	}
+	
+	/**
+	 * 关闭自动调整，线程数保持在最后一次调整的结果
+	 */
+	public void disableAutoTuning() {
+		sizeController = null;
+	}
+	
+	public boolean isAutoTuning() {
+		return sizeController != null;
+	}
+	
+	/**
+	 * 最近一次采样的结果，没有采样过返回 null
+	 */
+	public PoolSizeDecision getLastPoolSizeDecision() {
+		return lastPoolSizeDecision;
+	}
+	
+	public long getPoolSizeIncreaseCount() {
+		return poolSizeIncreaseCount;
+	}
+	
+	public long getPoolSizeDecreaseCount() {
+		return poolSizeDecreaseCount;
+	}
+	
+	/** 希望线程的平均利用率，留一些余量应对突发 */
+	private static final double TARGET_UTILIZATION = 0.85;
+	
+	/** 增加线程后吞吐量至少提高这么多才认为有效 */
+	private static final double MIN_THROUGHPUT_GAIN = 0.05;
+	
+	/** 增加线程无效后在这么多个采样周期内不再增加线程 */
+	private static final int CEILING_PERIODS = 10;
+	
+	private final class PoolSizeController {
+		
+		final int minPoolSize;
+		
+		final int maxPoolSize;
+		
+		final long periodNanos;
+		
+		volatile long nextSampleTime;
+		
+		// 以下字段只在持有 sizingLock 时访问
+		boolean started;
+		long lastSampleTime;
+		long lastCompleted;
+		long lastBusyNanos;
+		int lastQueueSize;
+		double lastThroughput;
+		long serviceTimeNanos;
+		boolean grew;
+		int ceiling;
+		int ceilingPeriods;
+		
+		PoolSizeController(int minPoolSize, int maxPoolSize, long periodNanos) {
+			this.minPoolSize = minPoolSize;
+			this.maxPoolSize = maxPoolSize;
+			this.periodNanos = periodNanos;
+			this.nextSampleTime = System.nanoTime();
+		}
+		
+		/**
+		 * 热路径上只读一次 nextSampleTime，到期后拿到 sizingLock 的线程负责采样
+		 */
+		void maybeSample(long now) {
+			if(now - nextSampleTime < 0 || runState != RUNNING) {
+				return;
+			}
+			final ReentrantLock sizingLock = ThreadPoolExecutor.this.sizingLock;
+			if(!sizingLock.tryLock()) {
+				return;
+			}
+			try {
+				if(now - nextSampleTime >= 0 && sizeController == this) {
+					nextSampleTime = now + periodNanos;
+					samplePoolSize(this, now);
+				}
+			} finally {
+				sizingLock.unlock();
+			}
+		}
+	}
+	
+	/**
+	 * 按 Little 定律计算需要的线程数：到达率 × 平均执行时间 / 目标利用率，
+	 * 再加上在一个采样周期内处理完队列积压需要的线程数。
+	 * 增加每次最多翻倍，便于比较每一步的效果；减少每次最多减少四分之一，并且只在利用率低于目标时进行，避免抖动。
+	 * 队列积压时如果上次增加线程后吞吐量没有提高（比如 CPU 已经跑满），就在一段时间内不再增加线程。
+	 */
+	private void samplePoolSize(PoolSizeController c, long now) {
+		long completed;
+		long busy;
+		long longestRunning = 0L;
+		int pool;
+		final ReentrantLock mainLock = this.mainLock;
+		mainLock.lock();
+		try {
+			completed = completedTaskCount;
+			busy = completedBusyNanos;
+			Iterator<Worker> it = workers.iterator();
+			while(it.hasNext()) {
+				Worker w = it.next();
+				completed += w.completedTasks;
+				busy += w.busyNanos;
+				long start = w.taskStartTime;
+				if(start != 0L && now - start > 0) {
+					busy += now - start;
+					longestRunning = Math.max(longestRunning, now - start);
+				}
+			}
+			pool = poolSize;
+		} finally {
+			mainLock.unlock();
+		}
+		int queued = workQueue.size();
+		
+		if(!c.started) {
+			c.started = true;
+		} else {
+			long elapsed = Math.max(1L, now - c.lastSampleTime);
+			long done = completed - c.lastCompleted;
+			long busyDelta = Math.max(0L, busy - c.lastBusyNanos);
+			if(done > 0) {
+				c.serviceTimeNanos = busyDelta / done;
+			} else {
+				c.serviceTimeNanos = Math.max(c.serviceTimeNanos, longestRunning);
+			}
+			long service = c.serviceTimeNanos;
+			
+			double throughput = done * 1e9 / elapsed;
+			double arrivalRate = Math.max(0.0, (done + queued - c.lastQueueSize) * 1e9 / elapsed);
+			double utilization = pool > 0 ? Math.min(1.0, busyDelta / ((double) elapsed * pool)) : 0.0;
+			
+			int core = corePoolSize;
+			double required;
+			if(service > 0) {
+				required = arrivalRate * service / 1e9 / TARGET_UTILIZATION + (double) queued * service / c.periodNanos;
+			} else {
+				// 还没有任务执行完，只能一次加一个线程试探
+				required = queued > 0 ? core + 1 : 0;
+			}
+			
+			int limit = c.maxPoolSize;
+			if(c.ceiling > 0) {
+				if(--c.ceilingPeriods <= 0) {
+					c.ceiling = 0;
+				} else {
+					limit = c.ceiling;
+				}
+			}
+			if(c.grew && queued > 0 && throughput < c.lastThroughput * (1 + MIN_THROUGHPUT_GAIN)) {
+				c.ceiling = Math.max(1, core);
+				c.ceilingPeriods = CEILING_PERIODS;
+				limit = c.ceiling;
+			}
+			
+			int target = (int) Math.max(c.minPoolSize, Math.min(limit, Math.ceil(required)));
+			int newCore;
+			if(target > core) {
+				newCore = Math.min(target, Math.max(core + 1, core << 1));
+			} else if(target < core && utilization < TARGET_UTILIZATION) {
+				newCore = Math.max(target, core - Math.max(1, core >> 2));
+			} else {
+				newCore = core;
+			}
+			
+			if(newCore != core && runState == RUNNING) {
+				setCorePoolSize(newCore);
+				if(newCore > core) {
+					poolSizeIncreaseCount++;
+				} else {
+					poolSizeDecreaseCount++;
+				}
+			} else {
+				newCore = core;
+			}
+			c.grew = newCore > core;
+			c.lastThroughput = throughput;
+			
+			lastPoolSizeDecision = new PoolSizeDecision(System.currentTimeMillis(), core, newCore, pool, queued,
+					throughput, arrivalRate, service, utilization, required);
+		}
+		
+		c.lastSampleTime = now;
+		c.lastCompleted = completed;
+		c.lastBusyNanos = busy;
+		c.lastQueueSize = queued;
+	}
+	
 	protected void beforeExecute(Thread t, Runnable r) {}
 	
 	protected void afterExecute(Runnable task, RuntimeException ex) { }
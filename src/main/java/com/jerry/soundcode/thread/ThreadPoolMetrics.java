@@ -0,0 +1,278 @@
+package com.jerry.soundcode.thread;
+
+import com.jerry.soundcode.concurrent.atomic.AtomicLong;
+import com.jerry.soundcode.concurrent.atomic.LongAdder;
+import com.jerry.soundcode.concurrent.collection.ConcurrentHashMap;
+import com.jerry.soundcode.list.ArrayList;
+import com.jerry.soundcode.list.Iterator;
+import com.jerry.soundcode.list.List;
+import com.jerry.soundcode.map.HashMap;
+import com.jerry.soundcode.map.Map;
+
+/**
+ * 线程池的运行统计，由 ThreadPoolExecutor 和 StripedThreadPoolExecutor 的 enableMetrics 开启，
+ * 在 beforeExecute / afterExecute 的位置记录任务的执行时间和是否失败，队列中的任务不会被替换。
+ * 排队时间只统计开启后 submit 的任务：它们由 newTaskFor 创建，带有提交时间；直接 execute 的任务没有提交时间。
+ * submit 的任务抛出的异常被 FutureTask 保存起来，同样算作失败。
+ * 计数都用 LongAdder，耗时用 LatencyHistogram，按任务类型和拒绝策略的分类统计放在 ConcurrentHashMap 中，
+ * 记录和读取都不加锁，读取到的是一个近似的快照。
+ */
+public final class ThreadPoolMetrics {
+
+	private final LongAdder submitted = new LongAdder();
+
+	private final LongAdder failed = new LongAdder();
+
+	private final LongAdder rejected = new LongAdder();
+
+	private final LongAdder started = new LongAdder();
+
+	/** 只记录带有提交时间的任务 */
+	private final LatencyHistogram queueWait = new LatencyHistogram();
+
+	/** 每个执行完的任务记录一次，记录数就是执行完的任务数 */
+	private final LatencyHistogram execution = new LatencyHistogram();
+
+	private final ConcurrentHashMap<Class<?>, LongAdder> rejections = new ConcurrentHashMap<Class<?>, LongAdder>();
+
+	private final ConcurrentHashMap<Class<?>, TaskClassMetrics> taskClasses = new ConcurrentHashMap<Class<?>, TaskClassMetrics>();
+
+	/**
+	 * 一类任务的统计，FutureTask 按它包装的任务的类型归类
+	 */
+	public static final class TaskClassMetrics {
+
+		private final Class<?> taskClass;
+
+		private final LongAdder completed = new LongAdder();
+
+		private final LongAdder failed = new LongAdder();
+
+		/** 带有提交时间的任务数，排队时间按它求平均 */
+		private final LongAdder waited = new LongAdder();
+
+		private final LongAdder queueWaitNanos = new LongAdder();
+
+		private final LongAdder executionNanos = new LongAdder();
+
+		private final AtomicLong maxExecutionNanos = new AtomicLong();
+
+		TaskClassMetrics(Class<?> taskClass) {
+			this.taskClass = taskClass;
+		}
+
+		void record(long waitNanos, long execNanos, boolean fail) {
+			completed.increment();
+			if (fail) {
+				failed.increment();
+			}
+			if (waitNanos >= 0) {
+				waited.increment();
+				queueWaitNanos.add(waitNanos);
+			}
+			executionNanos.add(execNanos);
+			long m;
+			while (execNanos > (m = maxExecutionNanos.get())) {
+				if (maxExecutionNanos.compareAndSet(m, execNanos)) {
+					break;
+				}
+			}
+		}
+
+		public Class<?> getTaskClass() {
+			return taskClass;
+		}
+
+		/** 执行完的任务数，包括抛出异常的 */
+		public long getCompletedCount() {
+			return completed.sum();
+		}
+
+		public long getFailedCount() {
+			return failed.sum();
+		}
+
+		public long getMeanQueueWaitNanos() {
+			long n = waited.sum();
+			return n == 0 ? 0L : queueWaitNanos.sum() / n;
+		}
+
+		public long getMeanExecutionNanos() {
+			long n = completed.sum();
+			return n == 0 ? 0L : executionNanos.sum() / n;
+		}
+
+		public long getMaxExecutionNanos() {
+			return maxExecutionNanos.get();
+		}
+
+		@Override
+		public String toString() {
+			return taskClass.getName() + "[completed = " + getCompletedCount()
+					+ ", failed = " + getFailedCount()
+					+ ", mean wait = " + getMeanQueueWaitNanos() + "ns"
+					+ ", mean execution = " + getMeanExecutionNanos() + "ns"
+					+ ", max execution = " + getMaxExecutionNanos() + "ns]";
+		}
+	}
+
+	ThreadPoolMetrics() {
+	}
+
+	void taskSubmitted() {
+		submitted.increment();
+	}
+
+	/**
+	 * 任务从提交到 start 的时间，没有提交时间时返回 -1
+	 */
+	private static long waitNanos(Runnable task, long start) {
+		if (task instanceof TimedFutureTask) {
+			return Math.max(0L, start - ((TimedFutureTask<?>) task).submitTime);
+		}
+		return -1L;
+	}
+
+	void taskStarted(Runnable task, long start) {
+		started.increment();
+		long waitNanos = waitNanos(task, start);
+		if (waitNanos >= 0) {
+			queueWait.record(waitNanos);
+		}
+	}
+
+	/**
+	 * @param threw run 方法抛出了异常
+	 */
+	void taskFinished(Runnable task, long start, long end, boolean threw) {
+		boolean fail = threw || (task instanceof FutureTask && ((FutureTask<?>) task).ranExceptionally());
+		if (fail) {
+			failed.increment();
+		}
+		long execNanos = end - start;
+		execution.record(execNanos);
+
+		Object t = task instanceof FutureTask ? ((FutureTask<?>) task).getTask() : task;
+		Class<?> c = t.getClass();
+		TaskClassMetrics tm = taskClasses.get(c);
+		if (tm == null) {
+			TaskClassMetrics created = new TaskClassMetrics(c);
+			tm = taskClasses.putIfAbsent(c, created);
+			if (tm == null) {
+				tm = created;
+			}
+		}
+		tm.record(waitNanos(task, start), execNanos, fail);
+	}
+
+	/**
+	 * @param handler 拒绝策略，为 null 时只计入总的拒绝次数
+	 */
+	void taskRejected(RejectedExecutionHandler handler) {
+		rejected.increment();
+		if (handler == null) {
+			return;
+		}
+		Class<?> c = handler.getClass();
+		LongAdder n = rejections.get(c);
+		if (n == null) {
+			LongAdder created = new LongAdder();
+			n = rejections.putIfAbsent(c, created);
+			if (n == null) {
+				n = created;
+			}
+		}
+		n.increment();
+	}
+
+	/** 调用 execute 的次数，包括被拒绝的 */
+	public long getSubmittedCount() {
+		return submitted.sum();
+	}
+
+	/** 正在执行的任务数 */
+	public long getActiveCount() {
+		long done = execution.getCount();
+		return Math.max(0L, started.sum() - done);
+	}
+
+	/** 执行完的任务数，包括抛出异常的 */
+	public long getCompletedCount() {
+		return execution.getCount();
+	}
+
+	/** 抛出异常的任务数，包括 submit 的任务保存在 Future 中的异常 */
+	public long getFailedCount() {
+		return failed.sum();
+	}
+
+	public long getRejectedCount() {
+		return rejected.sum();
+	}
+
+	/**
+	 * 按拒绝策略的类型统计的拒绝次数
+	 */
+	public long getRejectedCount(Class<? extends RejectedExecutionHandler> handlerClass) {
+		LongAdder n = rejections.get(handlerClass);
+		return n == null ? 0L : n.sum();
+	}
+
+	public Map<Class<?>, Long> getRejectedCounts() {
+		Map<Class<?>, Long> m = new HashMap<Class<?>, Long>();
+		Iterator<Map.Entry<Class<?>, LongAdder>> it = rejections.entrySet().iterator();
+		while (it.hasNext()) {
+			Map.Entry<Class<?>, LongAdder> e = it.next();
+			m.put(e.getKey(), e.getValue().sum());
+		}
+		return m;
+	}
+
+	/** 任务从提交到开始执行的时间，只包括 submit 的任务 */
+	public LatencyHistogram getQueueWaitHistogram() {
+		return queueWait;
+	}
+
+	/** 任务 run 方法的执行时间 */
+	public LatencyHistogram getExecutionHistogram() {
+		return execution;
+	}
+
+	public TaskClassMetrics getTaskClassMetrics(Class<?> taskClass) {
+		return taskClasses.get(taskClass);
+	}
+
+	public List<TaskClassMetrics> getTaskClassMetrics() {
+		List<TaskClassMetrics> list = new ArrayList<TaskClassMetrics>();
+		Iterator<TaskClassMetrics> it = taskClasses.values().iterator();
+		while (it.hasNext()) {
+			list.add(it.next());
+		}
+		return list;
+	}
+
+	/**
+	 * 清空所有统计，和记录并发时可能丢掉一部分记录
+	 */
+	public void reset() {
+		submitted.reset();
+		failed.reset();
+		rejected.reset();
+		started.reset();
+		queueWait.reset();
+		execution.reset();
+		rejections.clear();
+		taskClasses.clear();
+	}
+
+	@Override
+	public String toString() {
+		return "ThreadPoolMetrics[submitted = " + getSubmittedCount()
+				+ ", active = " + getActiveCount()
+				+ ", completed = " + getCompletedCount()
+				+ ", failed = " + getFailedCount()
+				+ ", rejected = " + getRejectedCount()
+				+ ", queue wait = " + queueWait
+				+ ", execution = " + execution + "]";
+	}
+}
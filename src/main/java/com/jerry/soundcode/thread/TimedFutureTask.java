@@ -0,0 +1,18 @@
+package com.jerry.soundcode.thread;
+
+/**
+ * 记录了提交时间的 FutureTask，开启运行统计后由线程池的 newTaskFor 创建，
+ * 执行时用提交时间计算排队时间
+ */
+class TimedFutureTask<V> extends FutureTask<V> {
+
+	final long submitTime = System.nanoTime();
+
+	TimedFutureTask(Callable<V> callable) {
+		super(callable);
+	}
+
+	TimedFutureTask(Runnable runnable, V result) {
+		super(runnable, result);
+	}
+}
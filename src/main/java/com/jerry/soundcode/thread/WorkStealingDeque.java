@@ -0,0 +1,138 @@
+package com.jerry.soundcode.thread;
+
+import java.util.concurrent.RejectedExecutionException;
+
+import com.jerry.soundcode.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Chase-Lev 工作窃取双端队列。
+ *
+ * 和 ArrayDeque 一样是长度为 2 的幂的环形数组，满了之后容量翻倍。
+ * 只有所属的线程（owner）能在 top 一端 push/pop，按后进先出处理自己拆出来的任务；
+ * 其他线程在 base 一端 poll 窃取，先进先出，拿到的是最早拆出的、通常也是最大的任务。
+ *
+ * 每个槽位通过 CAS 置为 null 来认领，谁 CAS 成功谁拿到元素：
+ * owner 和窃取者只会在剩最后一个元素时争同一个槽位，扩容时也用 CAS 把旧数组里的元素搬走，
+ * 保证同一个元素不会被取走两次。
+ */
+final class WorkStealingDeque<E> {
+
+	static final int INITIAL_CAPACITY = 1 << 6;
+
+	static final int MAXIMUM_CAPACITY = 1 << 26;
+
+	private volatile AtomicReferenceArray<E> array;
+
+	/** 下一个被窃取的位置，只在认领槽位成功后推进 */
+	private volatile int base;
+
+	/** 下一个 push 的位置，只被 owner 修改 */
+	private volatile int top;
+
+	WorkStealingDeque() {
+		array = new AtomicReferenceArray<E>(INITIAL_CAPACITY);
+	}
+
+	/**
+	 * 只能由 owner 调用
+	 */
+	void push(E e) {
+		int s = top;
+		AtomicReferenceArray<E> a = array;
+		if (s - base >= a.length() - 1) {
+			a = growArray(a, s);
+		}
+		a.lazySet(s & (a.length() - 1), e);
+		top = s + 1;
+	}
+
+	/**
+	 * owner 从 top 一端取出最后 push 的元素，只能由 owner 调用
+	 */
+	E pop() {
+		for (;;) {
+			int s = top;
+			if (s - base <= 0) {
+				return null;
+			}
+			AtomicReferenceArray<E> a = array;
+			int i = (s - 1) & (a.length() - 1);
+			E e = a.get(i);
+			if (e == null) {
+				// 最后一个元素被窃取了
+				return null;
+			}
+			if (a.compareAndSet(i, e, null)) {
+				top = s - 1;
+				return e;
+			}
+		}
+	}
+
+	/**
+	 * e 还在 top 一端时把它取出来，只能由 owner 调用
+	 */
+	boolean tryUnpush(E e) {
+		int s = top;
+		if (s - base <= 0) {
+			return false;
+		}
+		AtomicReferenceArray<E> a = array;
+		if (a.compareAndSet((s - 1) & (a.length() - 1), e, null)) {
+			top = s - 1;
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * 从 base 一端窃取最早 push 的元素，任何线程都可以调用
+	 */
+	E poll() {
+		for (;;) {
+			int b = base;
+			if (top - b <= 0) {
+				return null;
+			}
+			AtomicReferenceArray<E> a = array;
+			int i = b & (a.length() - 1);
+			E e = a.get(i);
+			if (e != null && base == b && a.compareAndSet(i, e, null)) {
+				base = b + 1;
+				return e;
+			}
+			// 槽位为空说明别的线程刚认领了它还没推进 base，或者正在扩容，重新读取
+		}
+	}
+
+	/**
+	 * 容量翻倍，旧数组中的元素用 CAS 搬到新数组，和并发的窃取者竞争
+	 */
+	private AtomicReferenceArray<E> growArray(AtomicReferenceArray<E> old, int s) {
+		int oldLength = old.length();
+		if (oldLength >= MAXIMUM_CAPACITY) {
+			throw new RejectedExecutionException("Queue capacity exceeded");
+		}
+		AtomicReferenceArray<E> a = new AtomicReferenceArray<E>(oldLength << 1);
+		int oldMask = oldLength - 1;
+		int mask = (oldLength << 1) - 1;
+		for (int b = base; b != s; b++) {
+			int j = b & oldMask;
+			E e = old.get(j);
+			if (e != null && old.compareAndSet(j, e, null)) {
+				a.lazySet(b & mask, e);
+			}
+		}
+		array = a;
+		return a;
+	}
+
+	int size() {
+		int n = top - base;
+		return n < 0 ? 0 : n;
+	}
+
+	boolean isEmpty() {
+		return top - base <= 0;
+	}
+}